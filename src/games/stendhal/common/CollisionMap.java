@@ -15,24 +15,34 @@ package games.stendhal.common;
 
 
 import java.awt.geom.Rectangle2D;
-import java.util.BitSet;
+import java.util.Arrays;
 
 import games.stendhal.common.tiled.LayerDefinition;
 
+/**
+ * Static collision information of a map.
+ * <p>
+ * The tiles are stored row by row as bits in a long array, so that checking
+ * a rectangle needs only a few word operations per row and no temporary
+ * objects.
+ */
 public class CollisionMap {
+	/** Number of tiles stored in one word. */
+	private static final int WORD_BITS = 64;
+	private static final int WORD_SHIFT = 6;
 
 	private final int width;
 	private final int height;
-	private final BitSet[] colls;
+	/** Number of words used for one row. */
+	private final int rowWords;
+	/** Collision bits, row by row. */
+	private final long[] colls;
 
 	public CollisionMap(final int width, final int height) {
 		this.width = width;
 		this.height = height;
-		colls = new BitSet[width];
-		for (int i = 0; i < width; i++) {
-			colls[i] = new BitSet();
-		}
-
+		rowWords = (width + WORD_BITS - 1) >>> WORD_SHIFT;
+		colls = new long[rowWords * height];
 	}
 
 	public CollisionMap(final LayerDefinition layer) {
@@ -55,12 +65,14 @@ public class CollisionMap {
 	}
 
 	public boolean get(final int i, final int j) {
-		return colls[i].get(j);
+		if ((i < 0) || (i >= width) || (j < 0) || (j >= height)) {
+			return false;
+		}
+		return (colls[j * rowWords + (i >>> WORD_SHIFT)] & (1L << i)) != 0;
 	}
 
 	public void set(final int i, final int j) {
-
-		colls[i].set(j);
+		colls[index(i, j)] |= 1L << i;
 	}
 
 	public boolean collides(final int x, final int y, final int width, final int height) {
@@ -72,20 +84,44 @@ public class CollisionMap {
 			return true;
 		}
 
-		final BitSet result = new BitSet();
-		for (int i = x; i < x + width; i++) {
-			result.or(colls[i]);
+		if ((width <= 0) || (height <= 0)) {
+			return false;
 		}
 
-		return !result.get(y, y + height).isEmpty();
+		final int firstWord = x >>> WORD_SHIFT;
+		final int lastWord = (x + width - 1) >>> WORD_SHIFT;
+		// Shifts use only the low 6 bits, so these are the masks for the
+		// first and last word of each row
+		final long firstMask = -1L << x;
+		final long lastMask = -1L >>> (WORD_BITS - 1 - ((x + width - 1) & (WORD_BITS - 1)));
+
+		for (int row = y; row < y + height; row++) {
+			final int offset = row * rowWords;
+			if (firstWord == lastWord) {
+				if ((colls[offset + firstWord] & firstMask & lastMask) != 0) {
+					return true;
+				}
+			} else {
+				if ((colls[offset + firstWord] & firstMask) != 0) {
+					return true;
+				}
+				for (int word = firstWord + 1; word < lastWord; word++) {
+					if (colls[offset + word] != 0) {
+						return true;
+					}
+				}
+				if ((colls[offset + lastWord] & lastMask) != 0) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
 
 	public void clear() {
-		for (int i = 0; i < this.width; i++) {
-			colls[i].clear();
-		}
-
+		Arrays.fill(colls, 0L);
 	}
+
 	public static CollisionMap create(final LayerDefinition layer) {
 
 		CollisionMap collissionMap = new CollisionMap(layer.getWidth(), layer
@@ -101,17 +137,29 @@ public class CollisionMap {
 	}
 
 	public void unset(final int i, final int k) {
-		colls[i].clear(k);
-
+		colls[index(i, k)] &= ~(1L << i);
 	}
 
 	public void set(final Rectangle2D shape) {
 		int y = (int) shape.getY();
 		for (int x = (int) shape.getX(); x < shape.getX() + shape.getWidth(); x++) {
-
-			colls[x].set(y, (int) (y + shape.getHeight()));
+			for (int row = y; row < (int) (y + shape.getHeight()); row++) {
+				set(x, row);
+			}
 		}
-
 	}
 
+	/**
+	 * Get the index of the word containing a tile.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return index in the collision array
+	 */
+	private int index(final int x, final int y) {
+		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+			throw new IndexOutOfBoundsException("(" + x + "," + y + ") is outside the " + width + "x" + height + " map");
+		}
+		return y * rowWords + (x >>> WORD_SHIFT);
+	}
 }
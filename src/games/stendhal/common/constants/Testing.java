@@ -44,4 +44,8 @@ public class Testing {
 	/** Testing outfit system property */
 	public static final boolean OUTFITS =
 			(System.getProperty("testing.outfits") != null);
+
+	/** Testing inventory index system property */
+	public static final boolean INVENTORY =
+			(System.getProperty("testing.inventory") != null);
 }
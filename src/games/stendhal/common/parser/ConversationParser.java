@@ -12,13 +12,14 @@
  ***************************************************************************/
 package games.stendhal.common.parser;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.log4j.Logger;
 
 import games.stendhal.common.ErrorBuffer;
+import games.stendhal.common.filter.FilterCriteria;
 
 /**
  * Parser for conversations with a SpeakerNPC This class parses strings in English language and returns them as Sentence
@@ -31,10 +32,43 @@ public final class ConversationParser extends ErrorBuffer {
 	private static final Logger LOGGER = Logger.getLogger(ConversationParser.class);
 
 	/** A cache to hold pre-parsed trigger Expressions. */
-    private static Map<String, Expression> triggerExpressionsCache = new HashMap<String, Expression>();
+    private static final ParseCache<String, Expression> triggerExpressionsCache = new ParseCache<String, Expression>("trigger expressions", 20000);
 
     /** A cache to hold pre-parsed matching Sentences. */
-    private static Map<String, Sentence> matchingSentenceCache = new HashMap<String, Sentence>();
+    private static final ParseCache<String, Sentence> matchingSentenceCache = new ParseCache<String, Sentence>("matching sentences", 5000);
+
+    /** A cache to hold parsed player input, so that frequent phrases like "hi" or "yes" are not parsed again. */
+    private static final ParseCache<SentenceKey, Sentence> sentenceCache = new ParseCache<SentenceKey, Sentence>("sentences", 5000);
+
+    /**
+     * Key of the sentence cache: the text and the settings of the conversation context.
+     */
+    private static final class SentenceKey {
+    	private final String text;
+    	private final boolean ignoreIgnorable;
+    	private final int state;
+
+    	SentenceKey(final String text, final ConversationContext ctx) {
+    		this.text = text;
+    		this.ignoreIgnorable = ctx.getIgnoreIgnorable();
+    		this.state = ctx.getState();
+    	}
+
+    	@Override
+    	public int hashCode() {
+    		return text.hashCode() * 31 + (ignoreIgnorable ? 1231 : 1237) + state;
+    	}
+
+    	@Override
+    	public boolean equals(final Object obj) {
+    		if (!(obj instanceof SentenceKey)) {
+    			return false;
+    		}
+    		final SentenceKey other = (SentenceKey) obj;
+    		return text.equals(other.text) && (ignoreIgnorable == other.ignoreIgnorable)
+    				&& (state == other.state);
+    	}
+    }
 
     /** Tokenizer to split a sentence into words */
     private final transient StringTokenizer tokenizer;
@@ -213,6 +247,34 @@ public final class ConversationParser extends ErrorBuffer {
      * @return the parsed text
      */
     public static Sentence parse(final String text, final ConversationContext ctx) {
+    	// Sentences parsed with merged expressions are not modified afterwards,
+    	// so they can be shared. Sentences for matching are cached separately.
+    	if ((text == null) || (ctx == null) || ctx.isForMatching() || !ctx.getMergeExpressions()) {
+    		return parseUncached(text, ctx);
+    	}
+
+    	final SentenceKey key = new SentenceKey(text, ctx);
+    	Sentence sentence = sentenceCache.get(key);
+
+    	if (sentence == null) {
+    		sentence = parseUncached(text, ctx);
+
+    		if (!sentence.hasError()) {
+    			sentenceCache.put(key, sentence);
+    		}
+    	}
+
+    	return sentence;
+    }
+
+    /**
+     * Parse the given text sentence without looking into the sentence cache.
+     *
+     * @param text
+     * @param ctx
+     * @return the parsed text
+     */
+    private static Sentence parseUncached(final String text, final ConversationContext ctx) {
     	String txt;
 
         if (text == null) {
@@ -276,6 +338,48 @@ public final class ConversationParser extends ErrorBuffer {
         return sentence;
     }
 
+    /**
+     * Forget the parsed sentences containing a word of a name, because the
+     * word list has changed for these words.
+     *
+     * @param name name parsed without merging expressions
+     */
+    static void clearSentenceCache(final Sentence name) {
+    	final Set<String> words = new HashSet<String>();
+    	for (final Expression expr : name) {
+    		words.add(expr.getOriginal().toLowerCase());
+    		words.add(expr.getNormalized().toLowerCase());
+    	}
+    	words.remove("");
+
+    	sentenceCache.removeValues(new FilterCriteria<Sentence>() {
+    		@Override
+    		public boolean passes(final Sentence sentence) {
+    			final String text = sentence.getOriginalText().toLowerCase();
+    			for (final String word : words) {
+    				if (text.contains(word)) {
+    					return true;
+    				}
+    				for (final Expression expr : sentence) {
+    					if (expr.getNormalized().toLowerCase().contains(word)) {
+    						return true;
+    					}
+    				}
+    			}
+    			return false;
+    		}
+    	});
+    }
+
+    /**
+     * Get the hit, miss and eviction counters of the parser caches.
+     *
+     * @return cache statistics, one line per cache
+     */
+    public static String getCacheStatistics() {
+    	return triggerExpressionsCache + "\n" + matchingSentenceCache + "\n" + sentenceCache;
+    }
+
     /**
      * Read the next word from the parsed sentence.
      *
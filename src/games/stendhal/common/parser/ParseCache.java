@@ -0,0 +1,199 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import games.stendhal.common.filter.FilterCriteria;
+
+/**
+ * A size limited cache for parse results, which may be used by several
+ * threads. The entries are spread over segments, each of them dropping its
+ * least recently used entry when it is full.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class ParseCache<K, V> {
+	private static final int SEGMENTS = 16;
+
+	/**
+	 * one segment of the cache
+	 */
+	private final class Segment extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+
+		Segment(final int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+			if (size() > maxSize) {
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private final String name;
+	private final Segment[] segments;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * creates a new ParseCache
+	 *
+	 * @param name name used in the statistics
+	 * @param maxSize maximum number of entries
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public ParseCache(final String name, final int maxSize) {
+		this.name = name;
+		segments = new ParseCache.Segment[SEGMENTS];
+		final int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * gets the segment of a key
+	 *
+	 * @param key key
+	 * @return segment
+	 */
+	private Segment segmentFor(final Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[(h & 0x7fffffff) % SEGMENTS];
+	}
+
+	/**
+	 * looks up an entry
+	 *
+	 * @param key key
+	 * @return cached value or null
+	 */
+	public V get(final K key) {
+		final Segment segment = segmentFor(key);
+		final V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * adds an entry, dropping the least recently used one of its segment if
+	 * the segment is full
+	 *
+	 * @param key key
+	 * @param value value
+	 */
+	public void put(final K key, final V value) {
+		final Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	/**
+	 * removes the entries with matching values
+	 *
+	 * @param filter filter, which passes the values to remove
+	 */
+	public void removeValues(final FilterCriteria<? super V> filter) {
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				final Iterator<V> itr = segment.values().iterator();
+				while (itr.hasNext()) {
+					if (filter.passes(itr.next())) {
+						itr.remove();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * removes all entries
+	 */
+	public void clear() {
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * gets the number of entries
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		int res = 0;
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				res += segment.size();
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * gets the number of lookups which found an entry
+	 *
+	 * @return number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * gets the number of lookups which did not find an entry
+	 *
+	 * @return number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * gets the number of entries dropped because the cache was full
+	 *
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + size() + " entries, " + hits.get() + " hits, "
+				+ misses.get() + " misses, " + evictions.get() + " evictions";
+	}
+}
@@ -13,6 +13,7 @@
 package games.stendhal.common.parser;
 
 import java.util.Iterator;
+import java.util.regex.Pattern;
 
 import games.stendhal.common.ErrorDrain;
 //import games.stendhal.common.grammar.Grammar;
@@ -24,6 +25,12 @@ import games.stendhal.common.ErrorDrain;
  */
 public final class SentenceImplementation extends Sentence {
 
+    /** numbers with optional sign */
+    private static final Pattern NUMERIC = Pattern.compile("^[+-]?[0-9.,]+");
+
+    /** numbers following punctuation */
+    private static final Pattern PUNCTUATED_NUMERIC = Pattern.compile("[0-9.,]+");
+
     /**
      * Create a SentenceImplementation object in preparation to parse a text phrase.
      *
@@ -71,7 +78,7 @@ public final class SentenceImplementation extends Sentence {
                 String text = punct.getText();
 
                 // avoid to trim leading decimal points from numbers
-                if ((precedingPunct.length() > 0) && text.matches("[0-9.,]+")) {
+                if ((precedingPunct.length() > 0) && PUNCTUATED_NUMERIC.matcher(text).matches()) {
                     text = ws;
                 }
 
@@ -150,7 +157,7 @@ public final class SentenceImplementation extends Sentence {
 
             if (!wordFound) {
                 // handle numeric expressions
-                if (original.matches("^[+-]?[0-9.,]+")) {
+                if (NUMERIC.matcher(original).matches()) {
                     w.parseAmount(original, errors);
                     final int amount = w.getAmount();
                     if (amount < 0) {
@@ -67,7 +67,15 @@ public class SimilarExprMatcher extends ExpressionMatcher {
         } else if (limit < 1) {
             return false;
         } else {
-            final int dist = limitedLevenshtein(str1.toLowerCase(), str2.toLowerCase(), 0, 0, limit);
+            final String lower1 = str1.toLowerCase();
+            final String lower2 = str2.toLowerCase();
+
+            // The distance is at least the difference of the lengths.
+            if (Math.abs(lower1.length() - lower2.length()) > limit) {
+                return false;
+            }
+
+            final int dist = limitedLevenshtein(lower1, lower2, 0, 0, limit);
 
             return dist <= limit;
         }
@@ -16,14 +16,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 
@@ -52,13 +51,17 @@ final public class WordList {
 
 	public static final String WORDS_FILENAME = "words.txt";
 
-	private Map<String, WordEntry> words = new TreeMap<String, WordEntry>();
+	private final WordTrie<WordEntry> words = new WordTrie<WordEntry>();
 
-	private Map<String, Set<CompoundName>> compoundNames = new HashMap<String, Set<CompoundName>>();
+	/** compound names by their first word, sorted from the longest to the shortest name */
+	private final WordTrie<List<CompoundName>> compoundNames = new WordTrie<List<CompoundName>>();
 
 	// We keep house holding the usage of registered subject names (see registerSubjectName).
 	private Map<String, Integer> subjectRefCount = new HashMap<String, Integer>();
 
+	/** order of the compound names starting with the same word */
+	private static final Comparator<CompoundName> COMPOUND_NAME_ORDER = new ArrayLengthDescSorter<CompoundName>();
+
 	/** instance variable with package protection because of FindBugs hint */
 	static private WordList instance;
 
@@ -283,7 +286,7 @@ final public class WordList {
 	 * @param type
 	 */
 	public void printWordType(final PrintWriter writer, final String type) {
-		for (Map.Entry<String, WordEntry> it : words.entrySet()) {
+		for (Map.Entry<String, WordEntry> it : words.entries()) {
 			final WordEntry entry = it.getValue();
 			boolean matches;
 
@@ -345,7 +348,7 @@ final public class WordList {
 	 * @return WordEntry
 	 */
 	public WordEntry find(final String str) {
-		final WordEntry entry = words.get(trimWord(str));
+		final WordEntry entry = words.find(str);
 
 		return entry;
 	}
@@ -357,7 +360,7 @@ final public class WordList {
 	 * @return plural string
 	 */
 	public String plural(final String word) {
-		final WordEntry entry = words.get(trimWord(word));
+		final WordEntry entry = words.find(word);
 
 		if (entry != null) {
 			if ((entry.getType() != null) && !entry.getType().isPlural()) {
@@ -380,7 +383,7 @@ final public class WordList {
 	 * @return singular string
 	 */
 	public String singular(final String word) {
-		final WordEntry entry = words.get(trimWord(word));
+		final WordEntry entry = words.find(word);
 
 		if (entry != null) {
 			if (entry.isPlural()) {
@@ -578,15 +581,23 @@ final public class WordList {
 			Expression firstExpr = parsed.expressions.get(0);
 			String firstWord = firstExpr.getOriginal().toLowerCase();
 
-			Set<CompoundName> nameSet = compoundNames.get(firstWord);
+			List<CompoundName> nameList = compoundNames.get(firstWord);
 
-			if (nameSet == null) {
-				nameSet = new HashSet<CompoundName>();
-				compoundNames.put(firstWord, nameSet);
+			if (nameList == null) {
+				nameList = new ArrayList<CompoundName>(1);
+				compoundNames.put(firstWord, nameList);
 			}
 
-			nameSet.add(new CompoundName(parsed, typeString));
+			final CompoundName compName = new CompoundName(parsed, typeString);
+			final int idx = Collections.binarySearch(nameList, compName, COMPOUND_NAME_ORDER);
+
+			if (idx < 0) {
+				nameList.add(-idx - 1, compName);
+			}
 		}
+
+		// sentences parsed before may now be classified differently
+		ConversationParser.clearSentenceCache(parsed);
 	}
 
 	/**
@@ -598,12 +609,12 @@ final public class WordList {
 	public CompoundName searchCompoundName(AbstractList<Expression> expressions, int idx) {
         Expression first = expressions.get(idx);
 
-    	Set<CompoundName> candidates = compoundNames.get(first.getOriginal().toLowerCase());
+    	final List<CompoundName> candidates = compoundNames.findLowerCase(first.getOriginal());
 
 		if (candidates != null) {
-	    	TreeSet<CompoundName> candidatesSortedFromLongestToShortest = new TreeSet<CompoundName>(new ArrayLengthDescSorter<CompoundName>());
-	    	candidatesSortedFromLongestToShortest.addAll(candidates);
-    		for (CompoundName compName : candidatesSortedFromLongestToShortest) {
+			// The candidates are sorted from the longest to the shortest name.
+			for (int i = 0; i < candidates.size(); i++) {
+				final CompoundName compName = candidates.get(i);
     			if (compName.matches(expressions, idx)) {
     				return compName;
     			}
@@ -628,14 +639,14 @@ final public class WordList {
 			Expression firstExpr = parsed.expressions.get(0);
 			String firstWord = firstExpr.getOriginal().toLowerCase();
 
-			Set<CompoundName> nameSet = compoundNames.get(firstWord);
+			List<CompoundName> nameList = compoundNames.get(firstWord);
 
-			if (nameSet != null) {
-				for(CompoundName compName : nameSet) {
+			if (nameList != null) {
+				for(CompoundName compName : nameList) {
 					if (compName.matches(parsed.expressions, 0)) {
-						nameSet.remove(compName);
+						nameList.remove(compName);
 
-						if (nameSet.isEmpty()) {
+						if (nameList.isEmpty()) {
 							compoundNames.remove(firstWord);
 						}
 
@@ -650,6 +661,8 @@ final public class WordList {
 				words.remove(expr.getNormalized());
 			}
 		}
+
+		ConversationParser.clearSentenceCache(parsed);
 	}
 
 	/**
@@ -0,0 +1,227 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A character trie mapping words to values. Each node stores its child
+ * characters in a sorted array. Words of the player input can be looked up
+ * in lower case and trimmed form without creating new strings.
+ *
+ * @param <V> value type
+ */
+final class WordTrie<V> {
+	private static final char[] NO_KEYS = new char[0];
+	private static final Object[] NO_CHILDREN = new Object[0];
+
+	/**
+	 * a node of the trie
+	 */
+	private static final class Node {
+		/** sorted characters of the child nodes */
+		char[] keys = NO_KEYS;
+
+		/** child nodes in the order of keys */
+		Object[] children = NO_CHILDREN;
+
+		int count;
+
+		/** value of the word ending at this node, or null */
+		Object value;
+
+		Node child(final char c) {
+			final int idx = Arrays.binarySearch(keys, 0, count, c);
+			if (idx < 0) {
+				return null;
+			}
+			return (Node) children[idx];
+		}
+
+		Node addChild(final char c) {
+			int idx = Arrays.binarySearch(keys, 0, count, c);
+			if (idx >= 0) {
+				return (Node) children[idx];
+			}
+
+			idx = -idx - 1;
+			if (count == keys.length) {
+				final int size = Math.max(2, count * 2);
+				keys = Arrays.copyOf(keys, size);
+				children = Arrays.copyOf(children, size);
+			}
+			System.arraycopy(keys, idx, keys, idx + 1, count - idx);
+			System.arraycopy(children, idx, children, idx + 1, count - idx);
+			final Node node = new Node();
+			keys[idx] = c;
+			children[idx] = node;
+			count++;
+			return node;
+		}
+	}
+
+	private final Node root = new Node();
+	private int size;
+
+	/**
+	 * gets the value of a word
+	 *
+	 * @param key word as stored
+	 * @return value or null
+	 */
+	V get(final String key) {
+		Node node = root;
+		for (int i = 0; (node != null) && (i < key.length()); i++) {
+			node = node.child(key.charAt(i));
+		}
+		return value(node);
+	}
+
+	/**
+	 * gets the value of a word in the form of WordList.trimWord()
+	 *
+	 * @param word word as typed
+	 * @return value or null
+	 */
+	V find(final String word) {
+		int start = 0;
+		int end = word.length();
+		while ((start < end) && (word.charAt(start) == '\'')) {
+			start++;
+		}
+		while ((end > start) && (word.charAt(end - 1) == '\'')) {
+			end--;
+		}
+		return lookupLowerCase(word, start, end, true);
+	}
+
+	/**
+	 * gets the value of a word in lower case
+	 *
+	 * @param word word as typed
+	 * @return value or null
+	 */
+	V findLowerCase(final String word) {
+		return lookupLowerCase(word, 0, word.length(), false);
+	}
+
+	/**
+	 * walks the trie with the lower case characters of a part of a word
+	 *
+	 * @param word word
+	 * @param start index of the first character
+	 * @param end index after the last character
+	 * @param trim trim the word like WordList.trimWord() in case of a fall back
+	 * @return value or null
+	 */
+	private V lookupLowerCase(final String word, final int start, final int end, final boolean trim) {
+		Node node = root;
+		for (int i = start; (node != null) && (i < end); i++) {
+			char c = word.charAt(i);
+			if ((c >= 'A') && (c <= 'Z')) {
+				if (c == 'I') {
+					// lower case depends on the locale
+					return get(trim ? WordList.trimWord(word) : word.toLowerCase());
+				}
+				c = (char) (c + ('a' - 'A'));
+			} else if (c >= 0x80) {
+				// let String.toLowerCase() handle special characters
+				return get(trim ? WordList.trimWord(word) : word.toLowerCase());
+			}
+			node = node.child(c);
+		}
+		return value(node);
+	}
+
+	/**
+	 * stores the value of a word
+	 *
+	 * @param key word
+	 * @param value value, not null
+	 * @return previous value or null
+	 */
+	V put(final String key, final V value) {
+		Node node = root;
+		for (int i = 0; i < key.length(); i++) {
+			node = node.addChild(key.charAt(i));
+		}
+		final V prev = value(node);
+		if (prev == null) {
+			size++;
+		}
+		node.value = value;
+		return prev;
+	}
+
+	/**
+	 * removes a word
+	 *
+	 * @param key word
+	 * @return previous value or null
+	 */
+	V remove(final String key) {
+		Node node = root;
+		for (int i = 0; (node != null) && (i < key.length()); i++) {
+			node = node.child(key.charAt(i));
+		}
+		final V prev = value(node);
+		if (prev != null) {
+			node.value = null;
+			size--;
+		}
+		return prev;
+	}
+
+	/**
+	 * gets the number of words
+	 *
+	 * @return number of words
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * gets all words and values sorted by word
+	 *
+	 * @return list of entries
+	 */
+	List<Map.Entry<String, V>> entries() {
+		final List<Map.Entry<String, V>> res = new ArrayList<Map.Entry<String, V>>(size);
+		collect(root, new StringBuilder(), res);
+		return res;
+	}
+
+	private void collect(final Node node, final StringBuilder prefix, final List<Map.Entry<String, V>> res) {
+		final V value = value(node);
+		if (value != null) {
+			res.add(new AbstractMap.SimpleImmutableEntry<String, V>(prefix.toString(), value));
+		}
+		for (int i = 0; i < node.count; i++) {
+			prefix.append(node.keys[i]);
+			collect((Node) node.children[i], prefix, res);
+			prefix.setLength(prefix.length() - 1);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private V value(final Node node) {
+		if (node == null) {
+			return null;
+		}
+		return (V) node.value;
+	}
+}
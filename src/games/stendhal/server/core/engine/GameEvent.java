@@ -14,10 +14,6 @@ package games.stendhal.server.core.engine;
 
 import java.util.List;
 
-import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
-import marauroa.server.game.dbcommand.LogGameEventCommand;
-
 
 /**
  * a game event for logging
@@ -57,7 +53,14 @@ public class GameEvent {
 	 * writes the event to the database
 	 */
 	public void raise() {
-		DBCommand command = new LogGameEventCommand(source, event, params);
-		DBCommandQueue.get().enqueue(command);
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				raise();
+			}
+		})) {
+			return;
+		}
+		GameEventSink.get().add(source, event, params);
 	}
 }
@@ -0,0 +1,602 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import marauroa.common.Configuration;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.Statistics;
+
+/**
+ * Writes game events to the table gameEvents.
+ * <p>
+ * Events are put into a bounded queue and inserted in batches by a thread of
+ * their own. If the database falls behind and the queue is full, the
+ * configured {@link OverflowPolicy} decides what happens to new events. The
+ * following settings are read from server.ini:
+ * <ul>
+ * <li>game_event_queue_size: number of events that may wait, default 10000</li>
+ * <li>game_event_batch_size: maximum number of events per insert, default 200</li>
+ * <li>game_event_overflow: block, drop or spill, default spill</li>
+ * <li>game_event_spill_file: file for spilled events, default log/gameEvents.spill</li>
+ * </ul>
+ */
+public class GameEventSink {
+	private static final Logger logger = Logger.getLogger(GameEventSink.class);
+
+	private static final String INSERT = "INSERT INTO gameEvents (timedate, source, event, param1, param2) VALUES (?, ?, ?, ?, ?)";
+
+	/** number of attempts to write a batch before it is given up */
+	private static final int MAX_ATTEMPTS = 3;
+
+	/** time in ms to wait after a failed attempt */
+	private static final long RETRY_DELAY = 1000;
+
+	/**
+	 * what to do with an event if the queue is full
+	 */
+	public enum OverflowPolicy {
+		/** wait until there is room in the queue */
+		BLOCK,
+		/** discard the event and count it */
+		DROP,
+		/** append the event to a local file, which is replayed later */
+		SPILL
+	}
+
+	private static GameEventSink instance;
+
+	private final BlockingQueue<Row> queue;
+	private final int batchSize;
+	private final OverflowPolicy policy;
+	private final File spillFile;
+	private final File replayFile;
+
+	/** writer for the spill file, opened on first use */
+	private Writer spillWriter;
+	private final Object spillLock = new Object();
+
+	private final AtomicInteger written = new AtomicInteger();
+	private final AtomicInteger dropped = new AtomicInteger();
+	private final AtomicInteger spilled = new AtomicInteger();
+
+	private volatile boolean running = true;
+	private final Thread thread;
+
+	/**
+	 * creates a new GameEventSink and starts its writer thread
+	 *
+	 * @param capacity maximum number of waiting events
+	 * @param batchSize maximum number of events per insert
+	 * @param policy what to do with events if the queue is full
+	 * @param spillFile file for spilled events
+	 */
+	GameEventSink(final int capacity, final int batchSize, final OverflowPolicy policy, final File spillFile) {
+		this.queue = new ArrayBlockingQueue<Row>(capacity);
+		this.batchSize = batchSize;
+		this.policy = policy;
+		this.spillFile = spillFile;
+		this.replayFile = new File(spillFile.getPath() + ".replay");
+		thread = new Thread("GameEventSink") {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * gets the GameEventSink, creating it with the settings from server.ini
+	 * on first use
+	 *
+	 * @return GameEventSink
+	 */
+	public static synchronized GameEventSink get() {
+		if (instance == null) {
+			int capacity = 10000;
+			int batchSize = 200;
+			OverflowPolicy policy = OverflowPolicy.SPILL;
+			String spillFile = "log/gameEvents.spill";
+			try {
+				final Configuration config = Configuration.getConfiguration();
+				capacity = config.getInt("game_event_queue_size", capacity);
+				batchSize = config.getInt("game_event_batch_size", batchSize);
+				policy = OverflowPolicy.valueOf(config.get("game_event_overflow", "spill").trim().toUpperCase(Locale.ENGLISH));
+				spillFile = config.get("game_event_spill_file", spillFile);
+			} catch (final IOException e) {
+				logger.error(e, e);
+			} catch (final IllegalArgumentException e) {
+				logger.error("Invalid game_event_overflow, using " + policy, e);
+			}
+			instance = new GameEventSink(capacity, batchSize, policy, new File(spillFile));
+		}
+		return instance;
+	}
+
+	/**
+	 * adds an event to the queue
+	 *
+	 * @param source source of the event
+	 * @param event name of the event
+	 * @param params parameters of the event
+	 */
+	public void add(final String source, final String event, final String... params) {
+		final Row row = new Row(source, event, params);
+		if (!running) {
+			overflow(row);
+			return;
+		}
+		if (queue.offer(row)) {
+			return;
+		}
+		if (policy == OverflowPolicy.BLOCK) {
+			try {
+				queue.put(row);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				overflow(row);
+			}
+			return;
+		}
+		overflow(row);
+	}
+
+	/**
+	 * handles an event that cannot be written by the writer thread
+	 *
+	 * @param row event
+	 */
+	private void overflow(final Row row) {
+		if (policy == OverflowPolicy.SPILL && spill(row)) {
+			return;
+		}
+		dropped.incrementAndGet();
+		Statistics.getStatistics().add("Game events dropped", 1);
+	}
+
+	/**
+	 * appends an event to the spill file
+	 *
+	 * @param row event
+	 * @return true, if the event was written to the file
+	 */
+	private boolean spill(final Row row) {
+		synchronized (spillLock) {
+			try {
+				if (spillWriter == null) {
+					final File dir = spillFile.getAbsoluteFile().getParentFile();
+					if (dir != null) {
+						dir.mkdirs();
+					}
+					spillWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spillFile, true), "UTF-8"));
+				}
+				spillWriter.write(row.toLine());
+				spillWriter.write('\n');
+				spillWriter.flush();
+			} catch (final IOException e) {
+				logger.error("Cannot spill game event " + row, e);
+				return false;
+			}
+		}
+		spilled.incrementAndGet();
+		Statistics.getStatistics().add("Game events spilled", 1);
+		return true;
+	}
+
+	/**
+	 * main loop of the writer thread
+	 */
+	void writeLoop() {
+		final List<Row> batch = new ArrayList<Row>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				if (TransactionPool.get() == null) {
+					// the database is not set up yet, keep the events queued
+					if (!running) {
+						break;
+					}
+					Thread.sleep(RETRY_DELAY);
+					continue;
+				}
+				final Row first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					// the database keeps up, so this is a good time to catch up
+					replaySpilled();
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				if (!writeWithRetry(batch)) {
+					for (final Row row : batch) {
+						overflow(row);
+					}
+				}
+				batch.clear();
+			} catch (final InterruptedException e) {
+				logger.debug("GameEventSink interrupted", e);
+			} catch (final RuntimeException e) {
+				logger.error("Error writing game events", e);
+				for (final Row row : batch) {
+					overflow(row);
+				}
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * writes a batch, trying again after database errors
+	 *
+	 * @param batch events to write
+	 * @return true, if the batch was written
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	private boolean writeWithRetry(final List<Row> batch) throws InterruptedException {
+		Statistics.getStatistics().set("Game events queued", queue.size());
+		Statistics.getStatistics().set("Game event batch", batch.size());
+		for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+			try {
+				final long start = System.currentTimeMillis();
+				write(batch);
+				Statistics.getStatistics().set("Game event commit ms", (int) (System.currentTimeMillis() - start));
+				Statistics.getStatistics().add("Game events written", batch.size());
+				written.addAndGet(batch.size());
+				return true;
+			} catch (final SQLException e) {
+				logger.warn("Writing " + batch.size() + " game events failed, attempt " + attempt, e);
+			}
+			if (attempt < MAX_ATTEMPTS && running) {
+				Thread.sleep(RETRY_DELAY * attempt);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * inserts events into the table gameEvents in one transaction
+	 *
+	 * @param rows events
+	 * @throws SQLException in case of a database error
+	 */
+	void write(final List<Row> rows) throws SQLException {
+		final TransactionPool pool = TransactionPool.get();
+		if (pool == null) {
+			throw new SQLException("Database is not initialized");
+		}
+		final DBTransaction transaction = pool.beginWork();
+		try {
+			final PreparedStatement statement = transaction.prepareStatement(INSERT, null);
+			for (final Row row : rows) {
+				statement.setTimestamp(1, row.timedate);
+				statement.setString(2, row.source);
+				statement.setString(3, row.event);
+				statement.setString(4, row.param1);
+				statement.setString(5, row.param2);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+			pool.commit(transaction);
+		} catch (final SQLException e) {
+			pool.rollback(transaction);
+			throw e;
+		} catch (final RuntimeException e) {
+			pool.rollback(transaction);
+			throw e;
+		}
+	}
+
+	/**
+	 * writes the events of the spill file to the database. Events that
+	 * cannot be written stay in the file for the next attempt. Lines that
+	 * cannot be read are logged and skipped.
+	 */
+	void replaySpilled() {
+		synchronized (spillLock) {
+			if (!replayFile.exists()) {
+				if (!spillFile.exists()) {
+					return;
+				}
+				closeSpillWriter();
+				if (!spillFile.renameTo(replayFile)) {
+					logger.error("Cannot rename " + spillFile + " to " + replayFile);
+					return;
+				}
+			}
+		}
+
+		final List<Row> rest = new ArrayList<Row>();
+		int count = 0;
+		try {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(replayFile), "UTF-8"));
+			try {
+				final List<Row> batch = new ArrayList<Row>(batchSize);
+				String line = reader.readLine();
+				while (line != null) {
+					try {
+						batch.add(Row.fromLine(line));
+					} catch (final IllegalArgumentException e) {
+						logger.error("Skipping invalid line in " + replayFile + ": " + line, e);
+					}
+					line = reader.readLine();
+					if ((batch.size() >= batchSize || line == null) && !batch.isEmpty()) {
+						if (rest.isEmpty()) {
+							try {
+								write(batch);
+								count += batch.size();
+								written.addAndGet(batch.size());
+								batch.clear();
+								continue;
+							} catch (final SQLException e) {
+								logger.warn("Replaying spilled game events failed", e);
+							}
+						}
+						rest.addAll(batch);
+						batch.clear();
+					}
+				}
+			} finally {
+				reader.close();
+			}
+			if (rest.isEmpty()) {
+				if (!replayFile.delete()) {
+					logger.error("Cannot delete " + replayFile);
+				}
+			} else {
+				final File tmp = new File(replayFile.getPath() + ".tmp");
+				final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+				try {
+					for (final Row row : rest) {
+						writer.write(row.toLine());
+						writer.write('\n');
+					}
+				} finally {
+					writer.close();
+				}
+				if (!replayFile.delete() || !tmp.renameTo(replayFile)) {
+					logger.error("Cannot replace " + replayFile + " with " + tmp);
+				}
+			}
+		} catch (final IOException e) {
+			logger.error("Cannot replay " + replayFile, e);
+		}
+		if (count > 0) {
+			logger.info("Replayed " + count + " spilled game events");
+			Statistics.getStatistics().add("Game events written", count);
+		}
+	}
+
+	private void closeSpillWriter() {
+		if (spillWriter != null) {
+			try {
+				spillWriter.close();
+			} catch (final IOException e) {
+				logger.error(e, e);
+			}
+			spillWriter = null;
+		}
+	}
+
+	/**
+	 * stops the writer thread after it has written the waiting events.
+	 * Events that are not written within the timeout are handled according
+	 * to the overflow policy.
+	 *
+	 * @param timeout time in ms to wait for the writer thread
+	 */
+	public void shutdown(final long timeout) {
+		running = false;
+		try {
+			thread.join(timeout);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		final List<Row> rest = new ArrayList<Row>();
+		queue.drainTo(rest);
+		for (final Row row : rest) {
+			overflow(row);
+		}
+		synchronized (spillLock) {
+			closeSpillWriter();
+		}
+	}
+
+	/**
+	 * gets the number of events waiting in the queue
+	 *
+	 * @return queue depth
+	 */
+	public int getQueued() {
+		return queue.size();
+	}
+
+	/**
+	 * gets the number of events written to the database
+	 *
+	 * @return number of written events
+	 */
+	public int getWritten() {
+		return written.get();
+	}
+
+	/**
+	 * gets the number of discarded events
+	 *
+	 * @return number of dropped events
+	 */
+	public int getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * gets the number of events written to the spill file
+	 *
+	 * @return number of spilled events
+	 */
+	public int getSpilled() {
+		return spilled.get();
+	}
+
+	/**
+	 * a row of the table gameEvents
+	 */
+	static final class Row {
+		/** time the event happened */
+		final Timestamp timedate;
+		final String source;
+		final String event;
+		final String param1;
+		final String param2;
+
+		/**
+		 * creates a row, combining and truncating the parameters the same
+		 * way as marauroa's GameEventDAO
+		 *
+		 * @param source source of the event
+		 * @param event name of the event
+		 * @param params parameters of the event
+		 */
+		Row(final String source, final String event, final String... params) {
+			this.timedate = new Timestamp(System.currentTimeMillis());
+			this.source = truncate(source, 64);
+			this.event = truncate(event, 64);
+			this.param1 = truncate(params.length > 0 ? params[0] : "", 127);
+			final StringBuilder sb = new StringBuilder();
+			for (int i = 1; i < params.length; i++) {
+				sb.append(params[i]);
+				sb.append(" ");
+			}
+			this.param2 = truncate(sb.toString(), 255);
+		}
+
+		private Row(final Timestamp timedate, final String source, final String event, final String param1, final String param2) {
+			this.timedate = timedate;
+			this.source = source;
+			this.event = event;
+			this.param1 = param1;
+			this.param2 = param2;
+		}
+
+		private static String truncate(final String value, final int length) {
+			if (value == null || value.length() <= length) {
+				return value;
+			}
+			return value.substring(0, length);
+		}
+
+		/**
+		 * converts the row to a line of the spill file
+		 *
+		 * @return tab separated fields, starting with the time in ms
+		 */
+		String toLine() {
+			return timedate.getTime() + "\t" + escape(source) + "\t" + escape(event) + "\t" + escape(param1) + "\t" + escape(param2);
+		}
+
+		/**
+		 * reads a row from a line of the spill file
+		 *
+		 * @param line tab separated fields
+		 * @return row
+		 * @throws IllegalArgumentException if the line is not a valid row
+		 */
+		static Row fromLine(final String line) {
+			final String[] fields = line.split("\t", -1);
+			if (fields.length != 5) {
+				throw new IllegalArgumentException("Invalid spilled game event: " + line);
+			}
+			final Timestamp timedate;
+			try {
+				timedate = new Timestamp(Long.parseLong(fields[0]));
+			} catch (final NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid time of spilled game event: " + line, e);
+			}
+			return new Row(timedate, unescape(fields[1]), unescape(fields[2]), unescape(fields[3]), unescape(fields[4]));
+		}
+
+		private static String escape(final String value) {
+			if (value == null) {
+				return "\\0";
+			}
+			final StringBuilder sb = new StringBuilder(value.length());
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				if (c == '\\') {
+					sb.append("\\\\");
+				} else if (c == '\t') {
+					sb.append("\\t");
+				} else if (c == '\n') {
+					sb.append("\\n");
+				} else if (c == '\r') {
+					sb.append("\\r");
+				} else {
+					sb.append(c);
+				}
+			}
+			return sb.toString();
+		}
+
+		private static String unescape(final String value) {
+			if (value.equals("\\0")) {
+				return null;
+			}
+			final StringBuilder sb = new StringBuilder(value.length());
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				if (c == '\\' && i + 1 < value.length()) {
+					i++;
+					final char next = value.charAt(i);
+					if (next == 't') {
+						sb.append('\t');
+					} else if (next == 'n') {
+						sb.append('\n');
+					} else if (next == 'r') {
+						sb.append('\r');
+					} else {
+						sb.append(next);
+					}
+				} else {
+					sb.append(c);
+				}
+			}
+			return sb.toString();
+		}
+
+		@Override
+		public String toString() {
+			return source + " " + event + " " + param1 + " " + param2;
+		}
+	}
+}
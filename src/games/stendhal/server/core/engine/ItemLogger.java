@@ -12,8 +12,12 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.core.engine.dbcommand.AbstractLogItemEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogItemEventBatchCommand;
 import games.stendhal.server.core.engine.dbcommand.LogMergeItemEventCommand;
 import games.stendhal.server.core.engine.dbcommand.LogSimpleItemEventCommand;
 import games.stendhal.server.core.engine.dbcommand.LogSplitItemEventCommand;
@@ -25,17 +29,89 @@ import games.stendhal.server.entity.player.Player;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 import marauroa.server.db.command.DBCommandQueue;
+import marauroa.server.game.Statistics;
 
 /**
  * Item Logger.
+ * <p>
+ * The events are collected in a buffer, that is shared by all ItemLogger
+ * instances. The buffer is handed to the database as a single command when
+ * it is full, when the oldest event has waited for {@link #MAX_DELAY} ms, and
+ * on server shutdown.
  *
  * @author hendrik
  */
 public class ItemLogger {
+	/** number of buffered events that are written at once */
+	static final int BATCH_SIZE = 200;
+
+	/** maximum time in ms an event is kept in the buffer */
+	static final long MAX_DELAY = 5000;
+
+	/** events waiting to be handed to the database */
+	private static List<AbstractLogItemEventCommand> buffer = new ArrayList<AbstractLogItemEventCommand>(BATCH_SIZE);
+
+	/** time the oldest event in the buffer was added */
+	private static long oldestEventTime;
 
 
 	public void addLogItemEventCommand(final AbstractLogItemEventCommand command) {
-		DBCommandQueue.get().enqueue(command);
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				addLogItemEventCommand(command);
+			}
+		})) {
+			return;
+		}
+		buffer(command);
+	}
+
+	/**
+	 * Adds an event to the buffer, writing the buffer if it is full.
+	 *
+	 * @param command event to add
+	 */
+	private static synchronized void buffer(final AbstractLogItemEventCommand command) {
+		if (buffer.isEmpty()) {
+			oldestEventTime = System.currentTimeMillis();
+		}
+		buffer.add(command);
+		if (buffer.size() >= BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the buffer if the oldest event has waited long enough, and
+	 * updates the statistics. Called once per turn.
+	 */
+	public static synchronized void flushIfDue() {
+		if (!buffer.isEmpty() && (System.currentTimeMillis() - oldestEventTime >= MAX_DELAY)) {
+			flush();
+		}
+		final Statistics stats = Statistics.getStatistics();
+		stats.set("Item log buffered", buffer.size());
+		stats.set("Item log queued", LogItemEventBatchCommand.getQueuedEvents());
+	}
+
+	/**
+	 * Hands all buffered events to the database.
+	 */
+	public static synchronized void flush() {
+		if (!buffer.isEmpty()) {
+			DBCommandQueue.get().enqueue(new LogItemEventBatchCommand(buffer));
+			buffer = new ArrayList<AbstractLogItemEventCommand>(BATCH_SIZE);
+		}
+	}
+
+	/**
+	 * Gets the number of events waiting in the buffer.
+	 *
+	 * @return number of buffered events
+	 */
+	public static synchronized int getBufferedEvents() {
+		return buffer.size();
 	}
 
 
@@ -0,0 +1,128 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import games.stendhal.server.core.engine.db.KillLogEntry;
+import games.stendhal.server.core.engine.dbcommand.LogKillsCommand;
+import marauroa.server.db.command.DBCommandQueue;
+
+/**
+ * Kill Logger.
+ * <p>
+ * Kills are counted in memory for each combination of killed, killer and day,
+ * and added to the kills table once a minute and on server shutdown. The
+ * table ends up the same as if every kill was written on its own.
+ */
+public class KillLogger {
+	/** time in ms between writes to the database */
+	static final long FLUSH_INTERVAL = 60000;
+
+	/** kills that have not been written yet */
+	private static final ConcurrentMap<KillLogEntry, Integer> kills = new ConcurrentHashMap<KillLogEntry, Integer>();
+
+	private static long lastFlush = System.currentTimeMillis();
+
+	/** current day in the format of the kills table */
+	private static String day;
+
+	/** time at which the current day ends */
+	private static long dayEnd;
+
+	private KillLogger() {
+		// static methods only
+	}
+
+	/**
+	 * Counts a kill.
+	 *
+	 * @param killed name of the killed entity
+	 * @param killedType type of the killed entity
+	 * @param killer name of the killer
+	 * @param killerType type of the killer
+	 */
+	public static void logKill(final String killed, final String killedType, final String killer, final String killerType) {
+		final KillLogEntry entry = new KillLogEntry(killed, killedType, killer, killerType, getDay());
+		final Integer one = Integer.valueOf(1);
+		while (true) {
+			final Integer old = kills.putIfAbsent(entry, one);
+			if ((old == null) || kills.replace(entry, old, Integer.valueOf(old.intValue() + 1))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Gets the current day, formatting it only when it changes.
+	 *
+	 * @return day in the format yyyy-MM-dd
+	 */
+	private static synchronized String getDay() {
+		final long now = System.currentTimeMillis();
+		if (now >= dayEnd) {
+			final Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(now);
+			day = new SimpleDateFormat("yyyy-MM-dd").format(calendar.getTime());
+			calendar.set(Calendar.HOUR_OF_DAY, 0);
+			calendar.set(Calendar.MINUTE, 0);
+			calendar.set(Calendar.SECOND, 0);
+			calendar.set(Calendar.MILLISECOND, 0);
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+			dayEnd = calendar.getTimeInMillis();
+		}
+		return day;
+	}
+
+	/**
+	 * Writes the counted kills if the last write was long enough ago. Called
+	 * once per turn.
+	 */
+	public static void flushIfDue() {
+		if (System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL) {
+			flush();
+		}
+	}
+
+	/**
+	 * Hands all counted kills to the database.
+	 */
+	public static synchronized void flush() {
+		lastFlush = System.currentTimeMillis();
+		final Map<KillLogEntry, Integer> counted = takeCounts();
+		if (!counted.isEmpty()) {
+			DBCommandQueue.get().enqueue(new LogKillsCommand(counted));
+		}
+	}
+
+	/**
+	 * Removes the counted kills from the map. Kills counted at the same time
+	 * either end up in the result or stay in the map.
+	 *
+	 * @return number of kills of each combination
+	 */
+	static Map<KillLogEntry, Integer> takeCounts() {
+		final Map<KillLogEntry, Integer> counted = new HashMap<KillLogEntry, Integer>();
+		for (final KillLogEntry entry : kills.keySet()) {
+			final Integer count = kills.remove(entry);
+			if (count != null) {
+				counted.put(entry, count);
+			}
+		}
+		return counted;
+	}
+}
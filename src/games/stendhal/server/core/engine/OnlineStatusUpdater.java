@@ -0,0 +1,83 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import games.stendhal.server.core.engine.dbcommand.SetOnlineStatusCommand;
+import marauroa.server.db.command.DBCommandQueue;
+
+/**
+ * Online status updater.
+ * <p>
+ * Changes of the online status are collected and written to the database
+ * once a second and on server shutdown. If a player logs in and out within
+ * that time, only the last status is written. After a restart hundreds of
+ * players log in at the same time, which results in a few updates instead
+ * of one for each player.
+ */
+public class OnlineStatusUpdater {
+	/** time in ms between writes to the database */
+	static final long FLUSH_INTERVAL = 1000;
+
+	/** status changes that have not been written yet */
+	private static Map<String, Boolean> pending = new LinkedHashMap<String, Boolean>();
+
+	private static long lastFlush = System.currentTimeMillis();
+
+	private OnlineStatusUpdater() {
+		// static methods only
+	}
+
+	/**
+	 * Sets the online status of a player.
+	 *
+	 * @param playerName name of player
+	 * @param online true, to mark as online; false to mark as offline
+	 */
+	public static synchronized void setOnlineStatus(final String playerName, final boolean online) {
+		pending.put(playerName, Boolean.valueOf(online));
+	}
+
+	/**
+	 * Writes the status changes if the last write was long enough ago.
+	 * Called once per turn.
+	 */
+	public static void flushIfDue() {
+		if (System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL) {
+			flush();
+		}
+	}
+
+	/**
+	 * Hands all status changes to the database.
+	 */
+	public static void flush() {
+		lastFlush = System.currentTimeMillis();
+		final Map<String, Boolean> changes = takeChanges();
+		if (!changes.isEmpty()) {
+			DBCommandQueue.get().enqueue(new SetOnlineStatusCommand(changes));
+		}
+	}
+
+	/**
+	 * Removes the status changes which have not been written yet.
+	 *
+	 * @return online status by player name
+	 */
+	static synchronized Map<String, Boolean> takeChanges() {
+		final Map<String, Boolean> changes = pending;
+		pending = new LinkedHashMap<String, Boolean>();
+		return changes;
+	}
+}
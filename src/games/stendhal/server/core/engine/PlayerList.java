@@ -11,16 +11,23 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import games.stendhal.common.NotificationType;
 import games.stendhal.common.filter.FilterCriteria;
 import games.stendhal.server.entity.player.Player;
 
 /**
- * Manages the list of online players.
+ * Manages the list of online players. It also knows which online players
+ * have someone as buddy, so that only they are notified when that player
+ * logs in or out.
  *
  * @author durkham
  */
@@ -31,10 +38,14 @@ public class PlayerList {
 	 */
 	public PlayerList() {
 		players = new ConcurrentHashMap<String, Player>();
+		watchers = new ConcurrentHashMap<String, Set<String>>();
 	}
 
 	private final Map<String, Player> players;
 
+	/** names of online players by the names of their buddies, all in lower case */
+	private final ConcurrentMap<String, Set<String>> watchers;
+
 	/**
 	 * Retrieve from this list a player specified by its name.
 	 *
@@ -114,7 +125,13 @@ public class PlayerList {
 		final String playerName = player.getName();
 
 		if (playerName != null) {
-			players.put(playerName.toLowerCase(), player);
+			final Player old = players.put(playerName.toLowerCase(), player);
+			if (old != null) {
+				removeWatcher(old);
+			}
+			for (final String buddy : player.getBuddies()) {
+				addWatcher(playerName, buddy);
+			}
 		} else {
 			throw new IllegalArgumentException("can't add player without name");
 		}
@@ -130,7 +147,11 @@ public class PlayerList {
 		final String playerName = player.getName();
 
 		if (playerName != null) {
-			return players.remove(playerName.toLowerCase()) != null;
+			final Player old = players.remove(playerName.toLowerCase());
+			if (old != null) {
+				removeWatcher(old);
+			}
+			return old != null;
 		} else {
 			throw new IllegalArgumentException("can't remove player without name");
 		}
@@ -145,4 +166,110 @@ public class PlayerList {
 		return players.values();
 	}
 
+	/**
+	 * updates the buddy index after a buddy was added to the list of a player
+	 *
+	 * @param player player with the buddy list
+	 * @param buddy name of new buddy
+	 */
+	public void onBuddyAdded(final Player player, final String buddy) {
+		if (isInList(player)) {
+			addWatcher(player.getName(), buddy);
+		}
+	}
+
+	/**
+	 * updates the buddy index after a buddy was removed from the list of a
+	 * player
+	 *
+	 * @param player player with the buddy list
+	 * @param buddy name of removed buddy
+	 */
+	public void onBuddyRemoved(final Player player, final String buddy) {
+		// the player may still have the buddy in another case
+		if (isInList(player) && !hasBuddyIgnoreCase(player, buddy)) {
+			removeWatcher(player.getName(), buddy);
+		}
+	}
+
+	/**
+	 * gets the online players who have a player as buddy
+	 *
+	 * @param name name of player
+	 * @return online players with that buddy
+	 */
+	public List<Player> getBuddyWatchers(final String name) {
+		final Set<String> names = watchers.get(name.toLowerCase());
+		if (names == null) {
+			return Collections.emptyList();
+		}
+		final List<Player> res = new ArrayList<Player>(names.size());
+		for (final String watcher : names) {
+			final Player player = players.get(watcher);
+			if (player != null) {
+				res.add(player);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * gets the number of names, which are the buddy of an online player
+	 *
+	 * @return number of names in the buddy index
+	 */
+	int getNumberOfWatchedNames() {
+		return watchers.size();
+	}
+
+	private boolean isInList(final Player player) {
+		final String playerName = player.getName();
+		return (playerName != null) && (players.get(playerName.toLowerCase()) == player);
+	}
+
+	private static boolean hasBuddyIgnoreCase(final Player player, final String buddy) {
+		for (final String name : player.getBuddies()) {
+			if (name.equalsIgnoreCase(buddy)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addWatcher(final String playerName, final String buddy) {
+		final String key = buddy.toLowerCase();
+		while (true) {
+			Set<String> names = watchers.get(key);
+			if (names == null) {
+				names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+				final Set<String> existing = watchers.putIfAbsent(key, names);
+				if (existing != null) {
+					names = existing;
+				}
+			}
+			names.add(playerName.toLowerCase());
+
+			// retry, if the set was removed as empty in the meantime
+			if (watchers.get(key) == names) {
+				return;
+			}
+		}
+	}
+
+	private void removeWatcher(final Player player) {
+		for (final String buddy : player.getBuddies()) {
+			removeWatcher(player.getName(), buddy);
+		}
+	}
+
+	private void removeWatcher(final String playerName, final String buddy) {
+		final String key = buddy.toLowerCase();
+		final Set<String> names = watchers.get(key);
+		if (names != null) {
+			names.remove(playerName.toLowerCase());
+			if (names.isEmpty()) {
+				watchers.remove(key, names);
+			}
+		}
+	}
 }
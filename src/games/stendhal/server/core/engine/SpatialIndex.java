@@ -0,0 +1,473 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.common.filter.FilterCriteria;
+
+/**
+ * A uniform grid of buckets that remembers which cells the rectangular
+ * footprint of an object covers. Area and point queries only have to look at
+ * the objects in the cells overlapping the queried region instead of scanning
+ * every object.
+ * <p>
+ * Objects with a footprint reaching into negative coordinates are kept in the
+ * first row or column of cells. The grid grows when an object is placed
+ * beyond its current size.
+ *
+ * @param <T> type of the indexed objects
+ */
+public final class SpatialIndex<T> {
+	/** Width and height of a cell in tiles. */
+	static final int CELL_SIZE = 4;
+
+	/** Orders entries by the time they were added to the index. */
+	private static final Comparator<Entry<?>> INSERTION_ORDER = new Comparator<Entry<?>>() {
+		@Override
+		public int compare(final Entry<?> a, final Entry<?> b) {
+			return Long.compare(a.sequence, b.sequence);
+		}
+	};
+
+	/** Lookup from an object to its entry. */
+	private final Map<T, Entry<T>> entries = new IdentityHashMap<T, Entry<T>>();
+
+	/** Cell buckets in row major order. Empty cells are <code>null</code>. */
+	private List<Entry<T>>[] cells = newCells(0);
+	private int columns;
+	private int rows;
+
+	/** Sequence number for the next added object. */
+	private long nextSequence;
+
+	/** Reused buffer of {@link #collectIntersecting}. */
+	private final ArrayList<Entry<T>> scratch = new ArrayList<Entry<T>>();
+
+	/**
+	 * Adds an object to the index. If the object is already indexed, its
+	 * footprint gets updated instead.
+	 *
+	 * @param item object to add
+	 * @param x x coordinate of the footprint
+	 * @param y y coordinate of the footprint
+	 * @param width width of the footprint
+	 * @param height height of the footprint
+	 */
+	public void add(final T item, final int x, final int y, final double width, final double height) {
+		if (entries.containsKey(item)) {
+			update(item, x, y, width, height);
+			return;
+		}
+		final Entry<T> entry = new Entry<T>(item, nextSequence++);
+		entry.setBounds(x, y, width, height);
+		entries.put(item, entry);
+		link(entry);
+	}
+
+	/**
+	 * Updates the footprint of an indexed object. Objects that are not in the
+	 * index are ignored.
+	 *
+	 * @param item indexed object
+	 * @param x new x coordinate of the footprint
+	 * @param y new y coordinate of the footprint
+	 * @param width new width of the footprint
+	 * @param height new height of the footprint
+	 */
+	public void update(final T item, final int x, final int y, final double width, final double height) {
+		final Entry<T> entry = entries.get(item);
+		if (entry == null) {
+			return;
+		}
+		final int oldMinCellX = entry.minCellX;
+		final int oldMinCellY = entry.minCellY;
+		final int oldMaxCellX = entry.maxCellX;
+		final int oldMaxCellY = entry.maxCellY;
+		entry.setBounds(x, y, width, height);
+		if ((oldMinCellX == entry.minCellX) && (oldMinCellY == entry.minCellY)
+				&& (oldMaxCellX == entry.maxCellX) && (oldMaxCellY == entry.maxCellY)) {
+			// Still in the same buckets
+			return;
+		}
+		unlink(entry, oldMinCellX, oldMinCellY, oldMaxCellX, oldMaxCellY);
+		link(entry);
+	}
+
+	/**
+	 * Removes an object from the index.
+	 *
+	 * @param item object to remove
+	 * @return <code>true</code> if the object was in the index
+	 */
+	public boolean remove(final T item) {
+		final Entry<T> entry = entries.remove(item);
+		if (entry == null) {
+			return false;
+		}
+		unlink(entry, entry.minCellX, entry.minCellY, entry.maxCellX, entry.maxCellY);
+		return true;
+	}
+
+	/**
+	 * Checks if an object is indexed.
+	 *
+	 * @param item object to check
+	 * @return <code>true</code> if the object is in the index
+	 */
+	public boolean contains(final T item) {
+		return entries.containsKey(item);
+	}
+
+	/**
+	 * Get the number of indexed objects.
+	 *
+	 * @return number of objects
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Removes all objects from the index.
+	 */
+	public void clear() {
+		entries.clear();
+		cells = newCells(0);
+		columns = 0;
+		rows = 0;
+	}
+
+	/**
+	 * Finds an object whose footprint intersects an area, and that passes a
+	 * filter. The intersection test uses the same rules as
+	 * {@link java.awt.geom.Rectangle2D#intersects(double, double, double, double)}.
+	 * Which of several matching objects is returned is unspecified.
+	 *
+	 * @param x x coordinate of the area
+	 * @param y y coordinate of the area
+	 * @param width width of the area
+	 * @param height height of the area
+	 * @param filter filter the object must pass, or <code>null</code> to
+	 * 	accept any object
+	 * @return a matching object, or <code>null</code> if there is none
+	 */
+	public T findIntersecting(final double x, final double y, final double width, final double height,
+			final FilterCriteria<? super T> filter) {
+		if ((width <= 0) || (height <= 0) || (columns == 0)) {
+			return null;
+		}
+		final int minCellX = clampColumn(cellOf(x));
+		final int minCellY = clampRow(cellOf(y));
+		final int maxCellX = clampColumn(cellOf(x + width));
+		final int maxCellY = clampRow(cellOf(y + height));
+		for (int cy = minCellY; cy <= maxCellY; cy++) {
+			for (int cx = minCellX; cx <= maxCellX; cx++) {
+				final List<Entry<T>> bucket = cells[cy * columns + cx];
+				if (bucket == null) {
+					continue;
+				}
+				for (final Entry<T> entry : bucket) {
+					if (entry.isFirstVisit(cx, cy, minCellX, minCellY)
+							&& entry.intersects(x, y, width, height)
+							&& ((filter == null) || filter.passes(entry.item))) {
+						return entry.item;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get all objects whose footprint intersects an area. The intersection
+	 * test uses the same rules as
+	 * {@link java.awt.geom.Rectangle2D#intersects(double, double, double, double)}.
+	 *
+	 * @param x x coordinate of the area
+	 * @param y y coordinate of the area
+	 * @param width width of the area
+	 * @param height height of the area
+	 * @return matching objects in the order they were added to the index
+	 */
+	public List<T> getIntersecting(final double x, final double y, final double width, final double height) {
+		final List<Entry<T>> found = new ArrayList<Entry<T>>();
+		if ((width > 0) && (height > 0) && (columns > 0)) {
+			final int minCellX = clampColumn(cellOf(x));
+			final int minCellY = clampRow(cellOf(y));
+			final int maxCellX = clampColumn(cellOf(x + width));
+			final int maxCellY = clampRow(cellOf(y + height));
+			for (int cy = minCellY; cy <= maxCellY; cy++) {
+				for (int cx = minCellX; cx <= maxCellX; cx++) {
+					final List<Entry<T>> bucket = cells[cy * columns + cx];
+					if (bucket == null) {
+						continue;
+					}
+					for (final Entry<T> entry : bucket) {
+						if (entry.isFirstVisit(cx, cy, minCellX, minCellY)
+								&& entry.intersects(x, y, width, height)) {
+							found.add(entry);
+						}
+					}
+				}
+			}
+		}
+		return toItems(found);
+	}
+
+	/**
+	 * Append all objects whose footprint intersects an area to a list. Unlike
+	 * {@link #getIntersecting(double, double, double, double)} this does not
+	 * create any objects once the internal buffer and the result list are
+	 * large enough, so it is suitable for queries done at every step of
+	 * every entity.
+	 *
+	 * @param x x coordinate of the area
+	 * @param y y coordinate of the area
+	 * @param width width of the area
+	 * @param height height of the area
+	 * @param result list where the matching objects are appended in the
+	 * 	order they were added to the index
+	 */
+	public void collectIntersecting(final double x, final double y, final double width, final double height,
+			final List<? super T> result) {
+		if ((width <= 0) || (height <= 0) || (columns == 0)) {
+			return;
+		}
+		final int minCellX = clampColumn(cellOf(x));
+		final int minCellY = clampRow(cellOf(y));
+		final int maxCellX = clampColumn(cellOf(x + width));
+		final int maxCellY = clampRow(cellOf(y + height));
+		final ArrayList<Entry<T>> found = scratch;
+		for (int cy = minCellY; cy <= maxCellY; cy++) {
+			for (int cx = minCellX; cx <= maxCellX; cx++) {
+				final List<Entry<T>> bucket = cells[cy * columns + cx];
+				if (bucket == null) {
+					continue;
+				}
+				for (int i = 0; i < bucket.size(); i++) {
+					final Entry<T> entry = bucket.get(i);
+					if (entry.isFirstVisit(cx, cy, minCellX, minCellY)
+							&& entry.intersects(x, y, width, height)) {
+						// Insertion sort; there are only a few matches
+						int pos = found.size();
+						found.add(entry);
+						while ((pos > 0) && (found.get(pos - 1).sequence > entry.sequence)) {
+							found.set(pos, found.get(pos - 1));
+							pos--;
+						}
+						found.set(pos, entry);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < found.size(); i++) {
+			result.add(found.get(i).item);
+		}
+		found.clear();
+	}
+
+	/**
+	 * Get all objects whose footprint contains a point. The test uses the
+	 * same rules as {@link java.awt.geom.Rectangle2D#contains(double, double)}.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return matching objects in the order they were added to the index
+	 */
+	public List<T> getContaining(final double x, final double y) {
+		final List<Entry<T>> found = new ArrayList<Entry<T>>();
+		if (columns > 0) {
+			final List<Entry<T>> bucket = cells[clampRow(cellOf(y)) * columns + clampColumn(cellOf(x))];
+			if (bucket != null) {
+				for (final Entry<T> entry : bucket) {
+					if (entry.contains(x, y)) {
+						found.add(entry);
+					}
+				}
+			}
+		}
+		return toItems(found);
+	}
+
+	/**
+	 * Sort entries by insertion order and extract the objects.
+	 *
+	 * @param found matching entries
+	 * @return objects of the entries
+	 */
+	private List<T> toItems(final List<Entry<T>> found) {
+		if (found.size() > 1) {
+			Collections.sort(found, INSERTION_ORDER);
+		}
+		final List<T> result = new ArrayList<T>(found.size());
+		for (final Entry<T> entry : found) {
+			result.add(entry.item);
+		}
+		return result;
+	}
+
+	/**
+	 * Add an entry to all the cells its footprint covers.
+	 *
+	 * @param entry entry to add
+	 */
+	private void link(final Entry<T> entry) {
+		ensureSize(entry.maxCellX + 1, entry.maxCellY + 1);
+		for (int cy = entry.minCellY; cy <= entry.maxCellY; cy++) {
+			for (int cx = entry.minCellX; cx <= entry.maxCellX; cx++) {
+				final int index = cy * columns + cx;
+				List<Entry<T>> bucket = cells[index];
+				if (bucket == null) {
+					bucket = new ArrayList<Entry<T>>(4);
+					cells[index] = bucket;
+				}
+				bucket.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * Remove an entry from a range of cells.
+	 *
+	 * @param entry entry to remove
+	 * @param minCellX first column
+	 * @param minCellY first row
+	 * @param maxCellX last column
+	 * @param maxCellY last row
+	 */
+	private void unlink(final Entry<T> entry, final int minCellX, final int minCellY,
+			final int maxCellX, final int maxCellY) {
+		for (int cy = minCellY; cy <= maxCellY; cy++) {
+			for (int cx = minCellX; cx <= maxCellX; cx++) {
+				final int index = cy * columns + cx;
+				final List<Entry<T>> bucket = cells[index];
+				if (bucket != null) {
+					bucket.remove(entry);
+					if (bucket.isEmpty()) {
+						cells[index] = null;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Make sure the grid has at least the specified number of cells in each
+	 * direction.
+	 *
+	 * @param minColumns required number of columns
+	 * @param minRows required number of rows
+	 */
+	private void ensureSize(final int minColumns, final int minRows) {
+		if ((minColumns <= columns) && (minRows <= rows)) {
+			return;
+		}
+		final int newColumns = Math.max(columns, minColumns);
+		final int newRows = Math.max(rows, minRows);
+		final List<Entry<T>>[] newCells = newCells(newColumns * newRows);
+		for (int cy = 0; cy < rows; cy++) {
+			System.arraycopy(cells, cy * columns, newCells, cy * newColumns, columns);
+		}
+		cells = newCells;
+		columns = newColumns;
+		rows = newRows;
+	}
+
+	private int clampColumn(final int cell) {
+		return Math.min(cell, columns - 1);
+	}
+
+	private int clampRow(final int cell) {
+		return Math.min(cell, rows - 1);
+	}
+
+	/**
+	 * Get the cell coordinate of a world coordinate. Negative coordinates are
+	 * mapped to the first cell.
+	 *
+	 * @param coordinate world coordinate
+	 * @return cell coordinate
+	 */
+	private static int cellOf(final double coordinate) {
+		if (coordinate <= 0) {
+			return 0;
+		}
+		return (int) (coordinate / CELL_SIZE);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static <T> List<Entry<T>>[] newCells(final int size) {
+		return new List[size];
+	}
+
+	/**
+	 * An indexed object together with its footprint.
+	 *
+	 * @param <T> type of the indexed object
+	 */
+	private static final class Entry<T> {
+		private final T item;
+		private final long sequence;
+		private int x;
+		private int y;
+		private double width;
+		private double height;
+		private int minCellX;
+		private int minCellY;
+		private int maxCellX;
+		private int maxCellY;
+
+		Entry(final T item, final long sequence) {
+			this.item = item;
+			this.sequence = sequence;
+		}
+
+		void setBounds(final int x, final int y, final double width, final double height) {
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+			minCellX = cellOf(x);
+			minCellY = cellOf(y);
+			// Empty footprints still need a home cell. Fractional sizes reach
+			// into the tile of the far edge.
+			maxCellX = cellOf(Math.ceil(x + Math.max(width, 1)) - 1);
+			maxCellY = cellOf(Math.ceil(y + Math.max(height, 1)) - 1);
+		}
+
+		/**
+		 * Check if a cell is the first one in which a query over the given
+		 * range of cells meets this entry. Used to report entries spanning
+		 * several cells only once.
+		 */
+		boolean isFirstVisit(final int cx, final int cy, final int queryMinCellX, final int queryMinCellY) {
+			return (cx == Math.max(minCellX, queryMinCellX)) && (cy == Math.max(minCellY, queryMinCellY));
+		}
+
+		boolean intersects(final double qx, final double qy, final double qw, final double qh) {
+			if ((width <= 0) || (height <= 0)) {
+				return false;
+			}
+			return (qx + qw > x) && (qy + qh > y) && (qx < x + width) && (qy < y + height);
+		}
+
+		boolean contains(final double px, final double py) {
+			return (px >= x) && (py >= y) && (px < x + width) && (py < y + height);
+		}
+	}
+}
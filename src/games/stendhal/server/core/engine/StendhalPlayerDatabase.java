@@ -27,6 +27,7 @@ import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
 import games.stendhal.server.core.engine.db.StendhalNPCDAO;
 import games.stendhal.server.core.engine.db.StendhalRPZoneDAO;
 import games.stendhal.server.core.engine.db.StendhalSearchIndexDAO;
+import games.stendhal.server.core.engine.db.StendhalTransactionPool;
 import games.stendhal.server.core.engine.db.StendhalWebsiteDAO;
 import marauroa.server.db.DBTransaction;
 import marauroa.server.db.JDBCSQLHelper;
@@ -49,6 +50,7 @@ public class StendhalPlayerDatabase {
 	 * the database access objects (DAOs).
 	 */
 	public void initialize() {
+		StendhalTransactionPool.install();
 		final DBTransaction transaction = TransactionPool.get().beginWork();
 		try {
 
@@ -187,6 +189,11 @@ public class StendhalPlayerDatabase {
 			transaction.execute("UPDATE buddy SET relationtype = 'buddy' WHERE relationtype IS NULL", null);
 
 		}
+
+		// 1.28: item ids are reserved in blocks, continuing after the last id of the item table
+		if (transaction.querySingleCellInt("SELECT count(*) FROM item_reservation", null) == 0) {
+			transaction.execute("INSERT INTO item_reservation (next_id) SELECT COALESCE(MAX(id), 0) + 1 FROM item", null);
+		}
 	}
 
 
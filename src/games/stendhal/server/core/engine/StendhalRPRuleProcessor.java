@@ -15,9 +15,6 @@ package games.stendhal.server.core.engine;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -36,7 +33,6 @@ import games.stendhal.server.actions.admin.AdministrationAction;
 import games.stendhal.server.core.account.AccountCreator;
 import games.stendhal.server.core.account.CharacterCreator;
 import games.stendhal.server.core.engine.db.StendhalWebsiteDAO;
-import games.stendhal.server.core.engine.dbcommand.SetOnlineStatusCommand;
 import games.stendhal.server.core.engine.transformer.PlayerTransformer;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.core.rp.StendhalRPAction;
@@ -54,12 +50,9 @@ import marauroa.common.Configuration;
 import marauroa.common.Pair;
 import marauroa.common.game.AccountResult;
 import marauroa.common.game.CharacterResult;
-import marauroa.common.game.IRPZone;
 import marauroa.common.game.RPAction;
 import marauroa.common.game.RPObject;
 import marauroa.common.io.UnicodeSupportingInputStreamReader;
-import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.Statistics;
 import marauroa.server.game.db.DAORegister;
 import marauroa.server.game.rp.IRPRuleProcessor;
@@ -71,14 +64,14 @@ import marauroa.server.game.rp.RPServerManager;
  */
 public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
-	/** only log the first exception while reading welcome URL. */
-	private static boolean firstWelcomeException = true;
 	/** the logger instance. */
 	private static final Logger logger = Logger.getLogger(StendhalRPRuleProcessor.class);
 	/** list of super admins read from admins.list. */
 	private static Map<String, String> adminNames;
 	/** welcome message unless overwritten by an URL */
 	private static String welcomeMessage = "Welcome to Stendhal. Need help? #https://stendhalgame.org/player-guide/ask-for-help.html - please report problems, suggestions and bugs. Remember to keep your password completely secret, never tell to another friend, player, or admin.";
+	/** reads the welcome message in the background, if it is configured as an URL */
+	private static WelcomeMessageFetcher welcomeFetcher;
 
 	/** The Singleton instance. */
 	protected static StendhalRPRuleProcessor instance;
@@ -98,6 +91,9 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	/** a list of zone that should be removed (like vaults) */
 	private final List<StendhalRPZone> zonesToRemove = new LinkedList<StendhalRPZone>();
 
+	/** runs the zone logic at the end of each turn */
+	private ZoneLogicExecutor zoneLogicExecutor = new ZoneLogicExecutor(1);
+
 	/**
 	 * creates a new StendhalRPRuleProcessor
 	 */
@@ -177,6 +173,19 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				logger.info("No server extensions configured in ini file.");
 			}
 
+			// Let zones without players sleep unless disabled in the ini file
+			StendhalRPZone.setHibernationEnabled(Boolean.parseBoolean(config.get("zone_hibernation", "true")));
+			// Process zones in parallel if more than one thread is configured
+			zoneLogicExecutor.shutdown();
+			zoneLogicExecutor = new ZoneLogicExecutor(config.getInt("zone_logic_threads", 1));
+
+			// Read a welcome message from the web in the background instead of on login
+			final String welcome = config.get("server_welcome", "");
+			if (isURL(welcome)) {
+				welcomeFetcher = new WelcomeMessageFetcher(welcome, config.getInt("server_welcome_timeout", 5000));
+				welcomeFetcher.start(config.getInt("server_welcome_refresh", 300) * 1000L);
+			}
+
 			// Remove online info from database.
 			DAORegister.get().get(StendhalWebsiteDAO.class).clearOnlineStatus();
 		} catch (final Exception e) {
@@ -211,6 +220,14 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param killer
 	 */
 	public void killRPEntity(final RPEntity entity, final Entity killer) {
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				killRPEntity(entity, killer);
+			}
+		})) {
+			return;
+		}
 		entityToKill.add(new Pair<RPEntity, Entity>(entity, killer));
 	}
 
@@ -381,10 +398,11 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 			SingletonRepository.getTurnNotifier().logic(currentTurn);
 
-			for (final IRPZone zoneI : SingletonRepository.getRPWorld()) {
-				final StendhalRPZone zone = (StendhalRPZone) zoneI;
-				zone.logic();
-			}
+			zoneLogicExecutor.run(SingletonRepository.getRPWorld());
+
+			ItemLogger.flushIfDue();
+			KillLogger.flushIfDue();
+			OnlineStatusUpdater.flushIfDue();
 
 			// run registered object's logic method for this turn
 
@@ -468,8 +486,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 				if (!player.isGhost()) {
 					notifyOnlineStatus(true, player);
-					DBCommand command = new SetOnlineStatusCommand(player.getName(), true);
-					DBCommandQueue.get().enqueue(command);
+					OnlineStatusUpdater.setOnlineStatus(player.getName(), true);
 				}
 				updatePlayerNameListForPlayersOnLogin(player);
 				String[] params = {};
@@ -507,38 +524,27 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	/**
 	 * send a welcome message to the player which can be configured in
 	 * marauroa.ini file as "server_welcome". If the value is an http:// address,
-	 * the first line of that address is read and used as the message
+	 * the first line of that address is used as the message. It is read in
+	 * the background, so the last successfully read line is sent.
 	 *
 	 * @param player
 	 *            Player
 	 */
 	static void welcome(final Player player) {
 		String msg = welcomeMessage;
-		try {
-			final Configuration config = Configuration.getConfiguration();
-			if (config.has("server_welcome")) {
-				msg = config.get("server_welcome");
-				if (msg.startsWith("http://") || msg.startsWith("https://")) {
-					final URL url = new URL(msg);
-					HttpURLConnection.setFollowRedirects(false);
-					final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    try {
-                        final BufferedReader br = new BufferedReader(
-							new InputStreamReader(connection.getInputStream(), "UTF-8"));
-                        try {
-                            msg = br.readLine();
-                        } finally {
-                            br.close();
-                        }
-                    } finally {
-				        connection.disconnect();
-                    }
-				}
+		if (welcomeFetcher != null) {
+			final String fetched = welcomeFetcher.getMessage();
+			if (fetched != null) {
+				msg = fetched;
 			}
-		} catch (final IOException e) {
-			if (firstWelcomeException) {
+		} else {
+			try {
+				final Configuration config = Configuration.getConfiguration();
+				if (config.has("server_welcome") && !isURL(config.get("server_welcome"))) {
+					msg = config.get("server_welcome");
+				}
+			} catch (final IOException e) {
 				logger.warn("Can't read server_welcome from marauroa.ini", e);
-				firstWelcomeException = false;
 			}
 		}
 		if (msg != null) {
@@ -551,6 +557,16 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		}
 	}
 
+	/**
+	 * checks whether a welcome message is an address to read it from
+	 *
+	 * @param msg configured welcome message
+	 * @return true, if it is an http:// or https:// address
+	 */
+	private static boolean isURL(final String msg) {
+		return msg.startsWith("http://") || msg.startsWith("https://");
+	}
+
 	@Override
 	public synchronized boolean onExit(final RPObject object) {
 		return onLogout(object, "logout");
@@ -575,8 +591,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				Player.destroy(player);
 				getOnlinePlayers().remove(player);
 
-				DBCommand command = new SetOnlineStatusCommand(player.getName(), false);
-				DBCommandQueue.get().enqueue(command);
+				OnlineStatusUpdater.setOnlineStatus(player.getName(), false);
 
 				new GameEvent(player.getName(), "logout", reason).raise();
 				logger.debug("removed player " + player);
@@ -621,7 +636,15 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 * @param message
 	 *            Message to tell all players
 	 */
-	public void tellAllPlayers(NotificationType notificationType, final String message) {
+	public void tellAllPlayers(final NotificationType notificationType, final String message) {
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				tellAllPlayers(notificationType, message);
+			}
+		})) {
+			return;
+		}
 		onlinePlayers.tellAllOnlinePlayers(notificationType, message);
 	}
 
@@ -680,21 +703,13 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 */
 	public void notifyOnlineStatus(final boolean isOnline, final Player playerToNotifyAbout) {
 		if (instance != null) {
-			if (isOnline) {
-				SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-					@Override
-					public void execute(final Player player) {
-						player.notifyOnline(playerToNotifyAbout.getName());
-					}
-				});
-
-			} else {
-				SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-					@Override
-					public void execute(final Player player) {
-						player.notifyOffline(playerToNotifyAbout.getName());
-					}
-				});
+			final String name = playerToNotifyAbout.getName();
+			for (final Player player : SingletonRepository.getRuleProcessor().getOnlinePlayers().getBuddyWatchers(name)) {
+				if (isOnline) {
+					player.notifyOnline(name);
+				} else {
+					player.notifyOffline(name);
+				}
 			}
 		}
 	}
@@ -751,6 +766,14 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		zonesToRemove.add(zone);
 	}
 
+	/**
+	 * Stops the worker threads of the zone logic. Called when the server
+	 * shuts down.
+	 */
+	void shutdownZoneLogic() {
+		zoneLogicExecutor.shutdown();
+	}
+
 	/**
 	 * Sets the welcome message.
 	 *
@@ -23,6 +23,7 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.common.parser.WordList;
 import games.stendhal.server.core.config.ZoneGroupsXMLLoader;
+import games.stendhal.server.core.pathfinder.WorldRoutePlanner;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.mapstuff.portal.OneWayPortalDestination;
 import games.stendhal.server.entity.mapstuff.portal.Portal;
@@ -61,6 +62,8 @@ public class StendhalRPWorld extends RPWorld {
 
 	private final Map<String, Set<StendhalRPZone>> regionMap = new HashMap<String, Set<StendhalRPZone>>();
 
+	/** Cross zone route planning. */
+	private final WorldRoutePlanner routePlanner = new WorldRoutePlanner(this);
 
 	protected StendhalRPWorld() {
 		super();
@@ -74,9 +77,25 @@ public class StendhalRPWorld extends RPWorld {
 				zones.remove(zone);
 			}
 		}
+		routePlanner.invalidate();
 		return super.removeRPZone(zoneid);
 	}
 
+	@Override
+	public void addRPZone(final IRPZone zone) {
+		super.addRPZone(zone);
+		routePlanner.invalidate();
+	}
+
+	/**
+	 * Get the planner for routes through several zones.
+	 *
+	 * @return route planner
+	 */
+	public WorldRoutePlanner getRoutePlanner() {
+		return routePlanner;
+	}
+
 	public void removeZone(final StendhalRPZone toBeRemoved) {
 		try {
 			removeRPZone(toBeRemoved.getID());
@@ -175,14 +194,11 @@ public class StendhalRPWorld extends RPWorld {
 	public void onFinish() {
 		super.onFinish();
 		new GameEvent("server system", "shutdown").raise();
-		try {
-			//TODO: find a more appropriate way to do this
-			// give gameevents a chance to be processed;
-			Thread.sleep(500);
-		} catch (final InterruptedException e) {
-			//do nothing
-		}
-
+		SingletonRepository.getRuleProcessor().shutdownZoneLogic();
+		ItemLogger.flush();
+		KillLogger.flush();
+		OnlineStatusUpdater.flush();
+		GameEventSink.get().shutdown(5000);
 	}
 
 	protected void validatePortal(final Portal portal) {
@@ -43,6 +43,7 @@ import games.stendhal.common.tiled.TileSetDefinition;
 import games.stendhal.server.core.config.zone.TeleportationRules;
 import games.stendhal.server.core.events.MovementListener;
 import games.stendhal.server.core.events.ZoneEnterExitListener;
+import games.stendhal.server.core.pathfinder.FlowFieldCache;
 import games.stendhal.server.core.rp.StendhalRPAction;
 import games.stendhal.server.core.rule.EntityManager;
 import games.stendhal.server.entity.ActiveEntity;
@@ -119,10 +120,33 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	private boolean moveToAllowed = true;
 
+	/** Number of turns a zone has to be empty before it starts hibernating. */
+	private static final int HIBERNATION_DELAY = 100;
+
+	/** Can empty zones hibernate at all? */
+	private static boolean hibernationEnabled;
+
+	/** Zones with this flag keep running their logic even when empty. */
+	private boolean alwaysActive;
+
+	/** The turn since which the zone has been empty, or -1. */
+	private int emptySince = -1;
+
+	/** The turn at which the zone started hibernating, or -1. */
+	private int hibernatingSince = -1;
+
 	/**
-	 * Objects that implement MovementListener.
+	 * Objects that implement MovementListener, indexed by the tiles their
+	 * areas cover.
 	 */
-	private final List<MovementListener> movementListeners;
+	private final SpatialIndex<MovementListener> movementListeners;
+	/**
+	 * Reused lists of the listeners found for a movement. Listeners can move
+	 * entities themselves, so there is one list for each nesting level.
+	 */
+	private final List<List<MovementListener>> listenerBuffers = new ArrayList<List<MovementListener>>();
+	/** Current nesting level of movement notifications. */
+	private int notifyDepth;
 
 
 	private final List<ZoneEnterExitListener> zoneListeners;
@@ -134,9 +158,15 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	private final Set<Item> itemsOnGround;
 
+	/** Bucketed index of the entity positions for area and point queries. */
+	private final SpatialIndex<Entity> entityIndex;
+
 	/** contains data to if a certain area is walkable. */
 	public CollisionDetection collisionMap;
 
+	/** Shared paths to chased entities. */
+	private final FlowFieldCache flowFields = new FlowFieldCache(this);
+
 	/** Contains data to verify is someone is in a PK-free area. */
 	public CollisionDetection protectionMap;
 
@@ -183,6 +213,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 		entryPoint = null;
 		portals = new LinkedList<Portal>();
 		itemsOnGround = new HashSet<Item>();
+		entityIndex = new SpatialIndex<Entity>();
 		bloods = new LinkedList<Blood>();
 		npcs = new LinkedList<NPC>();
 		sheepFoods = new LinkedList<SheepFood>();
@@ -191,7 +222,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 		players = new LinkedList<Player>();
 		playersAndFriends = new LinkedList<RPEntity>();
 
-		movementListeners = new LinkedList<MovementListener>();
+		movementListeners = new SpatialIndex<MovementListener>();
 		zoneListeners = new LinkedList<ZoneEnterExitListener>();
 
 		collisionMap = new CollisionDetection();
@@ -438,6 +469,17 @@ public class StendhalRPZone extends MarauroaRPZone {
 			throws IOException {
 		addToContent(name, collisionLayer.encode());
 		collisionMap.setCollisionData(collisionLayer);
+		flowFields.clear();
+	}
+
+	/**
+	 * Get the flow fields used by entities chasing other entities in this
+	 * zone.
+	 *
+	 * @return flow field cache
+	 */
+	public FlowFieldCache getFlowFields() {
+		return flowFields;
 	}
 
 	public void addProtectionLayer(final String name, final LayerDefinition protectionLayer)
@@ -843,11 +885,19 @@ public class StendhalRPZone extends MarauroaRPZone {
 	}
 
 	private synchronized void add(final RPObject object, final Player player, final boolean expire) {
+		if (object instanceof Player) {
+			wakeUp();
+		}
+
 		/*
 		 * Assign [zone relative] ID info. TODO: Move up to MarauroaRPZone
 		 */
 		assignRPObjectID(object);
 		super.add(object);
+		if (object instanceof Entity) {
+			final Entity entity = (Entity) object;
+			entityIndex.add(entity, entity.getX(), entity.getY(), entity.getWidth(), entity.getHeight());
+		}
 
 		notifyAdded(object);
 
@@ -903,6 +953,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 			SingletonRepository.getNPCList().add((SpeakerNPC) object);
 		} else if (object instanceof Portal) {
 			portals.add((Portal) object);
+			SingletonRepository.getRPWorld().getRoutePlanner().invalidate();
 		}
 
 		if (object instanceof NPC) {
@@ -922,6 +973,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 		if (!playersAndFriends.contains(object)) {
 			playersAndFriends.add(object);
 		}
+		wakeUp();
 	}
 
 	private void notifyAdded(final RPObject object) {
@@ -973,6 +1025,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 			SingletonRepository.getNPCList().remove(((SpeakerNPC) object).getName());
 		} else if (object instanceof Portal) {
 			portals.remove(object);
+			SingletonRepository.getRPWorld().getRoutePlanner().invalidate();
 		}
 
 		if (object instanceof ZoneEnterExitListener) {
@@ -983,6 +1036,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 
 		super.remove(id);
+		if (object instanceof Entity) {
+			entityIndex.remove((Entity) object);
+		}
 
 		if (object instanceof Item) {
 			final Item item = (Item) object;
@@ -1115,22 +1171,14 @@ public class StendhalRPZone extends MarauroaRPZone {
 	}
 
 	private Entity getCollidingObject(final Entity entity, final Rectangle2D area) {
-		for (final RPObject other : objects.values()) {
-			// Ignore same object
-			if (entity != other) {
-				final Entity otherEntity = (Entity) other;
-
-				// Check if the objects overlap
-				if (area.intersects(otherEntity.getX(), otherEntity.getY(), otherEntity.getWidth(), otherEntity.getHeight())) {
-					// Check if it's blocking
-					if (otherEntity.isObstacle(entity)) {
-						return otherEntity;
+		return entityIndex.findIntersecting(area.getX(), area.getY(), area.getWidth(), area.getHeight(),
+				new FilterCriteria<Entity>() {
+					@Override
+					public boolean passes(final Entity other) {
+						// Ignore same object, and check if the other is blocking
+						return (entity != other) && other.isObstacle(entity);
 					}
-				}
-			}
-		}
-
-		return null;
+				});
 	}
 
 	/**
@@ -1141,15 +1189,11 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return the first entity found if there are more than one or null if there are none
 	 */
 	public synchronized Entity getEntityAt(final double x, final double y) {
-		for (final RPObject other : objects.values()) {
-			final Entity otherEntity = (Entity) other;
-
-			final Rectangle2D rect = otherEntity.getArea();
-			if (rect.contains(x, y)) {
-				return otherEntity;
-			}
+		final List<Entity> entities = entityIndex.getContaining(x, y);
+		if (entities.isEmpty()) {
+			return null;
 		}
-		return null;
+		return entities.get(0);
 	}
 
 	/**
@@ -1159,18 +1203,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return list of entities at (x, y)
 	 */
 	public synchronized List<Entity> getEntitiesAt(final double x, final double y) {
-		List<Entity> entities = new LinkedList<Entity>();
-
-		for (final RPObject other : objects.values()) {
-			final Entity entity = (Entity) other;
-
-			final Rectangle2D rect = entity.getArea();
-			if (rect.contains(x, y)) {
-				entities.add(entity);
-			}
-		}
-
-		return entities;
+		return entityIndex.getContaining(x, y);
 	}
 
 
@@ -1181,21 +1214,57 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return list of entities at (x, y)
 	 */
 	public synchronized <T extends Entity> List<T> getEntitiesAt(final double x, final double y, Class<T> clazz) {
-		List<T> entities = new LinkedList<T>();
+		return filterByClass(entityIndex.getContaining(x, y), clazz);
+	}
 
-		for (final RPObject other : objects.values()) {
-			final Entity entity = (Entity) other;
-			if (!clazz.isInstance(entity)) {
-				continue;
-			}
+	/**
+	 * Finds all entities that overlap an area.
+	 *
+	 * @param area the area to check
+	 * @return list of entities intersecting the area, in the order they were
+	 * 	added to the zone
+	 */
+	public synchronized List<Entity> getEntitiesInArea(final Rectangle2D area) {
+		return entityIndex.getIntersecting(area.getX(), area.getY(), area.getWidth(), area.getHeight());
+	}
+
+	/**
+	 * Finds all entities of a given type that overlap an area.
+	 *
+	 * @param area the area to check
+	 * @param clazz required type of the entities
+	 * @return list of entities intersecting the area, in the order they were
+	 * 	added to the zone
+	 */
+	public synchronized <T extends Entity> List<T> getEntitiesInArea(final Rectangle2D area, final Class<T> clazz) {
+		return filterByClass(getEntitiesInArea(area), clazz);
+	}
 
-			final Rectangle2D rect = entity.getArea();
-			if (rect.contains(x, y)) {
-				entities.add(clazz.cast(entity));
+	/**
+	 * Updates the position of an entity in the spatial index of the zone.
+	 * Entities call this when their position or size changes.
+	 *
+	 * @param entity moved or resized entity
+	 */
+	public synchronized void updateSpatialIndex(final Entity entity) {
+		entityIndex.update(entity, entity.getX(), entity.getY(), entity.getWidth(), entity.getHeight());
+		if (entity instanceof MovementListener) {
+			// Moving areas, such as pushed blocks
+			final MovementListener listener = (MovementListener) entity;
+			if (movementListeners.contains(listener)) {
+				indexMovementListener(listener);
 			}
 		}
+	}
 
-		return entities;
+	private static <T extends Entity> List<T> filterByClass(final List<Entity> entities, final Class<T> clazz) {
+		final List<T> result = new LinkedList<T>();
+		for (final Entity entity : entities) {
+			if (clazz.isInstance(entity)) {
+				result.add(clazz.cast(entity));
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -1219,15 +1288,18 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 *            The new Y coordinate.
 	 */
 	public void notifyEntered(final ActiveEntity entity, final int newX, final int newY) {
-		Rectangle2D eArea;
-
-		eArea = entity.getArea(newX, newY);
-
-		for (final MovementListener l : movementListeners) {
-			Rectangle2D area = l.getArea();
-			if (area.intersects(eArea)) {
-				l.onEntered(entity, this, newX, newY);
+		final double width = entity.getWidth();
+		final double height = entity.getHeight();
+		final List<MovementListener> listeners = findMovementListeners(newX, newY, width, height);
+		try {
+			for (int i = 0; i < listeners.size(); i++) {
+				final MovementListener l = listeners.get(i);
+				if (l.getArea().intersects(newX, newY, width, height)) {
+					l.onEntered(entity, this, newX, newY);
+				}
 			}
+		} finally {
+			releaseMovementListeners(listeners);
 		}
 	}
 
@@ -1242,15 +1314,18 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 *            The old Y coordinate.
 	 */
 	public void notifyExited(final ActiveEntity entity, final int oldX, final int oldY) {
-		Rectangle2D eArea;
-
-		eArea = entity.getArea(oldX, oldY);
-
-		for (final MovementListener l : movementListeners) {
-			Rectangle2D area = l.getArea();
-			if (area.intersects(eArea)) {
-				l.onExited(entity, this, oldX, oldY);
+		final double width = entity.getWidth();
+		final double height = entity.getHeight();
+		final List<MovementListener> listeners = findMovementListeners(oldX, oldY, width, height);
+		try {
+			for (int i = 0; i < listeners.size(); i++) {
+				final MovementListener l = listeners.get(i);
+				if (l.getArea().intersects(oldX, oldY, width, height)) {
+					l.onExited(entity, this, oldX, oldY);
+				}
 			}
+		} finally {
+			releaseMovementListeners(listeners);
 		}
 	}
 
@@ -1270,51 +1345,86 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	public void notifyMovement(final ActiveEntity entity, final int oldX, final int oldY,
 			final int newX, final int newY) {
-		Rectangle2D oeArea;
-		Rectangle2D neArea;
-		boolean oldIn;
-		boolean newIn;
-
-		oeArea = entity.getArea(oldX, oldY);
-		neArea = entity.getArea(newX, newY);
-
-		for (final MovementListener l : movementListeners) {
-			Rectangle2D area = l.getArea();
+		final double width = entity.getWidth();
+		final double height = entity.getHeight();
+		// Listeners touching either the old or the new position
+		final int minX = Math.min(oldX, newX);
+		final int minY = Math.min(oldY, newY);
+		final List<MovementListener> listeners = findMovementListeners(minX, minY,
+				Math.abs(newX - oldX) + width, Math.abs(newY - oldY) + height);
+		try {
+			for (int i = 0; i < listeners.size(); i++) {
+				final MovementListener l = listeners.get(i);
+				final Rectangle2D area = l.getArea();
 
-			oldIn = area.intersects(oeArea);
-			newIn = area.intersects(neArea);
+				final boolean oldIn = area.intersects(oldX, oldY, width, height);
+				final boolean newIn = area.intersects(newX, newY, width, height);
 
-			if (!oldIn && newIn) {
-				l.onEntered(entity, this, newX, newY);
-			}
+				if (!oldIn && newIn) {
+					l.onEntered(entity, this, newX, newY);
+				}
 
-			if (oldIn && newIn) {
-				l.onMoved(entity, this, oldX, oldY, newX, newY);
-			}
+				if (oldIn && newIn) {
+					l.onMoved(entity, this, oldX, oldY, newX, newY);
+				}
 
-			if (oldIn && !newIn) {
-				l.onExited(entity, this, oldX, oldY);
+				if (oldIn && !newIn) {
+					l.onExited(entity, this, oldX, oldY);
+				}
 			}
+		} finally {
+			releaseMovementListeners(listeners);
 		}
 	}
 
 	public void notifyBeforeMovement(final ActiveEntity entity, final int oldX, final int oldY,
 			final int newX, final int newY) {
-		Rectangle2D neArea;
-		boolean newIn;
-
-		neArea = entity.getArea(newX, newY);
-
-		for (final MovementListener l : movementListeners) {
-			Rectangle2D area = l.getArea();
-
-			newIn = area.intersects(neArea);
-
-			if (newIn) {
-				l.beforeMove(entity, this, oldX, oldY, newX, newY);
+		final double width = entity.getWidth();
+		final double height = entity.getHeight();
+		final List<MovementListener> listeners = findMovementListeners(newX, newY, width, height);
+		try {
+			for (int i = 0; i < listeners.size(); i++) {
+				final MovementListener l = listeners.get(i);
+				if (l.getArea().intersects(newX, newY, width, height)) {
+					l.beforeMove(entity, this, oldX, oldY, newX, newY);
+				}
 			}
+		} finally {
+			releaseMovementListeners(listeners);
+		}
+	}
 
+	/**
+	 * Find the movement listeners whose indexed tiles overlap an area. The
+	 * result is a snapshot, so the listeners may add, remove or move
+	 * listeners while they are notified. It must be returned with
+	 * {@link #releaseMovementListeners(List)} after use.
+	 *
+	 * @param x x coordinate of the area
+	 * @param y y coordinate of the area
+	 * @param width width of the area
+	 * @param height height of the area
+	 * @return candidate listeners in the order they were registered
+	 */
+	private List<MovementListener> findMovementListeners(final double x, final double y,
+			final double width, final double height) {
+		if (notifyDepth == listenerBuffers.size()) {
+			listenerBuffers.add(new ArrayList<MovementListener>());
 		}
+		final List<MovementListener> listeners = listenerBuffers.get(notifyDepth);
+		notifyDepth++;
+		movementListeners.collectIntersecting(x, y, width, height, listeners);
+		return listeners;
+	}
+
+	/**
+	 * Return a list got from {@link #findMovementListeners}.
+	 *
+	 * @param listeners the list
+	 */
+	private void releaseMovementListeners(final List<MovementListener> listeners) {
+		listeners.clear();
+		notifyDepth--;
 	}
 
 	public void addZoneEnterExitListener(final ZoneEnterExitListener listener) {
@@ -1328,14 +1438,29 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 
 	/**
-	 * Register a movement listener for notification. Eventually create a
-	 * macro-block hash to cut down on listeners to check.
+	 * Register a movement listener for notification. The listener is
+	 * indexed by the tiles its area covers at the time of registering, or
+	 * when the listener is an entity, when it moves. Listeners whose area
+	 * changes otherwise need to register again.
 	 *
 	 * @param listener
 	 *            A movement listener to register.
 	 */
 	public void addMovementListener(final MovementListener listener) {
-		movementListeners.add(listener);
+		indexMovementListener(listener);
+	}
+
+	/**
+	 * Add a movement listener to the index, or update its tiles.
+	 *
+	 * @param listener listener
+	 */
+	private void indexMovementListener(final MovementListener listener) {
+		final Rectangle2D area = listener.getArea();
+		final int minX = (int) Math.floor(area.getMinX());
+		final int minY = (int) Math.floor(area.getMinY());
+		movementListeners.add(listener, minX, minY,
+				(int) Math.ceil(area.getMaxX()) - minX, (int) Math.ceil(area.getMaxY()) - minY);
 	}
 
 	/**
@@ -1400,6 +1525,117 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	}
 
+	/**
+	 * Check if the zone keeps running its logic when there are no players.
+	 *
+	 * @return <code>true</code> if the zone never hibernates
+	 */
+	public boolean isAlwaysActive() {
+		return alwaysActive;
+	}
+
+	/**
+	 * Sets the flag whether the zone keeps running its logic when there are no
+	 * players in it.
+	 *
+	 * @param alwaysActive <code>true</code>, if the zone should never hibernate
+	 */
+	public void setAlwaysActive(final boolean alwaysActive) {
+		this.alwaysActive = alwaysActive;
+		if (alwaysActive) {
+			wakeUp();
+		}
+	}
+
+	/**
+	 * Enables or disables hibernation of empty zones.
+	 *
+	 * @param enabled <code>true</code> if empty zones may hibernate
+	 */
+	public static void setHibernationEnabled(final boolean enabled) {
+		hibernationEnabled = enabled;
+	}
+
+	/**
+	 * Check if the zone is hibernating. The logic of hibernating zones is not
+	 * run, and respawn points and growers postpone their work until the
+	 * zone wakes up.
+	 *
+	 * @return <code>true</code> if the zone is hibernating
+	 */
+	public boolean isHibernating() {
+		return hibernatingSince != -1;
+	}
+
+	/**
+	 * Check if the zone could hibernate in its current state.
+	 *
+	 * @return <code>true</code> if nothing in the zone needs its logic
+	 */
+	private boolean canHibernate() {
+		if (!hibernationEnabled || alwaysActive || !playersAndFriends.isEmpty()) {
+			return false;
+		}
+		for (final NPC npc : npcs) {
+			if ((npc instanceof SpeakerNPC) && ((SpeakerNPC) npc).isAllowedToActAlone()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Start or stop hibernating depending on the zone state.
+	 *
+	 * @return <code>true</code> if the zone is hibernating
+	 */
+	boolean updateHibernation() {
+		if (!canHibernate()) {
+			emptySince = -1;
+			wakeUp();
+			return false;
+		}
+		if (!isHibernating()) {
+			final int turn = SingletonRepository.getRuleProcessor().getTurn();
+			if (emptySince == -1) {
+				emptySince = turn;
+			} else if (turn - emptySince >= HIBERNATION_DELAY) {
+				logger.debug("Zone " + getName() + " starts hibernating");
+				hibernatingSince = turn;
+			}
+		}
+		return isHibernating();
+	}
+
+	/**
+	 * Stop hibernating. Respawn points, growers and NPCs are brought to the
+	 * state they would have reached if the zone had been active all the time.
+	 */
+	public void wakeUp() {
+		if (!isHibernating()) {
+			return;
+		}
+		final int since = hibernatingSince;
+		final int turn = SingletonRepository.getRuleProcessor().getTurn();
+		hibernatingSince = -1;
+		emptySince = -1;
+		logger.debug("Zone " + getName() + " wakes up after " + (turn - since) + " turns");
+
+		for (final CreatureRespawnPoint point : new ArrayList<CreatureRespawnPoint>(respawnPoints)) {
+			point.catchUp(turn);
+		}
+		for (final PassiveEntityRespawnPoint grower : new ArrayList<PassiveEntityRespawnPoint>(plantGrowers)) {
+			grower.catchUp(turn);
+		}
+		for (final NPC npc : new ArrayList<NPC>(npcs)) {
+			try {
+				npc.catchUp(since, turn);
+			} catch (final Exception e) {
+				logger.error("Error in npc catch up for zone " + getID().getID(), e);
+			}
+		}
+	}
+
 	private int debugturn;
 
 	private boolean accessible;
@@ -1433,6 +1669,16 @@ public class StendhalRPZone extends MarauroaRPZone {
 	}
 
 	public void logic() {
+		if (updateHibernation()) {
+			return;
+		}
+		runLogic();
+	}
+
+	/**
+	 * Run the logic of the NPCs and portals of the zone.
+	 */
+	void runLogic() {
 		for (final NPC npc : npcs) {
 			try {
 				npc.logic();
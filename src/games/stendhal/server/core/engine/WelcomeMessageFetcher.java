@@ -0,0 +1,128 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Reads the welcome message from a web server in the background. The first
+ * line of the page is used. If the web server cannot be reached, the last
+ * message that was read successfully stays in use, so that logins never
+ * wait for the network.
+ */
+class WelcomeMessageFetcher {
+	private static final Logger logger = Logger.getLogger(WelcomeMessageFetcher.class);
+
+	private final String url;
+	private final int timeout;
+
+	/** last message read successfully */
+	private volatile String message;
+
+	/** did the last attempt fail? Used to log each outage only once */
+	private boolean failing;
+
+	/**
+	 * creates a new WelcomeMessageFetcher
+	 *
+	 * @param url address of the welcome message
+	 * @param timeout timeout in ms for connecting and for reading
+	 */
+	WelcomeMessageFetcher(final String url, final int timeout) {
+		this.url = url;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * starts a thread that reads the message now and then again after each
+	 * interval
+	 *
+	 * @param interval time in ms between two reads
+	 */
+	void start(final long interval) {
+		final Thread thread = new Thread("WelcomeMessageFetcher") {
+			@Override
+			public void run() {
+				while (true) {
+					refresh();
+					try {
+						Thread.sleep(interval);
+					} catch (final InterruptedException e) {
+						return;
+					}
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * reads the message from the web server
+	 */
+	void refresh() {
+		try {
+			final String line = fetch();
+			if (line != null) {
+				message = line;
+			}
+			if (failing) {
+				logger.info("Read server_welcome from " + url + " again");
+				failing = false;
+			}
+		} catch (final IOException e) {
+			if (!failing) {
+				logger.warn("Can't read server_welcome from " + url, e);
+				failing = true;
+			}
+		}
+	}
+
+	/**
+	 * reads the first line of the page
+	 *
+	 * @return first line or null, if the page is empty
+	 * @throws IOException in case of an input/output error
+	 */
+	private String fetch() throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setInstanceFollowRedirects(false);
+		connection.setConnectTimeout(timeout);
+		connection.setReadTimeout(timeout);
+		try {
+			final BufferedReader br = new BufferedReader(
+					new InputStreamReader(connection.getInputStream(), "UTF-8"));
+			try {
+				return br.readLine();
+			} finally {
+				br.close();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * gets the last message read successfully
+	 *
+	 * @return welcome message or null, if none was read yet
+	 */
+	String getMessage() {
+		return message;
+	}
+}
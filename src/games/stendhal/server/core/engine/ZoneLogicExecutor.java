@@ -0,0 +1,168 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.log4j.Logger;
+
+import marauroa.common.game.IRPZone;
+
+/**
+ * Runs the logic of the zones at the end of a turn.
+ * <p>
+ * By default all zones are processed one after another. If more than one
+ * thread is configured, the zones are processed in parallel in a fork join
+ * pool. Each zone is handled by a single task, so anything local to a zone
+ * does not need synchronization. Side effects that reach out of a zone, such
+ * as moving an entity to another zone, turn notifier registrations, database
+ * commands or messages to all players, are not executed right away but
+ * collected with {@link #defer(Runnable)}. After all zones are done they are
+ * executed in zone order, so that the result does not depend on the order the
+ * tasks happened to finish.
+ */
+public final class ZoneLogicExecutor {
+	private static final Logger logger = Logger.getLogger(ZoneLogicExecutor.class);
+
+	/** The zone task running on the current thread, if any. */
+	private static final ThreadLocal<ZoneTask> currentTask = new ThreadLocal<ZoneTask>();
+
+	/** Pool for parallel execution, or <code>null</code> for sequential mode. */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a new ZoneLogicExecutor.
+	 *
+	 * @param threads number of threads to use. Values less than 2 mean that
+	 * 	the zones are processed sequentially on the calling thread
+	 */
+	public ZoneLogicExecutor(final int threads) {
+		if (threads > 1) {
+			pool = new ForkJoinPool(threads);
+		} else {
+			pool = null;
+		}
+	}
+
+	/**
+	 * Run the logic of zones.
+	 *
+	 * @param zones zones to process
+	 */
+	public void run(final Iterable<? extends IRPZone> zones) {
+		if (pool == null) {
+			for (final IRPZone zone : zones) {
+				((StendhalRPZone) zone).logic();
+			}
+			return;
+		}
+
+		// Waking up a zone touches respawn points and the turn notifier, so
+		// hibernation is handled sequentially before the parallel phase.
+		final List<ZoneTask> tasks = new ArrayList<ZoneTask>();
+		for (final IRPZone zoneI : zones) {
+			final StendhalRPZone zone = (StendhalRPZone) zoneI;
+			if (!zone.updateHibernation()) {
+				tasks.add(new ZoneTask(zone));
+			}
+		}
+
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+
+		// merge phase
+		for (final ZoneTask task : tasks) {
+			for (final Runnable action : task.deferred) {
+				try {
+					action.run();
+				} catch (final RuntimeException e) {
+					logger.error("Error in deferred action of zone " + task.zone.getName(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Postpones an action to the merge phase if called from parallel zone
+	 * logic.
+	 *
+	 * @param action action that affects state outside of the current zone
+	 * @return <code>true</code> if the action was postponed, <code>false</code>
+	 * 	if the caller should execute it right away
+	 */
+	public static boolean defer(final Runnable action) {
+		final ZoneTask task = currentTask.get();
+		if (task == null) {
+			return false;
+		}
+		task.deferred.add(action);
+		return true;
+	}
+
+	/**
+	 * Check if a zone is not the zone processed by the current thread. It is
+	 * not safe to modify such a zone during parallel zone logic.
+	 *
+	 * @param zone zone to check
+	 * @return <code>true</code> if the current thread runs parallel zone logic
+	 * 	of another zone
+	 */
+	public static boolean isForeignZone(final StendhalRPZone zone) {
+		final ZoneTask task = currentTask.get();
+		return (task != null) && (zone != null) && (zone != task.zone);
+	}
+
+	/**
+	 * Logic of one zone.
+	 */
+	private static final class ZoneTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient StendhalRPZone zone;
+		/** Actions postponed to the merge phase. */
+		private final transient List<Runnable> deferred = new ArrayList<Runnable>();
+
+		ZoneTask(final StendhalRPZone zone) {
+			this.zone = zone;
+		}
+
+		@Override
+		protected void compute() {
+			currentTask.set(this);
+			try {
+				zone.runLogic();
+			} catch (final RuntimeException e) {
+				logger.error("Error in logic of zone " + zone.getName(), e);
+			} finally {
+				currentTask.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+
+/**
+ * hands out item logids from blocks reserved in the table item_reservation.
+ * Only one database round trip is needed for a whole block of ids. The
+ * reservation is committed in a transaction of its own, so that ids are never
+ * handed out twice even if the transaction using them is rolled back. Ids of a
+ * block that are not used before the server stops are skipped.
+ */
+public class ItemIdAllocator {
+	private static final Logger logger = Logger.getLogger(ItemIdAllocator.class);
+
+	private final int blockSize;
+
+	/** next id to hand out */
+	private int nextId;
+
+	/** first id after the current block */
+	private int blockEnd;
+
+	/**
+	 * creates a new ItemIdAllocator
+	 *
+	 * @param blockSize number of ids to reserve at once
+	 */
+	public ItemIdAllocator(final int blockSize) {
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * gets the next free id, reserving a new block if the current one is used up
+	 *
+	 * @return item id
+	 * @throws SQLException in case of a database error
+	 */
+	public synchronized int next() throws SQLException {
+		if (nextId >= blockEnd) {
+			reserveBlock();
+		}
+		return nextId++;
+	}
+
+	/**
+	 * reserves the next block of ids
+	 *
+	 * @throws SQLException in case of a database error
+	 */
+	private void reserveBlock() throws SQLException {
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			final Map<String, Object> params = new HashMap<String, Object>();
+			params.put("size", Integer.valueOf(blockSize));
+			// update first, so that the row is locked until the commit
+			transaction.execute("UPDATE item_reservation SET next_id = next_id + [size]", params);
+			final int end = transaction.querySingleCellInt("SELECT next_id FROM item_reservation", null);
+			TransactionPool.get().commit(transaction);
+			nextId = end - blockSize;
+			blockEnd = end;
+			logger.debug("Reserved item ids " + nextId + " to " + (blockEnd - 1));
+		} catch (final SQLException e) {
+			TransactionPool.get().rollback(transaction);
+			throw e;
+		}
+	}
+}
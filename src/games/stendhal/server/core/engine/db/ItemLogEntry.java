@@ -0,0 +1,112 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import games.stendhal.server.entity.RPEntity;
+
+/**
+ * a row of the itemlog table, waiting to be written
+ */
+public final class ItemLogEntry {
+	private final int itemid;
+	private final String source;
+	private final String event;
+	private final String param1;
+	private final String param2;
+	private final String param3;
+	private final String param4;
+	/** name for the item table, if this entry registers a new item */
+	private String itemName;
+	private boolean registration;
+
+	/**
+	 * creates a new ItemLogEntry
+	 *
+	 * @param itemid itemid of item
+	 * @param player player object, may be <code>null</code>
+	 * @param event  name of event
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 */
+	public ItemLogEntry(final int itemid, final RPEntity player, final String event,
+			final String param1, final String param2, final String param3, final String param4) {
+		this.itemid = itemid;
+		if (player != null) {
+			this.source = player.getName();
+		} else {
+			this.source = null;
+		}
+		this.event = event;
+		this.param1 = param1;
+		this.param2 = param2;
+		this.param3 = param3;
+		this.param4 = param4;
+	}
+
+	/**
+	 * creates the "register" entry of a new item. Writing it also writes the
+	 * row of the item in the item table.
+	 *
+	 * @param itemid itemid of item
+	 * @param itemName name of the item for the item table
+	 * @param param1 param 1
+	 * @param param2 param 2
+	 * @param param3 param 3
+	 * @param param4 param 4
+	 * @return log entry
+	 */
+	static ItemLogEntry register(final int itemid, final String itemName,
+			final String param1, final String param2, final String param3, final String param4) {
+		final ItemLogEntry entry = new ItemLogEntry(itemid, null, "register", param1, param2, param3, param4);
+		entry.itemName = itemName;
+		entry.registration = true;
+		return entry;
+	}
+
+	boolean isRegistration() {
+		return registration;
+	}
+
+	String getItemName() {
+		return itemName;
+	}
+
+	int getItemid() {
+		return itemid;
+	}
+
+	String getSource() {
+		return source;
+	}
+
+	String getEvent() {
+		return event;
+	}
+
+	String getParam1() {
+		return param1;
+	}
+
+	String getParam2() {
+		return param2;
+	}
+
+	String getParam3() {
+		return param3;
+	}
+
+	String getParam4() {
+		return param4;
+	}
+}
@@ -0,0 +1,96 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+/**
+ * a row of the kills table without the count: who killed whom on which day
+ */
+public final class KillLogEntry {
+	private final String killed;
+	private final String killedType;
+	private final String killer;
+	private final String killerType;
+	private final String day;
+
+	/**
+	 * creates a new KillLogEntry
+	 *
+	 * @param killed name of the killed entity
+	 * @param killedType type of the killed entity
+	 * @param killer name of the killer
+	 * @param killerType type of the killer
+	 * @param day day in the format yyyy-MM-dd
+	 */
+	public KillLogEntry(final String killed, final String killedType, final String killer,
+			final String killerType, final String day) {
+		this.killed = killed;
+		this.killedType = killedType;
+		this.killer = killer;
+		this.killerType = killerType;
+		this.day = day;
+	}
+
+	String getKilled() {
+		return killed;
+	}
+
+	String getKilledType() {
+		return killedType;
+	}
+
+	String getKiller() {
+		return killer;
+	}
+
+	String getKillerType() {
+		return killerType;
+	}
+
+	String getDay() {
+		return day;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = String.valueOf(killed).hashCode();
+		result = 31 * result + String.valueOf(killedType).hashCode();
+		result = 31 * result + String.valueOf(killer).hashCode();
+		result = 31 * result + String.valueOf(killerType).hashCode();
+		return 31 * result + day.hashCode();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof KillLogEntry)) {
+			return false;
+		}
+		final KillLogEntry other = (KillLogEntry) obj;
+		return equal(killed, other.killed) && equal(killedType, other.killedType)
+				&& equal(killer, other.killer) && equal(killerType, other.killerType)
+				&& day.equals(other.day);
+	}
+
+	private static boolean equal(final String a, final String b) {
+		if (a == null) {
+			return b == null;
+		}
+		return a.equals(b);
+	}
+
+	@Override
+	public String toString() {
+		return killer + " (" + killerType + ") killed " + killed + " (" + killedType + ") on " + day;
+	}
+}
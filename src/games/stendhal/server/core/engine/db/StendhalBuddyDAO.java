@@ -79,12 +79,32 @@ public class StendhalBuddyDAO {
 	 * @throws SQLException in case of an database error
 	 */
 	public void saveRelations(DBTransaction transaction, String charname, Player player) throws SQLException {
-		Multimap<String, String> oldList = loadRelations(transaction, charname);
+		saveRelations(transaction, charname, player, loadRelations(transaction, charname));
+	}
+
 
+	/**
+	 * saves the buddy list for the specified charname, comparing it to a
+	 * known copy of the rows in the database instead of loading them
+	 *
+	 * @param transaction transaction
+	 * @param charname name of char
+	 * @param player player
+	 * @param oldList rows currently in the database
+	 * @return rows in the database after the update
+	 * @throws SQLException in case of an database error
+	 */
+	public Multimap<String, String> saveRelations(DBTransaction transaction, String charname, Player player, Multimap<String, String> oldList) throws SQLException {
 		Set<String> buddies = player.getBuddies();
 		buddies.add(charname);
+		Set<String> ignores = player.getIgnores();
 		syncBuddyListToDB(transaction, charname, "buddy", oldList.get("buddy"), buddies);
-		syncBuddyListToDB(transaction, charname, "ignore", oldList.get("ignore"), player.getIgnores());
+		syncBuddyListToDB(transaction, charname, "ignore", oldList.get("ignore"), ignores);
+
+		HashMultimap<String, String> newList = HashMultimap.create();
+		newList.putAll("buddy", buddies);
+		newList.putAll("ignore", ignores);
+		return newList;
 	}
 
 
@@ -13,9 +13,12 @@ package games.stendhal.server.core.engine.db;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
+import com.google.common.collect.Multimap;
+
 import games.stendhal.server.entity.player.Player;
 import marauroa.common.game.RPObject;
 import marauroa.server.db.DBTransaction;
@@ -51,27 +54,74 @@ public class StendhalCharacterDAO extends CharacterDAO {
 		}
 	}
 
+	/**
+	 * stores a character. If the character is the same as at its last write,
+	 * nothing is written. Otherwise only the changed columns of
+	 * character_stats are updated and the buddy relations are compared to
+	 * those of the last write instead of loading them. The last write is only
+	 * remembered after its transaction was committed.
+	 */
 	@Override
 	public void storeCharacter(final DBTransaction transaction, final String username,
 			final String character, final RPObject player) throws SQLException, IOException {
 
-		super.storeCharacter(transaction, username, character, player);
+		if (!(player instanceof Player)) {
+			super.storeCharacter(transaction, username, character, player);
+			logger.error("player no instance of Player but: " + player, new Throwable());
+			return;
+		}
 
 		// Here goes the Stendhal specific code.
-		if (player instanceof Player) {
-			try {
-				final Player instance = (Player) player;
-				final int count = DAORegister.get().get(StendhalWebsiteDAO.class).updateCharStats(transaction, instance);
+		final Player instance = (Player) player;
+		final StoredCharacter stored = instance.getStoredCharacter();
+		final byte[] digest = StoredCharacter.digest(instance);
+		if (stored.isUnchanged(digest)) {
+			logger.debug("skipping unchanged character " + character);
+			return;
+		}
+
+		try {
+			super.storeCharacter(transaction, username, character, player);
+
+			final StendhalWebsiteDAO websiteDAO = DAORegister.get().get(StendhalWebsiteDAO.class);
+			final Map<String, Object> stats = websiteDAO.getParamsFromPlayer(instance);
+			if (stored.getStats() == null) {
+				final int count = websiteDAO.updateCharStats(transaction, stats);
 				if (count == 0) {
-					DAORegister.get().get(StendhalWebsiteDAO.class).insertIntoCharStats(transaction, instance);
+					websiteDAO.insertIntoCharStats(transaction, stats);
 				}
-				DAORegister.get().get(StendhalBuddyDAO.class).saveRelations(transaction, character, instance);
-			} catch (final SQLException sqle) {
-				logger.warn("error storing character", sqle);
-				throw sqle;
+			} else {
+				websiteDAO.updateChangedCharStats(transaction, stats, stored.getStats());
 			}
-		} else {
-			logger.error("player no instance of Player but: " + player, new Throwable());
+
+			final StendhalBuddyDAO buddyDAO = DAORegister.get().get(StendhalBuddyDAO.class);
+			Multimap<String, String> relations = stored.getRelations();
+			if (relations == null) {
+				relations = buddyDAO.loadRelations(transaction, character);
+			}
+			final Multimap<String, String> savedRelations = buddyDAO.saveRelations(transaction, character, instance, relations);
+
+			// until the transaction is committed, the database may still
+			// contain an older state
+			stored.invalidate();
+			StendhalTransactionPool.addListener(transaction, new StendhalTransactionPool.TransactionListener() {
+				@Override
+				public void onCommit() {
+					stored.setStored(digest, stats, savedRelations);
+				}
+
+				@Override
+				public void onRollback() {
+					stored.invalidate();
+				}
+			});
+		} catch (final SQLException sqle) {
+			stored.invalidate();
+			logger.warn("error storing character", sqle);
+			throw sqle;
+		} catch (final RuntimeException e) {
+			stored.invalidate();
+			throw e;
 		}
 	}
 
@@ -11,14 +11,18 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine.db;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import games.stendhal.server.entity.RPEntity;
 import marauroa.common.game.RPObject;
 import marauroa.server.db.DBTransaction;
-import marauroa.server.db.StringChecker;
 
 /**
  * data access object for items
@@ -29,6 +33,26 @@ public class StendhalItemDAO {
 	/** attribute name of itemid */
 	public static final String ATTR_ITEM_LOGID = "logid";
 
+	/** maximum length of the text columns of the itemlog table */
+	private static final int MAX_COLUMN_LENGTH = 64;
+
+	/** number of item ids to reserve at once */
+	private static final int ID_BLOCK_SIZE = 1000;
+
+	private static final String ITEM_INSERT = "INSERT INTO item (id, name) VALUES (?, ?)";
+
+	private static final String ITEMLOG_INSERT = "INSERT INTO itemlog (itemid, source, event, "
+			+ "param1, param2, param3, param4) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	/**
+	 * prepared insert statements of the transactions. Marauroa closes the
+	 * statements of a transaction on commit and rollback, so a statement is
+	 * reused until then.
+	 */
+	private final Map<DBTransaction, Map<String, PreparedStatement>> insertStatements = new WeakHashMap<DBTransaction, Map<String, PreparedStatement>>();
+
+	private final ItemIdAllocator idAllocator = new ItemIdAllocator(ID_BLOCK_SIZE);
+
 	/**
 	 * Assigns the next logid to the specified item in case it does not already have one.
 	 *
@@ -41,27 +65,37 @@ public class StendhalItemDAO {
 			return;
 		}
 
-		// insert row into
-		String sql = "INSERT INTO item (name) VALUES ('[name]')";
-		Map<String, Object> params = new HashMap<String, Object>();
-		params.put("name", item.get("name"));
-		transaction.execute(sql, params);
-
-		// get the insert id and store it into the item
-		item.put(ATTR_ITEM_LOGID, transaction.getLastInsertId("item", "id"));
-		itemLogInsertName(transaction, item);
+		item.put(ATTR_ITEM_LOGID, idAllocator.next());
+		itemLogWriteEntries(transaction, Collections.singletonList(createRegisterEntry(item)));
 	}
 
+	/**
+	 * Assigns the next logid to the specified item in case it does not already have one.
+	 * The row of the item table and the "register" log entry are added to a list
+	 * instead of being written right away.
+	 *
+	 * @param transaction database transaction
+	 * @param item item
+	 * @param entries list of log entries to write later
+	 * @throws SQLException in case of a database error
+	 */
+	public void itemLogAssignIDIfNotPresent(final DBTransaction transaction, final RPObject item, final List<ItemLogEntry> entries) throws SQLException {
+		if (item.has(ATTR_ITEM_LOGID)) {
+			return;
+		}
+
+		item.put(ATTR_ITEM_LOGID, idAllocator.next());
+		entries.add(createRegisterEntry(item));
+	}
 
 	/**
-	 * Logs the name of the item on first.
+	 * Creates the log entry that records the name of the item on first.
 	 *
-	 * @param transaction
-	 * @param item
-	 * @throws SQLException
+	 * @param item item
+	 * @return log entry
 	 */
-	private void itemLogInsertName(final DBTransaction transaction, final RPObject item) throws SQLException {
-		itemLogWriteEntry(transaction, item, null, "register", getAttribute(item, "name"), getAttribute(item, "quantity"), getAttribute(item, "infostring"), getAttribute(item, "bound"));
+	private ItemLogEntry createRegisterEntry(final RPObject item) {
+		return ItemLogEntry.register(item.getInt(ATTR_ITEM_LOGID), item.get("name"), getAttribute(item, "name"), getAttribute(item, "quantity"), getAttribute(item, "infostring"), getAttribute(item, "bound"));
 	}
 	/**
 	 * writes a log entry
@@ -95,21 +129,97 @@ public class StendhalItemDAO {
 	 * @throws SQLException in case of an database error
 	 */
 	public void itemLogWriteEntry(final DBTransaction transaction, final int itemid, final RPEntity player, final String event, final String param1, final String param2, final String param3, final String param4) throws SQLException {
-		String playerName = null;
-		if (player != null) {
-			playerName = player.getName();
+		itemLogWriteEntries(transaction, Collections.singletonList(new ItemLogEntry(itemid, player, event, param1, param2, param3, param4)));
+	}
+
+	/**
+	 * writes log entries as one JDBC batch. The rows of the item table for
+	 * newly registered items are written first.
+	 *
+	 * @param transaction DBTransaction
+	 * @param entries log entries in the order they should be written
+	 * @throws SQLException in case of an database error
+	 */
+	public void itemLogWriteEntries(final DBTransaction transaction, final Collection<ItemLogEntry> entries) throws SQLException {
+		if (entries.isEmpty()) {
+			return;
+		}
+		itemWriteRows(transaction, entries);
+		final PreparedStatement statement = getInsertStatement(transaction, ITEMLOG_INSERT);
+		for (final ItemLogEntry entry : entries) {
+			statement.setInt(1, entry.getItemid());
+			statement.setString(2, trim(entry.getSource()));
+			statement.setString(3, trim(entry.getEvent()));
+			statement.setString(4, trim(entry.getParam1()));
+			statement.setString(5, trim(entry.getParam2()));
+			statement.setString(6, trim(entry.getParam3()));
+			statement.setString(7, trim(entry.getParam4()));
+			statement.addBatch();
+		}
+		statement.executeBatch();
+	}
+
+	/**
+	 * writes the rows of the item table for the registered items
+	 *
+	 * @param transaction DBTransaction
+	 * @param entries log entries
+	 * @throws SQLException in case of an database error
+	 */
+	private void itemWriteRows(final DBTransaction transaction, final Collection<ItemLogEntry> entries) throws SQLException {
+		PreparedStatement statement = null;
+		for (final ItemLogEntry entry : entries) {
+			if (entry.isRegistration()) {
+				if (statement == null) {
+					statement = getInsertStatement(transaction, ITEM_INSERT);
+				}
+				statement.setInt(1, entry.getItemid());
+				statement.setString(2, entry.getItemName());
+				statement.addBatch();
+			}
+		}
+		if (statement != null) {
+			statement.executeBatch();
+		}
+	}
+
+	/**
+	 * gets a prepared insert statement of a transaction
+	 *
+	 * @param transaction DBTransaction
+	 * @param sql one of the insert statements
+	 * @return prepared statement
+	 * @throws SQLException in case of an database error
+	 */
+	private synchronized PreparedStatement getInsertStatement(final DBTransaction transaction, final String sql) throws SQLException {
+		Map<String, PreparedStatement> statements = insertStatements.get(transaction);
+		if (statements == null) {
+			statements = new HashMap<String, PreparedStatement>();
+			insertStatements.put(transaction, statements);
+		}
+		PreparedStatement statement = statements.get(sql);
+		if ((statement == null) || statement.isClosed()) {
+			statement = transaction.prepareStatement(sql, null);
+			statements.put(sql, statement);
+		}
+		return statement;
+	}
+
+	/**
+	 * trims a value to the length of the itemlog columns. <code>null</code>
+	 * is stored as the text "null", as it has always been.
+	 *
+	 * @param value value
+	 * @return trimmed value
+	 */
+	private static String trim(final String value) {
+		if (value == null) {
+			return "null";
+		}
+		if (value.length() > MAX_COLUMN_LENGTH) {
+			return value.substring(0, MAX_COLUMN_LENGTH);
 		}
-		final String query = "INSERT INTO itemlog (itemid, source, event, "
-			+ "param1, param2, param3, param4) VALUES ("
-			+ itemid + ", '"
-			+ StringChecker.trimAndEscapeSQLString(playerName, 64) + "', '"
-			+ StringChecker.trimAndEscapeSQLString(event, 64) + "', '"
-			+ StringChecker.trimAndEscapeSQLString(param1, 64) + "', '"
-			+ StringChecker.trimAndEscapeSQLString(param2, 64) + "', '"
-			+ StringChecker.trimAndEscapeSQLString(param3, 64) + "', '"
-			+ StringChecker.trimAndEscapeSQLString(param4, 64) + "');";
-
-		transaction.execute(query, null);
+		return value;
 	}
 
 	/**
@@ -11,20 +11,20 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine.db;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
 
-import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.Killer;
 import games.stendhal.server.entity.creature.Creature;
 import games.stendhal.server.entity.player.Player;
 import marauroa.server.db.DBTransaction;
-import marauroa.server.db.TransactionPool;
 
 /**
  * database access to the kill log
@@ -34,57 +34,116 @@ import marauroa.server.db.TransactionPool;
 public class StendhalKillLogDAO {
 	private static Logger logger = Logger.getLogger(StendhalKillLogDAO.class);
 
+	/**
+	 * <code>false</code> once the JDBC driver did not report the number of
+	 * updated rows of a batch. Such drivers get single updates.
+	 */
+	private static volatile boolean batchRowCounts = true;
 
 	/**
-	 * Logs a kill.
+	 * Adds counted kills to the kills table. All rows are first updated in one
+	 * JDBC batch, the combinations that did not exist yet are then inserted in
+	 * a second one. If the driver does not report the updated rows of a batch,
+	 * the rows are updated one by one.
 	 *
 	 * @param transaction transaction
-	 * @param killed killed entity
-	 * @param killer killer
+	 * @param kills number of kills of each combination
 	 * @throws SQLException in case of an database error
 	 */
-	public void logKill(final DBTransaction transaction, final Entity killed, final Killer killer) throws SQLException {
+	public void logKills(final DBTransaction transaction, final Map<KillLogEntry, Integer> kills) throws SQLException {
+		if (kills.isEmpty()) {
+			return;
+		}
 		// try update in case we already have this combination
-		String query = "UPDATE kills SET cnt = cnt+1"
-			+ " WHERE killed = '[killed]' AND killed_type = '[killed_type]'"
-			+ " AND killer = '[killer]' AND killer_type = '[killer_type]'"
-			+ " AND day = '[day]';";
-
-		Map<String, Object> params = new HashMap<String, Object>();
-		params.put("killed", killed.getName());
-		params.put("killed_type", entityToType(killed));
-		params.put("killer", killer.getName());
-		params.put("killer_type", entityToType(killer));
-		params.put("day", new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
-
-		final int rowCount = transaction.execute(query, params);
-
-		// in case we did not have this combination yet, make an insert
-		if (rowCount == 0) {
-			query = "INSERT INTO kills (killed, killed_type, killer, killer_type, day, cnt)"
-				+ " VALUES ('[killed]', '[killed_type]', '[killer]', '[killer_type]', '[day]', 1)";
-			transaction.execute(query, params);
+		final List<Map.Entry<KillLogEntry, Integer>> rows = new ArrayList<Map.Entry<KillLogEntry, Integer>>(kills.entrySet());
+		final PreparedStatement update = transaction.prepareStatement("UPDATE kills SET cnt = cnt + ?"
+			+ " WHERE killed = ? AND killed_type = ?"
+			+ " AND killer = ? AND killer_type = ?"
+			+ " AND day = ?", null);
+		final boolean[] missing = new boolean[rows.size()];
+		if (batchRowCounts) {
+			for (final Map.Entry<KillLogEntry, Integer> row : rows) {
+				update.setInt(1, row.getValue().intValue());
+				setKey(update, 2, row.getKey());
+				update.addBatch();
+			}
+			final int[] rowCounts = update.executeBatch();
+			for (int i = 0; i < rows.size(); i++) {
+				if (rowCounts[i] == Statement.SUCCESS_NO_INFO) {
+					// The update has been done, if the row exists
+					if (batchRowCounts) {
+						logger.info("JDBC driver does not report batch row counts, using single updates");
+						batchRowCounts = false;
+					}
+					missing[i] = !exists(transaction, rows.get(i).getKey());
+				} else {
+					missing[i] = (rowCounts[i] == 0);
+				}
+			}
+		} else {
+			for (int i = 0; i < rows.size(); i++) {
+				update.setInt(1, rows.get(i).getValue().intValue());
+				setKey(update, 2, rows.get(i).getKey());
+				missing[i] = (update.executeUpdate() == 0);
+			}
 		}
 
+		// in case we did not have a combination yet, make an insert
+		PreparedStatement insert = null;
+		for (int i = 0; i < rows.size(); i++) {
+			if (missing[i]) {
+				if (insert == null) {
+					insert = transaction.prepareStatement("INSERT INTO kills (killed, killed_type, killer, killer_type, day, cnt)"
+						+ " VALUES (?, ?, ?, ?, ?, ?)", null);
+				}
+				setKey(insert, 1, rows.get(i).getKey());
+				insert.setInt(6, rows.get(i).getValue().intValue());
+				insert.addBatch();
+			}
+		}
+		if (insert != null) {
+			insert.executeBatch();
+		}
 	}
 
 	/**
-	 * Logs a kill.
+	 * Checks whether the kills table has a row for a combination.
 	 *
-	 * @param killed killed entity
-	 * @param killer killer
+	 * @param transaction transaction
+	 * @param entry combination
+	 * @return true, if the row exists
+	 * @throws SQLException in case of an database error
 	 */
-	public void logKill(final Entity killed, final Entity killer) {
-		DBTransaction transaction = TransactionPool.get().beginWork();
+	private boolean exists(final DBTransaction transaction, final KillLogEntry entry) throws SQLException {
+		final PreparedStatement select = transaction.prepareStatement("SELECT 1 FROM kills"
+			+ " WHERE killed = ? AND killed_type = ?"
+			+ " AND killer = ? AND killer_type = ?"
+			+ " AND day = ?", null);
+		setKey(select, 1, entry);
+		final ResultSet resultSet = select.executeQuery();
 		try {
-			logKill(transaction, killed, killer);
-			TransactionPool.get().commit(transaction);
-		} catch (SQLException e) {
-			logger.error(e, e);
-			TransactionPool.get().rollback(transaction);
+			return resultSet.next();
+		} finally {
+			resultSet.close();
 		}
 	}
 
+	/**
+	 * Sets the columns identifying a row of the kills table.
+	 *
+	 * @param statement statement
+	 * @param first index of the killed column
+	 * @param entry values
+	 * @throws SQLException in case of an database error
+	 */
+	private void setKey(final PreparedStatement statement, final int first, final KillLogEntry entry) throws SQLException {
+		statement.setString(first, String.valueOf(entry.getKilled()));
+		statement.setString(first + 1, entry.getKilledType());
+		statement.setString(first + 2, String.valueOf(entry.getKiller()));
+		statement.setString(first + 3, entry.getKillerType());
+		statement.setString(first + 4, entry.getDay());
+	}
+
 	/**
 	 * Creates a one letter type string based on the class of the entity.
 	 *
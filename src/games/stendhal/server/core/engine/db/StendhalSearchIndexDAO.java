@@ -14,10 +14,14 @@ package games.stendhal.server.core.engine.db;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import games.stendhal.server.core.rp.searchindex.SearchIndexEntity;
 import games.stendhal.server.core.rp.searchindex.SearchIndexEntry;
 import marauroa.server.db.DBTransaction;
 
@@ -94,7 +98,7 @@ public class StendhalSearchIndexDAO {
 	 * @param toAdd entries to add
 	 * @throws SQLException
 	 */
-	private void addNewEntries(DBTransaction transaction, Set<SearchIndexEntry> toAdd) throws SQLException {
+	public void addNewEntries(DBTransaction transaction, Set<SearchIndexEntry> toAdd) throws SQLException {
 		PreparedStatement stmt = transaction.prepareStatement("INSERT INTO searchindex"
 				+ " (searchterm, entitytype, entityname, searchscore)"
 				+ " VALUES (?, ?, ?, ?)", null);
@@ -121,4 +125,68 @@ public class StendhalSearchIndexDAO {
 		addNewEntries(transaction, toAdd);
 	}
 
+	/**
+	 * reads the hashes of the indexed entities
+	 *
+	 * @param transaction DBTransaction
+	 * @return hashes by entity key
+	 * @throws SQLException in case a database error is thrown.
+	 */
+	public Map<String, String> readHashes(DBTransaction transaction) throws SQLException {
+		Map<String, String> res = Maps.newHashMap();
+		ResultSet resultSet = transaction.query("SELECT entitytype, entityname, hash FROM searchindex_hash", null);
+		while (resultSet.next()) {
+			res.put(SearchIndexEntity.getKey(resultSet.getString(1).charAt(0), resultSet.getString(2)), resultSet.getString(3));
+		}
+		return res;
+	}
+
+	/**
+	 * deletes the search index entries and hashes of entities
+	 *
+	 * @param transaction DBTransaction
+	 * @param keys keys of entities
+	 * @throws SQLException in case a database error is thrown.
+	 */
+	public void deleteEntities(DBTransaction transaction, Collection<String> keys) throws SQLException {
+		if (keys.isEmpty()) {
+			return;
+		}
+		PreparedStatement entryStmt = transaction.prepareStatement("DELETE FROM searchindex"
+				+ " WHERE entitytype=? AND entityname=?", null);
+		PreparedStatement hashStmt = transaction.prepareStatement("DELETE FROM searchindex_hash"
+				+ " WHERE entitytype=? AND entityname=?", null);
+		for (String key : keys) {
+			String entityType = key.substring(0, 1);
+			String entityName = key.substring(1);
+			entryStmt.setString(1, entityType);
+			entryStmt.setString(2, entityName);
+			entryStmt.addBatch();
+			hashStmt.setString(1, entityType);
+			hashStmt.setString(2, entityName);
+			hashStmt.addBatch();
+		}
+		entryStmt.executeBatch();
+		hashStmt.executeBatch();
+	}
+
+	/**
+	 * writes the hashes of entities, which must not have a hash stored yet
+	 *
+	 * @param transaction DBTransaction
+	 * @param entities indexed entities
+	 * @throws SQLException in case a database error is thrown.
+	 */
+	public void addHashes(DBTransaction transaction, Collection<SearchIndexEntity> entities) throws SQLException {
+		PreparedStatement stmt = transaction.prepareStatement("INSERT INTO searchindex_hash"
+				+ " (entitytype, entityname, hash)"
+				+ " VALUES (?, ?, ?)", null);
+		for (SearchIndexEntity entity : entities) {
+			stmt.setString(1, String.valueOf(entity.getEntityType()));
+			stmt.setString(2, entity.getName());
+			stmt.setString(3, entity.getHash());
+			stmt.addBatch();
+		}
+		stmt.executeBatch();
+	}
 }
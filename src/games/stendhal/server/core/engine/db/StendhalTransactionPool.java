@@ -0,0 +1,168 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import marauroa.common.Configuration;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+
+/**
+ * a transaction pool, which tells listeners whether the changes of a
+ * transaction were committed or rolled back.
+ */
+public class StendhalTransactionPool extends TransactionPool {
+	private static Logger logger = Logger.getLogger(StendhalTransactionPool.class);
+
+	/**
+	 * is told about the end of a transaction
+	 */
+	public interface TransactionListener {
+
+		/**
+		 * the transaction was committed
+		 */
+		void onCommit();
+
+		/**
+		 * the transaction was rolled back or could not be committed
+		 */
+		void onRollback();
+	}
+
+	private final Map<DBTransaction, List<TransactionListener>> listeners = new ConcurrentHashMap<DBTransaction, List<TransactionListener>>();
+
+	/**
+	 * creates a new StendhalTransactionPool
+	 *
+	 * @param configuration database configuration
+	 */
+	public StendhalTransactionPool(final Properties configuration) {
+		super(configuration);
+	}
+
+	/**
+	 * replaces the global transaction pool, which was created by marauroa,
+	 * with a StendhalTransactionPool using the same configuration.
+	 */
+	public static void install() {
+		final TransactionPool pool = TransactionPool.get();
+		if (pool instanceof StendhalTransactionPool) {
+			return;
+		}
+		try {
+			new StendhalTransactionPool(Configuration.getConfiguration().getAsProperties()).registerGlobally();
+		} catch (final IOException e) {
+			logger.error("Failed to load configuration for database", e);
+			return;
+		}
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	/**
+	 * adds a listener to the global transaction pool
+	 *
+	 * @param transaction transaction
+	 * @param listener listener to tell about the end of the transaction
+	 * @return false, if the global transaction pool does not support listeners
+	 */
+	public static boolean addListener(final DBTransaction transaction, final TransactionListener listener) {
+		final TransactionPool pool = TransactionPool.get();
+		if (!(pool instanceof StendhalTransactionPool)) {
+			return false;
+		}
+		((StendhalTransactionPool) pool).add(transaction, listener);
+		return true;
+	}
+
+	/**
+	 * adds a listener for a transaction
+	 *
+	 * @param transaction transaction
+	 * @param listener listener to tell about the end of the transaction
+	 */
+	private void add(final DBTransaction transaction, final TransactionListener listener) {
+		List<TransactionListener> list = listeners.get(transaction);
+		if (list == null) {
+			// a transaction is only used by one thread at a time
+			list = new LinkedList<TransactionListener>();
+			listeners.put(transaction, list);
+		}
+		list.add(listener);
+	}
+
+	@Override
+	public void commit(final DBTransaction transaction) throws SQLException {
+		final List<TransactionListener> list = listeners.remove(transaction);
+		boolean committed = false;
+		try {
+			super.commit(transaction);
+			committed = true;
+		} finally {
+			notifyListeners(list, committed);
+		}
+	}
+
+	@Override
+	public void rollback(final DBTransaction transaction) {
+		final List<TransactionListener> list = listeners.remove(transaction);
+		try {
+			super.rollback(transaction);
+		} finally {
+			notifyListeners(list, false);
+		}
+	}
+
+	@Override
+	public void killTransaction(final DBTransaction transaction) {
+		final List<TransactionListener> list = listeners.remove(transaction);
+		try {
+			super.killTransaction(transaction);
+		} finally {
+			notifyListeners(list, false);
+		}
+	}
+
+	/**
+	 * tells the listeners of a transaction about its end
+	 *
+	 * @param list listeners or <code>null</code>
+	 * @param committed true, if the transaction was committed
+	 */
+	private void notifyListeners(final List<TransactionListener> list, final boolean committed) {
+		if (list == null) {
+			return;
+		}
+		for (final TransactionListener listener : list) {
+			try {
+				if (committed) {
+					listener.onCommit();
+				} else {
+					listener.onRollback();
+				}
+			} catch (final RuntimeException e) {
+				logger.error(e, e);
+			}
+		}
+	}
+}
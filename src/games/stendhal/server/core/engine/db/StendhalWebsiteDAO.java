@@ -11,11 +11,17 @@
  ***************************************************************************/
 package games.stendhal.server.core.engine.db;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -35,6 +41,17 @@ import marauroa.server.db.TransactionPool;
 public class StendhalWebsiteDAO {
 	private static Logger logger = Logger.getLogger(StendhalWebsiteDAO.class);
 
+	/** columns of character_stats taken from the player, except name and lastseen */
+	private static final List<String> CHAR_STATS_COLUMNS = Arrays.asList("admin", "sentence", "age", "level",
+			"outfit", "outfit_colors", "xp", "money", "married", "atk", "def", "hp", "karma",
+			"head", "armor", "lhand", "rhand", "legs", "feet", "cloak", "finger", "zone");
+
+	/** columns that are written without quotes */
+	private static final Set<String> UNQUOTED_COLUMNS = new HashSet<String>(Arrays.asList("admin", "age", "level", "outfit", "xp"));
+
+	/** maximum number of players whose online status is set with one statement */
+	private static final int STATUS_CHUNK_SIZE = 500;
+
 	/**
 	 * clears the online status of all players (used on server startup)
 	 *
@@ -71,6 +88,67 @@ public class StendhalWebsiteDAO {
 		transaction.execute(query, params);
 	}
 
+	/**
+	 * sets the online status of several players with one statement for up to
+	 * STATUS_CHUNK_SIZE players
+	 *
+	 * @param transaction DBTransaction
+	 * @param statuses online status by player name
+	 * @throws SQLException in case of an database error
+	 */
+	public void setOnlineStatus(final DBTransaction transaction, final Map<String, Boolean> statuses) throws SQLException {
+		final List<Map.Entry<String, Boolean>> entries = new ArrayList<Map.Entry<String, Boolean>>(statuses.entrySet());
+		for (int start = 0; start < entries.size(); start += STATUS_CHUNK_SIZE) {
+			setOnlineStatus(transaction, entries.subList(start, Math.min(start + STATUS_CHUNK_SIZE, entries.size())));
+		}
+	}
+
+	private void setOnlineStatus(final DBTransaction transaction, final List<Map.Entry<String, Boolean>> entries) throws SQLException {
+		final List<String> online = new ArrayList<String>();
+		final List<String> all = new ArrayList<String>();
+		for (final Map.Entry<String, Boolean> entry : entries) {
+			if (entry.getValue().booleanValue()) {
+				online.add(entry.getKey());
+			}
+			all.add(entry.getKey());
+		}
+
+		final StringBuilder sql = new StringBuilder("UPDATE character_stats SET online=");
+		if (online.isEmpty()) {
+			sql.append("0");
+		} else if (online.size() == all.size()) {
+			sql.append("1");
+		} else {
+			sql.append("CASE WHEN name IN (");
+			appendPlaceholders(sql, online.size());
+			sql.append(") THEN 1 ELSE 0 END");
+		}
+		sql.append(" WHERE name IN (");
+		appendPlaceholders(sql, all.size());
+		sql.append(")");
+
+		final PreparedStatement stmt = transaction.prepareStatement(sql.toString(), null);
+		int i = 1;
+		if ((online.size() > 0) && (online.size() < all.size())) {
+			for (final String name : online) {
+				stmt.setString(i++, name);
+			}
+		}
+		for (final String name : all) {
+			stmt.setString(i++, name);
+		}
+		stmt.executeUpdate();
+	}
+
+	private void appendPlaceholders(final StringBuilder sql, final int count) {
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append("?");
+		}
+	}
+
 	/**
 	 * clears the online status of all players (used on server startup)
 	 */
@@ -134,6 +212,19 @@ public class StendhalWebsiteDAO {
 	 * @throws SQLException in case of an database error
 	 */
 	protected int updateCharStats(final DBTransaction transaction, final Player player) throws SQLException {
+		Map<String, Object> params = getParamsFromPlayer(player);
+		return updateCharStats(transaction, params);
+	}
+
+	/**
+	 * updates the statistics information about a player
+	 *
+	 * @param transaction DBTransaction
+	 * @param params attributes of the player
+	 * @return number of updates rows
+	 * @throws SQLException in case of an database error
+	 */
+	int updateCharStats(final DBTransaction transaction, final Map<String, Object> params) throws SQLException {
 		final String query = "UPDATE character_stats SET "
 			+ " admin=[admin], sentence='[sentence]', age=[age], level=[level],"
 			+ " outfit=[outfit], outfit_colors='[outfit_colors]', xp=[xp], money='[money]',"
@@ -143,19 +234,58 @@ public class StendhalWebsiteDAO {
 			+ " finger='[finger]', zone='[zone]'"
 			+ " WHERE name='[name]'";
 
-		Map<String, Object> params = getParamsFromPlayer(player);
 		logger.debug("storeCharacter is running: " + query);
 		final int count = transaction.execute(query, params);
 		return count;
 	}
 
+	/**
+	 * updates only those statistics columns which differ from the last write.
+	 * lastseen is updated together with any other change.
+	 *
+	 * @param transaction DBTransaction
+	 * @param params attributes of the player
+	 * @param oldParams attributes of the last write
+	 * @return number of updates rows, -1 if nothing changed
+	 * @throws SQLException in case of an database error
+	 */
+	int updateChangedCharStats(final DBTransaction transaction, final Map<String, Object> params,
+			final Map<String, Object> oldParams) throws SQLException {
+		final StringBuilder query = new StringBuilder("UPDATE character_stats SET ");
+		boolean changed = false;
+		for (final String column : CHAR_STATS_COLUMNS) {
+			if (!equal(params.get(column), oldParams.get(column))) {
+				query.append(column);
+				if (UNQUOTED_COLUMNS.contains(column)) {
+					query.append("=[").append(column).append("], ");
+				} else {
+					query.append("='[").append(column).append("]', ");
+				}
+				changed = true;
+			}
+		}
+		if (!changed) {
+			return -1;
+		}
+		query.append("lastseen='[lastseen]' WHERE name='[name]'");
+		logger.debug("storeCharacter is running: " + query);
+		return transaction.execute(query.toString(), params);
+	}
+
+	private static boolean equal(final Object a, final Object b) {
+		if (a == null) {
+			return b == null;
+		}
+		return a.equals(b);
+	}
+
 	/**
 	 * gets the attributes from a player object.
 	 *
 	 * @param player Player
 	 * @return Map with key value pairs
 	 */
-	private Map<String, Object> getParamsFromPlayer(final Player player) {
+	Map<String, Object> getParamsFromPlayer(final Player player) {
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("admin", player.getAdminLevel());
 		params.put("sentence", player.getSentence());
@@ -198,6 +328,17 @@ public class StendhalWebsiteDAO {
 	 * @throws SQLException in case of an database error
 	 */
 	protected void insertIntoCharStats(final DBTransaction transaction, final Player player) throws SQLException {
+		insertIntoCharStats(transaction, getParamsFromPlayer(player));
+	}
+
+	/**
+	 * Insert statistics information about a new player
+	 *
+	 * @param transaction DBTransaction
+	 * @param params attributes of the player
+	 * @throws SQLException in case of an database error
+	 */
+	void insertIntoCharStats(final DBTransaction transaction, final Map<String, Object> params) throws SQLException {
 		final String query = "INSERT INTO character_stats"
 			+ " (name, admin, sentence, age, level,"
 			+ " outfit, outfit_colors, xp, money, married, atk, def, hp,"
@@ -208,7 +349,6 @@ public class StendhalWebsiteDAO {
 			+ " '[atk]', '[atk]', '[hp]', '[karma]', '[head]', '[armor]',"
 			+ " '[lhand]', '[rhand]', '[legs]', '[feet]', '[cloak]', '[finger]',"
 			+ " '[zone]', '[lastseen]')";
-		Map<String, Object> params = getParamsFromPlayer(player);
 		logger.debug("storeCharacter is running: " + query);
 		transaction.execute(query, params);
 	}
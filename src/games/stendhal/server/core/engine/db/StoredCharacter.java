@@ -0,0 +1,111 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.google.common.collect.Multimap;
+
+import marauroa.common.game.DetailLevel;
+import marauroa.common.game.RPObject;
+import marauroa.common.net.OutputSerializer;
+
+/**
+ * remembers what was last written to the database for a character, so that
+ * saving it again only writes what changed.
+ * <p>
+ * The copies of a player that are handed to the database thread share this
+ * object with the player, and only the database thread uses it.
+ */
+public class StoredCharacter {
+
+	/** digest of the serialized character, null if it was not stored yet */
+	private byte[] digest;
+
+	/** columns of character_stats */
+	private Map<String, Object> stats;
+
+	/** rows of the buddy table */
+	private Multimap<String, String> relations;
+
+	/**
+	 * calculates the digest of a character
+	 *
+	 * @param object character
+	 * @return digest of the serialized object
+	 * @throws IOException in case of an serialization error
+	 */
+	static byte[] digest(final RPObject object) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		object.writeObject(new OutputSerializer(out), DetailLevel.FULL);
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(out.toByteArray());
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * checks whether the character was stored in this state before
+	 *
+	 * @param newDigest digest of the current character
+	 * @return true, if nothing changed since the last write
+	 */
+	boolean isUnchanged(final byte[] newDigest) {
+		return (digest != null) && Arrays.equals(digest, newDigest);
+	}
+
+	/**
+	 * gets the character_stats columns of the last write
+	 *
+	 * @return column values or null
+	 */
+	Map<String, Object> getStats() {
+		return stats;
+	}
+
+	/**
+	 * gets the buddy relations of the last write
+	 *
+	 * @return relations or null
+	 */
+	Multimap<String, String> getRelations() {
+		return relations;
+	}
+
+	/**
+	 * remembers a committed write
+	 *
+	 * @param digest digest of the character
+	 * @param stats columns of character_stats
+	 * @param relations rows of the buddy table
+	 */
+	void setStored(final byte[] digest, final Map<String, Object> stats, final Multimap<String, String> relations) {
+		this.digest = digest;
+		this.stats = stats;
+		this.relations = relations;
+	}
+
+	/**
+	 * forgets the last write, so that the next one writes everything
+	 */
+	void invalidate() {
+		digest = null;
+		stats = null;
+		relations = null;
+	}
+}
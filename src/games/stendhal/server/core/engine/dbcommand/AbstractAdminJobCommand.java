@@ -0,0 +1,73 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import games.stendhal.server.entity.player.Player;
+import marauroa.server.db.command.AbstractDBCommand;
+
+/**
+ * A database job started by an admin. The database work is done on the
+ * database thread, while {@link #onFinished(Player)} is called on the turn
+ * thread afterwards. Jobs are started with {@link AdminJobRunner}.
+ */
+public abstract class AbstractAdminJobCommand extends AbstractDBCommand {
+
+	private final String adminName;
+	private final Queue<String> progress = new ConcurrentLinkedQueue<String>();
+
+	/**
+	 * creates a new AbstractAdminJobCommand
+	 *
+	 * @param adminName name of the admin who started the job
+	 */
+	protected AbstractAdminJobCommand(final String adminName) {
+		this.adminName = adminName;
+	}
+
+	/**
+	 * gets the name of the admin who started the job
+	 *
+	 * @return name of admin
+	 */
+	public String getAdminName() {
+		return adminName;
+	}
+
+	/**
+	 * reports progress to the admin. This method may be called on the
+	 * database thread, the message is delivered on the next turn.
+	 *
+	 * @param message progress message
+	 */
+	protected void reportProgress(final String message) {
+		progress.add(message);
+	}
+
+	/**
+	 * gets the next progress message which was not delivered yet
+	 *
+	 * @return progress message or null
+	 */
+	String pollProgress() {
+		return progress.poll();
+	}
+
+	/**
+	 * called on the turn thread after the job was executed successfully
+	 *
+	 * @param admin admin who started the job, or null if they logged out
+	 */
+	public abstract void onFinished(Player admin);
+}
@@ -12,10 +12,15 @@
 package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
+import games.stendhal.server.core.engine.db.ItemLogEntry;
+import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import marauroa.common.game.RPObject;
 import marauroa.server.db.DBTransaction;
 import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.game.db.DAORegister;
 
 /**
  * base class for item logging
@@ -27,17 +32,21 @@ public abstract class AbstractLogItemEventCommand extends AbstractDBCommand {
 
 	@Override
 	public void execute(DBTransaction transaction) throws SQLException {
-		log(transaction);
+		final List<ItemLogEntry> entries = new ArrayList<ItemLogEntry>();
+		log(transaction, entries);
+		DAORegister.get().get(StendhalItemDAO.class).itemLogWriteEntries(transaction, entries);
 	}
 
 
 	/**
-	 * logs the event to the database.
+	 * logs the event to the database. Items get their logids right away,
+	 * the log entries are collected so that they can be written in a batch.
 	 *
 	 * @param transaction DBTransaction
+	 * @param entries list to add the log entries to
 	 * @throws SQLException in case of an database error
 	 */
-	protected abstract void log(DBTransaction transaction) throws SQLException;
+	protected abstract void log(DBTransaction transaction, List<ItemLogEntry> entries) throws SQLException;
 
 	/**
 	 * gets the quantity from an item; correctly handles non stackable items
@@ -0,0 +1,93 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.NotificationType;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.events.TurnListener;
+import games.stendhal.server.core.events.TurnNotifier;
+import games.stendhal.server.entity.player.Player;
+import marauroa.server.db.command.DBCommandQueue;
+import marauroa.server.db.command.ResultHandle;
+
+/**
+ * Runs an admin job on the database thread and waits for its result on the
+ * following turns. Progress messages are passed on to the admin while
+ * waiting.
+ */
+public class AdminJobRunner implements TurnListener {
+	private static final Logger logger = Logger.getLogger(AdminJobRunner.class);
+
+	private final ResultHandle handle = new ResultHandle();
+	private final AbstractAdminJobCommand command;
+
+	/**
+	 * starts an admin job
+	 *
+	 * @param command job to execute
+	 */
+	public static void start(final AbstractAdminJobCommand command) {
+		new AdminJobRunner(command).start();
+	}
+
+	private AdminJobRunner(final AbstractAdminJobCommand command) {
+		this.command = command;
+	}
+
+	private void start() {
+		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+		TurnNotifier.get().notifyInTurns(0, this);
+	}
+
+	/**
+	 * delivers progress messages and completes the job, once it was executed
+	 *
+	 * @param currentTurn ignored
+	 */
+	@Override
+	public void onTurnReached(final int currentTurn) {
+		final Player admin = SingletonRepository.getRuleProcessor().getPlayer(command.getAdminName());
+		final AbstractAdminJobCommand result = DBCommandQueue.get().getOneResult(AbstractAdminJobCommand.class, handle);
+
+		sendProgress(admin);
+		if (result == null) {
+			TurnNotifier.get().notifyInTurns(0, this);
+			return;
+		}
+
+		if (result.getException() != null) {
+			logger.error(result, result.getException());
+			if (admin != null) {
+				admin.sendPrivateText(NotificationType.ERROR, result.getException().toString());
+			}
+			return;
+		}
+		result.onFinished(admin);
+	}
+
+	/**
+	 * sends the progress messages reported so far
+	 *
+	 * @param admin admin to inform, may be null
+	 */
+	private void sendProgress(final Player admin) {
+		String message = command.pollProgress();
+		while (message != null) {
+			if (admin != null) {
+				admin.sendPrivateText(message);
+			}
+			message = command.pollProgress();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Objects;
+
+import games.stendhal.server.core.engine.db.ItemLogEntry;
+import games.stendhal.server.core.engine.db.StendhalItemDAO;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.game.Statistics;
+import marauroa.server.game.db.DAORegister;
+
+/**
+ * logs a number of item events in one transaction, writing all log rows
+ * as one JDBC batch
+ */
+public class LogItemEventBatchCommand extends AbstractDBCommand {
+	private static final Logger logger = Logger.getLogger(LogItemEventBatchCommand.class);
+
+	/** number of events in batches that have been queued, but not written yet */
+	private static final AtomicInteger queuedEvents = new AtomicInteger();
+
+	private final List<AbstractLogItemEventCommand> commands;
+	private final long created = System.currentTimeMillis();
+
+	/**
+	 * creates a new LogItemEventBatchCommand
+	 *
+	 * @param commands item log commands in the order of the events
+	 */
+	public LogItemEventBatchCommand(final List<AbstractLogItemEventCommand> commands) {
+		this.commands = commands;
+		queuedEvents.addAndGet(commands.size());
+	}
+
+	@Override
+	public void execute(final DBTransaction transaction) throws SQLException {
+		final long start = System.currentTimeMillis();
+		try {
+			final List<ItemLogEntry> entries = new ArrayList<ItemLogEntry>(commands.size() * 2);
+			for (final AbstractLogItemEventCommand command : commands) {
+				try {
+					command.log(transaction, entries);
+				} catch (final RuntimeException e) {
+					// do not lose the other events because of a single broken one
+					logger.error("Error logging " + command, e);
+				}
+			}
+			DAORegister.get().get(StendhalItemDAO.class).itemLogWriteEntries(transaction, entries);
+
+			final long now = System.currentTimeMillis();
+			final Statistics stats = Statistics.getStatistics();
+			stats.add("Item log rows", entries.size());
+			stats.add("Item log batches", 1);
+			stats.set("Item log write ms", (int) (now - start));
+			stats.set("Item log latency ms", (int) (now - created));
+		} finally {
+			Statistics.getStatistics().set("Item log queued", queuedEvents.addAndGet(-commands.size()));
+		}
+	}
+
+	/**
+	 * gets the number of events in batches that are waiting for the database
+	 *
+	 * @return number of events
+	 */
+	public static int getQueuedEvents() {
+		return queuedEvents.get();
+	}
+
+	/**
+	 * returns a string suitable for debug output of this DBCommand.
+	 *
+	 * @return debug string
+	 */
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).add("events", commands.size()).toString();
+	}
+}
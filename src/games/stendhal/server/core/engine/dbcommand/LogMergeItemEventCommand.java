@@ -12,9 +12,11 @@
 package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
+import java.util.List;
 
 import com.google.common.base.Objects;
 
+import games.stendhal.server.core.engine.db.ItemLogEntry;
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.entity.RPEntity;
 import marauroa.common.game.RPObject;
@@ -49,21 +51,21 @@ public class LogMergeItemEventCommand extends AbstractLogItemEventCommand {
 	}
 
 	@Override
-	protected void log(DBTransaction transaction) throws SQLException {
+	protected void log(DBTransaction transaction, List<ItemLogEntry> entries) throws SQLException {
 		StendhalItemDAO stendhalItemDAO = DAORegister.get().get(StendhalItemDAO.class);
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveOldItem);
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveOutlivingItem);
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveOldItem, entries);
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveOutlivingItem, entries);
 
 		final String oldQuantity = getQuantity(frozenOldItem);
 		final String oldOutlivingQuantity = getQuantity(frozenOutlivingItem);
 		final String newQuantity = Integer.toString(Integer.parseInt(oldQuantity) + Integer.parseInt(oldOutlivingQuantity));
 
-		stendhalItemDAO.itemLogWriteEntry(transaction, liveOldItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "merge in",
+		entries.add(new ItemLogEntry(liveOldItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "merge in",
 				liveOutlivingItem.get(StendhalItemDAO.ATTR_ITEM_LOGID), oldQuantity,
-				oldOutlivingQuantity, newQuantity);
-		stendhalItemDAO.itemLogWriteEntry(transaction, liveOutlivingItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "merged in",
+				oldOutlivingQuantity, newQuantity));
+		entries.add(new ItemLogEntry(liveOutlivingItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "merged in",
 				liveOldItem.get(StendhalItemDAO.ATTR_ITEM_LOGID), oldOutlivingQuantity,
-				oldQuantity, newQuantity);
+				oldQuantity, newQuantity));
 	}
 
 	/**
@@ -12,9 +12,11 @@
 package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
+import java.util.List;
 
 import com.google.common.base.Objects;
 
+import games.stendhal.server.core.engine.db.ItemLogEntry;
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.entity.RPEntity;
 import marauroa.common.game.RPObject;
@@ -60,14 +62,14 @@ public class LogSimpleItemEventCommand extends AbstractLogItemEventCommand {
 
 
 	@Override
-	protected void log(final DBTransaction transaction) throws SQLException {
+	protected void log(final DBTransaction transaction, final List<ItemLogEntry> entries) throws SQLException {
 		// don't log the destruction of items that have not been logged prior.
 		if (event.equals("destroy") && !item.has("logid")) {
 			return;
 		}
 		StendhalItemDAO stendhalItemDAO = DAORegister.get().get(StendhalItemDAO.class);
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, item);
-		stendhalItemDAO.itemLogWriteEntry(transaction, item, player, event, param1, param2, param3, param4);
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, item, entries);
+		entries.add(new ItemLogEntry(item.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, event, param1, param2, param3, param4));
 	}
 
 	/**
@@ -12,9 +12,11 @@
 package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
+import java.util.List;
 
 import com.google.common.base.Objects;
 
+import games.stendhal.server.core.engine.db.ItemLogEntry;
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.entity.RPEntity;
 import marauroa.common.game.RPObject;
@@ -49,20 +51,20 @@ public class LogSplitItemEventCommand extends AbstractLogItemEventCommand {
 	}
 
 	@Override
-	protected void log(DBTransaction transaction) throws SQLException {
+	protected void log(DBTransaction transaction, List<ItemLogEntry> entries) throws SQLException {
 		StendhalItemDAO stendhalItemDAO = DAORegister.get().get(StendhalItemDAO.class);
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveItem);
-		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveNewItem);
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveItem, entries);
+		stendhalItemDAO.itemLogAssignIDIfNotPresent(transaction, liveNewItem, entries);
 
 		final String outlivingQuantity = getQuantity(frozenItem);
 		final String newQuantity = getQuantity(frozenNewItem);
 		final String oldQuantity = Integer.toString(Integer.parseInt(outlivingQuantity) + Integer.parseInt(newQuantity));
-		stendhalItemDAO.itemLogWriteEntry(transaction, liveItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "split out",
+		entries.add(new ItemLogEntry(liveItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "split out",
 				liveNewItem.get(StendhalItemDAO.ATTR_ITEM_LOGID), oldQuantity,
-				outlivingQuantity, newQuantity);
-		stendhalItemDAO.itemLogWriteEntry(transaction, liveNewItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "splitted out",
+				outlivingQuantity, newQuantity));
+		entries.add(new ItemLogEntry(liveNewItem.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), player, "splitted out",
 				liveItem.get(StendhalItemDAO.ATTR_ITEM_LOGID), oldQuantity,
-				newQuantity, outlivingQuantity);
+				newQuantity, outlivingQuantity));
 
 	}
 
@@ -13,11 +13,16 @@ package games.stendhal.server.core.engine.dbcommand;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 
 import games.stendhal.server.core.engine.db.StendhalSearchIndexDAO;
+import games.stendhal.server.core.rp.searchindex.SearchIndexEntity;
 import games.stendhal.server.core.rp.searchindex.SearchIndexEntry;
 import games.stendhal.server.core.rp.searchindex.SearchIndexManager;
 import marauroa.server.db.DBTransaction;
@@ -25,7 +30,8 @@ import marauroa.server.db.command.AbstractDBCommand;
 import marauroa.server.game.db.DAORegister;
 
 /**
- * updates the search index
+ * updates the search index. Only entities whose texts changed since the
+ * last update are indexed and written again.
  *
  * @author hendrik
  */
@@ -37,12 +43,41 @@ public class UpdateSearchIndexCommand extends AbstractDBCommand {
 		long start = System.currentTimeMillis();
 
 		SearchIndexManager manager = new SearchIndexManager();
-		Set<SearchIndexEntry> index = manager.generateIndex();
+		Collection<SearchIndexEntity> entities = manager.collectEntities();
 
 		StendhalSearchIndexDAO dao = DAORegister.get().get(StendhalSearchIndexDAO.class);
-		dao.updateSearchIndex(transaction, index);
+		Map<String, String> oldHashes = dao.readHashes(transaction);
 
-		logger.info("Completed dumping of search index in " + (System.currentTimeMillis() - start) + " milliseconds.");
+		if (oldHashes.isEmpty()) {
+			// no hashes yet, compare the complete index once
+			Set<SearchIndexEntry> index = SearchIndexManager.tokenize(entities);
+			dao.updateSearchIndex(transaction, index);
+			dao.addHashes(transaction, entities);
+			logger.info("Completed dumping of search index with " + index.size() + " entries in " + (System.currentTimeMillis() - start) + " milliseconds.");
+			return;
+		}
+
+		List<SearchIndexEntity> changed = new ArrayList<SearchIndexEntity>();
+		List<String> toDelete = new ArrayList<String>();
+		for (SearchIndexEntity entity : entities) {
+			String oldHash = oldHashes.remove(entity.getKey());
+			if (!entity.getHash().equals(oldHash)) {
+				changed.add(entity);
+				if (oldHash != null) {
+					toDelete.add(entity.getKey());
+				}
+			}
+		}
+		// entities which do not exist anymore
+		int removed = oldHashes.size();
+		toDelete.addAll(oldHashes.keySet());
+
+		dao.deleteEntities(transaction, toDelete);
+		dao.addNewEntries(transaction, SearchIndexManager.tokenize(changed));
+		dao.addHashes(transaction, changed);
+
+		logger.info("Completed dumping of search index with " + changed.size() + " changed and "
+				+ removed + " removed entities in " + (System.currentTimeMillis() - start) + " milliseconds.");
 	}
 
 }
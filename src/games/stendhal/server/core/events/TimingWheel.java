@@ -0,0 +1,382 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A hierarchical timing wheel for turn listeners.
+ * <p>
+ * The first wheel has one slot per turn for the next 256 turns. Each further
+ * wheel has 64 slots, each covering a whole revolution of the wheel below it.
+ * When the first wheel wraps around, the due slot of the next wheel is
+ * cascaded down. Scheduling, cancelling and firing are therefore independent
+ * of the number of pending notifications. A reverse index from listeners to
+ * their entries allows cancelling and looking up the remaining time without
+ * searching the wheels. Entries cascaded down from the higher wheels end up
+ * behind entries scheduled directly in the lower wheels, so the entries of a
+ * turn are sorted by their scheduling order before they are returned.
+ * <p>
+ * Turns are expected to advance one at a time. If {@link #advance(int)} is
+ * called with any other turn, all entries are redistributed relative to the
+ * new turn. Entries whose turn was skipped that way are kept, but are only
+ * fired if their exact turn is reached again.
+ */
+final class TimingWheel {
+	private static final int ROOT_BITS = 8;
+	private static final int LEVEL_BITS = 6;
+	/** Enough levels to cover any int turn difference. */
+	private static final int LEVELS = 5;
+	private static final int ROOT_MASK = (1 << ROOT_BITS) - 1;
+	private static final int LEVEL_MASK = (1 << LEVEL_BITS) - 1;
+
+	/** Orders entries by the time they were scheduled. */
+	private static final Comparator<Timeout> SCHEDULING_ORDER = new Comparator<Timeout>() {
+		@Override
+		public int compare(final Timeout a, final Timeout b) {
+			return Long.compare(a.sequence, b.sequence);
+		}
+	};
+
+	/** Slots of each level. */
+	private final Slot[][] wheels;
+	/** Entries whose turn has already passed. */
+	private final Slot overdue = new Slot();
+	/** First entry of each scheduled listener. */
+	private final Map<TurnListener, Timeout> byListener = new HashMap<TurnListener, Timeout>();
+
+	/** The next turn to be processed. */
+	private int nextTurn;
+	/** Number of pending entries. */
+	private int size;
+	/** Sequence number of the next scheduled entry. */
+	private long nextSequence;
+
+	/**
+	 * Creates a new TimingWheel.
+	 *
+	 * @param nextTurn the first turn that will be processed
+	 */
+	TimingWheel(final int nextTurn) {
+		this.nextTurn = nextTurn;
+		wheels = new Slot[LEVELS][];
+		for (int level = 0; level < LEVELS; level++) {
+			final int slots = (level == 0) ? (1 << ROOT_BITS) : (1 << LEVEL_BITS);
+			wheels[level] = new Slot[slots];
+			for (int i = 0; i < slots; i++) {
+				wheels[level][i] = new Slot();
+			}
+		}
+	}
+
+	/**
+	 * Schedules a listener.
+	 *
+	 * @param turn turn at which the listener should be notified
+	 * @param listener listener to notify
+	 * @return <code>false</code> if an equal listener was already scheduled
+	 * 	for that turn, <code>true</code> otherwise
+	 */
+	boolean schedule(final int turn, final TurnListener listener) {
+		final Timeout first = byListener.get(listener);
+		for (Timeout timeout = first; timeout != null; timeout = timeout.sibling) {
+			if (timeout.turn == turn) {
+				return false;
+			}
+		}
+		final Timeout timeout = new Timeout(listener, turn, nextSequence++);
+		timeout.sibling = first;
+		byListener.put(listener, timeout);
+		place(timeout);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes all entries of a listener.
+	 *
+	 * @param listener listener to remove
+	 * @return number of removed entries
+	 */
+	int cancel(final TurnListener listener) {
+		int removed = 0;
+		for (Timeout timeout = byListener.remove(listener); timeout != null; timeout = timeout.sibling) {
+			timeout.slot.remove(timeout);
+			removed++;
+		}
+		size -= removed;
+		return removed;
+	}
+
+	/**
+	 * Get the earliest turn a listener is scheduled for.
+	 *
+	 * @param listener listener to look up
+	 * @return turn, or <code>-1</code> if the listener is not scheduled
+	 */
+	int getFirstTurn(final TurnListener listener) {
+		Timeout timeout = byListener.get(listener);
+		if (timeout == null) {
+			return -1;
+		}
+		int turn = timeout.turn;
+		for (timeout = timeout.sibling; timeout != null; timeout = timeout.sibling) {
+			turn = Math.min(turn, timeout.turn);
+		}
+		return turn;
+	}
+
+	/**
+	 * Advances the wheel to a turn and removes the entries due in it.
+	 *
+	 * @param turn the turn to process
+	 * @return listeners to be notified, in the order they were scheduled
+	 */
+	List<TurnListener> advance(final int turn) {
+		if (turn != nextTurn) {
+			redistribute(turn);
+		}
+
+		final int index = turn & ROOT_MASK;
+		if (index == 0) {
+			// Move the entries of the next revolution down to the lower wheels
+			for (int level = 1; level < LEVELS; level++) {
+				final int levelIndex = (turn >>> shift(level)) & LEVEL_MASK;
+				cascade(wheels[level][levelIndex]);
+				if (levelIndex != 0) {
+					break;
+				}
+			}
+		}
+		nextTurn = turn + 1;
+
+		final Slot slot = wheels[0][index];
+		final List<Timeout> due = new ArrayList<Timeout>();
+		Timeout timeout = slot.head;
+		slot.head = null;
+		slot.tail = null;
+		while (timeout != null) {
+			final Timeout next = timeout.next;
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.slot = null;
+			if (timeout.turn == turn) {
+				unlinkFromListener(timeout);
+				size--;
+				due.add(timeout);
+			} else {
+				place(timeout);
+			}
+			timeout = next;
+		}
+
+		if (due.size() > 1) {
+			Collections.sort(due, SCHEDULING_ORDER);
+		}
+		final List<TurnListener> listeners = new ArrayList<TurnListener>(due.size());
+		for (final Timeout entry : due) {
+			listeners.add(entry.listener);
+		}
+		return listeners;
+	}
+
+	/**
+	 * Get the number of pending entries.
+	 *
+	 * @return number of entries
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	void clear() {
+		for (final Slot[] wheel : wheels) {
+			for (final Slot slot : wheel) {
+				slot.head = null;
+				slot.tail = null;
+			}
+		}
+		overdue.head = null;
+		overdue.tail = null;
+		byListener.clear();
+		size = 0;
+	}
+
+	/**
+	 * Creates a map from turns to the listeners scheduled for them.
+	 *
+	 * @return a sorted copy of the pending entries
+	 */
+	Map<Integer, Set<TurnListener>> toMap() {
+		final Map<Integer, Set<TurnListener>> map = new TreeMap<Integer, Set<TurnListener>>();
+		for (final Timeout first : byListener.values()) {
+			for (Timeout timeout = first; timeout != null; timeout = timeout.sibling) {
+				final Integer turn = Integer.valueOf(timeout.turn);
+				Set<TurnListener> set = map.get(turn);
+				if (set == null) {
+					set = new LinkedHashSet<TurnListener>();
+					map.put(turn, set);
+				}
+				set.add(timeout.listener);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Put an entry in the slot matching its distance from the next turn.
+	 *
+	 * @param timeout entry to place
+	 */
+	private void place(final Timeout timeout) {
+		final long delta = (long) timeout.turn - nextTurn;
+		if (delta < 0) {
+			overdue.add(timeout);
+			return;
+		}
+		int level = 0;
+		while ((level < LEVELS - 1) && (delta >= (1L << (ROOT_BITS + level * LEVEL_BITS)))) {
+			level++;
+		}
+		final int mask = (level == 0) ? ROOT_MASK : LEVEL_MASK;
+		wheels[level][(timeout.turn >>> shift(level)) & mask].add(timeout);
+	}
+
+	/**
+	 * Re-place all entries of a slot relative to the current turn.
+	 *
+	 * @param slot slot to empty
+	 */
+	private void cascade(final Slot slot) {
+		Timeout timeout = slot.head;
+		slot.head = null;
+		slot.tail = null;
+		while (timeout != null) {
+			final Timeout next = timeout.next;
+			timeout.prev = null;
+			timeout.next = null;
+			place(timeout);
+			timeout = next;
+		}
+	}
+
+	/**
+	 * Re-place all entries relative to a new turn.
+	 *
+	 * @param turn the new next turn
+	 */
+	private void redistribute(final int turn) {
+		nextTurn = turn;
+		cascade(overdue);
+		for (final Slot[] wheel : wheels) {
+			for (final Slot slot : wheel) {
+				cascade(slot);
+			}
+		}
+	}
+
+	/**
+	 * Remove an entry from the reverse index.
+	 *
+	 * @param timeout entry to remove
+	 */
+	private void unlinkFromListener(final Timeout timeout) {
+		final Timeout first = byListener.get(timeout.listener);
+		if (first == timeout) {
+			if (timeout.sibling == null) {
+				byListener.remove(timeout.listener);
+			} else {
+				byListener.put(timeout.listener, timeout.sibling);
+			}
+			return;
+		}
+		for (Timeout previous = first; previous != null; previous = previous.sibling) {
+			if (previous.sibling == timeout) {
+				previous.sibling = timeout.sibling;
+				return;
+			}
+		}
+	}
+
+	private static int shift(final int level) {
+		return (level == 0) ? 0 : ROOT_BITS + (level - 1) * LEVEL_BITS;
+	}
+
+	/**
+	 * A scheduled notification.
+	 */
+	private static final class Timeout {
+		private final TurnListener listener;
+		private final int turn;
+		/** Scheduling order of the entry. */
+		private final long sequence;
+		/** Slot containing this entry. */
+		private Slot slot;
+		private Timeout prev;
+		private Timeout next;
+		/** Next entry of the same listener. */
+		private Timeout sibling;
+
+		Timeout(final TurnListener listener, final int turn, final long sequence) {
+			this.listener = listener;
+			this.turn = turn;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * A doubly linked list of entries.
+	 */
+	private static final class Slot {
+		private Timeout head;
+		private Timeout tail;
+
+		void add(final Timeout timeout) {
+			timeout.slot = this;
+			timeout.prev = tail;
+			timeout.next = null;
+			if (tail == null) {
+				head = timeout;
+			} else {
+				tail.next = timeout;
+			}
+			tail = timeout;
+		}
+
+		void remove(final Timeout timeout) {
+			if (timeout.prev == null) {
+				head = timeout.next;
+			} else {
+				timeout.prev.next = timeout.next;
+			}
+			if (timeout.next == null) {
+				tail = timeout.prev;
+			} else {
+				timeout.next.prev = timeout.prev;
+			}
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.slot = null;
+		}
+	}
+}
@@ -12,10 +12,6 @@
  ***************************************************************************/
 package games.stendhal.server.core.events;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,9 +20,15 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.ZoneLogicExecutor;
 
 /**
  * Other classes can register here to be notified at some time in the future.
+ * <p>
+ * The pending notifications are kept in a hierarchical timing wheel, so
+ * registering, cancelling and notifying do not depend on the total number of
+ * pending notifications. Listeners of the same turn are notified in the order
+ * they were registered.
  *
  * @author hendrik, daniel
  */
@@ -39,16 +41,22 @@ public final class TurnNotifier {
 
 	private int currentTurn = -1;
 
-	/**
-	 * This Map maps each turn to the set of all events that will take place at
-	 * this turn. Turns at which no event should take place needn't be
-	 * registered here.
-	 */
-	private final Map<Integer, Set<TurnListener>> register = new HashMap<Integer, Set<TurnListener>>();
+	/** The pending notifications. */
+	private final TimingWheel wheel = new TimingWheel(currentTurn + 1);
 
 	/** Used for multi-threading synchronization. * */
 	private final Object sync = new Object();
 
+	/** Number of notifications scheduled, fired and cancelled in this turn. */
+	private int scheduledCount;
+	private int firedCount;
+	private int cancelledCount;
+
+	/** Counters of the previous turn. */
+	private int lastScheduledCount;
+	private int lastFiredCount;
+	private int lastCancelledCount;
+
 	private TurnNotifier() {
 		// singleton
 	}
@@ -75,35 +83,31 @@ public final class TurnNotifier {
 		// for the current turn. So it is important to
 		// adjust currentTurn before the loop.
 
-		this.currentTurn = currentTurn;
-
-		// get and remove the set for this turn
-		Set<TurnListener> set = null;
+		// get and remove the listeners for this turn
+		List<TurnListener> list;
 		synchronized (sync) {
-			set = register.remove(Integer.valueOf(currentTurn));
+			this.currentTurn = currentTurn;
+			lastScheduledCount = scheduledCount;
+			lastFiredCount = firedCount;
+			lastCancelledCount = cancelledCount;
+			scheduledCount = 0;
+			cancelledCount = 0;
+			list = wheel.advance(currentTurn);
+			firedCount = list.size();
 		}
 
 		if (logger.isDebugEnabled()) {
 			final StringBuilder os = new StringBuilder();
-			os.append("register: " + register.size() + "\n");
-			int setSize;
-			if (set != null) {
-				setSize = set.size();
-			} else {
-				setSize = 0;
-			}
-			os.append("set: " + setSize + "\n");
+			os.append("register: " + wheel.size() + "\n");
+			os.append("set: " + list.size() + "\n");
 			logger.info(os);
 		}
 
-		if (set != null) {
-			for (final TurnListener turnListener : set) {
-
-				try {
-					turnListener.onTurnReached(currentTurn);
-				} catch (final RuntimeException e) {
-					logger.error("Exception in " + turnListener, e);
-				}
+		for (final TurnListener turnListener : list) {
+			try {
+				turnListener.onTurnReached(currentTurn);
+			} catch (final RuntimeException e) {
+				logger.error("Exception in " + turnListener, e);
 			}
 		}
 	}
@@ -161,6 +165,15 @@ public final class TurnNotifier {
 			logger.info(st);
 		}
 
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				notifyAtTurn(turn, turnListener);
+			}
+		})) {
+			return;
+		}
+
 		if (turn <= currentTurn) {
 			logger.error("requested turn " + turn
 					+ " is in the past. Current turn is " + currentTurn,
@@ -169,15 +182,9 @@ public final class TurnNotifier {
 		}
 
 		synchronized (sync) {
-			// do we have other events for this turn?
-			final Integer turnInt = Integer.valueOf(turn);
-			Set<TurnListener> set = register.get(turnInt);
-			if (set == null) {
-				set = new HashSet<TurnListener>();
-				register.put(turnInt, set);
+			if (wheel.schedule(turn, turnListener)) {
+				scheduledCount++;
 			}
-			// add it to the list
-			set.add(turnListener);
 		}
 	}
 
@@ -189,25 +196,28 @@ public final class TurnNotifier {
 	 */
 
 	public void dontNotify(final TurnListener turnListener) {
-		// all events that are equal to this one should be forgotten.
-		// TurnEvent turnEvent = new TurnEvent(turnListener);
-		for (final Map.Entry<Integer, Set<TurnListener>> mapEntry : register.entrySet()) {
-			final Set<TurnListener> set = mapEntry.getValue();
-			// We don't remove directly, but first store in this
-			// set. This is to avoid ConcurrentModificationExceptions.
-			final Set<TurnListener> toBeRemoved = new HashSet<TurnListener>();
-			if (set.contains(turnListener)) {
-					toBeRemoved.add(turnListener);
-			}
-			for (final TurnListener event : toBeRemoved) {
-				set.remove(event);
+		if (ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				dontNotify(turnListener);
 			}
+		})) {
+			return;
+		}
+		// all events that are equal to this one should be forgotten.
+		synchronized (sync) {
+			cancelledCount += wheel.cancel(turnListener);
 		}
 	}
 
 	/**
 	 * Finds out how many turns will pass until the given TurnListener will be
 	 * notified with the given message.
+	 * <p>
+	 * During parallel zone logic {@link #notifyAtTurn(int, TurnListener)} and
+	 * {@link #dontNotify(TurnListener)} are postponed until all zones are
+	 * done. Until then this method still returns the value from before such
+	 * a postponed change.
 	 *
 	 * @param turnListener
 	 * @return the number of remaining turns, or -1 if the given TurnListener
@@ -215,24 +225,12 @@ public final class TurnNotifier {
 	 */
 
 	public int getRemainingTurns(final TurnListener turnListener) {
-		// all events match that are equal to this.
-		// TurnEvent turnEvent = new TurnEvent(turnListener);
-		// the HashMap is unsorted, so we need to run through
-		// all of it.
-		final List<Integer> matchingTurns = new ArrayList<Integer>();
-		for (final Map.Entry<Integer, Set<TurnListener>> mapEntry : register.entrySet()) {
-			final Set<TurnListener> set = mapEntry.getValue();
-			for (final TurnListener currentEvent : set) {
-				if (currentEvent.equals(turnListener)) {
-					matchingTurns.add(mapEntry.getKey());
-				}
+		synchronized (sync) {
+			final int turn = wheel.getFirstTurn(turnListener);
+			if (turn == -1) {
+				return -1;
 			}
-		}
-		if (matchingTurns.size() > 0) {
-			Collections.sort(matchingTurns);
-			return matchingTurns.get(0).intValue() - currentTurn;
-		} else {
-			return -1;
+			return turn - currentTurn;
 		}
 	}
 
@@ -251,13 +249,66 @@ public final class TurnNotifier {
 	}
 
 	/**
-	 * Returns the list of events. Note this is only for debugging the
+	 * Returns a copy of the list of events. Note this is only for debugging the
 	 * TurnNotifier
 	 *
 	 * @return eventList
 	 */
 	public Map<Integer, Set<TurnListener>> getEventListForDebugging() {
-		return register;
+		synchronized (sync) {
+			return wheel.toMap();
+		}
+	}
+
+	/**
+	 * Forgets all registered notifications. Note this is only for debugging
+	 * the TurnNotifier
+	 */
+	public void clearForDebugging() {
+		synchronized (sync) {
+			cancelledCount += wheel.size();
+			wheel.clear();
+		}
+	}
+
+	/**
+	 * Get the number of pending notifications.
+	 *
+	 * @return number of notifications
+	 */
+	public int getPendingCount() {
+		synchronized (sync) {
+			return wheel.size();
+		}
+	}
+
+	/**
+	 * Get the number of notifications that were scheduled in the previous
+	 * turn.
+	 *
+	 * @return number of scheduled notifications
+	 */
+	public int getScheduledCount() {
+		return lastScheduledCount;
+	}
+
+	/**
+	 * Get the number of listeners that were notified in the previous turn.
+	 *
+	 * @return number of fired notifications
+	 */
+	public int getFiredCount() {
+		return lastFiredCount;
+	}
+
+	/**
+	 * Get the number of notifications that were cancelled in the previous
+	 * turn.
+	 *
+	 * @return number of cancelled notifications
+	 */
+	public int getCancelledCount() {
+		return lastCancelledCount;
 	}
 
 	/**
@@ -0,0 +1,585 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * A* search on a grid, working on int node ids (<code>x + y * width</code>).
+ * <p>
+ * All per node data lives in arrays that are kept between searches, and a
+ * generation counter marks which entries belong to the current search, so
+ * nothing needs to be cleared or allocated for a search except the resulting
+ * path. The open list is a binary heap of node ids that knows the position
+ * of each node, so that improved nodes can be moved up in place. Instances
+ * are not thread safe; use {@link #get()} to get the instance of the current
+ * thread.
+ * <p>
+ * For maps where every step costs the same, the search can run as Jump Point
+ * Search. Instead of adding every neighbour to the open list, it scans along
+ * straight lines and only adds the points where the path may need to turn,
+ * so large open areas are crossed without touching the open list. Paths are
+ * restricted to the canonical form "horizontal moves may turn vertical at
+ * any point, vertical moves turn only where an obstacle forces it", which
+ * keeps the four directional movement. Its heuristic never overestimates, so
+ * the paths are never longer than those of the plain search.
+ */
+final class AStarSearch {
+	private static final byte OPEN = 1;
+	private static final byte CLOSED = 2;
+	private static final byte INVALID = 3;
+	/** Vertical scan result for positions followed by an obstacle. */
+	private static final int SCAN_BLOCKED = Integer.MIN_VALUE;
+
+	private static final ThreadLocal<AStarSearch> instances = new ThreadLocal<AStarSearch>() {
+		@Override
+		protected AStarSearch initialValue() {
+			return new AStarSearch();
+		}
+	};
+
+	/** The current search. Node data with another stamp is stale. */
+	private int generation;
+	private int[] stamp = new int[0];
+	private byte[] state = new byte[0];
+	/** Cost of the best known path to each node. */
+	private double[] g = new double[0];
+	/** Cost plus heuristic, used for ordering the open list. */
+	private double[] weight = new double[0];
+	private int[] parent = new int[0];
+	/** Position of each open node in the heap. */
+	private int[] heapIndex = new int[0];
+	private int[] heap = new int[0];
+	private int heapSize;
+	/**
+	 * Remembered results of vertical jump point scans, two entries per node
+	 * for scanning up and down.
+	 */
+	private int[] scanStamp = new int[0];
+	private int[] scanSteps = new int[0];
+
+	/** Search parameters. */
+	private Pathfinder finder;
+	private int width;
+	private int height;
+	private int goalX;
+	private int goalY;
+	private Rectangle2D goalArea;
+	/** Path cost that jumps may not reach. */
+	private double jumpLimit;
+	/** Number of nodes taken from the open list in the last search. */
+	private int expanded;
+
+	/**
+	 * Get the search engine of the current thread.
+	 *
+	 * @return search engine
+	 */
+	static AStarSearch get() {
+		return instances.get();
+	}
+
+	/**
+	 * Search a path.
+	 *
+	 * @param finder provides the map size, valid positions and movement costs
+	 * @param startX x coordinate of the start
+	 * @param startY y coordinate of the start
+	 * @param goalArea the search ends when a node within this area is reached
+	 * @param goalX x coordinate the heuristic aims at
+	 * @param goalY y coordinate the heuristic aims at
+	 * @param maxDistance nodes whose path cost reaches this value are not
+	 * 	expanded any further
+	 * @param jump <code>true</code> if Jump Point Search should be used. This
+	 * 	is valid only if every step costs 1
+	 * @return node ids of the path including start and end, or
+	 * 	<code>null</code> if no path was found
+	 */
+	int[] search(final Pathfinder finder, final int startX, final int startY, final Rectangle2D goalArea,
+			final int goalX, final int goalY, final double maxDistance, final boolean jump) {
+		this.finder = finder;
+		width = finder.getWidth();
+		height = finder.getHeight();
+		this.goalX = goalX;
+		this.goalY = goalY;
+		this.goalArea = goalArea;
+		jumpLimit = maxDistance + 1;
+		expanded = 0;
+		try {
+			if ((startX < 0) || (startX >= width) || (startY < 0) || (startY >= height)) {
+				return null;
+			}
+			prepare(width * height);
+
+			final int start = startX + startY * width;
+			stamp[start] = generation;
+			g[start] = 0;
+			weight[start] = 0;
+			parent[start] = -1;
+			state[start] = OPEN;
+			push(start);
+
+			while (heapSize > 0) {
+				final int current = pop();
+				state[current] = CLOSED;
+				expanded++;
+				final int x = current % width;
+				final int y = current / width;
+				if (goalArea.contains(x, y)) {
+					return buildPath(current);
+				}
+				if (g[current] < maxDistance) {
+					if (jump) {
+						jumpFrom(current, x, y);
+						continue;
+					}
+					link(current, x - 1, y);
+					link(current, x + 1, y);
+					link(current, x, y - 1);
+					link(current, x, y + 1);
+				}
+			}
+			return null;
+		} finally {
+			this.finder = null;
+			this.goalArea = null;
+		}
+	}
+
+	/**
+	 * Get the number of nodes that were taken from the open list during the
+	 * last search. With Jump Point Search these are the jump points only.
+	 *
+	 * @return number of expanded nodes
+	 */
+	int getExpandedNodes() {
+		return expanded;
+	}
+
+	/**
+	 * Reach a neighbour of an expanded node.
+	 *
+	 * @param current expanded node
+	 * @param x x coordinate of the neighbour
+	 * @param y y coordinate of the neighbour
+	 */
+	private void link(final int current, final int x, final int y) {
+		if ((x < 0) || (x >= width) || (y < 0) || (y >= height)) {
+			return;
+		}
+		final int node = x + y * width;
+		if (stamp[node] != generation) {
+			stamp[node] = generation;
+			if (!finder.isValid(x, y)) {
+				state[node] = INVALID;
+				return;
+			}
+			g[node] = g[current] + finder.getCost(x, y);
+			parent[node] = current;
+			weight[node] = calculateWeight(current, node, x, y);
+			state[node] = OPEN;
+			push(node);
+			return;
+		}
+
+		if (state[node] == INVALID) {
+			return;
+		}
+		final double newG = g[current] + finder.getCost(x, y);
+		if (newG < g[node]) {
+			g[node] = newG;
+			parent[node] = current;
+			weight[node] = calculateWeight(current, node, x, y);
+			reopen(node);
+		}
+	}
+
+	/**
+	 * Update the position of a node whose weight was lowered.
+	 *
+	 * @param node node id
+	 */
+	private void reopen(final int node) {
+		if (state[node] == OPEN) {
+			siftUp(heapIndex[node], node);
+		} else {
+			// A cheaper way to an already expanded node. Expand it again.
+			state[node] = OPEN;
+			push(node);
+		}
+	}
+
+	/**
+	 * Expand a jump point. The start continues in all directions. Other
+	 * points continue in the direction they were reached from, and turn to
+	 * both sides.
+	 *
+	 * @param current expanded node
+	 * @param x x coordinate of the node
+	 * @param y y coordinate of the node
+	 */
+	private void jumpFrom(final int current, final int x, final int y) {
+		final int from = parent[current];
+		if (from == -1) {
+			jumpTo(current, x, y, -1, 0);
+			jumpTo(current, x, y, 1, 0);
+			jumpTo(current, x, y, 0, -1);
+			jumpTo(current, x, y, 0, 1);
+			return;
+		}
+		final int dx = Integer.signum(x - from % width);
+		final int dy = Integer.signum(y - from / width);
+		if (dx != 0) {
+			jumpTo(current, x, y, dx, 0);
+			jumpTo(current, x, y, 0, -1);
+			jumpTo(current, x, y, 0, 1);
+		} else {
+			jumpTo(current, x, y, 0, dy);
+			jumpTo(current, x, y, -1, 0);
+			jumpTo(current, x, y, 1, 0);
+		}
+	}
+
+	/**
+	 * Jump from a node in a direction, and add the found jump point to the
+	 * open list.
+	 *
+	 * @param current expanded node
+	 * @param x x coordinate of the node
+	 * @param y y coordinate of the node
+	 * @param dx horizontal direction
+	 * @param dy vertical direction
+	 */
+	private void jumpTo(final int current, final int x, final int y, final int dx, final int dy) {
+		final int node = jump(x + dx, y + dy, dx, dy, g[current] + 1);
+		if (node == -1) {
+			return;
+		}
+		final int nx = node % width;
+		final int ny = node / width;
+		final double newG = g[current] + Math.abs(nx - x) + Math.abs(ny - y);
+		if (stamp[node] != generation) {
+			stamp[node] = generation;
+			g[node] = newG;
+			parent[node] = current;
+			weight[node] = jumpWeight(newG, nx, ny);
+			state[node] = OPEN;
+			push(node);
+		} else if (newG < g[node]) {
+			g[node] = newG;
+			parent[node] = current;
+			weight[node] = jumpWeight(newG, nx, ny);
+			reopen(node);
+		}
+	}
+
+	/**
+	 * Calculate the weight of a jump point. Among points of the same
+	 * estimated total cost, the ones closer to the goal are preferred. The
+	 * bonus is small enough to not change the length of the found paths,
+	 * because the path costs are integers below the jump limit.
+	 *
+	 * @param cost path cost of the point
+	 * @param x x coordinate of the point
+	 * @param y y coordinate of the point
+	 * @return weight for the open list
+	 */
+	private double jumpWeight(final double cost, final int x, final int y) {
+		final int h = goalDistance(x, y);
+		return cost + h + h / jumpLimit;
+	}
+
+	/**
+	 * The Jump Point Search heuristic: the manhattan distance to the nearest
+	 * position of the goal area. Unlike the plain A* heuristic it never
+	 * overestimates, so the found paths are as short as possible.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return distance to the goal area
+	 */
+	private int goalDistance(final int x, final int y) {
+		final int minX = (int) Math.ceil(goalArea.getMinX());
+		final int maxX = (int) Math.ceil(goalArea.getMaxX()) - 1;
+		final int minY = (int) Math.ceil(goalArea.getMinY());
+		final int maxY = (int) Math.ceil(goalArea.getMaxY()) - 1;
+		return Math.max(0, Math.max(minX - x, x - maxX)) + Math.max(0, Math.max(minY - y, y - maxY));
+	}
+
+	/**
+	 * Walk straight in a direction until a jump point is found. A point is a
+	 * jump point if it is in the goal area, if an obstacle behind it opens a
+	 * way to the side that can not be reached otherwise, or, when walking
+	 * horizontally, if a vertical scan from it finds a jump point.
+	 *
+	 * @param x x coordinate of the first position
+	 * @param y y coordinate of the first position
+	 * @param dx horizontal direction
+	 * @param dy vertical direction
+	 * @param cost path cost at the first position
+	 * @return id of the jump point, or -1 if the scan hit an obstacle or the
+	 * 	distance limit
+	 */
+	private int jump(int x, final int y, final int dx, final int dy, double cost) {
+		if (dx == 0) {
+			final int steps = scanVertical(x, y, dy, cost);
+			if (steps != -1) {
+				return x + (y + steps * dy) * width;
+			}
+			return -1;
+		}
+		while ((cost < jumpLimit) && isFree(x, y)) {
+			if (goalArea.contains(x, y)
+					|| (isFree(x, y - 1) && !isFree(x - dx, y - 1))
+					|| (isFree(x, y + 1) && !isFree(x - dx, y + 1))
+					|| (scanVertical(x, y - 1, -1, cost + 1) != -1)
+					|| (scanVertical(x, y + 1, 1, cost + 1) != -1)) {
+				return x + y * width;
+			}
+			x += dx;
+			cost++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Scan vertically for a jump point within the distance limit. Every
+	 * horizontal jump scans up and down at each step, so the same columns
+	 * are scanned over and over. The results are therefore remembered for
+	 * every passed position for the rest of the search, either as the
+	 * distance to the next jump point, as "blocked" if an obstacle comes
+	 * first, or as the number of positions known to be free of jump points.
+	 *
+	 * @param x x coordinate of the first position
+	 * @param y y coordinate of the first position
+	 * @param dy vertical direction
+	 * @param cost path cost at the first position
+	 * @return number of steps to the jump point, or -1 if there is none
+	 * 	within the limit
+	 */
+	private int scanVertical(final int x, final int y, final int dy, final double cost) {
+		final int direction = (dy < 0) ? 0 : 1;
+		final int limit = (int) Math.ceil(jumpLimit - cost);
+		int current = y;
+		int checked = 0;
+		// y coordinate of the found jump point
+		int point = -1;
+		boolean blocked = false;
+		while (checked < limit) {
+			if (!isFree(x, current)) {
+				blocked = true;
+				break;
+			}
+			final int index = 2 * (x + current * width) + direction;
+			if (scanStamp[index] == generation) {
+				final int known = scanSteps[index];
+				if (known >= 0) {
+					point = current + known * dy;
+					break;
+				} else if (known == SCAN_BLOCKED) {
+					blocked = true;
+					break;
+				}
+				final int skip = Math.min(-known - 1, limit - checked);
+				current += skip * dy;
+				checked += skip;
+				continue;
+			}
+			if (goalArea.contains(x, current)
+					|| (isFree(x - 1, current) && !isFree(x - 1, current - dy))
+					|| (isFree(x + 1, current) && !isFree(x + 1, current - dy))) {
+				point = current;
+				break;
+			}
+			current += dy;
+			checked++;
+		}
+
+		for (int passed = y; passed != current; passed += dy) {
+			final int index = 2 * (x + passed * width) + direction;
+			scanStamp[index] = generation;
+			if (point != -1) {
+				scanSteps[index] = Math.abs(point - passed);
+			} else if (blocked) {
+				scanSteps[index] = SCAN_BLOCKED;
+			} else {
+				// free for this many positions, stored as negative number
+				scanSteps[index] = -Math.abs(current - passed) - 1;
+			}
+		}
+		if ((point == -1) || (Math.abs(point - y) >= limit)) {
+			return -1;
+		}
+		return Math.abs(point - y);
+	}
+
+	/**
+	 * Check if a position is within the map and walkable.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return <code>true</code> if the position can be entered
+	 */
+	private boolean isFree(final int x, final int y) {
+		return (x >= 0) && (x < width) && (y >= 0) && (y < height) && finder.isValid(x, y);
+	}
+
+	/**
+	 * Calculate the weight of a node reached from another node.
+	 *
+	 * @param from previous node
+	 * @param node reached node, with its cost already set
+	 * @param x x coordinate of the reached node
+	 * @param y y coordinate of the reached node
+	 * @return weight for the open list
+	 */
+	private double calculateWeight(final int from, final int node, final int x, final int y) {
+		double result = g[node] + Pathfinder.heuristic(x, y, goalX, goalY);
+
+		// Prefer nodes that do not result in direction change
+		final int before = parent[from];
+		if ((before != -1) && (before - from == from - node)) {
+			result -= Pathfinder.STRAIGHT_PATH_PREFERENCE_FACTOR;
+		}
+		return result;
+	}
+
+	/**
+	 * Collect the path leading to a node.
+	 *
+	 * @param end last node of the path
+	 * @return node ids from the start to the end
+	 */
+	private int[] buildPath(final int end) {
+		// Jump points can be several steps apart. Fill in the straight lines
+		// between them.
+		int length = 1;
+		for (int node = end; parent[node] != -1; node = parent[node]) {
+			length += distance(node, parent[node]);
+		}
+		final int[] path = new int[length];
+		for (int node = end; node != -1; node = parent[node]) {
+			path[--length] = node;
+			final int from = parent[node];
+			if (from != -1) {
+				final int step = (from % width == node % width) ? width : 1;
+				final int delta = (from < node) ? -step : step;
+				for (int between = node + delta; between != from; between += delta) {
+					path[--length] = between;
+				}
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Get the number of steps between two nodes on a horizontal or vertical
+	 * line.
+	 *
+	 * @param a node id
+	 * @param b node id
+	 * @return distance
+	 */
+	private int distance(final int a, final int b) {
+		return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+	}
+
+	/**
+	 * Start a new search, making sure that the arrays are large enough.
+	 *
+	 * @param nodes number of nodes in the searched map
+	 */
+	private void prepare(final int nodes) {
+		if (stamp.length < nodes) {
+			stamp = new int[nodes];
+			state = new byte[nodes];
+			g = new double[nodes];
+			weight = new double[nodes];
+			parent = new int[nodes];
+			heapIndex = new int[nodes];
+			heap = new int[nodes];
+			scanStamp = new int[2 * nodes];
+			scanSteps = new int[2 * nodes];
+			generation = 0;
+		}
+		generation++;
+		if (generation == 0) {
+			// wrapped around. Old stamps could look valid
+			Arrays.fill(stamp, 0);
+			Arrays.fill(scanStamp, 0);
+			generation = 1;
+		}
+		heapSize = 0;
+	}
+
+	/**
+	 * Add a node to the open list.
+	 *
+	 * @param node node id
+	 */
+	private void push(final int node) {
+		siftUp(heapSize++, node);
+	}
+
+	/**
+	 * Remove the node with the lowest weight from the open list.
+	 *
+	 * @return node id
+	 */
+	private int pop() {
+		final int result = heap[0];
+		final int last = heap[--heapSize];
+		if (heapSize > 0) {
+			siftDown(0, last);
+		}
+		return result;
+	}
+
+	private void siftUp(int k, final int node) {
+		final double w = weight[node];
+		while (k > 0) {
+			final int p = (k - 1) >>> 1;
+			final int e = heap[p];
+			if (w >= weight[e]) {
+				break;
+			}
+			heap[k] = e;
+			heapIndex[e] = k;
+			k = p;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+
+	private void siftDown(int k, final int node) {
+		final double w = weight[node];
+		final int half = heapSize >>> 1;
+		while (k < half) {
+			int child = 2 * k + 1;
+			int c = heap[child];
+			final int right = child + 1;
+			if ((right < heapSize) && (weight[c] > weight[heap[right]])) {
+				child = right;
+				c = heap[child];
+			}
+			if (w <= weight[c]) {
+				break;
+			}
+			heap[k] = c;
+			heapIndex[c] = k;
+			k = child;
+		}
+		heap[k] = node;
+		heapIndex[node] = k;
+	}
+}
@@ -71,12 +71,12 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 	 * <li> have stopped
 	 */
 	private void createEntityCollisionMap() {
-		Point targetPoint = new Point(goalNode.getX(), goalNode.getY());
+		Point targetPoint = new Point(goalX, goalY);
 		resistanceMap = new ResistanceMap(zone.getWidth(), zone.getHeight());
 		for (final RPObject obj : zone) {
 			final Entity otherEntity = (Entity) obj;
 			if (!entity.getID().equals(otherEntity.getID())
-					&& (otherEntity.stopped()|| (otherEntity.squaredDistance(startNode.getX(), startNode.getY()) < COLLISION_DISTANCE_SQUARED))) {
+					&& (otherEntity.stopped()|| (otherEntity.squaredDistance(startX, startY) < COLLISION_DISTANCE_SQUARED))) {
 				final Rectangle2D area = otherEntity.getArea();
 				// Hack: Allow players to move onto portals as destination
 				if ((entity instanceof Player) && (otherEntity instanceof Portal) && area.contains(targetPoint)) {
@@ -89,54 +89,40 @@ class EntityPathfinder extends games.stendhal.server.core.pathfinder.Pathfinder
 	}
 
 	@Override
-	public TreeNode createNode(int x, int y) {
-		return new PathTreeNode(x, y);
+	protected int getWidth() {
+		return zone.getWidth();
+	}
+
+	@Override
+	protected int getHeight() {
+		return zone.getHeight();
 	}
 
 	/**
-	 * Pathfinder node
+	 * Modify movement cost by resistance.
 	 */
-	private class PathTreeNode extends TreeNode {
-		private final double cost;
-
-		protected PathTreeNode(int x, int y) {
-			super(x, y);
-
-			/*
-			 * Modify movement cost by resistance
-			 */
-			if (resistanceMap != null) {
-				int resistance = resistanceMap.getResistance(x, y , entity.getWidth(), entity.getHeight());
-				cost = 100.0 / (100 - resistance);
-			} else {
-				cost = 1.0;
-			}
-		}
-
-		@Override
-		protected double getCost() {
-			return cost;
+	@Override
+	protected double getCost(final int x, final int y) {
+		if (resistanceMap != null) {
+			final int resistance = resistanceMap.getResistance(x, y, entity.getWidth(), entity.getHeight());
+			return 100.0 / (100 - resistance);
 		}
+		return 1.0;
+	}
 
-		@Override
-		public TreeNode createNode(int x, int y) {
-			return new PathTreeNode(x, y);
-		}
+	@Override
+	protected boolean isUniformCost() {
+		return resistanceMap == null;
+	}
 
-		@Override
-		protected int createNodeID(int x, int y) {
-			return x + y * zone.getWidth();
+	@Override
+	protected boolean isValid(int x, int y) {
+		boolean result = !zone.simpleCollides(entity, x, y, entity.getWidth(), entity.getHeight());
+		if (checkEntities && result) {
+			result = !resistanceMap.collides(x, y, entity.getWidth(), entity.getHeight());
 		}
 
-		@Override
-		public boolean isValid(int x, int y) {
-			boolean result = !zone.simpleCollides(entity, x, y, entity.getWidth(), entity.getHeight());
-			if (checkEntities && result) {
-				result = !resistanceMap.collides(x, y, entity.getWidth(), entity.getHeight());
-			}
-
-			return result;
-		}
+		return result;
 	}
 
 	/**
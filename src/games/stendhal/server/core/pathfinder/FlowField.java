@@ -0,0 +1,242 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import games.stendhal.common.CollisionDetection;
+
+/**
+ * Distances to a goal area for every position around it. Any number of
+ * entities of the same size can follow the field to the goal without
+ * searching a path of their own: from each position, a step to a neighbour
+ * with a lower distance is a step along a shortest path.
+ * <p>
+ * The distances are calculated with a breadth first search starting at the
+ * goal, which is Dijkstra's algorithm for uniform step costs. Only the
+ * collision map is considered, other entities are not. The search is limited
+ * to a maximum distance, so only the area around the goal is covered.
+ */
+public final class FlowField {
+	/** Distance of positions that were not reached. */
+	private static final int UNREACHED = -1;
+
+	private final CollisionDetection collision;
+	/** Size of the entities using the field. */
+	private final double entityWidth;
+	private final double entityHeight;
+
+	/** The goal the field was built for. */
+	private final Rectangle goal = new Rectangle();
+	private int maxDistance = -1;
+	/**
+	 * <code>true</code> if all reachable positions were found before the
+	 * maximum distance was reached.
+	 */
+	private boolean complete;
+
+	/** The covered area, in zone coordinates. */
+	private int originX;
+	private int originY;
+	private int areaWidth;
+	private int areaHeight;
+	/** Distances of the covered positions, indexed x + y * areaWidth. */
+	private int[] distance = new int[0];
+	/** Queue of the breadth first search. */
+	private int[] queue = new int[0];
+
+	/**
+	 * Create a new FlowField.
+	 *
+	 * @param collision collision map of the zone
+	 * @param entityWidth width of the entities using the field
+	 * @param entityHeight height of the entities using the field
+	 */
+	public FlowField(final CollisionDetection collision, final double entityWidth, final double entityHeight) {
+		this.collision = collision;
+		this.entityWidth = entityWidth;
+		this.entityHeight = entityHeight;
+	}
+
+	/**
+	 * Check if the field has been built for a goal, at least up to a
+	 * distance.
+	 *
+	 * @param goalArea goal
+	 * @param distance required distance
+	 * @return <code>true</code> if the field can be used without rebuilding
+	 */
+	public boolean covers(final Rectangle goalArea, final int distance) {
+		return goal.equals(goalArea) && (complete || (maxDistance >= distance));
+	}
+
+	/**
+	 * Calculate the distances to a goal. The arrays of the previous build are
+	 * reused if they are large enough.
+	 *
+	 * @param goalArea any valid position within this area is a goal
+	 * @param maxDistance maximum distance to calculate
+	 */
+	public void build(final Rectangle goalArea, final int maxDistance) {
+		goal.setBounds(goalArea);
+		this.maxDistance = maxDistance;
+		complete = true;
+
+		originX = Math.max(0, goalArea.x - maxDistance);
+		originY = Math.max(0, goalArea.y - maxDistance);
+		final int endX = Math.min(collision.getWidth(), goalArea.x + goalArea.width + maxDistance);
+		final int endY = Math.min(collision.getHeight(), goalArea.y + goalArea.height + maxDistance);
+		areaWidth = Math.max(0, endX - originX);
+		areaHeight = Math.max(0, endY - originY);
+		final int size = areaWidth * areaHeight;
+		if (distance.length < size) {
+			distance = new int[size];
+			queue = new int[size];
+		}
+
+		int tail = 0;
+		for (int i = 0; i < size; i++) {
+			final int x = originX + i % areaWidth;
+			final int y = originY + i / areaWidth;
+			if (goalArea.contains(x, y) && isValid(x, y)) {
+				distance[i] = 0;
+				queue[tail++] = i;
+			} else {
+				distance[i] = UNREACHED;
+			}
+		}
+
+		int head = 0;
+		while (head < tail) {
+			final int index = queue[head++];
+			final int next = distance[index] + 1;
+			if (next > maxDistance) {
+				complete = false;
+				break;
+			}
+			final int x = index % areaWidth;
+			final int y = index / areaWidth;
+			tail = reach(x - 1, y, next, tail);
+			tail = reach(x + 1, y, next, tail);
+			tail = reach(x, y - 1, next, tail);
+			tail = reach(x, y + 1, next, tail);
+		}
+	}
+
+	/**
+	 * Set the distance of a neighbour, if it has not been reached yet.
+	 *
+	 * @param x x coordinate relative to the covered area
+	 * @param y y coordinate relative to the covered area
+	 * @param value distance to set
+	 * @param tail end of the queue
+	 * @return new end of the queue
+	 */
+	private int reach(final int x, final int y, final int value, final int tail) {
+		if ((x < 0) || (x >= areaWidth) || (y < 0) || (y >= areaHeight)) {
+			return tail;
+		}
+		final int index = x + y * areaWidth;
+		if ((distance[index] != UNREACHED) || !isValid(originX + x, originY + y)) {
+			return tail;
+		}
+		distance[index] = value;
+		queue[tail] = index;
+		return tail + 1;
+	}
+
+	/**
+	 * Check if an entity of the field's size could stand on a position.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return <code>true</code> if the position is not blocked
+	 */
+	private boolean isValid(final int x, final int y) {
+		return !collision.collides(x, y, entityWidth, entityHeight);
+	}
+
+	/**
+	 * Get the distance from a position to the goal.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return number of steps, or -1 if the position was not reached
+	 */
+	public int getDistance(final int x, final int y) {
+		final int rx = x - originX;
+		final int ry = y - originY;
+		if ((rx < 0) || (rx >= areaWidth) || (ry < 0) || (ry >= areaHeight)) {
+			return UNREACHED;
+		}
+		return distance[rx + ry * areaWidth];
+	}
+
+	/**
+	 * Check if a position that has no distance can not reach the goal at
+	 * all, rather than just being too far for the field.
+	 *
+	 * @return <code>true</code> if all positions that can reach the goal
+	 * 	have a distance
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Follow the field from a position to the goal. Where several
+	 * neighbours are closer to the goal, the walking direction is kept if
+	 * possible.
+	 *
+	 * @param x x coordinate of the start
+	 * @param y y coordinate of the start
+	 * @return path including the start and the reached goal position, or an
+	 * 	empty list if the start was not reached by the field
+	 */
+	public List<Node> getPath(final int x, final int y) {
+		int remaining = getDistance(x, y);
+		if (remaining == UNREACHED) {
+			return Collections.emptyList();
+		}
+		final List<Node> path = new ArrayList<Node>(remaining + 1);
+		int cx = x;
+		int cy = y;
+		int dx = 0;
+		int dy = 0;
+		path.add(new Node(cx, cy));
+		while (remaining > 0) {
+			remaining--;
+			if (((dx != 0) || (dy != 0)) && (getDistance(cx + dx, cy + dy) == remaining)) {
+				// keep the direction
+			} else if (getDistance(cx - 1, cy) == remaining) {
+				dx = -1;
+				dy = 0;
+			} else if (getDistance(cx + 1, cy) == remaining) {
+				dx = 1;
+				dy = 0;
+			} else if (getDistance(cx, cy - 1) == remaining) {
+				dx = 0;
+				dy = -1;
+			} else {
+				dx = 0;
+				dy = 1;
+			}
+			cx += dx;
+			cy += dy;
+			path.add(new Node(cx, cy));
+		}
+		return path;
+	}
+}
@@ -0,0 +1,182 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.Entity;
+
+/**
+ * The flow fields of a zone, one for each chased entity and size of the
+ * chasing entities. When many creatures chase the same player, the field is
+ * calculated once each time the player moves, and all creatures follow it
+ * instead of searching paths of their own.
+ */
+public final class FlowFieldCache {
+	/** Fields that have not been used for this many turns are dropped. */
+	private static final int UNUSED_TURNS = 50;
+
+	/**
+	 * Key of a field.
+	 */
+	private static final class Key {
+		private final Entity target;
+		private final double width;
+		private final double height;
+
+		Key(final Entity target, final double width, final double height) {
+			this.target = target;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return (target == other.target) && (width == other.width) && (height == other.height);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(target) * 31 + (int) (width * 7 + height);
+		}
+	}
+
+	/**
+	 * A cached field.
+	 */
+	private static final class Entry {
+		private final FlowField field;
+		private int lastUsed;
+
+		Entry(final FlowField field) {
+			this.field = field;
+		}
+	}
+
+	private final StendhalRPZone zone;
+	private final Map<Key, Entry> fields = new HashMap<Key, Entry>();
+	private int lastCleanup;
+	/** Number of field builds, for statistics and tests. */
+	private int builds;
+
+	/**
+	 * Create a new FlowFieldCache.
+	 *
+	 * @param zone the zone
+	 */
+	public FlowFieldCache(final StendhalRPZone zone) {
+		this.zone = zone;
+	}
+
+	/**
+	 * Find a path for an entity to stand next to another entity, using the
+	 * field of the target. The result is the same kind of path that
+	 * {@link Path#searchPath(Entity, Entity, double)} finds, except that
+	 * other entities on the way are not considered.
+	 *
+	 * @param entity moving entity
+	 * @param target entity to move to
+	 * @param maxDistance the maximum length of the path
+	 * @return the path, an empty list if there is no path, or
+	 * 	<code>null</code> if the field does not reach far enough to tell
+	 */
+	public List<Node> getPath(final Entity entity, final Entity target, final double maxDistance) {
+		final int turn = SingletonRepository.getRuleProcessor().getTurn();
+		cleanup(turn);
+
+		final Key key = new Key(target, entity.getWidth(), entity.getHeight());
+		Entry entry = fields.get(key);
+		if (entry == null) {
+			entry = new Entry(new FlowField(zone.collisionMap, entity.getWidth(), entity.getHeight()));
+			fields.put(key, entry);
+		}
+		entry.lastUsed = turn;
+
+		// the same goal area as in Path.searchPath(Entity, Entity, double)
+		final Rectangle goal = new Rectangle((int) (target.getX() - entity.getWidth()),
+				(int) (target.getY() - entity.getHeight()),
+				(int) (target.getWidth() + entity.getWidth() + 1),
+				(int) (target.getHeight() + entity.getHeight() + 1));
+		final int distance = (int) Math.ceil(maxDistance);
+		final FlowField field = entry.field;
+		if (!field.covers(goal, distance)) {
+			field.build(goal, distance);
+			builds++;
+		}
+
+		final int steps = field.getDistance(entity.getX(), entity.getY());
+		if (steps > distance) {
+			// built for a more distant chaser
+			return null;
+		} else if (steps == -1) {
+			return field.isComplete() ? Collections.<Node>emptyList() : null;
+		}
+		return field.getPath(entity.getX(), entity.getY());
+	}
+
+	/**
+	 * Drop fields that have not been used recently, or whose target has left
+	 * the zone. Done at most once per turn.
+	 *
+	 * @param turn current turn
+	 */
+	private void cleanup(final int turn) {
+		if (turn == lastCleanup) {
+			return;
+		}
+		lastCleanup = turn;
+		final Iterator<Map.Entry<Key, Entry>> it = fields.entrySet().iterator();
+		while (it.hasNext()) {
+			final Map.Entry<Key, Entry> mapEntry = it.next();
+			if ((turn - mapEntry.getValue().lastUsed > UNUSED_TURNS)
+					|| (mapEntry.getKey().target.getZone() != zone)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drop all fields. Needed when the collision map changes.
+	 */
+	public void clear() {
+		fields.clear();
+	}
+
+	/**
+	 * Get the number of fields currently kept.
+	 *
+	 * @return number of fields
+	 */
+	public int size() {
+		return fields.size();
+	}
+
+	/**
+	 * Get the number of field calculations done so far.
+	 *
+	 * @return number of builds
+	 */
+	public int getBuilds() {
+		return builds;
+	}
+}
@@ -178,6 +178,33 @@ public abstract class Path {
 		return searchPath(entity, entity.getX(), entity.getY(), area, maxDistance);
 	}
 
+	/**
+	 * Finds a path for the Entity <code>entity</code> to the other Entity
+	 * <code>dest</code> using the flow field of <code>dest</code> shared by
+	 * all entities of the same size chasing it in the zone. Other entities
+	 * are not considered. If the field does not reach the entity, a path is
+	 * searched like in {@link #searchPath(Entity, Entity, double)}.
+	 *
+	 * @param entity
+	 *            the Entity (also start point)
+	 * @param dest
+	 *            the destination Entity
+	 * @param maxDistance
+	 *            the maximum length of the path
+	 * @return a list with the path nodes or an empty list if no path is found
+	 */
+	public static List<Node> searchPathAlongFlowField(final Entity entity, final Entity dest,
+			final double maxDistance) {
+		final StendhalRPZone zone = entity.getZone();
+		if ((zone != null) && (dest.getZone() == zone)) {
+			final List<Node> path = zone.getFlowFields().getPath(entity, dest, maxDistance);
+			if (path != null) {
+				return path;
+			}
+		}
+		return searchPath(entity, dest, maxDistance);
+	}
+
 	/**
 	 * Follow the current path (if any) by pointing the direction toward the
 	 * next destination point.
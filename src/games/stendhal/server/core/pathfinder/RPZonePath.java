@@ -41,6 +41,15 @@ public class RPZonePath {
 		route = new Pair<StendhalRPZone, List<Node>>(zone, localpath);
 	}
 
+	/**
+	 * constructor
+	 * @param zone - zone
+	 * @param localpath - list of path nodes
+	 */
+	public RPZonePath(StendhalRPZone zone, List<Node> localpath) {
+		route = new Pair<StendhalRPZone, List<Node>>(zone, localpath);
+	}
+
 	/**
 	 *
 	 * @return zone route
@@ -35,33 +35,37 @@ public class SimplePathfinder extends Pathfinder {
 	 */
 	public SimplePathfinder(final StendhalRPZone zone, final int startX, final int startY,
 			final Rectangle2D destination, final double maxDist) {
+		this(zone.collisionMap, startX, startY, destination, maxDist);
+	}
+
+	/**
+	 * Create a new <code>SimplePathfinder</code> working on a collision map
+	 * that does not need to belong to a zone.
+	 *
+	 * @param collision collision map
+	 * @param startX Starting point x coordinate
+	 * @param startY Starting point y coordinate
+	 * @param destination destination area
+	 * @param maxDist maximum search distance
+	 */
+	public SimplePathfinder(final CollisionDetection collision, final int startX, final int startY,
+			final Rectangle2D destination, final double maxDist) {
 		super(startX, startY, destination, maxDist);
-		collision = zone.collisionMap;
+		this.collision = collision;
 	}
 
 	@Override
-	public TreeNode createNode(int x, int y) {
-		return new SimpleTreeNode(x, y);
+	protected int getWidth() {
+		return collision.getWidth();
 	}
 
-	private class SimpleTreeNode extends TreeNode {
-		protected SimpleTreeNode(int x, int y) {
-			super(x, y);
-		}
-
-		@Override
-		public TreeNode createNode(int x, int y) {
-			return new SimpleTreeNode(x, y);
-		}
-
-		@Override
-		protected int createNodeID(int x, int y) {
-			return x + y * collision.getWidth();
-		}
+	@Override
+	protected int getHeight() {
+		return collision.getHeight();
+	}
 
-		@Override
-		public boolean isValid(int x, int y) {
-			return !collision.collides(x, y);
-		}
+	@Override
+	protected boolean isValid(int x, int y) {
+		return !collision.collides(x, y);
 	}
 }
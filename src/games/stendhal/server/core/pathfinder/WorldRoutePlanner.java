@@ -0,0 +1,483 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+import marauroa.common.game.IRPZone;
+
+/**
+ * Plans routes through several zones.
+ * <p>
+ * The world is abstracted to a graph of doors. A door is a position in a zone
+ * from where an entity can get to another zone: a portal with a destination,
+ * or a walkable place at the border of an exterior zone next to a walkable
+ * place in the neighbouring zone. Each door links to the positions where the
+ * entity arrives in the other zone. Walking distances between the doors of a
+ * zone are calculated when first needed and kept until the graph changes.
+ * <p>
+ * A route is planned in two levels: first the sequence of doors is searched
+ * in the door graph, then the walking paths within each zone are filled in.
+ * The door graph search does not use a distance estimate, because portals
+ * can lead anywhere, and no geometric estimate would be a lower bound.
+ * <p>
+ * The graph is built when first used, and rebuilt on the next request after
+ * {@link #invalidate()} was called because zones or portals were added or
+ * removed. Invalidating takes no lock, as it is called while zones are
+ * locked. Routes are planned for entities of the size of one tile.
+ */
+public final class WorldRoutePlanner {
+	/** Cost of passing a door to the other zone. */
+	private static final int PASS_COST = 1;
+
+	/**
+	 * A place to change zones.
+	 */
+	private static final class Door {
+		private final StendhalRPZone zone;
+		private final int x;
+		private final int y;
+		/** Position of this door in the list of the zone's doors. */
+		private final int index;
+		/** Doors reached by passing this one. */
+		private final List<Door> links = new ArrayList<Door>(1);
+		/**
+		 * Walking distances to the other doors of the zone, or
+		 * <code>null</code> if not yet calculated.
+		 */
+		private int[] distances;
+
+		Door(final StendhalRPZone zone, final int x, final int y, final int index) {
+			this.zone = zone;
+			this.x = x;
+			this.y = y;
+			this.index = index;
+		}
+
+		@Override
+		public String toString() {
+			return zone.getName() + "[" + x + "," + y + "]";
+		}
+	}
+
+	/**
+	 * The doors of one zone.
+	 */
+	private static final class ZoneDoors {
+		private final List<Door> doors = new ArrayList<Door>();
+		/** Doors by position, x + y * zone width. */
+		private final Map<Integer, Door> byPosition = new HashMap<Integer, Door>();
+	}
+
+	/**
+	 * Search state: standing at a door, after arriving through another one.
+	 */
+	private static final class Step implements Comparable<Step> {
+		private final int cost;
+		/** The door where the entity stands. */
+		private final Door door;
+		/** Previous state, or <code>null</code> if the route started in this zone. */
+		private final Step previous;
+		/** The door that was walked to and passed to get here. */
+		private final Door passed;
+
+		Step(final int cost, final Door door, final Step previous, final Door passed) {
+			this.cost = cost;
+			this.door = door;
+			this.previous = previous;
+			this.passed = passed;
+		}
+
+		@Override
+		public int compareTo(final Step other) {
+			return Integer.compare(cost, other.cost);
+		}
+	}
+
+	/** The zones of the world. */
+	private final Iterable<? extends IRPZone> world;
+	/** Door graph, or <code>null</code> if it needs to be built. */
+	private Map<StendhalRPZone, ZoneDoors> graph;
+	private int doorCount;
+	/** Incremented whenever the graph gets outdated. */
+	private final AtomicInteger generation = new AtomicInteger();
+	/** Generation the current graph was built for. */
+	private int graphGeneration;
+
+	/**
+	 * Create a new WorldRoutePlanner.
+	 *
+	 * @param world zones to plan routes in
+	 */
+	public WorldRoutePlanner(final Iterable<? extends IRPZone> world) {
+		this.world = world;
+	}
+
+	/**
+	 * Mark the door graph as outdated, because zones or portals have changed. It is
+	 * rebuilt on the next request.
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Get the number of doors in the graph, building it if needed.
+	 *
+	 * @return number of doors
+	 */
+	public synchronized int getDoorCount() {
+		getGraph();
+		return doorCount;
+	}
+
+	/**
+	 * Plan a route from one position to another, possibly in another zone.
+	 *
+	 * @param fromZone start zone
+	 * @param fromX x coordinate of the start
+	 * @param fromY y coordinate of the start
+	 * @param toZone destination zone
+	 * @param toX x coordinate of the destination
+	 * @param toY y coordinate of the destination
+	 * @return paths within each zone on the way, in the format used by
+	 * 	{@link MultiZonesFixedPath}. Each path starts where the entity enters
+	 * 	the zone. The list is empty if no route was found
+	 */
+	public synchronized List<RPZonePath> findRoute(final StendhalRPZone fromZone, final int fromX, final int fromY,
+			final StendhalRPZone toZone, final int toX, final int toY) {
+		final Map<StendhalRPZone, ZoneDoors> doors = getGraph();
+		if (fromZone.collisionMap.collides(fromX, fromY) || toZone.collisionMap.collides(toX, toY)) {
+			return Collections.emptyList();
+		}
+
+		final FlowField startField = createField(fromZone, fromX, fromY);
+		final FlowField goalField = createField(toZone, toX, toY);
+
+		// best complete route so far
+		Step best = null;
+		int bestCost = Integer.MAX_VALUE;
+		if (fromZone == toZone) {
+			final int direct = startField.getDistance(toX, toY);
+			if (direct != -1) {
+				bestCost = direct;
+			}
+		}
+
+		final Map<Door, Integer> costs = new IdentityHashMap<Door, Integer>();
+		final PriorityQueue<Step> open = new PriorityQueue<Step>();
+		final ZoneDoors startDoors = doors.get(fromZone);
+		if (startDoors != null) {
+			for (final Door door : startDoors.doors) {
+				final int distance = startField.getDistance(door.x, door.y);
+				if (distance != -1) {
+					pass(open, costs, null, door, distance);
+				}
+			}
+		}
+
+		while (!open.isEmpty()) {
+			final Step step = open.poll();
+			if (step.cost >= bestCost) {
+				break;
+			}
+			final Integer known = costs.get(step.door);
+			if ((known != null) && (known.intValue() < step.cost)) {
+				// outdated entry
+				continue;
+			}
+			final Door door = step.door;
+			if (door.zone == toZone) {
+				final int distance = goalField.getDistance(door.x, door.y);
+				if ((distance != -1) && (step.cost + distance < bestCost)) {
+					bestCost = step.cost + distance;
+					best = step;
+				}
+			}
+			final int[] distances = getDistances(doors.get(door.zone), door);
+			final List<Door> zoneDoors = doors.get(door.zone).doors;
+			for (int i = 0; i < distances.length; i++) {
+				if (distances[i] != -1) {
+					pass(open, costs, step, zoneDoors.get(i), step.cost + distances[i]);
+				}
+			}
+		}
+
+		if (bestCost == Integer.MAX_VALUE) {
+			return Collections.emptyList();
+		}
+		return buildRoute(best, fromZone, fromX, fromY, toZone, toX, toY);
+	}
+
+	/**
+	 * Walk to a door and pass it.
+	 *
+	 * @param open open list
+	 * @param costs best known costs of the doors
+	 * @param from state the entity walks from
+	 * @param door door walked to
+	 * @param cost cost of arriving at the door
+	 */
+	private void pass(final PriorityQueue<Step> open, final Map<Door, Integer> costs, final Step from,
+			final Door door, final int cost) {
+		for (final Door target : door.links) {
+			final int newCost = cost + PASS_COST;
+			final Integer known = costs.get(target);
+			if ((known == null) || (newCost < known.intValue())) {
+				costs.put(target, Integer.valueOf(newCost));
+				open.add(new Step(newCost, target, from, door));
+			}
+		}
+	}
+
+	/**
+	 * Fill in the walking paths of a found route.
+	 *
+	 * @param last last state of the route, or <code>null</code> if the
+	 * 	destination is reached without changing zones
+	 * @return route
+	 */
+	private List<RPZonePath> buildRoute(final Step last, final StendhalRPZone fromZone, final int fromX,
+			final int fromY, final StendhalRPZone toZone, final int toX, final int toY) {
+		final LinkedList<RPZonePath> route = new LinkedList<RPZonePath>();
+		route.addFirst(new RPZonePath(toZone, walk(toZone, startX(last, fromX), startY(last, fromY), toX, toY)));
+		for (Step step = last; step != null; step = step.previous) {
+			final Door passed = step.passed;
+			final int x = (step.previous == null) ? fromX : step.previous.door.x;
+			final int y = (step.previous == null) ? fromY : step.previous.door.y;
+			route.addFirst(new RPZonePath(passed.zone, walk(passed.zone, x, y, passed.x, passed.y)));
+		}
+		return route;
+	}
+
+	private static int startX(final Step last, final int fromX) {
+		return (last == null) ? fromX : last.door.x;
+	}
+
+	private static int startY(final Step last, final int fromY) {
+		return (last == null) ? fromY : last.door.y;
+	}
+
+	/**
+	 * Find the walking path between two positions of a zone.
+	 *
+	 * @return path including both positions
+	 */
+	private List<Node> walk(final StendhalRPZone zone, final int fromX, final int fromY, final int toX,
+			final int toY) {
+		return createField(zone, toX, toY).getPath(fromX, fromY);
+	}
+
+	/**
+	 * Calculate the walking distances from a position to all places of a
+	 * zone.
+	 *
+	 * @param zone zone
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return distances
+	 */
+	private FlowField createField(final StendhalRPZone zone, final int x, final int y) {
+		final FlowField field = new FlowField(zone.collisionMap, 1, 1);
+		field.build(new Rectangle(x, y, 1, 1), zone.getWidth() * zone.getHeight());
+		return field;
+	}
+
+	/**
+	 * Get the walking distances from a door to the other doors of its zone.
+	 *
+	 * @param zoneDoors doors of the zone
+	 * @param door start door
+	 * @return distances, -1 for unreachable doors
+	 */
+	private int[] getDistances(final ZoneDoors zoneDoors, final Door door) {
+		if (door.distances == null) {
+			final FlowField field = createField(door.zone, door.x, door.y);
+			final int[] distances = new int[zoneDoors.doors.size()];
+			for (final Door other : zoneDoors.doors) {
+				distances[other.index] = field.getDistance(other.x, other.y);
+			}
+			door.distances = distances;
+		}
+		return door.distances;
+	}
+
+	/**
+	 * Get the door graph, building it if needed.
+	 *
+	 * @return doors of each zone
+	 */
+	private Map<StendhalRPZone, ZoneDoors> getGraph() {
+		final int current = generation.get();
+		if ((graph == null) || (graphGeneration != current)) {
+			graph = buildGraph();
+			graphGeneration = current;
+		}
+		return graph;
+	}
+
+	/**
+	 * Build the door graph from the portals and the borders of the
+	 * exterior zones.
+	 *
+	 * @return doors of each zone
+	 */
+	private Map<StendhalRPZone, ZoneDoors> buildGraph() {
+		final Map<StendhalRPZone, ZoneDoors> doors = new IdentityHashMap<StendhalRPZone, ZoneDoors>();
+		final Map<String, StendhalRPZone> zonesByName = new HashMap<String, StendhalRPZone>();
+		final List<StendhalRPZone> exteriors = new ArrayList<StendhalRPZone>();
+		for (final IRPZone izone : world) {
+			final StendhalRPZone zone = (StendhalRPZone) izone;
+			zonesByName.put(zone.getName(), zone);
+			if (!zone.isInterior()) {
+				exteriors.add(zone);
+			}
+		}
+		doorCount = 0;
+
+		for (final StendhalRPZone zone : zonesByName.values()) {
+			for (final Portal portal : zone.getPortals()) {
+				if (!portal.loaded() || (portal.getDestinationZone() == null)) {
+					continue;
+				}
+				final StendhalRPZone destZone = zonesByName.get(portal.getDestinationZone());
+				if (destZone == null) {
+					continue;
+				}
+				final Portal dest = destZone.getPortal(portal.getDestinationReference());
+				if (dest == null) {
+					continue;
+				}
+				link(doors, zone, portal.getX(), portal.getY(), destZone, dest.getX(), dest.getY());
+			}
+		}
+
+		for (final StendhalRPZone a : exteriors) {
+			for (final StendhalRPZone b : exteriors) {
+				if (a.getLevel() != b.getLevel()) {
+					continue;
+				}
+				if (a.getX() + a.getWidth() == b.getX()) {
+					linkVerticalBorder(doors, a, b);
+				}
+				if (a.getY() + a.getHeight() == b.getY()) {
+					linkHorizontalBorder(doors, a, b);
+				}
+			}
+		}
+		return doors;
+	}
+
+	/**
+	 * Create doors on the border of a zone and its right neighbour.
+	 *
+	 * @param doors door graph
+	 * @param left left zone
+	 * @param right right zone
+	 */
+	private void linkVerticalBorder(final Map<StendhalRPZone, ZoneDoors> doors, final StendhalRPZone left,
+			final StendhalRPZone right) {
+		final int start = Math.max(left.getY(), right.getY());
+		final int end = Math.min(left.getY() + left.getHeight(), right.getY() + right.getHeight());
+		final int leftX = left.getWidth() - 1;
+		int runStart = -1;
+		for (int wy = start; wy <= end; wy++) {
+			final boolean open = (wy < end) && !left.collisionMap.collides(leftX, wy - left.getY())
+					&& !right.collisionMap.collides(0, wy - right.getY());
+			if (open && (runStart == -1)) {
+				runStart = wy;
+			} else if (!open && (runStart != -1)) {
+				// one pair of doors in the middle of each open part
+				final int middle = (runStart + wy - 1) / 2;
+				link(doors, left, leftX, middle - left.getY(), right, 0, middle - right.getY());
+				link(doors, right, 0, middle - right.getY(), left, leftX, middle - left.getY());
+				runStart = -1;
+			}
+		}
+	}
+
+	/**
+	 * Create doors on the border of a zone and its lower neighbour.
+	 *
+	 * @param doors door graph
+	 * @param top upper zone
+	 * @param bottom lower zone
+	 */
+	private void linkHorizontalBorder(final Map<StendhalRPZone, ZoneDoors> doors, final StendhalRPZone top,
+			final StendhalRPZone bottom) {
+		final int start = Math.max(top.getX(), bottom.getX());
+		final int end = Math.min(top.getX() + top.getWidth(), bottom.getX() + bottom.getWidth());
+		final int topY = top.getHeight() - 1;
+		int runStart = -1;
+		for (int wx = start; wx <= end; wx++) {
+			final boolean open = (wx < end) && !top.collisionMap.collides(wx - top.getX(), topY)
+					&& !bottom.collisionMap.collides(wx - bottom.getX(), 0);
+			if (open && (runStart == -1)) {
+				runStart = wx;
+			} else if (!open && (runStart != -1)) {
+				final int middle = (runStart + wx - 1) / 2;
+				link(doors, top, middle - top.getX(), topY, bottom, middle - bottom.getX(), 0);
+				link(doors, bottom, middle - bottom.getX(), 0, top, middle - top.getX(), topY);
+				runStart = -1;
+			}
+		}
+	}
+
+	/**
+	 * Add a link from a position in a zone to a position in another zone.
+	 */
+	private void link(final Map<StendhalRPZone, ZoneDoors> doors, final StendhalRPZone zone, final int x,
+			final int y, final StendhalRPZone destZone, final int destX, final int destY) {
+		final Door door = getDoor(doors, zone, x, y);
+		final Door dest = getDoor(doors, destZone, destX, destY);
+		if ((door != null) && (dest != null)) {
+			door.links.add(dest);
+		}
+	}
+
+	/**
+	 * Get the door at a position, creating it if needed.
+	 *
+	 * @return door, or <code>null</code> if the position can not be walked on
+	 */
+	private Door getDoor(final Map<StendhalRPZone, ZoneDoors> doors, final StendhalRPZone zone, final int x,
+			final int y) {
+		if (zone.collisionMap.collides(x, y)) {
+			return null;
+		}
+		ZoneDoors zoneDoors = doors.get(zone);
+		if (zoneDoors == null) {
+			zoneDoors = new ZoneDoors();
+			doors.put(zone, zoneDoors);
+		}
+		final Integer position = Integer.valueOf(x + y * zone.getWidth());
+		Door door = zoneDoors.byPosition.get(position);
+		if (door == null) {
+			door = new Door(zone, x, y, zoneDoors.doors.size());
+			zoneDoors.doors.add(door);
+			zoneDoors.byPosition.put(position, door);
+			doorCount++;
+		}
+		return door;
+	}
+}
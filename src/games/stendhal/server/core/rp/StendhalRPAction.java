@@ -29,6 +29,7 @@ import games.stendhal.server.core.engine.DataProvider;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.ZoneLogicExecutor;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.core.events.ZoneNotifier;
@@ -547,6 +548,20 @@ public class StendhalRPAction {
 			return false;
 		}
 
+		// Zone changes during parallel zone logic are done after all zones
+		// have finished. Assume that it will succeed.
+		if (ZoneLogicExecutor.isForeignZone(zone) || ZoneLogicExecutor.isForeignZone(entity.getZone())) {
+			final int targetX = x;
+			final int targetY = y;
+			ZoneLogicExecutor.defer(new Runnable() {
+				@Override
+				public void run() {
+					placeat(zone, entity, targetX, targetY, allowedArea);
+				}
+			});
+			return true;
+		}
+
 		// check in case of players that that they are still in game
 		// because the entity is added to the world again otherwise.
 		if (entity instanceof Player) {
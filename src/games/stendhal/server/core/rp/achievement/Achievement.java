@@ -12,6 +12,8 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.achievement;
 
+import java.util.Collection;
+
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 /**
@@ -46,6 +48,8 @@ public class Achievement {
 
 	private final ChatCondition condition;
 
+	/** position in the list of all achievements, set by the AchievementNotifier */
+	private int index = -1;
 
 
 	/**
@@ -120,6 +124,35 @@ public class Achievement {
 		return condition.fire(p, null, null);
 	}
 
+	/**
+	 * gets the counters this achievement depends on
+	 *
+	 * @return keys as defined in DependentCondition, or null if the
+	 * 	achievement has to be checked on every change in its category
+	 */
+	public Collection<String> getDependencies() {
+		if (condition instanceof DependentCondition) {
+			return ((DependentCondition) condition).getDependencies();
+		}
+		return null;
+	}
+
+	/**
+	 * @return the position in the list of all achievements
+	 */
+	int getIndex() {
+		return index;
+	}
+
+	/**
+	 * sets the position in the list of all achievements
+	 *
+	 * @param index position
+	 */
+	void setIndex(int index) {
+		this.index = index;
+	}
+
 	@Override
 	public String toString() {
 		return "Achievement<id: "+identifier+", title: "+title+">";
@@ -14,6 +14,7 @@ package games.stendhal.server.core.rp.achievement;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -56,9 +57,25 @@ public final class AchievementNotifier {
 
 	final private Map<String, Integer> identifiersToIds;
 
-	private AchievementNotifier() {
+	/** achievements by identifier */
+	final private Map<String, Achievement> achievementsByIdentifier;
+
+	/** achievements of each category by the counters they depend on */
+	final private Map<Category, Map<String, List<Achievement>>> dependentAchievements;
+
+	/** achievements of each category which have to be checked on every change */
+	final private Map<Category, List<Achievement>> otherAchievements;
+
+	/** achievements that are checked on login */
+	final private List<Achievement> loginAchievements;
+
+	AchievementNotifier() {
 		achievements = new EnumMap<Category, List<Achievement>>(Category.class);
 		identifiersToIds = new HashMap<String, Integer>();
+		achievementsByIdentifier = new HashMap<String, Achievement>();
+		dependentAchievements = new EnumMap<Category, Map<String, List<Achievement>>>(Category.class);
+		otherAchievements = new EnumMap<Category, List<Achievement>>(Category.class);
+		loginAchievements = new ArrayList<Achievement>();
 	}
 
 	/**
@@ -82,12 +99,7 @@ public final class AchievementNotifier {
 	public void initialize() {
 		//read all configured achievements and put them into the categorized map
 		final Map<String, Achievement> allAchievements = createAchievements();
-		for(Achievement a : allAchievements.values()) {
-			if(!achievements.containsKey(a.getCategory())) {
-				achievements.put(a.getCategory(), new LinkedList<Achievement>());
-			}
-			achievements.get(a.getCategory()).add(a);
-		}
+		addAchievements(allAchievements.values());
 		//collect all identifiers from database
 		final Map<String, Integer> allIdentifiersInDatabase = collectAllIdentifiersFromDatabase();
 		//update stored data with configured achievements
@@ -125,6 +137,49 @@ public final class AchievementNotifier {
 		SingletonRepository.getLoginNotifier().addListener(new ReadAchievementsOnLogin());
 	}
 
+	/**
+	 * adds achievements to the categorized map and indexes them by the
+	 * counters they depend on
+	 *
+	 * @param toAdd achievements
+	 */
+	void addAchievements(Collection<Achievement> toAdd) {
+		for (Achievement a : toAdd) {
+			final Category category = a.getCategory();
+			a.setIndex(achievementsByIdentifier.size());
+			achievementsByIdentifier.put(a.getIdentifier(), a);
+			if(!achievements.containsKey(category)) {
+				achievements.put(category, new LinkedList<Achievement>());
+			}
+			achievements.get(category).add(a);
+
+			final Collection<String> dependencies = a.getDependencies();
+			if (dependencies == null) {
+				if (!otherAchievements.containsKey(category)) {
+					otherAchievements.put(category, new ArrayList<Achievement>());
+				}
+				otherAchievements.get(category).add(a);
+			} else {
+				if (!dependentAchievements.containsKey(category)) {
+					dependentAchievements.put(category, new HashMap<String, List<Achievement>>());
+				}
+				final Map<String, List<Achievement>> byDependency = dependentAchievements.get(category);
+				for (String dependency : dependencies) {
+					if (!byDependency.containsKey(dependency)) {
+						byDependency.put(dependency, new ArrayList<Achievement>());
+					}
+					byDependency.get(dependency).add(a);
+				}
+			}
+
+			//Avoid checking of zone achievements on login to
+			//prevent double check when player is initially placed into a zone
+			if ((category != Category.OUTSIDE_ZONE) && (category != Category.UNDERGROUND_ZONE)) {
+				loginAchievements.add(a);
+			}
+		}
+	}
+
 	/**
 	 * collects all identifiers from the database
 	 *
@@ -159,6 +214,16 @@ public final class AchievementNotifier {
 		getAndCheckAchievementsInCategory(player, Category.FIGHTING);
 	}
 
+	/**
+	 * checks the achievements for a player that depend on kills of a creature
+	 *
+	 * @param player
+	 * @param creature name of the killed creature
+	 */
+	public void onKill(Player player, String creature) {
+		getAndCheckAchievementsInCategory(player, Category.FIGHTING, DependentCondition.KILL + creature);
+	}
+
 	/**
 	 * check all achievements for a player that are relevant on finishing a quest
 	 *
@@ -175,6 +240,25 @@ public final class AchievementNotifier {
 		getAndCheckAchievementsInCategory(player, Category.QUEST_MITHRILBOURGH_ENEMY_ARMY);
 	}
 
+	/**
+	 * check the achievements for a player that are relevant on a change of
+	 * a quest
+	 *
+	 * @param player
+	 * @param quest name of the quest slot
+	 */
+	public void onFinishQuest(Player player, String quest) {
+		final String key = DependentCondition.QUEST + quest;
+		getAndCheckAchievementsInCategory(player, Category.QUEST, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_ADOS_ITEMS, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_SEMOS_MONSTER, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_KIRDNEH_ITEM, key);
+		getAndCheckAchievementsInCategory(player, Category.FRIEND, key);
+		getAndCheckAchievementsInCategory(player, Category.OBTAIN, key);
+		getAndCheckAchievementsInCategory(player, Category.PRODUCTION, key);
+		getAndCheckAchievementsInCategory(player, Category.QUEST_MITHRILBOURGH_ENEMY_ARMY, key);
+	}
+
 	/**
 	 * check all achievements for a player that belong to the zone category
 	 *
@@ -204,6 +288,16 @@ public final class AchievementNotifier {
 		getAndCheckAchievementsInCategory(player, Category.ITEM);
 	}
 
+	/**
+	 * check the achievements for a player that depend on looting an item
+	 *
+	 * @param player
+	 * @param item name of the looted item
+	 */
+	public void onItemLoot(Player player, String item) {
+		getAndCheckAchievementsInCategory(player, Category.ITEM, DependentCondition.LOOT + item);
+	}
+
 	/**
 	 * check all achievements for a player that belong to the production category
 	 *
@@ -213,6 +307,16 @@ public final class AchievementNotifier {
 		getAndCheckAchievementsInCategory(player, Category.PRODUCTION);
 	}
 
+	/**
+	 * check the achievements for a player that depend on producing an item
+	 *
+	 * @param player
+	 * @param item name of the produced item
+	 */
+	public void onProduction(Player player, String item) {
+		getAndCheckAchievementsInCategory(player, Category.PRODUCTION, DependentCondition.PRODUCE + item);
+	}
+
 	/**
 	 * check all achievements for a player that belong to the obtain category
 	 *
@@ -231,19 +335,11 @@ public final class AchievementNotifier {
 	 */
 	public void awardAchievementIfNotYetReached(Player player, String achievementIdentifier) {
 		if(!player.hasReachedAchievement(achievementIdentifier)) {
-			boolean found = false;
-			for(List<Achievement> achievementList : this.achievements.values()) {
-				if(!found) {
-					for(Achievement achievement : achievementList) {
-						if (achievement.getIdentifier().equals(achievementIdentifier)) {
-							logReachingOfAnAchievement(player, achievement);
-							notifyPlayerAboutReachedAchievement(player, achievement);
-							found = true;
-						}
-					}
-				}
-			}
-			if(!found) {
+			final Achievement achievement = achievementsByIdentifier.get(achievementIdentifier);
+			if (achievement != null) {
+				logReachingOfAnAchievement(player, achievement);
+				notifyPlayerAboutReachedAchievement(player, achievement);
+			} else {
 				logger.warn("Tried to award non existing achievement identifier "+achievementIdentifier+" to "+player.getName());
 			}
 		}
@@ -255,17 +351,8 @@ public final class AchievementNotifier {
 	 * @param player
 	 */
 	public void onLogin(Player player) {
-		List<Achievement> toCheck = new ArrayList<Achievement>();
-		//Avoid checking of zone achievements on login to
-		//prevent double check when player is initially placed into a zone
-		final Map<Category,List<Achievement>> map = new HashMap<Category, List<Achievement>>(achievements);
-		map.remove(Category.OUTSIDE_ZONE);
-		map.remove(Category.UNDERGROUND_ZONE);
-		Collection<List<Achievement>> values = map.values();
-		for (List<Achievement> list : values) {
-			toCheck.addAll(list);
-		}
-		final List<Achievement> reached = checkAchievements(player, toCheck);
+		final List<Achievement> reached = new ArrayList<Achievement>();
+		checkAchievements(player, loginAchievements, reached);
 		// only send notice if actually a new added achievement was reached by doing nothing
 		if(!reached.isEmpty()) {
 			StringBuilder sb = new StringBuilder();
@@ -285,37 +372,69 @@ public final class AchievementNotifier {
 	private void getAndCheckAchievementsInCategory(Player player, Category category) {
 		if(achievements.containsKey(category)) {
 			List<Achievement> toCheck = achievements.get(category);
-			List<Achievement> reached = checkAchievements(player, toCheck);
+			List<Achievement> reached = new ArrayList<Achievement>();
+			checkAchievements(player, toCheck, reached);
 			notifyPlayerAboutReachedAchievements(player, reached);
 		}
 	}
 
+	/**
+	 * check those achievements of a category that depend on a changed
+	 * counter, and those that do not declare their dependencies
+	 *
+	 * @param player
+	 * @param category
+	 * @param dependency key of the changed counter
+	 */
+	private void getAndCheckAchievementsInCategory(Player player, Category category, String dependency) {
+		List<Achievement> reached = new ArrayList<Achievement>();
+		List<Achievement> others = otherAchievements.get(category);
+		if (others != null) {
+			checkAchievements(player, others, reached);
+		}
+		Map<String, List<Achievement>> byDependency = dependentAchievements.get(category);
+		if (byDependency != null) {
+			List<Achievement> dependent = byDependency.get(dependency);
+			if (dependent != null) {
+				checkAchievements(player, dependent, reached);
+			}
+		}
+		notifyPlayerAboutReachedAchievements(player, reached);
+	}
+
 	/**
 	 * Checks for each achievement if the player has reached it. in case of reaching
 	 * an achievement it starts logging and notifying about reaching.
+	 * Achievements the player has already reached are skipped.
 	 *
 	 * @param player player to be checked
 	 * @param toCheck list of checked achievements
-	 * @return list of reached achievements
+	 * @param reached list to add the reached achievements to
 	 */
-	private List<Achievement> checkAchievements(Player player,
-			List<Achievement> toCheck) {
-		List<Achievement> reached = new ArrayList<Achievement>();
-
+	private void checkAchievements(Player player, List<Achievement> toCheck, List<Achievement> reached) {
 		// continue checking only if player's achievements are already loaded from the database
 		if (!player.arePlayerAchievementsLoaded()) {
-			return reached;
+			return;
 		}
 
+		final BitSet reachedIndexes = player.getReachedAchievementIndexes();
 		for (Achievement achievement : toCheck) {
-			if(achievement.isFulfilled(player) && !player.hasReachedAchievement(achievement.getIdentifier())) {
+			final int index = achievement.getIndex();
+			if (reachedIndexes.get(index)) {
+				continue;
+			}
+			if (player.hasReachedAchievement(achievement.getIdentifier())) {
+				// reached in an earlier session
+				reachedIndexes.set(index);
+				continue;
+			}
+			if(achievement.isFulfilled(player)) {
 				logReachingOfAnAchievement(player, achievement);
 				if (achievement.isActive()) {
 					reached.add(achievement);
 				}
 			}
 		}
-		return reached;
 	}
 
 	/**
@@ -344,6 +463,9 @@ public final class AchievementNotifier {
 		String playerName = player.getName();
 		DBCommandQueue.get().enqueue(new WriteReachedAchievementCommand(identifiersToIds.get(identifier), title, category, playerName));
 		player.addReachedAchievement(achievement.getIdentifier());
+		if (achievement.getIndex() >= 0) {
+			player.getReachedAchievementIndexes().set(achievement.getIndex());
+		}
 		new GameEvent(playerName, "reach-achievement", category.toString(), title, identifier).raise();
 	}
 
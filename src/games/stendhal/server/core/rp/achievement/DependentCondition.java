@@ -0,0 +1,43 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import java.util.Collection;
+
+import games.stendhal.server.entity.npc.ChatCondition;
+
+/**
+ * A condition which knows the player counters it reads. Achievements using
+ * such a condition are only checked if one of these counters changed.
+ */
+public interface DependentCondition extends ChatCondition {
+
+	/** prefix of the key for the kills of a creature */
+	String KILL = "kill:";
+
+	/** prefix of the key for the state of a quest */
+	String QUEST = "quest:";
+
+	/** prefix of the key for the looted number of an item */
+	String LOOT = "loot:";
+
+	/** prefix of the key for the produced number of an item */
+	String PRODUCE = "produce:";
+
+	/**
+	 * gets the keys of the counters this condition depends on
+	 *
+	 * @return keys like "kill:rat", or null if the condition may depend on
+	 * 	other things, too
+	 */
+	Collection<String> getDependencies();
+}
@@ -0,0 +1,215 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.searchindex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import com.google.common.collect.ImmutableSet;
+
+import marauroa.common.crypto.Hash;
+
+/**
+ * the texts of an entity which are added to the search index
+ */
+public class SearchIndexEntity {
+
+	/** change this, if the entries are generated in a different way, so that all entities are indexed again */
+	private static final String VERSION = "1";
+
+	// keep in sync with search.php
+	private static final ImmutableSet<String> STOP_WORDS =
+			ImmutableSet.of("a", "an", "and", "is", "it", "of", "see", "the", "to", "you");
+
+	private final char entityType;
+	private final String name;
+	private final List<Text> texts = new ArrayList<Text>();
+	private String hash;
+
+	/**
+	 * a text to index
+	 */
+	private static class Text {
+		private final SearchIndexEntryType type;
+		private final String text;
+		private final int baseScore;
+
+		Text(SearchIndexEntryType type, String text, int baseScore) {
+			this.type = type;
+			this.text = text;
+			this.baseScore = baseScore;
+		}
+
+		@Override
+		public String toString() {
+			return type.name() + "\t" + baseScore + "\t" + text;
+		}
+	}
+
+	/**
+	 * creates a new SearchIndexEntity
+	 *
+	 * @param entityType type of entity
+	 * @param name name of entity
+	 */
+	public SearchIndexEntity(char entityType, String name) {
+		this.entityType = entityType;
+		this.name = name;
+	}
+
+	/**
+	 * gets the key of an entity
+	 *
+	 * @param entityType type of entity
+	 * @param name name of entity
+	 * @return key
+	 */
+	public static String getKey(char entityType, String name) {
+		return entityType + name;
+	}
+
+	/**
+	 * gets the key of this entity
+	 *
+	 * @return key
+	 */
+	public String getKey() {
+		return getKey(entityType, name);
+	}
+
+	/**
+	 * gets the entity type
+	 *
+	 * @return entity type
+	 */
+	public char getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 * gets the name
+	 *
+	 * @return name of entity
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * adds the name of the entity
+	 *
+	 * @param type type of entity
+	 */
+	void addName(SearchIndexEntryType type) {
+		texts.add(new Text(type, name, -1));
+	}
+
+	/**
+	 * adds a description
+	 *
+	 * @param type type of entity
+	 * @param description description to add
+	 * @param baseScore base score of the match type
+	 */
+	void addDescription(SearchIndexEntryType type, String description, int baseScore) {
+		if (description == null) {
+			return;
+		}
+		texts.add(new Text(type, description, baseScore));
+	}
+
+	/**
+	 * gets a hash of the indexed texts
+	 *
+	 * @return hash
+	 */
+	public String getHash() {
+		if (hash == null) {
+			List<String> content = new ArrayList<String>();
+			for (Text text : texts) {
+				content.add(text.toString());
+			}
+			Collections.sort(content);
+			StringBuilder sb = new StringBuilder(VERSION);
+			sb.append('\n').append(getKey());
+			for (String line : content) {
+				sb.append('\n').append(line);
+			}
+			hash = Hash.toHexString(Hash.hash(sb.toString()));
+		}
+		return hash;
+	}
+
+	/**
+	 * adds the search index entries of this entity
+	 *
+	 * @param index search index
+	 */
+	void tokenize(Set<SearchIndexEntry> index) {
+		for (Text text : texts) {
+			if (text.baseScore < 0) {
+				tokenizeName(index, text.type);
+			} else {
+				tokenizeDescription(index, text.type, text.text, text.baseScore);
+			}
+		}
+	}
+
+	/**
+	 * adds the search index entries for a name variable
+	 *
+	 * @param index search index
+	 * @param type  type of entity
+	 */
+	private void tokenizeName(Set<SearchIndexEntry> index, SearchIndexEntryType type) {
+		index.add(new SearchIndexEntry(name, type.getEntityType(), name, 3000 + type.getMinorScore()));
+
+		// If the name consists of multiple words, add each word individually
+		// to the index. They will get a lower score to boost exact matches.
+		if (name.indexOf(" ") > -1) {
+			tokenizeDescription(index, type, name, 2000);
+		}
+	}
+
+	/**
+	 * adds the search index entries for a description
+	 *
+	 * @param index       search index
+	 * @param type        type of entity
+	 * @param description description to add
+	 * @param baseScore   base score of the match type
+	 */
+	private void tokenizeDescription(Set<SearchIndexEntry> index, SearchIndexEntryType type, String description, int baseScore) {
+		String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
+
+		// add each word individually. it is okay to add the same word multiple
+		// times because index is a hashset
+		StringTokenizer st = new StringTokenizer(description.toLowerCase(Locale.ENGLISH), " #;:,.-!\"");
+		while (st.hasMoreTokens()) {
+			String token = st.nextToken();
+
+			if (token.equals(lowerCaseName)) {
+				continue;
+			}
+
+			if (STOP_WORDS.contains(token)) {
+				continue;
+			}
+
+			index.add(new SearchIndexEntry(token, type.getEntityType(), name, baseScore + type.getMinorScore()));
+		}
+	}
+}
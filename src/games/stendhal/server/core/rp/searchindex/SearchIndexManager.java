@@ -11,11 +11,15 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.searchindex;
 
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import games.stendhal.server.core.engine.SingletonRepository;
@@ -31,11 +35,10 @@ import games.stendhal.server.entity.npc.SpeakerNPC;
  * @author hendrik
  */
 public class SearchIndexManager {
-	private final Set<SearchIndexEntry> index = Sets.newHashSet();
+	/** number of entities tokenized by one task */
+	private static final int CHUNK_SIZE = 100;
 
-	// keep in sync with search.php
-	private final ImmutableSet<String> STOP_WORDS =
-			ImmutableSet.of("a", "an", "and", "is", "it", "of", "see", "the", "to", "you");
+	private final Map<String, SearchIndexEntity> entities = Maps.newLinkedHashMap();
 
 	/**
 	 * generates the search index
@@ -43,11 +46,76 @@ public class SearchIndexManager {
 	 * @return searchIndex
 	 */
 	public Set<SearchIndexEntry> generateIndex() {
+		return tokenize(collectEntities());
+	}
+
+	/**
+	 * collects the texts of all entities without tokenizing them
+	 *
+	 * @return entities
+	 */
+	public Collection<SearchIndexEntity> collectEntities() {
 		achievements();
 		creatures();
 		items();
 		npcs();
-		return index;
+		return entities.values();
+	}
+
+	/**
+	 * generates the search index entries of the specified entities. Large
+	 * collections are tokenized in parallel.
+	 *
+	 * @param toTokenize entities
+	 * @return search index entries
+	 */
+	public static Set<SearchIndexEntry> tokenize(Collection<SearchIndexEntity> toTokenize) {
+		List<SearchIndexEntity> list = new ArrayList<SearchIndexEntity>(toTokenize);
+		if (list.size() <= CHUNK_SIZE) {
+			Set<SearchIndexEntry> index = Sets.newHashSet();
+			for (SearchIndexEntity entity : list) {
+				entity.tokenize(index);
+			}
+			return index;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return pool.invoke(new TokenizeTask(list));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * tokenizes a part of the entities, splitting it further if it is large
+	 */
+	private static class TokenizeTask extends RecursiveTask<Set<SearchIndexEntry>> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<SearchIndexEntity> list;
+
+		TokenizeTask(List<SearchIndexEntity> list) {
+			this.list = list;
+		}
+
+		@Override
+		protected Set<SearchIndexEntry> compute() {
+			if (list.size() <= CHUNK_SIZE) {
+				Set<SearchIndexEntry> index = Sets.newHashSet();
+				for (SearchIndexEntity entity : list) {
+					entity.tokenize(index);
+				}
+				return index;
+			}
+			int middle = list.size() / 2;
+			TokenizeTask first = new TokenizeTask(list.subList(0, middle));
+			TokenizeTask second = new TokenizeTask(list.subList(middle, list.size()));
+			first.fork();
+			Set<SearchIndexEntry> index = second.compute();
+			index.addAll(first.join());
+			return index;
+		}
 	}
 
 	private void achievements() {
@@ -55,79 +123,51 @@ public class SearchIndexManager {
 			if (!achievement.isActive()) {
 				continue;
 			}
-			addName(achievement.getTitle(), SearchIndexEntryType.ACHIEVEMENT);
-			addDescription(achievement.getTitle(), achievement.getDescription(), SearchIndexEntryType.ACHIEVEMENT, 1000);
+			SearchIndexEntity entity = getEntity(achievement.getTitle(), SearchIndexEntryType.ACHIEVEMENT);
+			entity.addName(SearchIndexEntryType.ACHIEVEMENT);
+			entity.addDescription(SearchIndexEntryType.ACHIEVEMENT, achievement.getDescription(), 1000);
 		}
 	}
 
 	private void npcs() {
 		for (SpeakerNPC npc : SingletonRepository.getNPCList()) {
-			addName(npc.getName(), SearchIndexEntryType.NPC);
-			addDescription(npc.getName(), npc.getDescription(), SearchIndexEntryType.NPC, 1000);
-			addDescription(npc.getName(), npc.getJob(), SearchIndexEntryType.NPC, 1000);
+			SearchIndexEntity entity = getEntity(npc.getName(), SearchIndexEntryType.NPC);
+			entity.addName(SearchIndexEntryType.NPC);
+			entity.addDescription(SearchIndexEntryType.NPC, npc.getDescription(), 1000);
+			entity.addDescription(SearchIndexEntryType.NPC, npc.getJob(), 1000);
 		}
 	}
 
 	private void items() {
 		for (DefaultItem item : SingletonRepository.getEntityManager().getDefaultItems()) {
-			addName(item.getItemName(), SearchIndexEntryType.ITEM);
-			addDescription(item.getItemName(), item.getDescription(), SearchIndexEntryType.ITEM, 1000);
+			SearchIndexEntity entity = getEntity(item.getItemName(), SearchIndexEntryType.ITEM);
+			entity.addName(SearchIndexEntryType.ITEM);
+			entity.addDescription(SearchIndexEntryType.ITEM, item.getDescription(), 1000);
 		}
 	}
 
 	private void creatures() {
 		for (DefaultCreature creature : SingletonRepository.getEntityManager().getDefaultCreatures()) {
-			addName(creature.getCreatureName(), SearchIndexEntryType.CREATURE);
-			addDescription(creature.getCreatureName(), creature.getDescription(), SearchIndexEntryType.CREATURE, 1000);
-		}
-	}
-
-	/**
-	 * adds the search index entries for a name variable
-	 *
-	 * @param name        name of entity
-	 * @param type  type of entity
-	 */
-	private void addName(String name, SearchIndexEntryType type) {
-		index.add(new SearchIndexEntry(name, type.getEntityType(), name, 3000 + type.getMinorScore()));
-
-		// If the name consists of multiple words, add each word individually
-		// to the index. They will get a lower score to boost exact matches.
-		if (name.indexOf(" ") > -1) {
-			addDescription(name, name, type, 2000);
+			SearchIndexEntity entity = getEntity(creature.getCreatureName(), SearchIndexEntryType.CREATURE);
+			entity.addName(SearchIndexEntryType.CREATURE);
+			entity.addDescription(SearchIndexEntryType.CREATURE, creature.getDescription(), 1000);
 		}
 	}
 
-
 	/**
-	 * adds the search index entries for a name variable
+	 * gets the entity for a name, creating it if necessary
 	 *
-	 * @param name        name of entity
-	 * @param description description to add
-	 * @param type        type of entity
-	 * @param baseScore   base score of the match type
+	 * @param name name of entity
+	 * @param type type of entity
+	 * @return entity
 	 */
-	private void addDescription(String name, String description, SearchIndexEntryType type, int baseScore) {
-		if (description == null) {
-			return;
-		}
-		String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
-
-		// add each word individually. it is okay to add the same word multiple
-		// times because index is a hashset
-		StringTokenizer st = new StringTokenizer(description.toLowerCase(Locale.ENGLISH), " #;:,.-!\"");
-		while (st.hasMoreTokens()) {
-			String token = st.nextToken();
-
-			if (token.equals(lowerCaseName)) {
-				continue;
-			}
-
-			if (STOP_WORDS.contains(token)) {
-				continue;
-			}
-
-			index.add(new SearchIndexEntry(token, type.getEntityType(), name, baseScore + type.getMinorScore()));
+	private SearchIndexEntity getEntity(String name, SearchIndexEntryType type) {
+		String key = SearchIndexEntity.getKey(type.getEntityType(), name);
+		SearchIndexEntity entity = entities.get(key);
+		if (entity == null) {
+			entity = new SearchIndexEntity(type.getEntityType(), name);
+			entities.put(key, entity);
 		}
+		return entity;
 	}
 }
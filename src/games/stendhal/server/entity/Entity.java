@@ -182,9 +182,13 @@ public abstract class Entity extends RPObject implements Killer {
 		}
 
 		if (moved && (zone != null)) {
+			zone.updateSpatialIndex(this);
 			onMoved(oldX, oldY, x, y);
 		}
 
+		final double oldWidth = area.width;
+		final double oldHeight = area.height;
+
 		if (has("height")) {
 			area.height = getInt("height");
 		}
@@ -193,6 +197,10 @@ public abstract class Entity extends RPObject implements Killer {
 			area.width = getInt("width");
 		}
 
+		if ((zone != null) && ((oldWidth != area.width) || (oldHeight != area.height))) {
+			zone.updateSpatialIndex(this);
+		}
+
 		if (has("resistance")) {
 			resistance = getInt("resistance");
 		}
@@ -630,6 +638,7 @@ public abstract class Entity extends RPObject implements Killer {
 		}
 
 		if (moved && (zone != null)) {
+			zone.updateSpatialIndex(this);
 			onMoved(oldX, oldY, x, y);
 		}
 	}
@@ -667,6 +676,10 @@ public abstract class Entity extends RPObject implements Killer {
 
 		this.area.height = height;
 		put("height", height);
+
+		if (zone != null) {
+			zone.updateSpatialIndex(this);
+		}
 	}
 
 	/**
@@ -0,0 +1,307 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.slot.EntitySlot;
+import games.stendhal.server.entity.slot.Slots;
+import marauroa.common.game.RPObject;
+import marauroa.common.game.RPSlot;
+import marauroa.common.game.SlotOwner;
+
+/**
+ * Number of items by name in the slots of an RPEntity, including the
+ * content of container items, split into the carrying slots and all slots.
+ * <p>
+ * The index is kept up to date by the EntitySlots and StackableItems, which
+ * report added and removed items and changed quantities. Therefore it may
+ * only be used, if all slots which contain items are EntitySlots.
+ */
+public final class InventoryIndex {
+
+	/**
+	 * item counts of one item name
+	 */
+	private static final class Count {
+		/** number of items in carrying slots */
+		int carried;
+
+		/** number of items in all slots */
+		int total;
+
+		/** number of item objects (stacks) in carrying slots */
+		int carriedObjects;
+
+		/** number of item objects (stacks) in all slots */
+		int totalObjects;
+	}
+
+	private final Map<String, Count> counts = new HashMap<String, Count>();
+
+	/**
+	 * creates the index of the slots of an entity
+	 *
+	 * @param entity entity
+	 * @return index, or <code>null</code> if the entity has slots with
+	 *         items, which are not tracked
+	 */
+	static InventoryIndex create(final RPEntity entity) {
+		final InventoryIndex index = new InventoryIndex();
+		for (final RPSlot slot : entity.slots()) {
+			if (!(slot instanceof EntitySlot) && !isObjectSlot(slot)) {
+				return null;
+			}
+
+			final boolean carried = isCarryingSlot(slot.getName());
+			for (final RPObject object : slot) {
+				if (!index.update(object, carried, 1)) {
+					return null;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * gets the number of items in the carrying slots
+	 *
+	 * @param name item name
+	 * @return number of items
+	 */
+	int getCarried(final String name) {
+		final Count count = counts.get(name);
+		if (count == null) {
+			return 0;
+		}
+		return count.carried;
+	}
+
+	/**
+	 * gets the number of items in all slots
+	 *
+	 * @param name item name
+	 * @return number of items
+	 */
+	int getTotal(final String name) {
+		final Count count = counts.get(name);
+		if (count == null) {
+			return 0;
+		}
+		return count.total;
+	}
+
+	/**
+	 * gets the number of item objects in the carrying slots, counting each
+	 * stack as one object
+	 *
+	 * @param name item name
+	 * @return number of item objects
+	 */
+	int getCarriedObjects(final String name) {
+		final Count count = counts.get(name);
+		if (count == null) {
+			return 0;
+		}
+		return count.carriedObjects;
+	}
+
+	/**
+	 * Tells the RPEntity owning a slot, that an item was added to the slot.
+	 *
+	 * @param owner owner of the slot
+	 * @param slot slot
+	 * @param object added object
+	 */
+	public static void onAdd(final SlotOwner owner, final RPSlot slot, final RPObject object) {
+		notifyEntity(owner, slot, object, 1);
+	}
+
+	/**
+	 * Tells the RPEntity owning a slot, that an item is removed from the slot.
+	 *
+	 * @param owner owner of the slot
+	 * @param slot slot
+	 * @param object object to be removed
+	 */
+	public static void onRemove(final SlotOwner owner, final RPSlot slot, final RPObject object) {
+		notifyEntity(owner, slot, object, -1);
+	}
+
+	/**
+	 * Tells the RPEntity carrying an item, that the quantity of the item
+	 * has changed.
+	 *
+	 * @param item item
+	 * @param delta change of the quantity
+	 */
+	public static void onQuantityChange(final Item item, final int delta) {
+		if ((delta == 0) || !item.isContained()) {
+			return;
+		}
+
+		final RPEntity entity = findEntity(item);
+		if (entity == null) {
+			return;
+		}
+		final InventoryIndex index = entity.getTrackedInventoryIndex();
+		if (index != null) {
+			index.add(item.getName(), delta, 0, isCarryingSlot(findEntitySlot(item).getName()));
+		}
+	}
+
+	/**
+	 * updates the index of the RPEntity owning a slot
+	 *
+	 * @param owner owner of the slot
+	 * @param slot slot
+	 * @param object added or removed object
+	 * @param sign 1 for added objects, -1 for removed objects
+	 */
+	private static void notifyEntity(final SlotOwner owner, final RPSlot slot, final RPObject object, final int sign) {
+		if (!(object instanceof Item)) {
+			return;
+		}
+
+		final RPEntity entity;
+		final RPSlot entitySlot;
+		if (owner instanceof RPEntity) {
+			entity = (RPEntity) owner;
+			entitySlot = slot;
+		} else if ((owner instanceof RPObject) && ((RPObject) owner).isContained()) {
+			entity = findEntity((RPObject) owner);
+			entitySlot = findEntitySlot((RPObject) owner);
+		} else {
+			return;
+		}
+		if (entity == null) {
+			return;
+		}
+
+		final InventoryIndex index = entity.getTrackedInventoryIndex();
+		if ((index != null) && !index.update(object, isCarryingSlot(entitySlot.getName()), sign)) {
+			entity.invalidateInventoryIndex();
+		}
+	}
+
+	/**
+	 * adds the counts of an item and its content
+	 *
+	 * @param object item
+	 * @param carried true, if the item is in a carrying slot
+	 * @param sign 1 to add the item, -1 to remove it
+	 * @return false, if the item contains items in slots, which are not tracked
+	 */
+	private boolean update(final RPObject object, final boolean carried, final int sign) {
+		if (!(object instanceof Item)) {
+			return true;
+		}
+
+		final Item item = (Item) object;
+		add(item.getName(), sign * item.getQuantity(), sign, carried);
+		for (final RPSlot slot : item.slots()) {
+			if (!(slot instanceof EntitySlot)) {
+				return false;
+			}
+			for (final RPObject content : slot) {
+				if (!update(content, carried, sign)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * changes the counts of an item name
+	 *
+	 * @param name item name
+	 * @param quantity change of the number of items
+	 * @param objects change of the number of item objects
+	 * @param carried true, if the items are in a carrying slot
+	 */
+	private void add(final String name, final int quantity, final int objects, final boolean carried) {
+		Count count = counts.get(name);
+		if (count == null) {
+			count = new Count();
+			counts.put(name, count);
+		}
+		count.total += quantity;
+		count.totalObjects += objects;
+		if (carried) {
+			count.carried += quantity;
+			count.carriedObjects += objects;
+		}
+		if ((count.total == 0) && (count.totalObjects == 0)) {
+			counts.remove(name);
+		}
+	}
+
+	/**
+	 * finds the RPEntity an object is contained in
+	 *
+	 * @param object object
+	 * @return RPEntity or <code>null</code>
+	 */
+	private static RPEntity findEntity(final RPObject object) {
+		RPObject current = object;
+		while (current.isContained()) {
+			final SlotOwner owner = current.getContainerOwner();
+			if (owner instanceof RPEntity) {
+				return (RPEntity) owner;
+			}
+			if (!(owner instanceof RPObject)) {
+				return null;
+			}
+			current = (RPObject) owner;
+		}
+		return null;
+	}
+
+	/**
+	 * finds the slot of the RPEntity an object is contained in
+	 *
+	 * @param object object contained in an RPEntity
+	 * @return slot of the RPEntity
+	 */
+	private static RPSlot findEntitySlot(final RPObject object) {
+		RPObject current = object;
+		while (!(current.getContainerOwner() instanceof RPEntity)) {
+			current = (RPObject) current.getContainerOwner();
+		}
+		return current.getContainerSlot();
+	}
+
+	/**
+	 * checks whether items in a slot are carried by the entity
+	 *
+	 * @param slotName name of slot
+	 * @return true, if the slot is a carrying slot
+	 */
+	private static boolean isCarryingSlot(final String slotName) {
+		return Slots.CARRYING.getNames().contains(slotName);
+	}
+
+	/**
+	 * checks whether a slot holds other objects than items, like the keyed
+	 * slots "!quests" or the slot "#pets"
+	 *
+	 * @param slot slot
+	 * @return true, if the slot may not contain items
+	 */
+	private static boolean isObjectSlot(final RPSlot slot) {
+		final String name = slot.getName();
+		return name.startsWith("!") || name.startsWith("#");
+	}
+}
@@ -40,10 +40,10 @@ import games.stendhal.common.parser.WordList;
 import games.stendhal.server.actions.equip.DropAction;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.ItemLogger;
+import games.stendhal.server.core.engine.KillLogger;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
-import games.stendhal.server.core.engine.dbcommand.LogKillEventCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TutorialNotifier;
 import games.stendhal.server.entity.creature.Creature;
@@ -68,7 +68,6 @@ import marauroa.common.game.RPAction;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 import marauroa.common.game.SyntaxException;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.Statistics;
 import marauroa.server.game.db.DAORegister;
 
@@ -153,6 +152,12 @@ public abstract class RPEntity extends GuidedEntity {
 	/** the enemy that is currently attacked by this entity. */
 	private RPEntity attackTarget;
 
+	/** number of items in the slots, or <code>null</code> if not built yet */
+	private InventoryIndex inventoryIndex;
+
+	/** the slots contain items, which are not tracked by the inventory index */
+	private boolean inventoryUntracked;
+
 	/**
 	 * Maps each attacker to the sum of hitpoint loss it has caused to this
 	 * RPEntity.
@@ -1684,7 +1689,7 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 				}
 			}
 
-			SingletonRepository.getAchievementNotifier().onKill(killer);
+			SingletonRepository.getAchievementNotifier().onKill(killer, killedName);
 
 			killer.notifyWorldAboutChanges();
 		}
@@ -1797,7 +1802,7 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 			new GameEvent(killerName, "killed", this.getName(), killLog.entityToType(killer), killLog.entityToType(this)).raise();
 		}
 
-		DBCommandQueue.get().enqueue(new LogKillEventCommand(this, killer));
+		KillLogger.logKill(getName(), killLog.entityToType(this), killerName, killLog.entityToType(killer));
 
 		die(killer, remove);
 	}
@@ -2319,6 +2324,11 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 			return false;
 		}
 
+		final InventoryIndex index = getInventoryIndex();
+		if (index != null) {
+			return checkInventoryIndex(name, index.getCarried(name), true) >= amount;
+		}
+
 		int found = 0;
 
 		for (RPSlot slot : this.slots(Slots.CARRYING)) {
@@ -2359,6 +2369,21 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 * @return The number of carried items
 	 */
 	public int getNumberOfEquipped(final String name) {
+		final InventoryIndex index = getInventoryIndex();
+		if (index != null) {
+			return checkInventoryIndex(name, index.getCarried(name), true);
+		}
+		return countEquipped(name);
+	}
+
+	/**
+	 * Counts the items of the given name in the carrying slots.
+	 *
+	 * @param name
+	 *            The item's name
+	 * @return The number of carried items
+	 */
+	private int countEquipped(final String name) {
 		int result = 0;
 
 		for (RPSlot slot : this.slots(Slots.CARRYING)) {
@@ -2407,6 +2432,21 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 * @return The number of carried items
 	 */
 	public int getTotalNumberOf(final String name) {
+		final InventoryIndex index = getInventoryIndex();
+		if (index != null) {
+			return checkInventoryIndex(name, index.getTotal(name), false);
+		}
+		return countTotal(name);
+	}
+
+	/**
+	 * Counts the items of the given name in all slots.
+	 *
+	 * @param name
+	 *            The item's name
+	 * @return The number of items
+	 */
+	private int countTotal(final String name) {
 		int result = 0;
 
 		for (final RPSlot slot : slots()) {
@@ -2430,6 +2470,21 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 *         found
 	 */
 	public Item getFirstEquipped(final String name) {
+		if (!mayBeEquipped(name)) {
+			return null;
+		}
+		return findFirstEquipped(name);
+	}
+
+	/**
+	 * Searches the carrying slots for the first item of the given name.
+	 *
+	 * @param name
+	 *            The item's name
+	 * @return The item, or a stack of stackable items, or null if nothing was
+	 *         found
+	 */
+	private Item findFirstEquipped(final String name) {
 		for (RPSlot slot : this.slots(Slots.CARRYING)) {
 
 			for (final RPObject object : slot) {
@@ -2482,6 +2537,9 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 	 */
 	public List<Item> getAllEquipped(final String name) {
 		final List<Item> result = new LinkedList<Item>();
+		if (!mayBeEquipped(name)) {
+			return result;
+		}
 
 		for (RPSlot slot : this.slots(Slots.CARRYING)) {
 
@@ -2497,6 +2555,113 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 		return result;
 	}
 
+	/**
+	 * Checks whether the carrying slots may contain items of the given name,
+	 * so that the slots need to be searched.
+	 *
+	 * @param name
+	 *            The item's name
+	 * @return <code>false</code>, if the inventory index knows that there
+	 *         are no such items
+	 */
+	private boolean mayBeEquipped(final String name) {
+		final InventoryIndex index = getInventoryIndex();
+		if ((index == null) || (index.getCarriedObjects(name) > 0)) {
+			return true;
+		}
+		if (Testing.INVENTORY && (findFirstEquipped(name) != null)) {
+			logger.error("Inventory index of " + getName() + " does not contain " + name, new Throwable());
+			invalidateInventoryIndex();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the index of the items in the slots of this entity, creating it
+	 * if necessary.
+	 *
+	 * @return inventory index, or <code>null</code> if the slots of this
+	 *         entity contain items which are not tracked
+	 */
+	private InventoryIndex getInventoryIndex() {
+		if ((inventoryIndex == null) && !inventoryUntracked) {
+			inventoryIndex = InventoryIndex.create(this);
+			inventoryUntracked = (inventoryIndex == null);
+		}
+		return inventoryIndex;
+	}
+
+	/**
+	 * Gets the index of the items in the slots of this entity, if it has
+	 * been created. It is updated by the slots and items on changes.
+	 *
+	 * @return inventory index or <code>null</code>
+	 */
+	InventoryIndex getTrackedInventoryIndex() {
+		return inventoryIndex;
+	}
+
+	/**
+	 * Drops the inventory index, so that it is created again on next use.
+	 */
+	void invalidateInventoryIndex() {
+		inventoryIndex = null;
+		inventoryUntracked = false;
+	}
+
+	@Override
+	public void addSlot(final String name) {
+		super.addSlot(name);
+		invalidateInventoryIndex();
+	}
+
+	@Override
+	public void addSlot(final RPSlot slot) {
+		super.addSlot(slot);
+		invalidateInventoryIndex();
+	}
+
+	@Override
+	public RPSlot removeSlot(final String name) {
+		final RPSlot slot = super.removeSlot(name);
+		invalidateInventoryIndex();
+		return slot;
+	}
+
+	/**
+	 * Compares a number of items from the inventory index with the result of
+	 * searching the slots, if the consistency check is enabled by the
+	 * system property "testing.inventory".
+	 *
+	 * @param name
+	 *            The item's name
+	 * @param indexed
+	 *            number of items according to the inventory index
+	 * @param carried
+	 *            <code>true</code> for the carrying slots,
+	 *            <code>false</code> for all slots
+	 * @return number of items
+	 */
+	private int checkInventoryIndex(final String name, final int indexed, final boolean carried) {
+		if (!Testing.INVENTORY) {
+			return indexed;
+		}
+
+		final int counted;
+		if (carried) {
+			counted = countEquipped(name);
+		} else {
+			counted = countTotal(name);
+		}
+		if (counted != indexed) {
+			logger.error("Inventory index of " + getName() + " contains " + indexed + " " + name
+					+ " instead of " + counted, new Throwable());
+			invalidateInventoryIndex();
+		}
+		return counted;
+	}
+
 	/**
 	 * checks if an item of class <i>clazz</i> is equipped in slot <i>slot</i>
 	 * returns true if it is, else false.
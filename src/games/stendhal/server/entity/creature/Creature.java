@@ -137,6 +137,13 @@ public class Creature extends NPC {
 
 	private boolean isIdle;
 
+	/**
+	 * Set when the creature ran into another entity, so that the next chase
+	 * path is searched around other entities instead of using the shared
+	 * flow field.
+	 */
+	private boolean blockedByEntity;
+
 	/** The type of the damage this creature does */
 	private Nature damageType = Nature.CUT;
 	/** The type of the damage this creature does in ranged attacks */
@@ -724,7 +731,7 @@ public class Creature extends NPC {
 			}
 
 			if (shortestDistance >= 1) {
-				final List<Node> path = Path.searchPath(this, chosen, getMovementRange());
+				final List<Node> path = searchChasePath(chosen, getMovementRange());
 				if ((path == null) || path.isEmpty() && !strategy.canAttackNow(this, chosen)) {
 					distances.remove(chosen);
 					chosen = null;
@@ -738,6 +745,36 @@ public class Creature extends NPC {
 		return chosen;
 	}
 
+	/**
+	 * Find a path to an enemy. Normally the flow field of the enemy, shared
+	 * by all creatures chasing it, is used.
+	 *
+	 * @param enemy chased entity
+	 * @param maxDistance maximum path length
+	 * @return path, or an empty list if no path was found
+	 */
+	private List<Node> searchChasePath(final Entity enemy, final double maxDistance) {
+		if (blockedByEntity) {
+			blockedByEntity = false;
+			return Path.searchPath(this, enemy, maxDistance);
+		}
+		return Path.searchPathAlongFlowField(this, enemy, maxDistance);
+	}
+
+	@Override
+	protected List<Node> searchPathTo(final Entity destEntity, final double maxPathRadius) {
+		if (isAttacking() && (destEntity == getAttackTarget())) {
+			return searchChasePath(destEntity, maxPathRadius);
+		}
+		return super.searchPathTo(destEntity, maxPathRadius);
+	}
+
+	@Override
+	protected void handleObjectCollision() {
+		super.handleObjectCollision();
+		blockedByEntity = true;
+	}
+
 	public boolean isEnemyNear(final double range) {
 		final int x = getX();
 		final int y = getY();
@@ -850,6 +887,12 @@ public class Creature extends NPC {
 		// do nothing
 	}
 
+	@Override
+	public void catchUp(final int fromTurn, final int toTurn) {
+		// Creatures do not walk paths on their own. Just do the healing.
+		healer.heal(this, fromTurn, toTurn);
+	}
+
 	@Override
 	public void logic() {
 		healer.heal(this);
@@ -40,4 +40,11 @@ class Healer implements HealerBehavior {
 
 	}
 
+	@Override
+	public void heal(final Creature creature, final int fromTurn, final int toTurn) {
+		final int times = toTurn / frequency - fromTurn / frequency;
+		if ((times > 0) && (creature.getHP() > 0)) {
+			creature.heal((int) Math.min((long) times * amount, Integer.MAX_VALUE));
+		}
+	}
 }
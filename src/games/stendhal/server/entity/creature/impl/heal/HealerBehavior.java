@@ -18,4 +18,13 @@ public interface HealerBehavior {
 	void init(String healingProfile);
 	void heal(Creature creature);
 
+	/**
+	 * Apply the healing that would have happened in a range of turns.
+	 *
+	 * @param creature creature to heal
+	 * @param fromTurn first turn of the range, exclusive
+	 * @param toTurn last turn of the range, inclusive
+	 */
+	void heal(Creature creature, int fromTurn, int toTurn);
+
 }
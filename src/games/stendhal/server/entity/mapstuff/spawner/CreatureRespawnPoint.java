@@ -82,6 +82,12 @@ public class CreatureRespawnPoint implements TurnListener {
 	 */
 	private int respawnTime;
 
+	/**
+	 * The turn at which a respawn was postponed because the zone was
+	 * hibernating, or -1.
+	 */
+	private int postponedSince = -1;
+
 	/**
 	 * Creates a new RespawnPoint.
 	 *
@@ -169,6 +175,19 @@ public class CreatureRespawnPoint implements TurnListener {
 	 */
 	@Override
 	public void onTurnReached(final int currentTurn) {
+		if ((zone != null) && zone.isHibernating()) {
+			// nobody would see it anyway. catchUp() does the work on wake up
+			postponedSince = currentTurn;
+			return;
+		}
+		spawnAndReschedule();
+	}
+
+	/**
+	 * Spawns a creature, and schedules the next one if the maximum has not
+	 * been reached.
+	 */
+	private void spawnAndReschedule() {
 		respawn();
 
 		// Is this all or should we spawn more creatures?
@@ -180,6 +199,32 @@ public class CreatureRespawnPoint implements TurnListener {
 		}
 	}
 
+	/**
+	 * Spawns the creatures that would have appeared while the zone was
+	 * hibernating, and schedules the next respawn for the remaining time.
+	 *
+	 * @param currentTurn current turn
+	 */
+	public void catchUp(final int currentTurn) {
+		if (postponedSince == -1) {
+			return;
+		}
+		int elapsed = currentTurn - postponedSince;
+		postponedSince = -1;
+
+		respawn();
+		while (creatures.size() < maximum) {
+			final int next = calculateNextRespawnTurn();
+			if (next > elapsed) {
+				SingletonRepository.getTurnNotifier().notifyInTurns(next - elapsed, this);
+				return;
+			}
+			elapsed -= next;
+			respawn();
+		}
+		respawning = false;
+	}
+
 	/**
 	 * Calculates a randomized respawn time.
 	 * @return the amount of turns calculated
@@ -288,7 +333,8 @@ public class CreatureRespawnPoint implements TurnListener {
 		if (creatures.size() < maximum) {
 			SingletonRepository.getTurnNotifier().dontNotify(this);
 			//SingletonRepository.getTurnNotifier().notifyInTurns(1, this);
-			onTurnReached(0);
+			postponedSince = -1;
+			spawnAndReschedule();
 		}
 	}
 }
@@ -20,6 +20,7 @@ import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPWorld;
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.core.events.TurnListener;
+import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.item.Item;
 import marauroa.common.game.Definition.Type;
@@ -56,6 +57,12 @@ public class PassiveEntityRespawnPoint extends Entity implements TurnListener {
 	 */
 	private final String growingItemName;
 
+	/**
+	 * The turn at which growing was postponed because the zone was
+	 * hibernating, or -1.
+	 */
+	private int postponedSince = -1;
+
 	public PassiveEntityRespawnPoint(final RPObject object, final String growingItemName,
 			final int meanTurnsForRegrow) {
 		super(object);
@@ -142,9 +149,44 @@ public class PassiveEntityRespawnPoint extends Entity implements TurnListener {
 
 	@Override
 	public void onTurnReached(final int currentTurn) {
+		final StendhalRPZone zone = getZone();
+		if ((zone != null) && zone.isHibernating()) {
+			// catchUp() does the work when the zone wakes up
+			postponedSince = currentTurn;
+			return;
+		}
 		growNewFruit();
 	}
 
+	/**
+	 * Grows what would have grown while the zone was hibernating. Growers
+	 * that grow in several steps are advanced through all the steps that fit
+	 * in the elapsed time.
+	 *
+	 * @param currentTurn current turn
+	 */
+	public void catchUp(final int currentTurn) {
+		if (postponedSince == -1) {
+			return;
+		}
+		int elapsed = currentTurn - postponedSince;
+		postponedSince = -1;
+
+		final TurnNotifier notifier = SingletonRepository.getTurnNotifier();
+		growNewFruit();
+		int next = notifier.getRemainingTurns(this);
+		while ((next > 0) && (next <= elapsed)) {
+			notifier.dontNotify(this);
+			elapsed -= next;
+			growNewFruit();
+			next = notifier.getRemainingTurns(this);
+		}
+		if (next > 0) {
+			notifier.dontNotify(this);
+			notifier.notifyInTurns(next - elapsed, this);
+		}
+	}
+
 	public void setStartState() {
 		onFruitPicked(null);
 
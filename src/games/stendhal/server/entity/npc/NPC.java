@@ -192,11 +192,22 @@ public abstract class NPC extends RPEntity {
 			logger.debug("Creating path because (" + getX() + "," + getY()
 					+ ") distance(" + destEntity.getX() + ","
 					+ destEntity.getY() + ")>" + max);
-			final List<Node> path = Path.searchPath(this, destEntity, maxPathRadius);
+			final List<Node> path = searchPathTo(destEntity, maxPathRadius);
 			setPath(new FixedPath(path, false));
 		}
 	}
 
+	/**
+	 * Find a path to stand next to an entity.
+	 *
+	 * @param destEntity the destination entity
+	 * @param maxPathRadius the maximum radius in which a path is searched
+	 * @return path, or an empty list if no path was found
+	 */
+	protected List<Node> searchPathTo(final Entity destEntity, final double maxPathRadius) {
+		return Path.searchPath(this, destEntity, maxPathRadius);
+	}
+
 	/**
 	 * Set a random destination as a path.
 	 *
@@ -310,6 +321,65 @@ public abstract class NPC extends RPEntity {
         notifyWorldAboutChanges();
 	}
 
+	/**
+	 * Bring the NPC to the state it would have reached if its zone had not
+	 * been hibernating. NPCs walking a looped path are moved to the last
+	 * waypoint they would have passed.
+	 *
+	 * @param fromTurn turn at which the zone started hibernating
+	 * @param toTurn current turn
+	 */
+	public void catchUp(final int fromTurn, final int toTurn) {
+		final FixedPath path = getPath();
+		if ((path == null) || !path.isLoop() || (getBaseSpeed() <= 0)) {
+			return;
+		}
+		final List<Node> nodes = path.getNodeList();
+		int pos = getPathPosition();
+		if (nodes.isEmpty() || (pos >= nodes.size())) {
+			return;
+		}
+
+		int length = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			length += distance(nodes.get(i), nodes.get((i + 1) % nodes.size()));
+		}
+		if (length == 0) {
+			return;
+		}
+		// Whole rounds do not change anything
+		double remaining = (getBaseSpeed() * (toTurn - fromTurn)) % length;
+
+		int x = getX();
+		int y = getY();
+		while (true) {
+			final Node next = nodes.get(pos);
+			final int step = Math.abs(next.getX() - x) + Math.abs(next.getY() - y);
+			if (step > remaining) {
+				break;
+			}
+			remaining -= step;
+			x = next.getX();
+			y = next.getY();
+			pos = (pos + 1) % nodes.size();
+		}
+		if ((x != getX()) || (y != getY())) {
+			setPosition(x, y);
+			setPathPosition(pos);
+		}
+	}
+
+	/**
+	 * Get the walking distance between two nodes.
+	 *
+	 * @param a first node
+	 * @param b second node
+	 * @return distance in tiles
+	 */
+	private static int distance(final Node a, final Node b) {
+		return Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY());
+	}
+
     /**
      * Give NPC a random path
      */
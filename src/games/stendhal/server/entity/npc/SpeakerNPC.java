@@ -378,6 +378,12 @@ public class SpeakerNPC extends NPC {
 		// respond to player in the chat log before the player says something.
 	}
 
+	@Override
+	public void catchUp(final int fromTurn, final int toTurn) {
+		// preLogic() stops the NPCs when there are no players in the zone,
+		// so they just continue where they were
+	}
+
 	public void preLogic() {
 
 		if (this.getZone().getPlayerAndFriends().isEmpty() && !isTalking() && !actingAlone) {
@@ -96,10 +96,8 @@ public final class CollectRequestedItemsAction implements ChatAction {
 	boolean dropItems(final Player player, int itemCount) {
 		boolean result = false;
 
-		// parse the quest state into a list of still missing items
-		final ItemCollection itemsTodo = new ItemCollection();
-
-		itemsTodo.addFromQuestStateString(player.getQuest(questSlot));
+		// the list of still missing items from the quest state
+		final ItemCollection itemsTodo = player.getQuestItems(questSlot);
 
 		if (player.drop(itemName, itemCount)) {
 			if (itemsTodo.removeItem(itemName, itemCount)) {
@@ -147,11 +145,7 @@ public final class CollectRequestedItemsAction implements ChatAction {
 	 * @return A list of item names
 	 */
 	ItemCollection getMissingItems(final Player player) {
-		final ItemCollection missingItems = new ItemCollection();
-
-		missingItems.addFromQuestStateString(player.getQuest(questSlot));
-
-		return missingItems;
+		return player.getQuestItems(questSlot);
 	}
 
 	@Override
@@ -14,7 +14,6 @@ package games.stendhal.server.entity.npc.action;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import games.stendhal.common.MathHelper;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
@@ -65,13 +64,7 @@ public class IncrementQuestAction implements ChatAction {
 
 	@Override
 	public void fire(final Player player, final Sentence sentence, final EventRaiser raiser) {
-		String substate = player.getQuest(questname,index);
-		int questcount;
-		if (substate == null) {
-			questcount = increment;
-		} else {
-			questcount = MathHelper.parseIntDefault(substate,0) + increment;
-		}
+		final int questcount = player.getQuestInt(questname, index, 0) + increment;
 		if (index > -1) {
 			player.setQuest(questname, index, "" + questcount);
 		} else {
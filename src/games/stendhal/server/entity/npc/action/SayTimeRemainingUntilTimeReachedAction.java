@@ -65,29 +65,13 @@ public class SayTimeRemainingUntilTimeReachedAction implements ChatAction {
 	@Override
 	public void fire(final Player player, final Sentence sentence, final EventRaiser raiser) {
 
-		long timestamp;
-
 		// the player never got the quest
 		if (!player.hasQuest(questname)) {
 			return;
 		}
 
-		if (index > -1) {
-			try {
-				timestamp = Long.parseLong(player.getQuest(questname, index));
-			} catch (final NumberFormatException e) {
-				// set to 0 if it was no Long, as if this quest was done at the beginning of time
-				timestamp = 0;
-			}
-		} else {
-			try {
-				timestamp = Long.parseLong(player.getQuest(questname));
-			} catch (final NumberFormatException e) {
-				// set to 0 if it was no Long, as if this quest was done at the beginning of time
-				timestamp = 0;
-			}
-
-		}
+		// set to 0 if it was no Long, as if this quest was done at the beginning of time
+		final long timestamp = player.getQuestLong(questname, index, 0);
 
 		final long timeRemaining = (timestamp - System.currentTimeMillis());
 		// trim of white spaces so that the coder doesn't have to remember whether to add a space or
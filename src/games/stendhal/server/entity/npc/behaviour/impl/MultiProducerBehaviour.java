@@ -414,7 +414,7 @@ public class MultiProducerBehaviour extends TransactionBehaviour {
 				player.addXP(numberOfProductItems);
 				player.notifyWorldAboutChanges();
 				player.incProducedCountForItem(productName, products.getQuantity());
-				SingletonRepository.getAchievementNotifier().onProduction(player);
+				SingletonRepository.getAchievementNotifier().onProduction(player, productName);
 			} else {
 				npc.say("欢迎回来！你的事我已经完成了，但现在你的背包太满，还不能拿走 "
 						+ numberOfProductItems + productName
@@ -396,7 +396,7 @@ public class ProducerBehaviour extends TransactionBehaviour {
 				player.addXP(numberOfProductItems);
 				player.notifyWorldAboutChanges();
 				player.incProducedCountForItem(getProductName(), products.getQuantity());
-				SingletonRepository.getAchievementNotifier().onProduction(player);
+				SingletonRepository.getAchievementNotifier().onProduction(player, getProductName());
 			} else {
 				npc.say("欢迎回来！你的东西我已做好，但你的背包满了，无法带走，知你背包空了时再来取 "
 						+ getProductName()
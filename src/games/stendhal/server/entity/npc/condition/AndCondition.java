@@ -12,12 +12,15 @@
  ***************************************************************************/
 package games.stendhal.server.entity.npc.condition;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
@@ -27,7 +30,7 @@ import games.stendhal.server.entity.player.Player;
  * It evaluates to <code>true</code>, iff each condition evaluates to true.
  */
 @Dev(category=Category.LOGIC, label="And")
-public class AndCondition implements ChatCondition {
+public class AndCondition implements DependentCondition {
 
 	private final List<ChatCondition> conditions;
 
@@ -52,6 +55,22 @@ public class AndCondition implements ChatCondition {
 		return true;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		final List<String> res = new ArrayList<String>();
+		for (final ChatCondition condition : conditions) {
+			if (!(condition instanceof DependentCondition)) {
+				return null;
+			}
+			final Collection<String> dependencies = ((DependentCondition) condition).getDependencies();
+			if (dependencies == null) {
+				return null;
+			}
+			res.addAll(dependencies);
+		}
+		return res;
+	}
+
 	@Override
 	public String toString() {
 		return conditions.toString();
@@ -12,7 +12,9 @@
  ***************************************************************************/
 package games.stendhal.server.entity.npc.condition;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,8 +23,8 @@ import java.util.Map.Entry;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
@@ -33,7 +35,7 @@ import games.stendhal.server.entity.player.Player;
  * @author madmetzger
  */
 @Dev(category=Category.KILLS, label="Kills?")
-public class PlayerHasKilledNumberOfCreaturesCondition implements ChatCondition {
+public class PlayerHasKilledNumberOfCreaturesCondition implements DependentCondition {
 
 	private final Map<String, Integer> creatures;
 
@@ -86,6 +88,15 @@ public class PlayerHasKilledNumberOfCreaturesCondition implements ChatCondition
 		return true;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		final List<String> res = new ArrayList<String>();
+		for (final String name : creatures.keySet()) {
+			res.add(KILL + name);
+		}
+		return res;
+	}
+
 	@Override
 	public int hashCode() {
 		return 43913 * creatures.hashCode();
@@ -1,13 +1,15 @@
 package games.stendhal.server.entity.npc.condition;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
@@ -16,7 +18,7 @@ import games.stendhal.server.entity.player.Player;
  * @author madmetzger
  */
 @Dev(category=Category.ITEMS_LOOTED, label="Item?")
-public class PlayerLootedNumberOfItemsCondition implements ChatCondition {
+public class PlayerLootedNumberOfItemsCondition implements DependentCondition {
 
 	private final List<String> items;
 
@@ -48,6 +50,15 @@ public class PlayerLootedNumberOfItemsCondition implements ChatCondition {
 		return true;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		final List<String> res = new ArrayList<String>();
+		for (final String name : items) {
+			res.add(LOOT + name);
+		}
+		return res;
+	}
+
 	@Override
 	public int hashCode() {
 		return 43991 * items.hashCode() + number;
@@ -1,13 +1,14 @@
 package games.stendhal.server.entity.npc.condition;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
@@ -16,7 +17,7 @@ import games.stendhal.server.entity.player.Player;
  * @author madmetzger
  */
 @Dev(category=Category.ITEMS_PRODUCER, label="Item?")
-public class PlayerProducedNumberOfItemsCondition implements ChatCondition {
+public class PlayerProducedNumberOfItemsCondition implements DependentCondition {
 
 	private final List<String> itemProducedList;
 
@@ -48,6 +49,15 @@ public class PlayerProducedNumberOfItemsCondition implements ChatCondition {
 		return true;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		final List<String> res = new ArrayList<String>();
+		for (final String name : itemProducedList) {
+			res.add(PRODUCE + name);
+		}
+		return res;
+	}
+
 	@Override
 	public int hashCode() {
 		return 44027 * itemProducedList.hashCode() + quantity;
@@ -14,18 +14,21 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
  * Was this quest started but not completed?
  */
 @Dev(category=Category.QUEST_SLOT, label="Active?")
-public class QuestActiveCondition implements ChatCondition {
+public class QuestActiveCondition implements DependentCondition {
 
 	private final String questname;
 
@@ -44,6 +47,11 @@ public class QuestActiveCondition implements ChatCondition {
 		return (player.hasQuest(questname) && !player.isQuestInState(questname, 0, "rejected") && !player.isQuestCompleted(questname));
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(QUEST + questname);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestActive <" + questname + ">";
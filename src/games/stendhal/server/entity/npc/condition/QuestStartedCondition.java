@@ -14,18 +14,21 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
  * Was this quest at least started? See QuestActiveCondition to check that it was started but not completed.
  */
 @Dev(category=Category.QUEST_SLOT, label="Started?")
-public class QuestStartedCondition implements ChatCondition {
+public class QuestStartedCondition implements DependentCondition {
 
 	private final String questname;
 
@@ -44,6 +47,11 @@ public class QuestStartedCondition implements ChatCondition {
 		return (player.hasQuest(questname) && !"rejected".equals(player.getQuest(questname, 0)));
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(QUEST + questname);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestStarted <" + questname + ">";
@@ -14,12 +14,14 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import games.stendhal.common.MathHelper;
+import java.util.Collection;
+import java.util.Collections;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 /**
  * Condition to check if the value in a quest slot is greater than an expected value. If the value is not a number, it is treated as 0.
@@ -27,7 +29,7 @@ import games.stendhal.server.entity.player.Player;
  * @author madmetzger
  */
 @Dev(category=Category.QUEST_SLOT, label="State?")
-public class QuestStateGreaterThanCondition implements ChatCondition {
+public class QuestStateGreaterThanCondition implements DependentCondition {
 
 	/**
 	 * expected value to compare against
@@ -59,17 +61,21 @@ public class QuestStateGreaterThanCondition implements ChatCondition {
 	@Override
 	public boolean fire(Player player, Sentence sentence, Entity npc) {
 		if(player.hasQuest(questname)) {
-			String questState = player.getQuest(questname);
-			String[] content = questState.split(";");
-			if (content.length - 1 < index) {
+			// a missing sub state is not treated as 0
+			if ("".equals(player.getQuest(questname, index))) {
 				return false;
 			}
-			int actualNumber = MathHelper.parseIntDefault(content[index], 0);
+			int actualNumber = player.getQuestInt(questname, index, 0);
 			return actualNumber > expectedSmallerValue;
 		}
 		return false;
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(QUEST + questname);
+	}
+
 	@Override
 	public int hashCode() {
 		return 45943 * questname.hashCode() + 45949 * index + 45953 * expectedSmallerValue;
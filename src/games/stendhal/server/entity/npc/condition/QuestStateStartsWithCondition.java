@@ -14,18 +14,21 @@ package games.stendhal.server.entity.npc.condition;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.config.annotations.Dev;
 import games.stendhal.server.core.config.annotations.Dev.Category;
+import games.stendhal.server.core.rp.achievement.DependentCondition;
 import games.stendhal.server.entity.Entity;
-import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.player.Player;
 
 /**
  * Does the quest state start with the specified String?
  */
 @Dev(category=Category.CHAT, label="State?")
-public class QuestStateStartsWithCondition implements ChatCondition {
+public class QuestStateStartsWithCondition implements DependentCondition {
 
 	private final String questname;
 	private final String state;
@@ -48,6 +51,11 @@ public class QuestStateStartsWithCondition implements ChatCondition {
 		return (player.hasQuest(questname) && player.getQuest(questname).startsWith(state));
 	}
 
+	@Override
+	public Collection<String> getDependencies() {
+		return Collections.singleton(QUEST + questname);
+	}
+
 	@Override
 	public String toString() {
 		return "QuestStateStartsWith <" + questname + "," + state + ">";
@@ -72,22 +72,13 @@ public class TimePassedCondition implements ChatCondition {
 			// never done quest so enough 'time' has passed
 			return true;
 		} else {
-			final String[] tokens = player.getQuest(questname).split(";");
 			final long delayInMilliseconds = delay * MathHelper.MILLISECONDS_IN_ONE_MINUTE;
-			if (tokens.length - 1 < index) {
-				// old quest status, the split did not work, so we assume enough time is passed.
-				return true;
-			}
 			// timeRemaining is ''time when quest was done +
 			// delay - time now''
 			// if this is > 0, the time has not yet passed
-			long questtime;
-			try {
-				questtime = Long.parseLong(tokens[index]);
-			} catch (final NumberFormatException e) {
-				// set to 0 if it was no Long, as if this quest was done at the beginning of time.
-				questtime = 0;
-			}
+			// A missing sub state (old quest status) or no Long is treated
+			// as 0, as if this quest was done at the beginning of time.
+			final long questtime = player.getQuestLong(questname, index, 0);
 			final long timeRemaining = (questtime + delayInMilliseconds) - System.currentTimeMillis();
 		return (timeRemaining <= 0L);
 		}
@@ -59,28 +59,13 @@ public class TimeReachedCondition implements ChatCondition {
 
 	@Override
 	public boolean fire(final Player player, final Sentence sentence, final Entity entity) {
-		long timestamp;
-
 		// The player never did the quest, assume the time is right for taking it now
 		if (!player.hasQuest(questname)) {
 			return true;
 		}
 
-		if (index > -1) {
-			try {
-				timestamp = Long.parseLong(player.getQuest(questname, index));
-			} catch (final NumberFormatException e) {
-				// set to 0 if it was no Long, as if this quest was done at the beginning of time.
-				timestamp = 0;
-			}
-		} else {
-			try {
-				timestamp = Long.parseLong(player.getQuest(questname));
-			} catch (final NumberFormatException e) {
-				// set to 0 if it was no Long, as if this quest was done at the beginning of time.
-				timestamp = 0;
-			}
-		}
+		// set to 0 if it was no Long, as if this quest was done at the beginning of time.
+		final long timestamp = player.getQuestLong(questname, index, 0);
 
 		final long timeRemaining = (timestamp - System.currentTimeMillis());
 		return (timeRemaining <= 0L);
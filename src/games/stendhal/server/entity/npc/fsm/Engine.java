@@ -36,6 +36,9 @@ public class Engine {
 	// FSM state transition table
 	private final List<Transition> stateTransitionTable = new LinkedList<Transition>();
 
+	// transitions by state and trigger, so that a step only checks candidates
+	private final TransitionIndex transitionIndex = new TransitionIndex();
+
 	// current FSM state
 	private ConversationStates currentState = ConversationStates.IDLE;
 
@@ -62,7 +65,7 @@ public class Engine {
 	 * @return previous transition entry
 	 */
 	private Transition get(final ConversationStates state, final Expression trigger, final ChatCondition condition) {
-		for (final Transition transition : stateTransitionTable) {
+		for (final Transition transition : transitionIndex.getExactCandidates(state, trigger)) {
 			if (transition.matchesWithCondition(state, trigger, condition)) {
 				return transition;
 			}
@@ -276,7 +279,7 @@ public class Engine {
 	public void add(Collection<Expression> triggerExpressions, final ConversationStates state, final ChatCondition condition,
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action, final String label) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
-			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action, label));
+			addTransition(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action, label));
 		}
 	}
 
@@ -301,10 +304,21 @@ public class Engine {
 	public void add(Collection<Expression> triggerExpressions, final ConversationStates state, final ChatCondition condition,
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
-			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action));
+			addTransition(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action));
 		}
 	}
 
+	/**
+	 * Adds a transition to the table and to the index.
+	 *
+	 * @param transition
+	 *            new transition
+	 */
+	private void addTransition(final Transition transition) {
+		stateTransitionTable.add(transition);
+		transitionIndex.add(transition);
+	}
+
 	/**
 	 * remove matches transition
 	 *
@@ -326,6 +340,13 @@ public class Engine {
 				res = true;
 			}
 		}
+
+		if (res) {
+			transitionIndex.clear();
+			for (final Transition transition : stateTransitionTable) {
+				transitionIndex.add(transition);
+			}
+		}
 		return res;
 	}
 
@@ -515,16 +536,24 @@ public class Engine {
 	private boolean matchTransition(final MatchType type, final Player player,
 			final Sentence sentence) {
 		// We are using sets instead of plain lists to merge identical transitions.
-		final TransitionSet preferredTransitions = new TransitionSet();
-		final TransitionSet secondaryTransitions = new TransitionSet();
+		// They are only created when needed, because most match types do not match.
+		TransitionSet preferredTransitions = null;
+		TransitionSet secondaryTransitions = null;
 
-		// match with all the registered transitions
-		for (final Transition transition : stateTransitionTable) {
+		// match with the registered transitions of the current state and trigger
+		final List<Transition> candidates = transitionIndex.getCandidates(type, currentState, sentence.getTriggerExpression());
+		for (final Transition transition : candidates) {
 			if (matchesTransition(type, sentence, transition)) {
 				if (transition.isConditionFulfilled(player, sentence, speakerNPC)) {
 					if (transition.isPreferred()) {
+						if (preferredTransitions == null) {
+							preferredTransitions = new TransitionSet();
+						}
 						preferredTransitions.add(transition);
 					} else {
+						if (secondaryTransitions == null) {
+							secondaryTransitions = new TransitionSet();
+						}
 						secondaryTransitions.add(transition);
 					}
 				}
@@ -534,7 +563,7 @@ public class Engine {
 		Iterator<Transition> it = null;
 
 		// First we try to use one of the a preferred transitions (mainly with existing condition).
-		if (preferredTransitions.size() > 0) {
+		if (preferredTransitions != null) {
 			it = preferredTransitions.iterator();
 
 			if (preferredTransitions.size() > 1) {
@@ -547,7 +576,7 @@ public class Engine {
 		}
 
 		// Then look for the remaining transitions.
-		if ((it == null) && (secondaryTransitions.size() > 0)) {
+		if ((it == null) && (secondaryTransitions != null)) {
 			it = secondaryTransitions.iterator();
 
 			if (secondaryTransitions.size() > 1) {
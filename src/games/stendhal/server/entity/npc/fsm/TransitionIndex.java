@@ -0,0 +1,232 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.npc.fsm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.stendhal.common.parser.Expression;
+import games.stendhal.server.entity.npc.ConversationStates;
+
+/**
+ * Index of the transitions of an FSM by source state and trigger. It only
+ * narrows down the transitions which have to be checked, the actual matching
+ * is still done by the MatchType. All returned lists are in the order in
+ * which the transitions have been added.
+ */
+class TransitionIndex {
+
+	/**
+	 * transitions of one source state
+	 */
+	private static class StateBucket {
+		/** all transitions of the state */
+		final List<Transition> all = new ArrayList<Transition>();
+
+		/** transitions by the original text of their plain triggers */
+		final Map<String, List<Transition>> byOriginal = new HashMap<String, List<Transition>>();
+
+		/** transitions by the normalized text of their plain triggers */
+		final Map<String, List<Transition>> byNormalized = new HashMap<String, List<Transition>>();
+
+		/** transitions with a trigger using an ExpressionMatcher */
+		final List<Transition> matching = new ArrayList<Transition>();
+	}
+
+	private final Map<ConversationStates, StateBucket> states = new EnumMap<ConversationStates, StateBucket>(ConversationStates.class);
+
+	/** position of each transition, used to merge candidate lists in order */
+	private final Map<Transition, Integer> order = new IdentityHashMap<Transition, Integer>();
+
+	private int counter;
+
+	/**
+	 * adds a transition to the index
+	 *
+	 * @param transition transition
+	 */
+	void add(final Transition transition) {
+		order.put(transition, Integer.valueOf(counter++));
+
+		StateBucket bucket = states.get(transition.getState());
+		if (bucket == null) {
+			bucket = new StateBucket();
+			states.put(transition.getState(), bucket);
+		}
+
+		bucket.all.add(transition);
+		for (final Expression trigger : transition.getTriggers()) {
+			if (trigger.getMatcher() != null) {
+				addOnce(bucket.matching, transition);
+			} else {
+				addOnce(bucket.byOriginal, trigger.getOriginal(), transition);
+				addOnce(bucket.byNormalized, trigger.getNormalized(), transition);
+			}
+		}
+	}
+
+	/**
+	 * removes all transitions
+	 */
+	void clear() {
+		states.clear();
+		order.clear();
+		counter = 0;
+	}
+
+	/**
+	 * gets the transitions which may exactly match the trigger in the given state
+	 *
+	 * @param state source state
+	 * @param trigger trigger expression
+	 * @return candidate transitions
+	 */
+	List<Transition> getExactCandidates(final ConversationStates state, final Expression trigger) {
+		final StateBucket bucket = states.get(state);
+		if (bucket == null) {
+			return Collections.emptyList();
+		}
+		return merge(bucket.byOriginal.get(trigger.getOriginal()), bucket.matching);
+	}
+
+	/**
+	 * gets the transitions which have to be checked for a match type
+	 *
+	 * @param type match type
+	 * @param currentState current state of the FSM
+	 * @param trigger trigger expression of the sentence
+	 * @return candidate transitions
+	 */
+	List<Transition> getCandidates(final MatchType type, final ConversationStates currentState, final Expression trigger) {
+		switch (type) {
+		case EXACT_MATCH:
+			return getExactCandidates(currentState, trigger);
+		case NORMALIZED_MATCH:
+			return getNormalizedCandidates(currentState, trigger);
+		case SIMILAR_MATCH:
+			return getAll(currentState);
+		case ABSOLUTE_JUMP:
+			return getExactCandidates(ConversationStates.ANY, trigger);
+		case NORMALIZED_JUMP:
+			return getNormalizedCandidates(ConversationStates.ANY, trigger);
+		case SIMILAR_JUMP:
+			return getAll(ConversationStates.ANY);
+		default:
+			throw new IllegalArgumentException("unknown match type " + type);
+		}
+	}
+
+	/**
+	 * gets the transitions which may match the normalized trigger in the given state
+	 *
+	 * @param state source state
+	 * @param trigger trigger expression
+	 * @return candidate transitions
+	 */
+	private List<Transition> getNormalizedCandidates(final ConversationStates state, final Expression trigger) {
+		final StateBucket bucket = states.get(state);
+		if (bucket == null) {
+			return Collections.emptyList();
+		}
+		return merge(bucket.byNormalized.get(trigger.getNormalized()), bucket.matching);
+	}
+
+	/**
+	 * gets all transitions of a state. Similarity can not be looked up by key.
+	 *
+	 * @param state source state
+	 * @return transitions
+	 */
+	private List<Transition> getAll(final ConversationStates state) {
+		final StateBucket bucket = states.get(state);
+		if (bucket == null) {
+			return Collections.emptyList();
+		}
+		return bucket.all;
+	}
+
+	/**
+	 * merges two ordered lists of transitions
+	 *
+	 * @param first first list, may be null
+	 * @param second second list
+	 * @return ordered list of the transitions of both lists
+	 */
+	private List<Transition> merge(final List<Transition> first, final List<Transition> second) {
+		if (first == null || first.isEmpty()) {
+			return second;
+		}
+		if (second.isEmpty()) {
+			return first;
+		}
+
+		final List<Transition> res = new ArrayList<Transition>(first.size() + second.size());
+		int i = 0;
+		int j = 0;
+		while (i < first.size() && j < second.size()) {
+			final Transition a = first.get(i);
+			final Transition b = second.get(j);
+			final int orderA = order.get(a).intValue();
+			final int orderB = order.get(b).intValue();
+			if (orderA < orderB) {
+				res.add(a);
+				i++;
+			} else if (orderB < orderA) {
+				res.add(b);
+				j++;
+			} else {
+				// a transition with both plain and matcher triggers
+				res.add(a);
+				i++;
+				j++;
+			}
+		}
+		res.addAll(first.subList(i, first.size()));
+		res.addAll(second.subList(j, second.size()));
+		return res;
+	}
+
+	/**
+	 * adds a transition to a list of the index, unless it is the last one
+	 * already. The triggers of one transition are added one after another,
+	 * so this prevents duplicates.
+	 *
+	 * @param list list
+	 * @param transition transition
+	 */
+	private static void addOnce(final List<Transition> list, final Transition transition) {
+		if (list.isEmpty() || list.get(list.size() - 1) != transition) {
+			list.add(transition);
+		}
+	}
+
+	/**
+	 * adds a transition to the list of a key
+	 *
+	 * @param map map of lists
+	 * @param key key
+	 * @param transition transition
+	 */
+	private static void addOnce(final Map<String, List<Transition>> map, final String key, final Transition transition) {
+		List<Transition> list = map.get(key);
+		if (list == null) {
+			list = new ArrayList<Transition>(1);
+			map.put(key, list);
+		}
+		addOnce(list, transition);
+	}
+}
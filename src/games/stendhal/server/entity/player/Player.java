@@ -23,6 +23,7 @@ import static games.stendhal.common.constants.Actions.TELECLICKMODE;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -48,6 +49,7 @@ import games.stendhal.common.parser.WordList;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.db.StoredCharacter;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.core.events.TutorialNotifier;
@@ -69,6 +71,7 @@ import games.stendhal.server.entity.slot.Slots;
 import games.stendhal.server.entity.status.StatusType;
 import games.stendhal.server.events.PrivateTextEvent;
 import games.stendhal.server.events.SoundEvent;
+import games.stendhal.server.util.ItemCollection;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 import marauroa.common.game.SyntaxException;
@@ -133,6 +136,12 @@ public class Player extends RPEntity implements UseListener {
 	 */
 	private Set<String> reachedAchievements;
 
+	/**
+	 * reached achievements by their position in the list of all
+	 * achievements, used to skip them without a lookup by identifier
+	 */
+	private final BitSet reachedAchievementIndexes = new BitSet();
+
 	/**
 	 * preferred language
 	 */
@@ -157,6 +166,12 @@ public class Player extends RPEntity implements UseListener {
 	 */
 	private long lastClientActionTimestamp = System.currentTimeMillis();
 
+	/**
+	 * what was last written to the database, shared with the copies of
+	 * this player that are stored
+	 */
+	private final StoredCharacter storedCharacter = new StoredCharacter();
+
 	public static void generateRPClass() {
 		try {
 			PlayerRPClass.generateRPClass();
@@ -1353,6 +1368,55 @@ public class Player extends RPEntity implements UseListener {
 		return quests.getQuest(name, index);
 	}
 
+	/**
+	 * Gets the numeric value of a sub state of a quest without parsing the
+	 * quest state again on every call.
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @param index
+	 *            the index of the sub state (separated by ";"), or -1 for the
+	 *            whole state
+	 * @param defaultValue
+	 *            value to return, if the player does not have the quest or
+	 *            the sub state is no int
+	 * @return value of the sub state
+	 */
+	public int getQuestInt(final String name, final int index, final int defaultValue) {
+		return quests.getQuestInt(name, index, defaultValue);
+	}
+
+	/**
+	 * Gets the numeric value of a sub state of a quest, for example a
+	 * timestamp, without parsing the quest state again on every call.
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @param index
+	 *            the index of the sub state (separated by ";"), or -1 for the
+	 *            whole state
+	 * @param defaultValue
+	 *            value to return, if the player does not have the quest or
+	 *            the sub state is no number
+	 * @return value of the sub state
+	 */
+	public long getQuestLong(final String name, final int index, final long defaultValue) {
+		return quests.getQuestLong(name, index, defaultValue);
+	}
+
+	/**
+	 * Gets the items listed in the quest state in the form
+	 * "item1=n1;item2=n2;...".
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @return a new ItemCollection, which is empty if the player does not
+	 *         have the quest
+	 */
+	public ItemCollection getQuestItems(final String name) {
+		return quests.getQuestItems(name);
+	}
+
 	/**
 	 * Allows to store the player's current status in a quest in a string. This
 	 * string may, for instance, be "started", "done", a semicolon- separated
@@ -2265,6 +2329,9 @@ public class Player extends RPEntity implements UseListener {
 				|| !getMap("buddies").containsKey(name);
 
 		put("buddies", name, online);
+		if (isNew) {
+			SingletonRepository.getRuleProcessor().getOnlinePlayers().onBuddyAdded(this, name);
+		}
 
 		return isNew;
 	}
@@ -2277,7 +2344,11 @@ public class Player extends RPEntity implements UseListener {
 	 * @return true if a buddy was removed
 	 */
 	public boolean removeBuddy(String name) {
-		return remove("buddies", name) != null;
+		if (remove("buddies", name) == null) {
+			return false;
+		}
+		SingletonRepository.getRuleProcessor().getOnlinePlayers().onBuddyRemoved(this, name);
+		return true;
 	}
 
 	@Override
@@ -2308,6 +2379,17 @@ public class Player extends RPEntity implements UseListener {
 
 	public void initReachedAchievements() {
 		reachedAchievements = new HashSet<String>();
+		reachedAchievementIndexes.clear();
+	}
+
+	/**
+	 * gets the reached achievements by their position in the list of all
+	 * achievements. It is maintained by the AchievementNotifier.
+	 *
+	 * @return bitset of achievement indexes
+	 */
+	public BitSet getReachedAchievementIndexes() {
+		return reachedAchievementIndexes;
 	}
 
 	/**
@@ -2631,6 +2713,15 @@ public class Player extends RPEntity implements UseListener {
 		this.lastClientActionTimestamp = lastClientActionTimestamp;
 	}
 
+	/**
+	 * gets what was last written to the database for this player
+	 *
+	 * @return StoredCharacter
+	 */
+	public StoredCharacter getStoredCharacter() {
+		return storedCharacter;
+	}
+
 	/**
 	 * gets the language
 	 *
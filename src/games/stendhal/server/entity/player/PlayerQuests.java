@@ -22,6 +22,7 @@ import org.apache.log4j.Logger;
 import games.stendhal.common.MathHelper;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.util.ItemCollection;
 import games.stendhal.server.util.StringUtils;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
@@ -34,6 +35,9 @@ import marauroa.common.game.RPSlot;
 class PlayerQuests {
 	private final Player player;
 
+	/** parsed quest states by slot name */
+	private final Map<String, QuestState> states = new HashMap<String, QuestState>();
+
 	private static Logger logger = Logger.getLogger(PlayerQuests.class);
 
 
@@ -96,13 +100,15 @@ class PlayerQuests {
 	 *            reset the player's status for the quest.
 	 */
 	public void setQuest(final String name, final String status) {
-		final String oldStatus = player.getKeyedSlot("!quests", evaluateSlotName(name));
-		player.setKeyedSlot("!quests", evaluateSlotName(name), status);
+		final String slotName = evaluateSlotName(name);
+		final String oldStatus = player.getKeyedSlot("!quests", slotName);
+		player.setKeyedSlot("!quests", slotName, status);
+		states.remove(slotName);
 		if ((status == null) || !status.equals(oldStatus)) {
-			new GameEvent(player.getName(), "quest", evaluateSlotName(name), status).raise();
+			new GameEvent(player.getName(), "quest", slotName, status).raise();
 		}
 		// check for reached achievements
-		SingletonRepository.getAchievementNotifier().onFinishQuest(player);
+		SingletonRepository.getAchievementNotifier().onFinishQuest(player, name);
 	}
 
 
@@ -116,20 +122,97 @@ class PlayerQuests {
 	 * @return the player's status in the quest
 	 */
 	public String getQuest(final String name, final int index) {
-		String state = getQuest(name);
+		final QuestState state = getQuestState(name);
 		if (state == null) {
 			return null;
 		}
+		return state.get(index);
+	}
 
-		if(index == -1) {
-			return state;
+	/**
+	 * Gets the numeric value of a sub state of a quest.
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @param index
+	 *            the index of the sub state to get (separated by ";"), or -1
+	 *            for the whole state
+	 * @param defaultValue
+	 *            value to return, if the player does not have the quest or
+	 *            the sub state is no int
+	 * @return value of the sub state
+	 */
+	public int getQuestInt(final String name, final int index, final int defaultValue) {
+		final QuestState state = getQuestState(name);
+		if (state == null) {
+			return defaultValue;
 		}
+		return state.getInt(index, defaultValue);
+	}
 
-		String[] elements = state.split(";");
-		if (index < elements.length) {
-			return elements[index];
+	/**
+	 * Gets the numeric value of a sub state of a quest, for example a
+	 * timestamp.
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @param index
+	 *            the index of the sub state to get (separated by ";"), or -1
+	 *            for the whole state
+	 * @param defaultValue
+	 *            value to return, if the player does not have the quest or
+	 *            the sub state is no number
+	 * @return value of the sub state
+	 */
+	public long getQuestLong(final String name, final int index, final long defaultValue) {
+		final QuestState state = getQuestState(name);
+		if (state == null) {
+			return defaultValue;
+		}
+		return state.getLong(index, defaultValue);
+	}
+
+	/**
+	 * Gets the items listed in the quest state in the form
+	 * "item1=n1;item2=n2;...".
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @return a new ItemCollection, which is empty if the player does not
+	 *         have the quest
+	 */
+	public ItemCollection getQuestItems(final String name) {
+		final QuestState state = getQuestState(name);
+		if (state == null) {
+			return new ItemCollection();
+		}
+		return state.getItems();
+	}
+
+	/**
+	 * Gets the parsed state of a quest. The parsed state is kept until the
+	 * quest state string changes.
+	 *
+	 * @param name
+	 *            The quest's name
+	 * @return parsed state or <code>null</code>, if the player does not have
+	 *         the quest
+	 */
+	private QuestState getQuestState(final String name) {
+		final String slotName = evaluateSlotName(name);
+		final String status = player.getKeyedSlot("!quests", slotName);
+		if (status == null) {
+			states.remove(slotName);
+			return null;
 		}
-		return "";
+
+		// the slot may be changed without setQuest(), e. g. on login
+		QuestState state = states.get(slotName);
+		if ((state == null) || !status.equals(state.getState())) {
+			state = new QuestState(status);
+			states.put(slotName, state);
+		}
+		return state;
 	}
 
 	/**
@@ -186,7 +269,9 @@ class PlayerQuests {
 	}
 
 	public void removeQuest(final String name) {
-		player.setKeyedSlot("!quests", evaluateSlotName(name), null);
+		final String slotName = evaluateSlotName(name);
+		player.setKeyedSlot("!quests", slotName, null);
+		states.remove(slotName);
 	}
 
 	/**
@@ -295,8 +380,7 @@ class PlayerQuests {
 			logger.error(player.getName() + " does not have quest " + name);
 			return 0;
 		}
-		String questState = player.getQuest(name, index);
-		return MathHelper.parseIntDefault(questState, 0);
+		return getQuestInt(name, index, 0);
 	}
 
 	/**
@@ -306,6 +390,9 @@ class PlayerQuests {
 	 * @return evaluated slot
 	 */
 	String evaluateSlotName(String name) {
+		if (name.indexOf('[') < 0) {
+			return name;
+		}
 		Map<String, String> params = new HashMap<String, String>();
 		Calendar calendar = Calendar.getInstance();
 		int year = calendar.get(Calendar.YEAR);
@@ -0,0 +1,186 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import games.stendhal.server.util.ItemCollection;
+
+/**
+ * The parsed form of a quest state string. The sub states, their numeric
+ * values and the item list are parsed on first use and kept until the quest
+ * state changes.
+ */
+final class QuestState {
+	private final String state;
+
+	/** sub states separated by ";" */
+	private String[] fields;
+
+	/** numeric values of the sub states, null for other sub states */
+	private Long[] numbers;
+
+	/** numeric value of the whole state */
+	private Long stateNumber;
+	private boolean stateParsed;
+
+	/** items in the form "item1=n1;item2=n2;..." */
+	private ItemCollection items;
+
+	/**
+	 * creates a new QuestState
+	 *
+	 * @param state quest state string
+	 */
+	QuestState(final String state) {
+		this.state = state;
+	}
+
+	/**
+	 * gets the quest state string
+	 *
+	 * @return quest state
+	 */
+	String getState() {
+		return state;
+	}
+
+	/**
+	 * gets a sub state
+	 *
+	 * @param index index of the sub state, or -1 for the whole state
+	 * @return sub state, or "" if there is no such sub state
+	 */
+	String get(final int index) {
+		if (index == -1) {
+			return state;
+		}
+
+		final String[] elements = getFields();
+		if (index < elements.length) {
+			return elements[index];
+		}
+		return "";
+	}
+
+	/**
+	 * gets the numeric value of a sub state
+	 *
+	 * @param index index of the sub state, or -1 for the whole state
+	 * @param defaultValue value to return, if the sub state is no number
+	 * @return value
+	 */
+	long getLong(final int index, final long defaultValue) {
+		final Long res = getNumber(index);
+		if (res == null) {
+			return defaultValue;
+		}
+		return res.longValue();
+	}
+
+	/**
+	 * gets the numeric value of a sub state as int
+	 *
+	 * @param index index of the sub state, or -1 for the whole state
+	 * @param defaultValue value to return, if the sub state is no int
+	 * @return value
+	 */
+	int getInt(final int index, final int defaultValue) {
+		final Long res = getNumber(index);
+		if ((res == null) || (res.longValue() < Integer.MIN_VALUE) || (res.longValue() > Integer.MAX_VALUE)) {
+			return defaultValue;
+		}
+		return res.intValue();
+	}
+
+	/**
+	 * gets a copy of the items listed in the quest state
+	 *
+	 * @return ItemCollection
+	 */
+	ItemCollection getItems() {
+		if (items == null) {
+			final ItemCollection parsed = new ItemCollection();
+			parsed.addFromQuestStateString(state);
+			items = parsed;
+		}
+
+		final ItemCollection res = new ItemCollection();
+		res.putAll(items);
+		return res;
+	}
+
+	private String[] getFields() {
+		if (fields == null) {
+			fields = state.split(";");
+		}
+		return fields;
+	}
+
+	/**
+	 * gets the numeric value of a sub state
+	 *
+	 * @param index index of the sub state, or -1 for the whole state
+	 * @return value, or null if the sub state is no number
+	 */
+	private Long getNumber(final int index) {
+		if (index == -1) {
+			if (!stateParsed) {
+				stateNumber = parseNumber(state);
+				stateParsed = true;
+			}
+			return stateNumber;
+		}
+
+		if (numbers == null) {
+			final String[] elements = getFields();
+			final Long[] values = new Long[elements.length];
+			for (int i = 0; i < elements.length; i++) {
+				values[i] = parseNumber(elements[i]);
+			}
+			numbers = values;
+		}
+		if (index < numbers.length) {
+			return numbers[index];
+		}
+		return null;
+	}
+
+	/**
+	 * parses a number without throwing exceptions for the usual non numeric
+	 * states like "done" or "start"
+	 *
+	 * @param str string
+	 * @return value or null
+	 */
+	private static Long parseNumber(final String str) {
+		final int len = str.length();
+		int i = 0;
+		if ((len > 0) && ((str.charAt(0) == '-') || (str.charAt(0) == '+'))) {
+			i++;
+		}
+		if (i == len) {
+			return null;
+		}
+		for (; i < len; i++) {
+			final char c = str.charAt(i);
+			if ((c < '0') || (c > '9')) {
+				return null;
+			}
+		}
+
+		try {
+			return Long.valueOf(str);
+		} catch (final NumberFormatException e) {
+			// too many digits
+			return null;
+		}
+	}
+}
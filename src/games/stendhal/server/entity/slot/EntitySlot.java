@@ -12,7 +12,12 @@
  ***************************************************************************/
 package games.stendhal.server.entity.slot;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.InventoryIndex;
+import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 
 /**
@@ -43,6 +48,37 @@ public class EntitySlot extends RPSlot implements Slot {
 		this.contentSlotName = contentSlotName;
 	}
 
+	@Override
+	protected int add(final RPObject object, final boolean assignId) {
+		final boolean alreadyContained = (object.getContainerSlot() == this);
+		final int res = super.add(object, assignId);
+		if (!alreadyContained) {
+			InventoryIndex.onAdd(getOwner(), this, object);
+		}
+		return res;
+	}
+
+	@Override
+	public RPObject remove(final RPObject.ID id) {
+		final RPObject object = super.remove(id);
+		if (object != null) {
+			InventoryIndex.onRemove(getOwner(), this, object);
+		}
+		return object;
+	}
+
+	@Override
+	public void clear() {
+		final List<RPObject> objects = new ArrayList<RPObject>(size());
+		for (final RPObject object : this) {
+			objects.add(object);
+		}
+		super.clear();
+		for (final RPObject object : objects) {
+			InventoryIndex.onRemove(getOwner(), this, object);
+		}
+	}
+
 	@Override
 	public boolean isReachableForTakingThingsOutOfBy(final Entity entity) {
 		setErrorMessage("The " + getName() + " of " + ((Entity) getOwner()).getDescriptionName(true) + " is too far away.");
@@ -193,7 +193,7 @@ public class SpiritTrapperNPC implements ZoneConfigurator {
 				    				player.setQuest(getQuestSlot(), "done");
 				    				player.notifyWorldAboutChanges();
 				    				player.incProducedCountForItem(productName, products.getQuantity());
-				    				SingletonRepository.getAchievementNotifier().onProduction(player);
+				    				SingletonRepository.getAchievementNotifier().onProduction(player, productName);
 				    			} else {
 				    				npc.say("Welcome back! I'm done with your order. But right now you cannot take the "
 				    						+  productName
@@ -12,28 +12,32 @@
  ***************************************************************************/
 package games.stendhal.server.script;
 
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.List;
 
-import org.apache.log4j.Logger;
-
+import games.stendhal.common.NotificationType;
 import games.stendhal.server.core.engine.StendhalRPRuleProcessor;
 import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.dbcommand.AbstractAdminJobCommand;
+import games.stendhal.server.core.engine.dbcommand.AdminJobRunner;
 import games.stendhal.server.core.scripting.ScriptImpl;
 import games.stendhal.server.entity.player.Player;
 import marauroa.common.game.IRPZone;
 import marauroa.common.game.RPObject;
 import marauroa.server.db.DBTransaction;
-import marauroa.server.db.TransactionPool;
 import marauroa.server.game.db.CharacterDAO;
 import marauroa.server.game.db.DAORegister;
 
 /**
- * An abstract super class for actions on offline players
+ * An abstract super class for actions on offline players. The character is
+ * loaded and stored on the database thread, {@link #process} is called on
+ * the turn thread in between. If the player logs in before the character is
+ * stored, nothing is saved.
  *
  * @author hendrik
  */
 public abstract class AbstractOfflineAction extends ScriptImpl {
-	private static Logger logger = Logger.getLogger(AbstractOfflineAction.class);
 
 	@Override
 	public void execute(final Player admin, final List<String> args) {
@@ -51,25 +55,95 @@ public abstract class AbstractOfflineAction extends ScriptImpl {
 			return;
 		}
 
-		// start a transaction
-		CharacterDAO characterDAO = DAORegister.get().get(CharacterDAO.class);
-		DBTransaction transaction = TransactionPool.get().beginWork();
-		try {
+		admin.sendPrivateText("Loading " + characterName + " from the database...");
+		AdminJobRunner.start(new LoadCommand(admin.getName(), characterName, args));
+	}
+
+	/**
+	 * loads the character and processes it
+	 */
+	private class LoadCommand extends AbstractAdminJobCommand {
+		private final String characterName;
+		private final List<String> args;
+		private String username;
+		private RPObject object;
+
+		LoadCommand(final String adminName, final String characterName, final List<String> args) {
+			super(adminName);
+			this.characterName = characterName;
+			this.args = args;
+		}
+
+		@Override
+		public void execute(final DBTransaction transaction) throws SQLException, IOException {
+			CharacterDAO characterDAO = DAORegister.get().get(CharacterDAO.class);
 
 			// check that the player exists
-			if (!characterDAO.hasCharacter(characterName)) {
+			if (!characterDAO.hasCharacter(transaction, characterName)) {
+				return;
+			}
+			username = characterDAO.getAccountName(transaction, characterName);
+			object = characterDAO.loadCharacter(transaction, username, characterName);
+		}
+
+		@Override
+		public void onFinished(final Player admin) {
+			if (admin == null) {
+				return;
+			}
+			if (object == null) {
 				admin.sendPrivateText("No player with that name.");
-				TransactionPool.get().commit(transaction);
 				return;
 			}
-			String username = DAORegister.get().get(CharacterDAO.class).getAccountName(transaction, characterName);
-			RPObject object = characterDAO.loadCharacter(transaction, username, characterName);
+
+			// the player may have logged in while the character was loaded
+			if (StendhalRPRuleProcessor.get().getPlayer(characterName) != null) {
+				admin.sendPrivateText("This player is currently online. Please use the normal commands.");
+				return;
+			}
 
 			process(admin, object, args);
 
 			// safe it back
-			characterDAO.storeCharacter(transaction, username, characterName, object);
-			TransactionPool.get().commit(transaction);
+			AdminJobRunner.start(new StoreCommand(admin.getName(), username, characterName, object));
+		}
+	}
+
+	/**
+	 * stores the processed character
+	 */
+	private static class StoreCommand extends AbstractAdminJobCommand {
+		private final String username;
+		private final String characterName;
+		private final RPObject object;
+		private boolean online;
+
+		StoreCommand(final String adminName, final String username, final String characterName, final RPObject object) {
+			super(adminName);
+			this.username = username;
+			this.characterName = characterName;
+			this.object = object;
+		}
+
+		@Override
+		public void execute(final DBTransaction transaction) throws SQLException, IOException {
+			// the player may have logged in since the character was loaded.
+			// The list of online players can be read from the database thread.
+			if (StendhalRPRuleProcessor.get().getPlayer(characterName) != null) {
+				online = true;
+				return;
+			}
+			DAORegister.get().get(CharacterDAO.class).storeCharacter(transaction, username, characterName, object);
+		}
+
+		@Override
+		public void onFinished(final Player admin) {
+			if (online) {
+				if (admin != null) {
+					admin.sendPrivateText(NotificationType.ERROR, characterName + " logged in before the changes were saved. Nothing was saved.");
+				}
+				return;
+			}
 
 			// remove from world
 			IRPZone zone = StendhalRPWorld.get().getRPZone(object.getID());
@@ -77,10 +151,9 @@ public abstract class AbstractOfflineAction extends ScriptImpl {
 				zone.remove(object.getID());
 			}
 
-		} catch (Exception e) {
-			logger.error(e, e);
-			admin.sendPrivateText(e.toString());
-			TransactionPool.get().rollback(transaction);
+			if (admin != null) {
+				admin.sendPrivateText("Saved " + characterName + ".");
+			}
 		}
 	}
 
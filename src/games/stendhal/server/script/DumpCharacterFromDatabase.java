@@ -18,9 +18,12 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import games.stendhal.server.core.engine.dbcommand.AbstractAdminJobCommand;
+import games.stendhal.server.core.engine.dbcommand.AdminJobRunner;
 import games.stendhal.server.core.scripting.ScriptImpl;
 import games.stendhal.server.entity.player.Player;
 import marauroa.common.game.RPObject;
+import marauroa.server.db.DBTransaction;
 import marauroa.server.game.db.DAORegister;
 import marauroa.server.game.db.RPObjectDAO;
 
@@ -40,14 +43,45 @@ public class DumpCharacterFromDatabase extends ScriptImpl {
 			return;
 		}
 
+		final int objectId;
 		try {
-			RPObject object = DAORegister.get().get(RPObjectDAO.class).loadRPObject(Integer.parseInt(args.get(0)), false);
-			logger.info("loaded character: " + object);
-		} catch (SQLException e) {
-			logger.error(e, e);
-		} catch (IOException e) {
-			logger.error(e, e);
+			objectId = Integer.parseInt(args.get(0));
+		} catch (NumberFormatException e) {
+			admin.sendPrivateText("Invalid rpobjectid: " + args.get(0));
+			return;
 		}
+		AdminJobRunner.start(new DumpCommand(admin.getName(), objectId));
 	}
 
+	/**
+	 * loads the rpobject and writes it to the log file on the database thread
+	 */
+	private static class DumpCommand extends AbstractAdminJobCommand {
+		private final int objectId;
+		private boolean found;
+
+		DumpCommand(String adminName, int objectId) {
+			super(adminName);
+			this.objectId = objectId;
+		}
+
+		@Override
+		public void execute(DBTransaction transaction) throws SQLException, IOException {
+			RPObject object = DAORegister.get().get(RPObjectDAO.class).loadRPObject(transaction, objectId, false);
+			found = object != null;
+			logger.info("loaded character: " + object);
+		}
+
+		@Override
+		public void onFinished(Player admin) {
+			if (admin == null) {
+				return;
+			}
+			if (found) {
+				admin.sendPrivateText("Dumped rpobject " + objectId + " to the log file.");
+			} else {
+				admin.sendPrivateText("No rpobject with id " + objectId + ".");
+			}
+		}
+	}
 }
@@ -45,6 +45,10 @@ public class DumpTurnListenerEvents extends ScriptImpl {
 		// send result
 		admin.sendPrivateText("Statistics: " + "\n" + counter.getMap()
 				+ "\nCounted turn events:" + events.size()
-				+ "\nOutdated turn events: " + outdated);
+				+ "\nOutdated turn events: " + outdated
+				+ "\nPending notifications: " + turnNotifier.getPendingCount()
+				+ "\nLast turn: scheduled " + turnNotifier.getScheduledCount()
+				+ ", fired " + turnNotifier.getFiredCount()
+				+ ", cancelled " + turnNotifier.getCancelledCount());
 	}
 }
@@ -11,6 +11,7 @@
  ***************************************************************************/
 package games.stendhal.server.script;
 
+import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -18,14 +19,16 @@ import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import games.stendhal.server.core.engine.dbcommand.AbstractAdminJobCommand;
+import games.stendhal.server.core.engine.dbcommand.AdminJobRunner;
 import games.stendhal.server.core.scripting.ScriptImpl;
 import games.stendhal.server.entity.player.Player;
 import marauroa.server.db.DBTransaction;
-import marauroa.server.db.TransactionPool;
 
 
 /**
- * Executes an sql statement. WARNING: This is a quick hack: The sql statement and the post processing is hard coding and it blocks the server creating lag.
+ * Executes an sql statement. WARNING: This is a quick hack: The sql statement and the post processing is hard coding.
+ * It is executed on the database thread, so it does not block the server.
  *
  * @author hendrik
  */
@@ -34,39 +37,68 @@ public class ExecuteSQL extends ScriptImpl {
 
 	@Override
 	public void execute(Player admin, List<String> args) {
-		DBTransaction transaction = TransactionPool.get().beginWork();
-		try {
-			try {
-				if (!transaction.doesColumnExist(args.get(0), args.get(1))) {
-					admin.sendPrivateText("Column " + args.get(1) + " does not exist");
-				}
+		if (args.size() != 2) {
+			admin.sendPrivateText("Usage: /script ExecuteSQL <table> <column>");
+			return;
+		}
+		admin.sendPrivateText("Calculating medians of " + args.get(1) + "...");
+		AdminJobRunner.start(new MedianCommand(admin.getName(), args.get(0), args.get(1)));
+	}
 
-				String sql = "SELECT level, " + args.get(1) + " FROM character_stats, characters, account WHERE admin<600 AND charname=name AND player_id=account.id AND account.status='active' ORDER BY 1, 2";
+	/**
+	 * calculates the medians on the database thread
+	 */
+	private class MedianCommand extends AbstractAdminJobCommand {
+		private final String table;
+		private final String column;
+		private boolean columnExists;
 
-				Object lastGroup = null;
-				ArrayList<Integer> data = new ArrayList<Integer>();
-				ResultSet results = transaction.query(sql, null);
-				while (results.next()) {
-					Object group = results.getObject(1);
-					if (!group.equals(lastGroup)) {
-						printMedian(lastGroup, data);
-						lastGroup = group;
-						data.clear();
-					}
-					data.add(Integer.valueOf(results.getInt(2)));
-				}
-				printMedian(lastGroup, data);
-			} catch (Exception e) {
-				logger.error(e, e);
+		MedianCommand(String adminName, String table, String column) {
+			super(adminName);
+			this.table = table;
+			this.column = column;
+		}
+
+		@Override
+		public void execute(DBTransaction transaction) throws SQLException, IOException {
+			if (!transaction.doesColumnExist(table, column)) {
+				return;
 			}
-		} finally {
-			try {
-				TransactionPool.get().commit(transaction);
-			} catch (SQLException e) {
-				logger.error(e, e);
+			columnExists = true;
+
+			String sql = "SELECT level, " + column + " FROM character_stats, characters, account WHERE admin<600 AND charname=name AND player_id=account.id AND account.status='active' ORDER BY 1, 2";
+
+			Object lastGroup = null;
+			ArrayList<Integer> data = new ArrayList<Integer>();
+			ResultSet results = transaction.query(sql, null);
+			int rows = 0;
+			while (results.next()) {
+				rows++;
+				if (rows % 10000 == 0) {
+					reportProgress("Read " + rows + " rows...");
+				}
+				Object group = results.getObject(1);
+				if (!group.equals(lastGroup)) {
+					printMedian(lastGroup, data);
+					lastGroup = group;
+					data.clear();
+				}
+				data.add(Integer.valueOf(results.getInt(2)));
 			}
+			printMedian(lastGroup, data);
 		}
 
+		@Override
+		public void onFinished(Player admin) {
+			if (admin == null) {
+				return;
+			}
+			if (columnExists) {
+				admin.sendPrivateText("Medians of " + column + " were written to the log file.");
+			} else {
+				admin.sendPrivateText("Column " + column + " does not exist");
+			}
+		}
 	}
 
 	private void printMedian(Object lastGroup, ArrayList<Integer> data) {
@@ -0,0 +1,36 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.script;
+
+import java.util.List;
+
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.server.core.scripting.ScriptImpl;
+import games.stendhal.server.entity.player.Player;
+
+/**
+ * Tells the admin the sizes, hits, misses and evictions of the caches of the
+ * conversation parser.
+ */
+public class ParserCacheStatistics extends ScriptImpl {
+
+	@Override
+	public void execute(final Player admin, final List<String> args) {
+		if (args.size() > 0) {
+			admin.sendPrivateText("/script ParserCacheStatistics");
+			return;
+		}
+
+		admin.sendPrivateText(ConversationParser.getCacheStatistics());
+	}
+
+}
@@ -0,0 +1,73 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.script;
+
+import java.util.List;
+
+import games.stendhal.common.MathHelper;
+import games.stendhal.common.NotificationType;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.pathfinder.MultiZonesFixedPath;
+import games.stendhal.server.core.pathfinder.RPZonePath;
+import games.stendhal.server.core.scripting.ScriptImpl;
+import games.stendhal.server.entity.npc.NPCList;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.player.Player;
+
+/**
+ * Lets an NPC walk to a position, possibly in another zone. The route is
+ * planned by the route planner of the world.
+ */
+public class WalkNPC extends ScriptImpl {
+
+	// MultiZonesFixedPath reports the arrival through java.util.Observer
+	@SuppressWarnings("deprecation")
+	@Override
+	public void execute(final Player admin, final List<String> args) {
+		super.execute(admin, args);
+		if (args.size() != 4) {
+			admin.sendPrivateText(NotificationType.ERROR, "/script WalkNPC npc zone x y");
+			return;
+		}
+		final SpeakerNPC npc = NPCList.get().get(args.get(0));
+		if ((npc == null) || (npc.getZone() == null)) {
+			admin.sendPrivateText(NotificationType.ERROR, "NPC " + args.get(0) + " does not exist.");
+			return;
+		}
+		final StendhalRPZone zone = StendhalRPWorld.get().getZone(args.get(1));
+		if (zone == null) {
+			admin.sendPrivateText(NotificationType.ERROR, "Zone " + args.get(1) + " does not exist.");
+			return;
+		}
+		final int x = MathHelper.parseInt(args.get(2));
+		final int y = MathHelper.parseInt(args.get(3));
+
+		final List<RPZonePath> route = StendhalRPWorld.get().getRoutePlanner().findRoute(npc.getZone(),
+				npc.getX(), npc.getY(), zone, x, y);
+		if (route.isEmpty()) {
+			admin.sendPrivateText(NotificationType.ERROR, "No route found for " + npc.getName() + ".");
+			return;
+		}
+
+		final MultiZonesFixedPath walk = new MultiZonesFixedPath(npc, route, new java.util.Observer() {
+			@Override
+			public void update(final java.util.Observable o, final Object arg) {
+				npc.stop();
+				admin.sendPrivateText(npc.getName() + " arrived at " + zone.getName() + " " + x + " " + y + ".");
+			}
+		});
+		npc.clearPath();
+		walk.update(null, null);
+		admin.sendPrivateText(npc.getName() + " walks through " + route.size() + " zones.");
+	}
+}
@@ -90,6 +90,10 @@ CREATE TABLE IF NOT EXISTS item (
 
 CREATE INDEX IF NOT EXISTS i_item_timedate ON item(timedate);
 
+CREATE TABLE IF NOT EXISTS item_reservation (
+  next_id INTEGER NOT NULL
+);
+
 CREATE TABLE IF NOT EXISTS itemlog (
   id         INTEGER AUTO_INCREMENT NOT NULL,
   timedate   TIMESTAMP default CURRENT_TIMESTAMP,
@@ -292,3 +296,11 @@ CREATE TABLE IF NOT EXISTS searchindex
   
 CREATE INDEX IF NOT EXISTS i_searchindex_searchterm ON searchindex(searchterm);
 CREATE INDEX IF NOT EXISTS i_searchindex_entitytype_entityname ON searchindex(entitytype, entityname);
+
+CREATE TABLE IF NOT EXISTS searchindex_hash
+  (
+  entitytype  CHAR(1),
+  entityname  VARCHAR(64),
+  hash        VARCHAR(64),
+  PRIMARY KEY(entitytype, entityname)
+  );
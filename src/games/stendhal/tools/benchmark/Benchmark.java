@@ -0,0 +1,68 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.util.Locale;
+
+/**
+ * A minimal micro benchmark harness. Each case is warmed up first, so that
+ * the JIT has compiled it, and then timed over several rounds. The best
+ * round is reported.
+ */
+public abstract class Benchmark {
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 10;
+
+	/** Prevents the JIT from removing the benchmarked code. */
+	private long sink;
+
+	/**
+	 * A benchmarked piece of code.
+	 */
+	protected interface Case {
+		/**
+		 * Run one batch of operations.
+		 *
+		 * @return any value depending on the result of the operations
+		 */
+		long run();
+	}
+
+	/**
+	 * Time a case and print the result.
+	 *
+	 * @param name name of the case
+	 * @param operations number of operations done by one call of the case
+	 * @param benchmarkCase code to measure
+	 */
+	protected void measure(final String name, final int operations, final Case benchmarkCase) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			sink += benchmarkCase.run();
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			final long start = System.nanoTime();
+			sink += benchmarkCase.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.println(String.format(Locale.ENGLISH, "%-40s %12.1f ns/op", name, (double) best / operations));
+	}
+
+	/**
+	 * Get the combined result of all runs.
+	 *
+	 * @return value depending on all results
+	 */
+	protected long getSink() {
+		return sink;
+	}
+}
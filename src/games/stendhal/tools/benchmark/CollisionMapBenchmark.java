@@ -0,0 +1,116 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import games.stendhal.common.CollisionMap;
+
+/**
+ * Compares the rectangle collision test of CollisionMap to the previous
+ * implementation, which used one BitSet per column.
+ */
+public class CollisionMapBenchmark extends Benchmark {
+	private static final int SIZE = 256;
+	private static final int QUERIES = 100000;
+
+	/**
+	 * The previous implementation of CollisionMap.
+	 */
+	private static class ColumnBitSetMap {
+		private final int width;
+		private final int height;
+		private final BitSet[] colls;
+
+		ColumnBitSetMap(final int width, final int height) {
+			this.width = width;
+			this.height = height;
+			colls = new BitSet[width];
+			for (int i = 0; i < width; i++) {
+				colls[i] = new BitSet();
+			}
+		}
+
+		void set(final int i, final int j) {
+			colls[i].set(j);
+		}
+
+		boolean collides(final int x, final int y, final int width, final int height) {
+			if (x < 0 || x - 1 + width >= this.width) {
+				return true;
+			}
+			if (y < 0 || y - 1 + height >= this.height) {
+				return true;
+			}
+			final BitSet result = new BitSet();
+			for (int i = x; i < x + width; i++) {
+				result.or(colls[i]);
+			}
+			return !result.get(y, y + height).isEmpty();
+		}
+	}
+
+	public static void main(final String[] args) {
+		new CollisionMapBenchmark().run();
+	}
+
+	/**
+	 * Run the benchmark.
+	 */
+	private void run() {
+		final Random random = new Random(1);
+		final CollisionMap map = new CollisionMap(SIZE, SIZE);
+		final ColumnBitSetMap oldMap = new ColumnBitSetMap(SIZE, SIZE);
+		for (int i = 0; i < SIZE * SIZE / 10; i++) {
+			final int x = random.nextInt(SIZE);
+			final int y = random.nextInt(SIZE);
+			map.set(x, y);
+			oldMap.set(x, y);
+		}
+
+		// typical entity sizes
+		final int[] queries = new int[QUERIES * 4];
+		for (int i = 0; i < queries.length; i += 4) {
+			queries[i] = random.nextInt(SIZE);
+			queries[i + 1] = random.nextInt(SIZE);
+			queries[i + 2] = 1 + random.nextInt(2);
+			queries[i + 3] = 1 + random.nextInt(2);
+		}
+
+		measure("BitSet per column", QUERIES, new Case() {
+			@Override
+			public long run() {
+				long hits = 0;
+				for (int i = 0; i < queries.length; i += 4) {
+					if (oldMap.collides(queries[i], queries[i + 1], queries[i + 2], queries[i + 3])) {
+						hits++;
+					}
+				}
+				return hits;
+			}
+		});
+		measure("row major long[]", QUERIES, new Case() {
+			@Override
+			public long run() {
+				long hits = 0;
+				for (int i = 0; i < queries.length; i += 4) {
+					if (map.collides(queries[i], queries[i + 1], queries[i + 2], queries[i + 3])) {
+						hits++;
+					}
+				}
+				return hits;
+			}
+		});
+		System.out.println("(checksum " + getSink() + ")");
+	}
+}
@@ -0,0 +1,233 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.Rand;
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.common.parser.Expression;
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.transformer.PlayerTransformer;
+import games.stendhal.server.core.rp.StendhalQuestSystem;
+import games.stendhal.server.entity.npc.ConversationStates;
+import games.stendhal.server.entity.npc.EventRaiser;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.npc.fsm.Engine;
+import games.stendhal.server.entity.npc.fsm.MatchType;
+import games.stendhal.server.entity.npc.fsm.Transition;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.quests.BeerForHayunn;
+import games.stendhal.server.maps.quests.HatForMonogenes;
+import games.stendhal.server.maps.quests.HerbsForCarmen;
+import games.stendhal.server.maps.quests.MeetHayunn;
+import games.stendhal.server.maps.quests.MeetMonogenes;
+import games.stendhal.server.maps.semos.city.GreeterNPC;
+import games.stendhal.server.maps.semos.city.HealerNPC;
+import games.stendhal.server.maps.semos.guardhouse.RetiredAdventurerNPC;
+import games.stendhal.server.maps.semos.tavern.BarMaidNPC;
+import games.stendhal.server.maps.semos.tavern.TraderNPC;
+import marauroa.common.Log4J;
+import marauroa.common.game.RPObject;
+
+/**
+ * Replays a recorded dialogue against Semos NPCs with their shops and quests,
+ * and compares the indexed transition lookup of the FSM Engine to the
+ * previous implementation, which checked every transition for each of the
+ * six match types.
+ */
+public class NPCDialogueBenchmark extends Benchmark {
+	private static final int REPLAYS = 200;
+
+	private static final String[] NPC_NAMES = {
+		"Hayunn Naratha", "Monogenes", "Carmen", "Xin Blanca", "Margaret"
+	};
+
+	/** dialogue recorded from players talking to the NPCs */
+	private static final String[] DIALOGUE = {
+		"hi", "job", "help", "offer", "quest", "no", "buy beer", "no", "sell club", "no",
+		"task", "hat", "herbs", "tavern", "weather", "hello", "where is the bank",
+		"buy 2 potions", "no", "thanks", "bye"
+	};
+
+	/**
+	 * The previous implementation of Engine.step.
+	 */
+	private static class LinearEngine {
+		private final SpeakerNPC npc;
+		private final List<Transition> transitions;
+
+		LinearEngine(final SpeakerNPC npc) {
+			this.npc = npc;
+			transitions = npc.getEngine().getTransitions();
+		}
+
+		boolean step(final Player player, final Sentence sentence) {
+			for (final MatchType type : MatchType.values()) {
+				if (matchTransition(type, player, sentence)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean matchTransition(final MatchType type, final Player player, final Sentence sentence) {
+			final Engine engine = npc.getEngine();
+			final List<Transition> preferred = new LinkedList<Transition>();
+			final List<Transition> secondary = new LinkedList<Transition>();
+			for (final Transition transition : transitions) {
+				if (type.match(transition, engine.getCurrentState(), sentence)
+						&& transition.isConditionFulfilled(player, sentence, npc)) {
+					addUnique(transition.isPreferred() ? preferred : secondary, transition);
+				}
+			}
+
+			final List<Transition> candidates = preferred.isEmpty() ? secondary : preferred;
+			if (candidates.isEmpty()) {
+				return false;
+			}
+			final Iterator<Transition> it = candidates.iterator();
+			for (int i = Rand.rand(candidates.size()); i > 0; i--) {
+				it.next();
+			}
+			final Transition transition = it.next();
+
+			if (transition.getReply() != null) {
+				npc.say(transition.getReply());
+			}
+			engine.setCurrentState(transition.getNextState());
+			if (transition.getNextState() == ConversationStates.ATTENDING) {
+				npc.setIdea("attending");
+			} else if (transition.getNextState() != ConversationStates.IDLE) {
+				npc.setIdea("awaiting");
+			}
+			if (transition.getAction() != null) {
+				transition.getAction().fire(player, sentence, new EventRaiser(npc));
+			}
+			npc.notifyWorldAboutChanges();
+			return true;
+		}
+
+		private static void addUnique(final List<Transition> list, final Transition other) {
+			for (final Transition transition : list) {
+				for (final Expression trigger : other.getTriggers()) {
+					if (transition.matchesNormalizedWithCondition(other.getState(), trigger, other.getCondition())) {
+						return;
+					}
+				}
+			}
+			list.add(other);
+		}
+	}
+
+	private final List<SpeakerNPC> npcs = new ArrayList<SpeakerNPC>();
+	private final List<Sentence> sentences = new ArrayList<Sentence>();
+	private Player player;
+
+	public static void main(final String[] args) {
+		Log4J.init();
+		// the engine logs random choices, which would dominate the time
+		Logger.getLogger(Engine.class).setLevel(Level.WARN);
+		final NPCDialogueBenchmark benchmark = new NPCDialogueBenchmark();
+		benchmark.load();
+		benchmark.run();
+	}
+
+	/**
+	 * Create the NPCs, their quests and the player.
+	 */
+	private void load() {
+		StendhalRPWorld.get();
+		final StendhalRPZone zone = new StendhalRPZone("int_benchmark");
+		new RetiredAdventurerNPC().configureZone(zone, null);
+		new GreeterNPC().configureZone(zone, null);
+		new HealerNPC().configureZone(zone, null);
+		new TraderNPC().configureZone(zone, null);
+		new BarMaidNPC().configureZone(zone, null);
+
+		final StendhalQuestSystem quests = SingletonRepository.getStendhalQuestSystem();
+		quests.loadQuest(new MeetHayunn());
+		quests.loadQuest(new BeerForHayunn());
+		quests.loadQuest(new MeetMonogenes());
+		quests.loadQuest(new HatForMonogenes());
+		quests.loadQuest(new HerbsForCarmen());
+
+		for (final String name : NPC_NAMES) {
+			final SpeakerNPC npc = SingletonRepository.getNPCList().get(name);
+			System.out.println(name + ": " + npc.getEngine().getTransitions().size() + " transitions");
+			npcs.add(npc);
+		}
+
+		for (final String text : DIALOGUE) {
+			sentences.add(ConversationParser.parse(text));
+		}
+
+		final RPObject object = new RPObject();
+		object.put("name", "benchmark");
+		player = (Player) new PlayerTransformer().transform(object);
+	}
+
+	/**
+	 * Run the benchmark.
+	 */
+	private void run() {
+		final int operations = REPLAYS * npcs.size() * sentences.size();
+		measure("linear scan", operations, new Case() {
+			@Override
+			public long run() {
+				long matched = 0;
+				for (final SpeakerNPC npc : npcs) {
+					final LinearEngine engine = new LinearEngine(npc);
+					npc.getEngine().setCurrentState(ConversationStates.IDLE);
+					for (int i = 0; i < REPLAYS; i++) {
+						for (final Sentence sentence : sentences) {
+							if (engine.step(player, sentence)) {
+								matched++;
+							}
+						}
+						npc.clearEvents();
+					}
+				}
+				return matched;
+			}
+		});
+		measure("indexed by state and trigger", operations, new Case() {
+			@Override
+			public long run() {
+				long matched = 0;
+				for (final SpeakerNPC npc : npcs) {
+					final Engine engine = npc.getEngine();
+					engine.setCurrentState(ConversationStates.IDLE);
+					for (int i = 0; i < REPLAYS; i++) {
+						for (final Sentence sentence : sentences) {
+							if (engine.step(player, sentence)) {
+								matched++;
+							}
+						}
+						npc.clearEvents();
+					}
+				}
+				return matched;
+			}
+		});
+		System.out.println("(checksum " + getSink() + ")");
+	}
+}
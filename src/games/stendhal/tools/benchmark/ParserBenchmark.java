@@ -0,0 +1,143 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+
+import games.stendhal.common.parser.ConversationContext;
+import games.stendhal.common.parser.ConversationParser;
+import games.stendhal.common.parser.WordEntry;
+import games.stendhal.common.parser.WordList;
+import marauroa.common.Log4J;
+
+/**
+ * Measures the word list lookups and the parsing of player chat. The word
+ * lookups are compared to a TreeMap with the words of words.txt, which was
+ * used by WordList before.
+ */
+public class ParserBenchmark extends Benchmark {
+	private static final int REPLAYS = 100;
+
+	/** chat of players talking to NPCs */
+	private static final String[] CHAT = {
+		"hi", "hello", "job", "help", "offer", "quest", "task", "yes", "no", "bye",
+		"buy 5 potions", "sell 2 leather armor", "buy a big flask of water",
+		"i want to buy 3 carrots", "how much is the ice sword?", "heal", "can you heal me?",
+		"thanks", "where is semos?", "deliver", "pizza", "buy 10 arrows", "sell black dragon scale",
+		"what do you sell", "I'd like to buy some mead", "ok", "goodbye", "favor",
+		"buy fishing rod", "Sell 3 Cheese", "'hi'", "done", "I have the beer", "sell 20 grain",
+		"buy home scroll", "buy 2 greater potions", "what is your name", "Hayunn sent me",
+		"tell me about the tavern", "no thanks"
+	};
+
+	private final List<String> words = new ArrayList<String>();
+	private final Map<String, Object> treeMap = new TreeMap<String, Object>();
+
+	/** changes the conversation context, so that the sentence cache is not used */
+	private int round;
+
+	public static void main(final String[] args) throws IOException {
+		Log4J.init();
+		final ParserBenchmark benchmark = new ParserBenchmark();
+		benchmark.load();
+		benchmark.run();
+	}
+
+	/**
+	 * Read the words of words.txt and split the chat into words.
+	 *
+	 * @throws IOException in case of an input/output error
+	 */
+	private void load() throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(
+				WordList.class.getResourceAsStream(WordList.WORDS_FILENAME), "UTF-8"));
+		try {
+			String line = reader.readLine();
+			while (line != null) {
+				final StringTokenizer tk = new StringTokenizer(line);
+				if (!line.startsWith("#") && tk.hasMoreTokens()) {
+					final String key = WordList.trimWord(tk.nextToken());
+					treeMap.put(key, key);
+				}
+				line = reader.readLine();
+			}
+		} finally {
+			reader.close();
+		}
+
+		for (final String line : CHAT) {
+			final StringTokenizer tk = new StringTokenizer(line, " ?");
+			while (tk.hasMoreTokens()) {
+				words.add(tk.nextToken());
+			}
+		}
+		System.out.println(treeMap.size() + " words, " + words.size() + " words in the chat");
+	}
+
+	/**
+	 * Run the benchmark.
+	 */
+	private void run() {
+		final WordList wordList = WordList.getInstance();
+		measure("word lookup, TreeMap", REPLAYS * words.size(), new Case() {
+			@Override
+			public long run() {
+				long found = 0;
+				for (int i = 0; i < REPLAYS; i++) {
+					for (final String word : words) {
+						if (treeMap.get(WordList.trimWord(word)) != null) {
+							found++;
+						}
+					}
+				}
+				return found;
+			}
+		});
+		measure("word lookup, WordList", REPLAYS * words.size(), new Case() {
+			@Override
+			public long run() {
+				long found = 0;
+				for (int i = 0; i < REPLAYS; i++) {
+					for (final String word : words) {
+						final WordEntry entry = wordList.find(word);
+						if (entry != null) {
+							found++;
+						}
+					}
+				}
+				return found;
+			}
+		});
+		measure("parse chat", REPLAYS * CHAT.length, new Case() {
+			@Override
+			public long run() {
+				long expressions = 0;
+				for (int i = 0; i < REPLAYS; i++) {
+					final ConversationContext ctx = new ConversationContext();
+					ctx.setState(++round);
+					for (final String line : CHAT) {
+						expressions += ConversationParser.parse(line, ctx).getExpressions().size();
+					}
+				}
+				return expressions;
+			}
+		});
+		System.out.println("(checksum " + getSink() + ")");
+	}
+}
@@ -0,0 +1,180 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.benchmark;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import games.stendhal.common.CollisionDetection;
+import games.stendhal.common.tiled.LayerDefinition;
+import games.stendhal.server.core.config.zone.TMXLoader;
+import games.stendhal.server.core.pathfinder.SimplePathfinder;
+
+/**
+ * Compares plain A* to Jump Point Search on the collision maps of all zones.
+ * Usage: <code>PathfinderBenchmark [map folder]</code>, the default folder
+ * is <code>tiled</code>.
+ */
+public class PathfinderBenchmark extends Benchmark {
+	private static final int SEARCHES_PER_MAP = 20;
+	private static final double MAX_DISTANCE = 0;
+
+	/**
+	 * A path search on a map.
+	 */
+	private static class Search {
+		final CollisionDetection collision;
+		final int startX;
+		final int startY;
+		final Rectangle goal;
+
+		Search(final CollisionDetection collision, final int startX, final int startY, final int goalX,
+				final int goalY) {
+			this.collision = collision;
+			this.startX = startX;
+			this.startY = startY;
+			goal = new Rectangle(goalX, goalY, 1, 1);
+		}
+
+		SimplePathfinder createPathfinder(final boolean jump) {
+			final SimplePathfinder finder = new SimplePathfinder(collision, startX, startY, goal, MAX_DISTANCE);
+			finder.setJumpPointSearch(jump);
+			return finder;
+		}
+	}
+
+	private final List<Search> searches = new ArrayList<Search>();
+
+	public static void main(final String[] args) throws Exception {
+		final String folder = (args.length > 0) ? args[0] : "tiled";
+		final PathfinderBenchmark benchmark = new PathfinderBenchmark();
+		benchmark.load(new File(folder));
+		benchmark.run();
+	}
+
+	/**
+	 * Load the maps in a folder and its sub folders, and create random
+	 * searches on them.
+	 *
+	 * @param folder map folder
+	 * @throws Exception if a map could not be read
+	 */
+	private void load(final File folder) throws Exception {
+		final List<File> files = new ArrayList<File>();
+		collectMaps(folder, files);
+		Collections.sort(files);
+
+		final Random random = new Random(1);
+		int maps = 0;
+		for (final File file : files) {
+			final LayerDefinition layer = TMXLoader.load(file.getPath()).getLayer("collision");
+			if (layer == null) {
+				continue;
+			}
+			final CollisionDetection collision = new CollisionDetection();
+			collision.setCollisionData(layer);
+			final int width = collision.getWidth();
+			final int height = collision.getHeight();
+			maps++;
+			int created = 0;
+			for (int attempt = 0; (attempt < 1000) && (created < SEARCHES_PER_MAP); attempt++) {
+				final int sx = random.nextInt(width);
+				final int sy = random.nextInt(height);
+				final int gx = random.nextInt(width);
+				final int gy = random.nextInt(height);
+				if (!collision.collides(sx, sy) && !collision.collides(gx, gy)) {
+					searches.add(new Search(collision, sx, sy, gx, gy));
+					created++;
+				}
+			}
+		}
+		System.out.println("Maps: " + maps + ", searches: " + searches.size());
+	}
+
+	/**
+	 * Find all map files in a folder and its sub folders.
+	 *
+	 * @param folder searched folder
+	 * @param files list to add the files to
+	 */
+	private static void collectMaps(final File folder, final List<File> files) {
+		final File[] children = folder.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (final File child : children) {
+			if (child.isDirectory()) {
+				collectMaps(child, files);
+			} else if (child.getName().endsWith(".tmx")) {
+				files.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Run the benchmark.
+	 */
+	private void run() {
+		long aStarExpanded = 0;
+		long jumpExpanded = 0;
+		int found = 0;
+		int differentLength = 0;
+		for (final Search search : searches) {
+			final SimplePathfinder aStar = search.createPathfinder(false);
+			final int aStarLength = aStar.getPackedPath().length;
+			aStarExpanded += aStar.getExpandedNodes();
+			final SimplePathfinder jump = search.createPathfinder(true);
+			final int jumpLength = jump.getPackedPath().length;
+			jumpExpanded += jump.getExpandedNodes();
+			if (jumpLength != 0) {
+				found++;
+			}
+			if (aStarLength != jumpLength) {
+				differentLength++;
+			}
+		}
+		System.out.println(String.format(Locale.ENGLISH, "Paths found: %d, different lengths: %d",
+				found, differentLength));
+		System.out.println(String.format(Locale.ENGLISH, "%-40s %12.1f nodes/search", "A* expanded",
+				(double) aStarExpanded / searches.size()));
+		System.out.println(String.format(Locale.ENGLISH, "%-40s %12.1f nodes/search", "JPS expanded",
+				(double) jumpExpanded / searches.size()));
+
+		measure("A*", searches.size(), createCase(false));
+		measure("Jump Point Search", searches.size(), createCase(true));
+		System.out.println("(checksum " + getSink() + ")");
+	}
+
+	/**
+	 * Create a case that runs all searches.
+	 *
+	 * @param jump <code>true</code> for Jump Point Search
+	 * @return benchmark case
+	 */
+	private Case createCase(final boolean jump) {
+		return new Case() {
+			@Override
+			public long run() {
+				long result = 0;
+				for (final Search search : searches) {
+					result += search.createPathfinder(jump).getPackedPath().length;
+				}
+				return result;
+			}
+		};
+	}
+}
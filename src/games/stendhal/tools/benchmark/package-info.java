@@ -0,0 +1,4 @@
+/**
+ * micro benchmarks comparing implementations of performance critical code.
+ */
+package games.stendhal.tools.benchmark;
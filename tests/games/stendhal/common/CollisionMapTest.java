@@ -18,6 +18,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.awt.geom.Rectangle2D;
 import java.util.BitSet;
+import java.util.Random;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -49,6 +50,35 @@ public class CollisionMapTest {
 		assertThat(map2x2.getHeight(), is(2));
 	}
 
+	/**
+	 * Compare rectangle checks against checking each tile, on a map wider than
+	 * one word of collision data.
+	 */
+	@Test
+	public void testCollidesAgainstTiles() {
+		final Random random = new Random(7);
+		final CollisionMap map = new CollisionMap(150, 40);
+		for (int i = 0; i < 300; i++) {
+			map.set(random.nextInt(150), random.nextInt(40));
+		}
+		map.unset(64, 0);
+		assertFalse(map.get(64, 0));
+
+		for (int i = 0; i < 5000; i++) {
+			final int x = random.nextInt(160) - 5;
+			final int y = random.nextInt(45) - 5;
+			final int w = random.nextInt(80);
+			final int h = random.nextInt(4);
+			boolean expected = (x < 0) || (x + w > 150) || (y < 0) || (y + h > 40);
+			for (int tx = x; !expected && (tx < x + w); tx++) {
+				for (int ty = y; ty < y + h; ty++) {
+					expected |= map.get(tx, ty);
+				}
+			}
+			assertThat(x + "," + y + " " + w + "x" + h, map.collides(x, y, w, h), is(expected));
+		}
+	}
+
 	/**
 	 * Tests for collides.
 	 */
@@ -0,0 +1,110 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import games.stendhal.common.filter.FilterCriteria;
+
+/**
+ * Tests for ParseCache and the caching in ConversationParser.
+ */
+public class ParseCacheTest {
+
+	/**
+	 * Tests the counters.
+	 */
+	@Test
+	public void testCounters() {
+		final ParseCache<String, String> cache = new ParseCache<String, String>("test", 100);
+		assertNull(cache.get("a"));
+		cache.put("a", "A");
+		assertEquals("A", cache.get("a"));
+		assertEquals("A", cache.get("a"));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(0, cache.getEvictions());
+		assertEquals(1, cache.size());
+		assertEquals("test: 1 entries, 2 hits, 1 misses, 0 evictions", cache.toString());
+	}
+
+	/**
+	 * Tests that the size is limited and recently used entries are kept.
+	 */
+	@Test
+	public void testLimit() {
+		final ParseCache<Integer, Integer> cache = new ParseCache<Integer, Integer>("test", 160);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(Integer.valueOf(i), Integer.valueOf(i));
+			// keep using the first entry
+			assertEquals(Integer.valueOf(0), cache.get(Integer.valueOf(0)));
+		}
+		assertTrue(cache.size() <= 160);
+		assertEquals(1000 - cache.size(), cache.getEvictions());
+		assertEquals(Integer.valueOf(999), cache.get(Integer.valueOf(999)));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Tests that player input is parsed only once.
+	 */
+	@Test
+	public void testSentenceCache() {
+		final Sentence hi = ConversationParser.parse("hi");
+		assertSame(hi, ConversationParser.parse("hi"));
+		assertEquals("hello", hi.getTriggerExpression().getNormalized());
+
+		// a different context is parsed on its own
+		final ConversationContext ctx = new ConversationContext();
+		ctx.setIgnoreIgnorable(false);
+		assertNotSame(hi, ConversationParser.parse("hi", ctx));
+
+		// sentences for matching are not shared
+		assertNotSame(ConversationParser.parse("hi", new ConvCtxForMatchingSource()),
+				ConversationParser.parse("hi", new ConvCtxForMatchingSource()));
+
+		// new names may change the parse result of sentences containing them
+		final Sentence buy = ConversationParser.parse("buy cachetestname");
+		assertSame(buy, ConversationParser.parse("buy cachetestname"));
+		WordList.getInstance().registerName("cachetestname", ExpressionType.SUBJECT);
+		assertNotSame(buy, ConversationParser.parse("buy cachetestname"));
+		assertSame(hi, ConversationParser.parse("hi"));
+	}
+
+	/**
+	 * Tests removing entries by their values.
+	 */
+	@Test
+	public void testRemoveValues() {
+		final ParseCache<Integer, Integer> cache = new ParseCache<Integer, Integer>("test", 100);
+		for (int i = 0; i < 10; i++) {
+			cache.put(Integer.valueOf(i), Integer.valueOf(i));
+		}
+		cache.removeValues(new FilterCriteria<Integer>() {
+			@Override
+			public boolean passes(final Integer o) {
+				return o.intValue() % 2 == 0;
+			}
+		});
+		assertEquals(5, cache.size());
+		assertNull(cache.get(Integer.valueOf(4)));
+		assertEquals(Integer.valueOf(5), cache.get(Integer.valueOf(5)));
+	}
+}
@@ -0,0 +1,101 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for WordTrie.
+ */
+public class WordTrieTest {
+
+	/**
+	 * Tests storing, looking up and removing words.
+	 */
+	@Test
+	public void testPutGetRemove() {
+		final WordTrie<String> trie = new WordTrie<String>();
+		assertNull(trie.put("cat", "1"));
+		assertNull(trie.put("cart", "2"));
+		assertNull(trie.put("ca", "3"));
+		assertEquals("1", trie.put("cat", "4"));
+		assertEquals(3, trie.size());
+
+		assertEquals("4", trie.get("cat"));
+		assertEquals("2", trie.get("cart"));
+		assertEquals("3", trie.get("ca"));
+		assertNull(trie.get("c"));
+		assertNull(trie.get("cats"));
+		assertNull(trie.get(""));
+
+		assertEquals("3", trie.remove("ca"));
+		assertNull(trie.remove("ca"));
+		assertNull(trie.get("ca"));
+		assertEquals("4", trie.get("cat"));
+		assertEquals(2, trie.size());
+	}
+
+	/**
+	 * Tests the lookup of words as typed by the player.
+	 */
+	@Test
+	public void testFind() {
+		final WordTrie<String> trie = new WordTrie<String>();
+		trie.put("hello", "1");
+		trie.put("it", "2");
+		trie.put("müsli", "3");
+
+		assertEquals("1", trie.find("hello"));
+		assertEquals("1", trie.find("HeLLo"));
+		assertEquals("1", trie.find("'hello'"));
+		assertEquals("1", trie.find("''Hello'"));
+		assertNull(trie.find("'"));
+		assertNull(trie.find("hell"));
+
+		assertEquals("2", trie.find("IT"));
+		assertEquals("2", trie.find("'It'"));
+		assertEquals("3", trie.find("MÜSLI"));
+		assertEquals("3", trie.find("'müsli'"));
+
+		assertEquals("1", trie.findLowerCase("Hello"));
+		assertEquals("2", trie.findLowerCase("It"));
+		assertNull(trie.findLowerCase("'hello'"));
+	}
+
+	/**
+	 * Tests listing the words in sorted order.
+	 */
+	@Test
+	public void testEntries() {
+		final WordTrie<Integer> trie = new WordTrie<Integer>();
+		final String[] words = {"zebra", "apple", "app", "banana", "ape"};
+		for (int i = 0; i < words.length; i++) {
+			trie.put(words[i], Integer.valueOf(i));
+		}
+		trie.remove("banana");
+
+		final List<Map.Entry<String, Integer>> entries = trie.entries();
+		assertEquals(4, entries.size());
+		assertEquals("ape", entries.get(0).getKey());
+		assertEquals("app", entries.get(1).getKey());
+		assertEquals("apple", entries.get(2).getKey());
+		assertEquals("zebra", entries.get(3).getKey());
+		assertEquals(Integer.valueOf(0), entries.get(3).getValue());
+	}
+
+}
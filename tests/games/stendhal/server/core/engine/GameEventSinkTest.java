@@ -0,0 +1,219 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.GameEventSink.OverflowPolicy;
+import games.stendhal.server.core.engine.GameEventSink.Row;
+import marauroa.common.Log4J;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DatabaseFactory;
+
+/**
+ * Tests for GameEventSink.
+ */
+public class GameEventSinkTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	/**
+	 * a sink that records the written rows instead of using the database.
+	 * Writing waits until the gate is opened.
+	 */
+	private static class RecordingSink extends GameEventSink {
+		private final List<Row> rows = Collections.synchronizedList(new ArrayList<Row>());
+		private final CountDownLatch gate = new CountDownLatch(1);
+		private final CountDownLatch entered = new CountDownLatch(1);
+
+		RecordingSink(final int capacity, final OverflowPolicy policy, final File spillFile) {
+			super(capacity, 10, policy, spillFile);
+		}
+
+		@Override
+		void write(final List<Row> batch) throws SQLException {
+			entered.countDown();
+			try {
+				gate.await();
+			} catch (final InterruptedException e) {
+				throw new SQLException(e);
+			}
+			rows.addAll(batch);
+		}
+	}
+
+	private static File createSpillFile() throws IOException {
+		final File file = File.createTempFile("gameEvents", ".spill");
+		assertTrue(file.delete());
+		return file;
+	}
+
+	private static void waitFor(final GameEventSink sink, final int written) throws InterruptedException {
+		for (int i = 0; i < 100 && sink.getWritten() < written; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(written, sink.getWritten());
+	}
+
+	/**
+	 * Tests that events are inserted into gameEvents like marauroa does.
+	 */
+	@Test
+	public void testWrite() throws Exception {
+		final GameEventSink sink = new GameEventSink(100, 10, OverflowPolicy.DROP, createSpillFile());
+		try {
+			for (int i = 0; i < 15; i++) {
+				sink.add("gameeventsinktest", "test", "p" + i, "a", "b");
+			}
+			sink.add("gameeventsinktest", "noparams");
+			waitFor(sink, 16);
+			// a replayed event keeps the time it happened
+			sink.write(Collections.singletonList(Row.fromLine("1000000000000\tgameeventsinktest\tdelayed\t\t")));
+		} finally {
+			sink.shutdown(1000);
+		}
+
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			assertEquals(15, transaction.querySingleCellInt("SELECT count(*) FROM gameEvents WHERE source='gameeventsinktest' AND event='test' AND param2='a b '", null));
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM gameEvents WHERE source='gameeventsinktest' AND param1='p14'", null));
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM gameEvents WHERE source='gameeventsinktest' AND event='noparams' AND param1=''", null));
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM gameEvents WHERE source='gameeventsinktest' AND event='delayed' AND timedate < '2002-01-01'", null));
+			assertEquals(16, transaction.querySingleCellInt("SELECT count(*) FROM gameEvents WHERE source='gameeventsinktest' AND timedate > '2002-01-01'", null));
+			transaction.execute("DELETE FROM gameEvents WHERE source='gameeventsinktest'", null);
+			TransactionPool.get().commit(transaction);
+		} catch (final SQLException e) {
+			TransactionPool.get().rollback(transaction);
+			throw e;
+		}
+	}
+
+	/**
+	 * Tests that events are counted and discarded if the queue is full.
+	 */
+	@Test
+	public void testDrop() throws Exception {
+		final RecordingSink sink = new RecordingSink(2, OverflowPolicy.DROP, createSpillFile());
+		try {
+			sink.add("bob", "first");
+			sink.entered.await();
+			for (int i = 0; i < 5; i++) {
+				sink.add("bob", "event", Integer.toString(i));
+			}
+			assertEquals(2, sink.getQueued());
+			assertEquals(3, sink.getDropped());
+			sink.gate.countDown();
+			waitFor(sink, 3);
+			assertEquals("first", sink.rows.get(0).event);
+			assertEquals("1", sink.rows.get(2).param1);
+		} finally {
+			sink.gate.countDown();
+			sink.shutdown(1000);
+		}
+	}
+
+	/**
+	 * Tests that overflowing events are written to the spill file and
+	 * replayed once the queue is empty.
+	 */
+	@Test
+	public void testSpill() throws Exception {
+		final File spillFile = createSpillFile();
+		final RecordingSink sink = new RecordingSink(2, OverflowPolicy.SPILL, spillFile);
+		try {
+			sink.add("bob", "first");
+			sink.entered.await();
+			for (int i = 0; i < 5; i++) {
+				sink.add("bob", "event", Integer.toString(i), "tab\there");
+			}
+			assertEquals(3, sink.getSpilled());
+			assertEquals(0, sink.getDropped());
+			assertTrue(spillFile.exists());
+			sink.gate.countDown();
+			waitFor(sink, 6);
+			assertEquals("4", sink.rows.get(5).param1);
+			assertEquals("tab\there ", sink.rows.get(5).param2);
+			assertFalse(spillFile.exists());
+			assertFalse(new File(spillFile.getPath() + ".replay").exists());
+		} finally {
+			sink.gate.countDown();
+			sink.shutdown(1000);
+		}
+	}
+
+	/**
+	 * Tests that invalid lines of the spill file are skipped without
+	 * stopping the replay.
+	 */
+	@Test
+	public void testReplayInvalidLine() throws Exception {
+		final File spillFile = createSpillFile();
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(spillFile), "UTF-8");
+		try {
+			writer.write(new Row("bob", "before").toLine() + "\n");
+			writer.write("not a game event\n");
+			writer.write("x\tbob\tevent\t\t\n");
+			writer.write(new Row("bob", "after").toLine() + "\n");
+		} finally {
+			writer.close();
+		}
+
+		final RecordingSink sink = new RecordingSink(2, OverflowPolicy.SPILL, spillFile);
+		try {
+			// replayed by the writer thread once the queue is idle
+			sink.gate.countDown();
+			waitFor(sink, 2);
+			assertEquals("before", sink.rows.get(0).event);
+			assertEquals("after", sink.rows.get(1).event);
+			assertFalse(spillFile.exists());
+			assertFalse(new File(spillFile.getPath() + ".replay").exists());
+		} finally {
+			sink.shutdown(1000);
+		}
+	}
+
+	/**
+	 * Tests the format of the spill file.
+	 */
+	@Test
+	public void testSpillLine() {
+		final Row original = new Row("bob", null, "a\\b", "c\td", "e\nf");
+		final Row row = Row.fromLine(original.toLine());
+		assertEquals(original.timedate, row.timedate);
+		assertEquals("bob", row.source);
+		assertNull(row.event);
+		assertEquals("a\\b", row.param1);
+		assertEquals("c\td e\nf ", row.param2);
+	}
+}
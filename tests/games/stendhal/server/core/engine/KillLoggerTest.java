@@ -0,0 +1,126 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.db.KillLogEntry;
+import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
+import marauroa.common.Log4J;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DatabaseFactory;
+
+/**
+ * Tests for KillLogger and the aggregated writing of the kills table.
+ */
+public class KillLoggerTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	/**
+	 * Tests counting kills from several threads.
+	 */
+	@Test
+	public void testCounting() throws InterruptedException {
+		KillLogger.takeCounts();
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						KillLogger.logKill("rat", "C", "bob", "P");
+						KillLogger.logKill("bob", "P", "rat", "C");
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		// take counts while the kills are counted; nothing may get lost
+		int rats = 0;
+		int bobs = 0;
+		while (!threads.isEmpty()) {
+			for (final Map.Entry<KillLogEntry, Integer> entry : KillLogger.takeCounts().entrySet()) {
+				if (entry.getKey().toString().startsWith("bob")) {
+					bobs += entry.getValue().intValue();
+				} else {
+					rats += entry.getValue().intValue();
+				}
+			}
+			if (!threads.get(0).isAlive()) {
+				threads.remove(0);
+			}
+		}
+		for (final Map.Entry<KillLogEntry, Integer> entry : KillLogger.takeCounts().entrySet()) {
+			if (entry.getKey().toString().startsWith("bob")) {
+				bobs += entry.getValue().intValue();
+			} else {
+				rats += entry.getValue().intValue();
+			}
+		}
+		assertEquals(4000, rats);
+		assertEquals(4000, bobs);
+	}
+
+	/**
+	 * Tests that aggregated kills end up in the kills table like single
+	 * kills do.
+	 */
+	@Test
+	public void testLogKills() throws SQLException {
+		KillLogger.takeCounts();
+		final StendhalKillLogDAO dao = new StendhalKillLogDAO();
+		final String today = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			transaction.execute("DELETE FROM kills WHERE killer LIKE 'killlogtest%'", null);
+			for (int i = 0; i < 3; i++) {
+				KillLogger.logKill("rat", "C", "killlogtest1", "P");
+			}
+			KillLogger.logKill("killlogtest1", "P", "killlogtest2", "P");
+			final Map<KillLogEntry, Integer> counted = KillLogger.takeCounts();
+			assertEquals(2, counted.size());
+			assertTrue(KillLogger.takeCounts().isEmpty());
+			dao.logKills(transaction, counted);
+
+			// second round: one existing combination, one new
+			KillLogger.logKill("rat", "C", "killlogtest1", "P");
+			KillLogger.logKill("rat", "C", "killlogtest2", "P");
+			dao.logKills(transaction, KillLogger.takeCounts());
+
+			assertEquals(4, transaction.querySingleCellInt("SELECT cnt FROM kills WHERE killed='rat' AND killer='killlogtest1' AND day='"
+					+ today + "'", null));
+			assertEquals(1, transaction.querySingleCellInt("SELECT cnt FROM kills WHERE killed='rat' AND killer='killlogtest2'", null));
+			assertEquals(1, transaction.querySingleCellInt("SELECT cnt FROM kills WHERE killed='killlogtest1' AND killed_type='P'", null));
+			assertEquals(3, transaction.querySingleCellInt("SELECT count(*) FROM kills WHERE killer LIKE 'killlogtest%'", null));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+}
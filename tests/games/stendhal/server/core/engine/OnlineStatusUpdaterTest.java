@@ -0,0 +1,85 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.db.StendhalWebsiteDAO;
+import marauroa.common.Log4J;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DatabaseFactory;
+
+/**
+ * Tests for OnlineStatusUpdater and the batched update of the online status.
+ */
+public class OnlineStatusUpdaterTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	/**
+	 * Tests that only the last status of each player is kept.
+	 */
+	@Test
+	public void testCoalesce() {
+		OnlineStatusUpdater.takeChanges();
+		OnlineStatusUpdater.setOnlineStatus("bob", true);
+		OnlineStatusUpdater.setOnlineStatus("jack", true);
+		OnlineStatusUpdater.setOnlineStatus("bob", false);
+
+		final Map<String, Boolean> changes = OnlineStatusUpdater.takeChanges();
+		assertEquals(2, changes.size());
+		assertEquals(Boolean.FALSE, changes.get("bob"));
+		assertEquals(Boolean.TRUE, changes.get("jack"));
+		assertTrue(OnlineStatusUpdater.takeChanges().isEmpty());
+	}
+
+	/**
+	 * Tests writing the status of several players at once.
+	 */
+	@Test
+	public void testSetOnlineStatus() throws SQLException {
+		final StendhalWebsiteDAO dao = new StendhalWebsiteDAO();
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			for (int i = 0; i < 3; i++) {
+				transaction.execute("INSERT INTO character_stats (name, online) VALUES ('onlinetest" + i + "', " + (i % 2) + ")", null);
+			}
+
+			OnlineStatusUpdater.takeChanges();
+			OnlineStatusUpdater.setOnlineStatus("onlinetest0", true);
+			OnlineStatusUpdater.setOnlineStatus("onlinetest1", false);
+			dao.setOnlineStatus(transaction, OnlineStatusUpdater.takeChanges());
+			assertEquals(1, transaction.querySingleCellInt("SELECT online FROM character_stats WHERE name='onlinetest0'", null));
+			assertEquals(0, transaction.querySingleCellInt("SELECT online FROM character_stats WHERE name='onlinetest1'", null));
+			assertEquals(0, transaction.querySingleCellInt("SELECT online FROM character_stats WHERE name='onlinetest2'", null));
+
+			OnlineStatusUpdater.setOnlineStatus("onlinetest1", true);
+			OnlineStatusUpdater.setOnlineStatus("onlinetest2", true);
+			dao.setOnlineStatus(transaction, OnlineStatusUpdater.takeChanges());
+			assertEquals(3, transaction.querySingleCellInt("SELECT sum(online) FROM character_stats WHERE name LIKE 'onlinetest%'", null));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+}
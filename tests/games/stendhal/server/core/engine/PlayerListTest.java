@@ -20,6 +20,8 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -142,4 +144,60 @@ public class PlayerListTest {
 		assertSame(jack, list.getOnlinePlayer("jAck"));
 	}
 
+	/**
+	 * Tests for getBuddyWatchers.
+	 */
+	@Test
+	public void testGetBuddyWatchers() {
+		final PlayerList list = new PlayerList();
+		final Player jack = PlayerTestHelper.createPlayer("jack");
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		jack.addBuddy("Bob", false);
+		list.add(jack);
+		list.add(bob);
+		assertEquals(Arrays.asList(jack), list.getBuddyWatchers("bob"));
+		assertTrue(list.getBuddyWatchers("jack").isEmpty());
+
+		// changes of the buddy list of players in the list
+		bob.addBuddy("jack", false);
+		list.onBuddyAdded(bob, "jack");
+		assertEquals(Arrays.asList(bob), list.getBuddyWatchers("Jack"));
+		jack.removeBuddy("Bob");
+		list.onBuddyRemoved(jack, "Bob");
+		assertTrue(list.getBuddyWatchers("bob").isEmpty());
+
+		// players who are not in the list are ignored
+		final Player other = PlayerTestHelper.createPlayer("jack");
+		list.onBuddyAdded(other, "bob");
+		assertTrue(list.getBuddyWatchers("bob").isEmpty());
+
+		list.remove(bob);
+		assertTrue(list.getBuddyWatchers("jack").isEmpty());
+		assertEquals(0, list.getNumberOfWatchedNames());
+	}
+
+	/**
+	 * Tests for getBuddyWatchers with buddy names, which differ in case only.
+	 */
+	@Test
+	public void testGetBuddyWatchersCaseVariants() {
+		final PlayerList list = new PlayerList();
+		final Player jack = PlayerTestHelper.createPlayer("jack");
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		jack.addBuddy("Bob", false);
+		jack.addBuddy("bob", false);
+		list.add(jack);
+		list.add(bob);
+		assertEquals(Arrays.asList(jack), list.getBuddyWatchers("bob"));
+
+		jack.removeBuddy("Bob");
+		list.onBuddyRemoved(jack, "Bob");
+		assertEquals(Arrays.asList(jack), list.getBuddyWatchers("bob"));
+
+		jack.removeBuddy("bob");
+		list.onBuddyRemoved(jack, "bob");
+		assertTrue(list.getBuddyWatchers("bob").isEmpty());
+		// no empty entries are left in the buddy index
+		assertEquals(0, list.getNumberOfWatchedNames());
+	}
 }
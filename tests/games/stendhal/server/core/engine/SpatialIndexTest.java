@@ -0,0 +1,173 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import games.stendhal.common.filter.FilterCriteria;
+
+/**
+ * Tests for SpatialIndex.
+ */
+public class SpatialIndexTest {
+
+	/**
+	 * Tests for adding and removing.
+	 */
+	@Test
+	public void testAddRemove() {
+		final SpatialIndex<String> index = new SpatialIndex<String>();
+		index.add("a", 1, 1, 1, 1);
+		index.add("b", 10, 10, 2, 2);
+		assertEquals(2, index.size());
+		assertTrue(index.contains("a"));
+
+		assertTrue(index.remove("a"));
+		assertFalse(index.remove("a"));
+		assertFalse(index.contains("a"));
+		assertEquals(1, index.size());
+		assertEquals(Collections.emptyList(), index.getContaining(1, 1));
+		assertEquals(Arrays.asList("b"), index.getContaining(11, 11));
+	}
+
+	/**
+	 * Tests for point queries.
+	 */
+	@Test
+	public void testGetContaining() {
+		final SpatialIndex<String> index = new SpatialIndex<String>();
+		index.add("big", 2, 2, 6, 6);
+		index.add("small", 5, 5, 1, 1);
+		index.add("empty", 5, 5, 0, 0);
+
+		assertEquals(Arrays.asList("big", "small"), index.getContaining(5, 5));
+		assertEquals(Arrays.asList("big"), index.getContaining(7.5, 2));
+		assertEquals(Collections.emptyList(), index.getContaining(8, 8));
+		assertEquals(Collections.emptyList(), index.getContaining(-3, 100));
+	}
+
+	/**
+	 * Tests footprints with fractional sizes reaching into the next cell.
+	 */
+	@Test
+	public void testFractionalSize() {
+		final SpatialIndex<String> index = new SpatialIndex<String>();
+		index.add("wide", SpatialIndex.CELL_SIZE - 1, 0, 1.5, 1);
+		assertEquals(Arrays.asList("wide"), index.getContaining(SpatialIndex.CELL_SIZE + 0.2, 0.5));
+		assertEquals(Collections.emptyList(), index.getContaining(SpatialIndex.CELL_SIZE + 0.6, 0.5));
+		assertEquals(Arrays.asList("wide"), index.getIntersecting(SpatialIndex.CELL_SIZE + 0.3, 0, 1, 1));
+	}
+
+	/**
+	 * Tests for moving objects between cells.
+	 */
+	@Test
+	public void testUpdate() {
+		final SpatialIndex<String> index = new SpatialIndex<String>();
+		index.add("a", 0, 0, 1, 1);
+		index.update("a", 30, 17, 1, 1);
+		assertEquals(Collections.emptyList(), index.getContaining(0, 0));
+		assertEquals(Arrays.asList("a"), index.getContaining(30, 17));
+
+		index.update("a", 30, 17, 3, 3);
+		assertEquals(Arrays.asList("a"), index.getContaining(32, 19));
+
+		// unknown objects are not added by update
+		index.update("b", 1, 1, 1, 1);
+		assertFalse(index.contains("b"));
+	}
+
+	/**
+	 * Tests that objects spanning several cells are reported only once.
+	 */
+	@Test
+	public void testGetIntersectingSpanningObject() {
+		final SpatialIndex<String> index = new SpatialIndex<String>();
+		index.add("wide", 0, 0, 20, 20);
+		assertEquals(Arrays.asList("wide"), index.getIntersecting(-5, -5, 40, 40));
+		assertEquals(Arrays.asList("wide"), index.getIntersecting(9, 9, 2, 2));
+		assertEquals(Collections.emptyList(), index.getIntersecting(20, 0, 5, 5));
+		assertEquals(Collections.emptyList(), index.getIntersecting(3, 3, 0, 5));
+	}
+
+	/**
+	 * Tests for findIntersecting.
+	 */
+	@Test
+	public void testFindIntersecting() {
+		final SpatialIndex<String> index = new SpatialIndex<String>();
+		index.add("a", 4, 4, 1, 1);
+		index.add("b", 4, 4, 1, 1);
+		assertNull(index.findIntersecting(0, 0, 4, 4, null));
+		final FilterCriteria<String> onlyB = new FilterCriteria<String>() {
+			@Override
+			public boolean passes(final String o) {
+				return "b".equals(o);
+			}
+		};
+		assertEquals("b", index.findIntersecting(3.5, 3.5, 1, 1, onlyB));
+	}
+
+	/**
+	 * Compare the index against a linear scan with random data.
+	 */
+	@Test
+	public void testAgainstLinearScan() {
+		final Random random = new Random(42);
+		final SpatialIndex<Rectangle2D> index = new SpatialIndex<Rectangle2D>();
+		final List<Rectangle2D> areas = new ArrayList<Rectangle2D>();
+		for (int i = 0; i < 200; i++) {
+			final Rectangle2D area = new Rectangle2D.Double(random.nextInt(100) - 5, random.nextInt(100) - 5,
+					random.nextInt(6), random.nextInt(6));
+			areas.add(area);
+			index.add(area, (int) area.getX(), (int) area.getY(), (int) area.getWidth(), (int) area.getHeight());
+		}
+		// move some of them around
+		for (int i = 0; i < 200; i += 3) {
+			final Rectangle2D area = areas.get(i);
+			area.setRect(random.nextInt(120), random.nextInt(120), area.getWidth(), area.getHeight());
+			index.update(area, (int) area.getX(), (int) area.getY(), (int) area.getWidth(), (int) area.getHeight());
+		}
+
+		for (int q = 0; q < 500; q++) {
+			final Rectangle2D query = new Rectangle2D.Double(random.nextInt(130) - 10 + random.nextDouble(),
+					random.nextInt(130) - 10, random.nextInt(12), random.nextInt(12) + 0.5);
+			final List<Rectangle2D> expected = new ArrayList<Rectangle2D>();
+			final List<Rectangle2D> expectedAtPoint = new ArrayList<Rectangle2D>();
+			for (final Rectangle2D area : areas) {
+				if (query.intersects(area)) {
+					expected.add(area);
+				}
+				if (area.contains(query.getX(), query.getY())) {
+					expectedAtPoint.add(area);
+				}
+			}
+			assertEquals(expected, index.getIntersecting(query.getX(), query.getY(), query.getWidth(), query.getHeight()));
+			assertEquals(expectedAtPoint, index.getContaining(query.getX(), query.getY()));
+			final List<Rectangle2D> collected = new ArrayList<Rectangle2D>();
+			index.collectIntersecting(query.getX(), query.getY(), query.getWidth(), query.getHeight(), collected);
+			assertEquals(expected, collected);
+		}
+	}
+}
@@ -1,6 +1,16 @@
 package games.stendhal.server.core.engine;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -8,7 +18,12 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import games.stendhal.server.core.events.MovementListener;
+import games.stendhal.server.entity.ActiveEntity;
+import games.stendhal.server.entity.mapstuff.area.AreaEntity;
+import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
 
 public class StendhalRPZoneTest {
 
@@ -59,4 +74,116 @@ public class StendhalRPZoneTest {
 		assertEquals(StendhalRPZone.describe("hell"),"in Hell");
 	}
 
+	/**
+	 * Tests for the spatially indexed entity queries.
+	 */
+	@Test
+	public void testEntitiesInArea() {
+		final StendhalRPZone zone = new StendhalRPZone("test_spatial_index", 50, 50);
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		final Player alice = PlayerTestHelper.createPlayer("alice");
+		bob.setPosition(3, 3);
+		zone.add(bob);
+		zone.add(alice);
+		alice.setPosition(20, 30);
+
+		final Rectangle2D area = new Rectangle2D.Double(0, 0, 10, 10);
+		assertSame(bob, zone.getEntityAt(3.5, 3.5));
+		assertEquals(Arrays.asList(bob), zone.getEntitiesAt(3, 3, Player.class));
+		assertEquals(Arrays.asList(bob), zone.getEntitiesInArea(area));
+		assertTrue(zone.collidesObjects(alice, new Rectangle2D.Double(3, 3, 1, 1)));
+		assertFalse(zone.collidesObjects(bob, new Rectangle2D.Double(3, 3, 1, 1)));
+
+		alice.setPosition(5, 5);
+		assertEquals(Arrays.asList(bob, alice), zone.getEntitiesInArea(area, Player.class));
+
+		zone.remove(bob);
+		assertNull(zone.getEntityAt(3.5, 3.5));
+		assertEquals(Collections.emptyList(), zone.getEntitiesAt(3, 3));
+		assertEquals(Arrays.asList(alice), zone.getEntitiesInArea(area));
+	}
+
+	/**
+	 * Tests that movement listeners are notified when an entity moves over
+	 * their area, and only then.
+	 */
+	@Test
+	public void testMovementListeners() {
+		final StendhalRPZone zone = new StendhalRPZone("test_movement_listeners", 50, 50);
+		final List<String> events = new ArrayList<String>();
+		final RecordingArea a = new RecordingArea("a", 2, 2, events);
+		a.setPosition(5, 5);
+		zone.add(a);
+		zone.addMovementListener(a);
+		final RecordingArea far = new RecordingArea("far", 1, 1, events);
+		far.setPosition(30, 30);
+		zone.add(far);
+		zone.addMovementListener(far);
+		final RecordingArea c = new RecordingArea("c", 1, 1, events);
+		c.setPosition(4, 5);
+		zone.add(c);
+		zone.addMovementListener(c);
+
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		zone.notifyMovement(bob, 3, 5, 4, 5);
+		assertEquals(Arrays.asList("c entered"), events);
+		events.clear();
+		// listeners are notified in the order they were registered
+		zone.notifyMovement(bob, 4, 5, 5, 5);
+		assertEquals(Arrays.asList("a entered", "c exited"), events);
+		events.clear();
+		zone.notifyMovement(bob, 5, 5, 6, 5);
+		zone.notifyBeforeMovement(bob, 6, 5, 7, 5);
+		zone.notifyBeforeMovement(bob, 5, 5, 6, 6);
+		assertEquals(Arrays.asList("a moved", "a before"), events);
+		events.clear();
+
+		// the index follows listeners that move
+		a.setPosition(20, 20);
+		zone.notifyMovement(bob, 5, 5, 6, 5);
+		zone.notifyMovement(bob, 19, 20, 20, 20);
+		assertEquals(Arrays.asList("a entered"), events);
+		events.clear();
+
+		zone.removeMovementListener(a);
+		zone.notifyExited(bob, 20, 20);
+		zone.notifyEntered(bob, 4, 5);
+		assertEquals(Arrays.asList("c entered"), events);
+	}
+
+	/**
+	 * An area that records the movement notifications it gets.
+	 */
+	private static class RecordingArea extends AreaEntity implements MovementListener {
+		private final String name;
+		private final List<String> events;
+
+		RecordingArea(final String name, final int width, final int height, final List<String> events) {
+			super(width, height);
+			this.name = name;
+			this.events = events;
+		}
+
+		@Override
+		public void onEntered(final ActiveEntity entity, final StendhalRPZone zone, final int newX, final int newY) {
+			events.add(name + " entered");
+		}
+
+		@Override
+		public void onExited(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY) {
+			events.add(name + " exited");
+		}
+
+		@Override
+		public void beforeMove(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY,
+				final int newX, final int newY) {
+			events.add(name + " before");
+		}
+
+		@Override
+		public void onMoved(final ActiveEntity entity, final StendhalRPZone zone, final int oldX, final int oldY,
+				final int newX, final int newY) {
+			events.add(name + " moved");
+		}
+	}
 }
@@ -0,0 +1,137 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import marauroa.common.Log4J;
+
+/**
+ * Tests for WelcomeMessageFetcher against a local web server.
+ */
+public class WelcomeMessageFetcherTest {
+
+	private HttpServer server;
+	private volatile String page;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+	}
+
+	@After
+	public void tearDown() {
+		if (server != null) {
+			server.stop(0);
+		}
+	}
+
+	/**
+	 * starts a web server which answers with the current page
+	 *
+	 * @return address of the welcome message
+	 * @throws IOException in case of an input/output error
+	 */
+	private String startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/welcome", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				final byte[] body = page.getBytes("UTF-8");
+				exchange.sendResponseHeaders(200, body.length);
+				final OutputStream os = exchange.getResponseBody();
+				os.write(body);
+				os.close();
+			}
+		});
+		server.start();
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/welcome";
+	}
+
+	/**
+	 * Tests that the first line is read and refreshed.
+	 */
+	@Test
+	public void testRefresh() throws Exception {
+		page = "Hello\nsecond line";
+		final WelcomeMessageFetcher fetcher = new WelcomeMessageFetcher(startServer(), 1000);
+		assertNull(fetcher.getMessage());
+		fetcher.refresh();
+		assertEquals("Hello", fetcher.getMessage());
+
+		page = "Hello again";
+		fetcher.refresh();
+		assertEquals("Hello again", fetcher.getMessage());
+	}
+
+	/**
+	 * Tests that the last message is kept if the web server is gone.
+	 */
+	@Test
+	public void testKeepLastMessage() throws Exception {
+		page = "Hello";
+		final WelcomeMessageFetcher fetcher = new WelcomeMessageFetcher(startServer(), 1000);
+		fetcher.refresh();
+		server.stop(0);
+		server = null;
+
+		fetcher.refresh();
+		assertEquals("Hello", fetcher.getMessage());
+	}
+
+	/**
+	 * Tests that a web server which does not answer does not block forever.
+	 */
+	@Test
+	public void testTimeout() throws Exception {
+		final ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		try {
+			final WelcomeMessageFetcher fetcher = new WelcomeMessageFetcher(
+					"http://127.0.0.1:" + socket.getLocalPort() + "/welcome", 200);
+			final Thread acceptor = new Thread() {
+				@Override
+				public void run() {
+					try {
+						// accept the connection, but never answer
+						socket.accept();
+					} catch (final IOException e) {
+						// socket closed
+					}
+				}
+			};
+			acceptor.start();
+
+			final long start = System.currentTimeMillis();
+			fetcher.refresh();
+			assertTrue(System.currentTimeMillis() - start < 5000);
+			assertNull(fetcher.getMessage());
+		} finally {
+			socket.close();
+		}
+	}
+}
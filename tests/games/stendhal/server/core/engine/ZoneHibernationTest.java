@@ -0,0 +1,147 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.pathfinder.FixedPath;
+import games.stendhal.server.core.pathfinder.Node;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.mapstuff.spawner.CreatureRespawnPoint;
+import games.stendhal.server.entity.npc.PassiveNPC;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for hibernating zones.
+ */
+public class ZoneHibernationTest {
+	private StendhalRPZone zone;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	@Before
+	public void setUp() {
+		StendhalRPZone.setHibernationEnabled(true);
+		MockStendhalRPRuleProcessor.get().setTurn(0);
+		zone = new StendhalRPZone("hibernation_test", 30, 30);
+	}
+
+	@After
+	public void tearDown() {
+		StendhalRPZone.setHibernationEnabled(false);
+		MockStendhalRPRuleProcessor.get().setTurn(0);
+	}
+
+	/**
+	 * Run the zone logic for a number of turns.
+	 *
+	 * @param turns number of turns
+	 */
+	private void runLogic(final int turns) {
+		final MockStendhalRPRuleProcessor processor = MockStendhalRPRuleProcessor.get();
+		for (int i = 0; i < turns; i++) {
+			processor.setTurn(processor.getTurn() + 1);
+			zone.logic();
+		}
+	}
+
+	/**
+	 * Tests that empty zones start hibernating after a while, and wake up when
+	 * a player enters.
+	 */
+	@Test
+	public void testHibernateAndWakeUp() {
+		runLogic(50);
+		assertFalse(zone.isHibernating());
+		runLogic(60);
+		assertTrue(zone.isHibernating());
+
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		zone.add(player);
+		assertFalse(zone.isHibernating());
+		runLogic(200);
+		assertFalse(zone.isHibernating());
+	}
+
+	/**
+	 * Tests that zones do not hibernate if it has been disabled.
+	 */
+	@Test
+	public void testDisabled() {
+		StendhalRPZone.setHibernationEnabled(false);
+		runLogic(200);
+		assertFalse(zone.isHibernating());
+
+		StendhalRPZone.setHibernationEnabled(true);
+		zone.setAlwaysActive(true);
+		runLogic(200);
+		assertFalse(zone.isHibernating());
+	}
+
+	/**
+	 * Tests that respawn points catch up when the zone wakes up.
+	 */
+	@Test
+	public void testRespawnCatchUp() {
+		runLogic(200);
+		assertTrue(zone.isHibernating());
+
+		final Creature rat = SingletonRepository.getEntityManager().getCreature("rat");
+		final CreatureRespawnPoint point = new CreatureRespawnPoint(zone, 10, 10, rat, 3);
+		zone.add(point);
+		point.onTurnReached(MockStendhalRPRuleProcessor.get().getTurn());
+		assertEquals(0, point.size());
+
+		// Long enough for any reasonable respawn time
+		MockStendhalRPRuleProcessor.get().setTurn(10000000);
+		zone.add(PlayerTestHelper.createPlayer("bob"));
+		assertEquals(3, point.size());
+	}
+
+	/**
+	 * Tests moving NPCs along their path when the zone wakes up.
+	 */
+	@Test
+	public void testNPCCatchUp() {
+		final PassiveNPC npc = new PassiveNPC();
+		final FixedPath path = new FixedPath(Arrays.asList(new Node(0, 0), new Node(5, 0),
+				new Node(5, 5), new Node(0, 5)), true);
+		npc.setPosition(0, 0);
+		npc.setPath(path, 1);
+
+		// speed 0.2, 50 turns: 10 tiles, or two sides of the square
+		npc.catchUp(0, 50);
+		assertEquals(5, npc.getX());
+		assertEquals(5, npc.getY());
+		assertEquals(3, npc.getPathPosition());
+
+		// Full rounds end at the same place
+		npc.catchUp(0, 100);
+		assertEquals(5, npc.getX());
+		assertEquals(5, npc.getY());
+	}
+}
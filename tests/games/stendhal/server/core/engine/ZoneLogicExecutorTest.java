@@ -0,0 +1,119 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.npc.PassiveNPC;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for ZoneLogicExecutor.
+ */
+public class ZoneLogicExecutorTest {
+
+	/**
+	 * An NPC that records the zone name outside of the zone.
+	 */
+	private static class RecordingNPC extends PassiveNPC {
+		private final List<String> log;
+
+		RecordingNPC(final List<String> log) {
+			this.log = log;
+		}
+
+		@Override
+		public void logic() {
+			final String name = getZone().getName();
+			for (int i = 0; i < 3; i++) {
+				final String entry = name + ":" + i;
+				if (!ZoneLogicExecutor.defer(new Runnable() {
+					@Override
+					public void run() {
+						log.add(entry);
+					}
+				})) {
+					log.add(entry);
+				}
+			}
+		}
+	}
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	/**
+	 * Create zones that each contain a recording NPC.
+	 *
+	 * @param log list to record to
+	 * @return zones
+	 */
+	private List<StendhalRPZone> createZones(final List<String> log) {
+		final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>();
+		for (int i = 0; i < 20; i++) {
+			final StendhalRPZone zone = new StendhalRPZone("zone" + i, 10, 10);
+			final RecordingNPC npc = new RecordingNPC(log);
+			npc.setPosition(1, 1);
+			zone.add(npc);
+			zones.add(zone);
+		}
+		return zones;
+	}
+
+	/**
+	 * Tests that parallel and sequential execution give the same result.
+	 */
+	@Test
+	public void testDeterministicMerge() {
+		final List<String> sequentialLog = new ArrayList<String>();
+		final ZoneLogicExecutor sequential = new ZoneLogicExecutor(1);
+		sequential.run(createZones(sequentialLog));
+		assertEquals(60, sequentialLog.size());
+
+		final List<String> parallelLog = Collections.synchronizedList(new ArrayList<String>());
+		final ZoneLogicExecutor parallel = new ZoneLogicExecutor(4);
+		try {
+			final List<StendhalRPZone> zones = createZones(parallelLog);
+			for (int run = 0; run < 5; run++) {
+				parallelLog.clear();
+				parallel.run(zones);
+				assertEquals(sequentialLog, parallelLog);
+			}
+		} finally {
+			parallel.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that actions are not deferred outside of parallel zone logic.
+	 */
+	@Test
+	public void testNoDeferOutsideZoneLogic() {
+		assertFalse(ZoneLogicExecutor.defer(new Runnable() {
+			@Override
+			public void run() {
+				// not called
+			}
+		}));
+		assertFalse(ZoneLogicExecutor.isForeignZone(new StendhalRPZone("other")));
+	}
+}
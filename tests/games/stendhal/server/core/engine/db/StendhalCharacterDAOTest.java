@@ -0,0 +1,148 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.Log4J;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.AccountDAO;
+import marauroa.server.game.db.CharacterDAO;
+import marauroa.server.game.db.DAORegister;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for storing characters with StendhalCharacterDAO.
+ */
+public class StendhalCharacterDAOTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+		PlayerTestHelper.generatePlayerRPClasses();
+	}
+
+	/**
+	 * Tests that only changes are written.
+	 */
+	@Test
+	public void testStoreChanges() throws Exception {
+		final CharacterDAO characterDAO = DAORegister.get().get(CharacterDAO.class);
+		final Player player = PlayerTestHelper.createPlayer("storetest");
+		DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			addCharacter(transaction, player);
+			transaction.execute("DELETE FROM buddy WHERE charname='storetest'", null);
+			player.setHP(50);
+			characterDAO.storeCharacter(transaction, "storetest", "storetest", player);
+			assertEquals(50, transaction.querySingleCellInt("SELECT hp FROM character_stats WHERE name='storetest'", null));
+			TransactionPool.get().commit(transaction);
+
+			// copies handed to the database thread share the state of the player
+			final Player copy = (Player) player.clone();
+			assertSame(player.getStoredCharacter(), copy.getStoredCharacter());
+
+			// unchanged characters are not written at all
+			transaction = TransactionPool.get().beginWork();
+			transaction.execute("UPDATE character_stats SET age=999 WHERE name='storetest'", null);
+			characterDAO.storeCharacter(transaction, "storetest", "storetest", copy);
+			assertEquals(999, transaction.querySingleCellInt("SELECT age FROM character_stats WHERE name='storetest'", null));
+			TransactionPool.get().commit(transaction);
+
+			// only changed columns are updated
+			transaction = TransactionPool.get().beginWork();
+			player.setHP(40);
+			player.addBuddy("storetestbuddy", false);
+			characterDAO.storeCharacter(transaction, "storetest", "storetest", (Player) player.clone());
+			assertEquals(40, transaction.querySingleCellInt("SELECT hp FROM character_stats WHERE name='storetest'", null));
+			assertEquals(999, transaction.querySingleCellInt("SELECT age FROM character_stats WHERE name='storetest'", null));
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM buddy WHERE charname='storetest' AND buddy='storetestbuddy'", null));
+			TransactionPool.get().commit(transaction);
+
+			// buddies are compared to the last write, not loaded again
+			transaction = TransactionPool.get().beginWork();
+			transaction.execute("INSERT INTO buddy (charname, relationtype, buddy) VALUES ('storetest', 'buddy', 'storetestother')", null);
+			player.setHP(30);
+			player.removeBuddy("storetestbuddy");
+			characterDAO.storeCharacter(transaction, "storetest", "storetest", (Player) player.clone());
+			assertEquals(0, transaction.querySingleCellInt("SELECT count(*) FROM buddy WHERE charname='storetest' AND buddy='storetestbuddy'", null));
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM buddy WHERE charname='storetest' AND buddy='storetestother'", null));
+			TransactionPool.get().commit(transaction);
+
+			// a new player object writes everything again
+			transaction = TransactionPool.get().beginWork();
+			final Player loaded = PlayerTestHelper.createPlayer("storetest");
+			loaded.setHP(30);
+			characterDAO.storeCharacter(transaction, "storetest", "storetest", loaded);
+			assertEquals(0, transaction.querySingleCellInt("SELECT age FROM character_stats WHERE name='storetest'", null));
+			assertEquals(0, transaction.querySingleCellInt("SELECT count(*) FROM buddy WHERE charname='storetest' AND buddy='storetestother'", null));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+
+	/**
+	 * Tests that a write, which was rolled back, is not remembered.
+	 */
+	@Test
+	public void testStoreRollback() throws Exception {
+		final CharacterDAO characterDAO = DAORegister.get().get(CharacterDAO.class);
+		final Player player = PlayerTestHelper.createPlayer("rollbacktest");
+		DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			addCharacter(transaction, player);
+			player.setHP(50);
+			characterDAO.storeCharacter(transaction, "rollbacktest", "rollbacktest", player);
+			TransactionPool.get().commit(transaction);
+
+			transaction = TransactionPool.get().beginWork();
+			player.setHP(40);
+			characterDAO.storeCharacter(transaction, "rollbacktest", "rollbacktest", player);
+			TransactionPool.get().rollback(transaction);
+
+			// the same state is written again
+			transaction = TransactionPool.get().beginWork();
+			assertEquals(50, transaction.querySingleCellInt("SELECT hp FROM character_stats WHERE name='rollbacktest'", null));
+			characterDAO.storeCharacter(transaction, "rollbacktest", "rollbacktest", player);
+			assertEquals(40, transaction.querySingleCellInt("SELECT hp FROM character_stats WHERE name='rollbacktest'", null));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+
+	/**
+	 * adds the account and the character of a player unless they exist
+	 *
+	 * @param transaction transaction
+	 * @param player player
+	 * @throws Exception in case of an database error
+	 */
+	private static void addCharacter(final DBTransaction transaction, final Player player) throws Exception {
+		final String name = player.getName();
+		final AccountDAO accountDAO = DAORegister.get().get(AccountDAO.class);
+		if (!accountDAO.hasPlayer(transaction, name)) {
+			accountDAO.addPlayer(transaction, name, new byte[] {1}, name + "@example.com");
+		}
+		final CharacterDAO characterDAO = DAORegister.get().get(CharacterDAO.class);
+		if (!characterDAO.hasCharacter(transaction, name, name)) {
+			characterDAO.addCharacter(transaction, name, name, player);
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.ItemLogger;
+import games.stendhal.server.core.engine.dbcommand.AbstractLogItemEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogItemEventBatchCommand;
+import games.stendhal.server.core.engine.dbcommand.LogMergeItemEventCommand;
+import games.stendhal.server.core.engine.dbcommand.LogSimpleItemEventCommand;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.Log4J;
+import marauroa.common.game.RPObject;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for the item log writing of StendhalItemDAO.
+ */
+public class StendhalItemDAOTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+		PlayerTestHelper.generatePlayerRPClasses();
+	}
+
+	private static RPObject createItem(final String name, final int quantity) {
+		final RPObject item = new RPObject();
+		item.put("name", name);
+		item.put("quantity", quantity);
+		return item;
+	}
+
+	/**
+	 * Read the log rows of an item.
+	 */
+	private static List<String> readLog(final DBTransaction transaction, final RPObject item) throws SQLException {
+		final List<String> rows = new ArrayList<String>();
+		final ResultSet resultSet = transaction.query("SELECT source, event, param1, param2, param3, param4 FROM itemlog WHERE itemid="
+				+ item.getInt(StendhalItemDAO.ATTR_ITEM_LOGID) + " ORDER BY id", null);
+		while (resultSet.next()) {
+			rows.add(resultSet.getString(1) + " " + resultSet.getString(2) + " " + resultSet.getString(3) + " "
+					+ resultSet.getString(4) + " " + resultSet.getString(5) + " " + resultSet.getString(6));
+		}
+		resultSet.close();
+		return rows;
+	}
+
+	/**
+	 * Tests writing several events as one batch.
+	 */
+	@Test
+	public void testBatch() throws SQLException {
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		final RPObject coins = createItem("money", 10);
+		final RPObject moreCoins = createItem("money", 5);
+		final String longText = "0123456789012345678901234567890123456789012345678901234567890123456789";
+
+		final List<AbstractLogItemEventCommand> commands = new ArrayList<AbstractLogItemEventCommand>();
+		commands.add(new LogSimpleItemEventCommand(coins, bob, "create", "money", "10", "olditem", longText));
+		commands.add(new LogSimpleItemEventCommand(moreCoins, null, "ground-to-ground", "zone", "1 2", "zone", "3 4"));
+		commands.add(new LogMergeItemEventCommand(bob, moreCoins, coins));
+		// not logged before, so the destruction is not logged either
+		final RPObject unknown = createItem("dagger", 1);
+		commands.add(new LogSimpleItemEventCommand(unknown, bob, "destroy", "dagger", "1", "quest", null));
+
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			new LogItemEventBatchCommand(commands).execute(transaction);
+			assertFalse(unknown.has(StendhalItemDAO.ATTR_ITEM_LOGID));
+
+			final String coinsId = coins.get(StendhalItemDAO.ATTR_ITEM_LOGID);
+			final String moreCoinsId = moreCoins.get(StendhalItemDAO.ATTR_ITEM_LOGID);
+			assertEquals(Arrays.asList(
+					"null register money 10 null null",
+					"bob create money 10 olditem " + longText.substring(0, 64),
+					"bob merged in " + moreCoinsId + " 10 5 15"),
+					readLog(transaction, coins));
+			assertEquals(Arrays.asList(
+					"null register money 5 null null",
+					"null ground-to-ground zone 1 2 zone 3 4",
+					"bob merge in " + coinsId + " 5 10 15"),
+					readLog(transaction, moreCoins));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+
+	/**
+	 * Tests that item ids are handed out from reserved blocks, and that the
+	 * item rows are written together with the log entries.
+	 */
+	@Test
+	public void testIdAllocation() throws SQLException {
+		final StendhalItemDAO dao = new StendhalItemDAO();
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			final List<ItemLogEntry> entries = new ArrayList<ItemLogEntry>();
+			final List<RPObject> items = new ArrayList<RPObject>();
+			for (int i = 0; i < 5; i++) {
+				final RPObject item = createItem("arrow", i + 1);
+				dao.itemLogAssignIDIfNotPresent(transaction, item, entries);
+				items.add(item);
+			}
+			final int first = items.get(0).getInt(StendhalItemDAO.ATTR_ITEM_LOGID);
+			for (int i = 0; i < 5; i++) {
+				assertEquals(first + i, items.get(i).getInt(StendhalItemDAO.ATTR_ITEM_LOGID));
+			}
+			// the block is reserved beyond the handed out ids
+			assertTrue(transaction.querySingleCellInt("SELECT next_id FROM item_reservation", null) > first + 4);
+			// nothing written before the entries are
+			assertEquals(0, transaction.querySingleCellInt("SELECT count(*) FROM item WHERE id >= " + first, null));
+
+			dao.itemLogWriteEntries(transaction, entries);
+			assertEquals(5, transaction.querySingleCellInt("SELECT count(*) FROM item WHERE name='arrow' AND id >= " + first, null));
+			assertEquals(Arrays.asList("null register arrow 3 null null"), readLog(transaction, items.get(2)));
+
+			// a new DAO continues after the reserved block
+			final RPObject other = createItem("arrow", 1);
+			new StendhalItemDAO().itemLogAssignIDIfNotPresent(transaction, other);
+			assertTrue(other.getInt(StendhalItemDAO.ATTR_ITEM_LOGID) > first + 4);
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM item WHERE id = "
+					+ other.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), null));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+
+	/**
+	 * Tests that the item logger buffers events until there are enough for
+	 * a batch.
+	 */
+	@Test
+	public void testBuffer() {
+		ItemLogger.flush();
+		final ItemLogger itemLogger = new ItemLogger();
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		final RPObject item = createItem("money", 1);
+		item.put(StendhalItemDAO.ATTR_ITEM_LOGID, 1);
+		for (int i = 1; i < 200; i++) {
+			itemLogger.addLogItemEventCommand(new LogSimpleItemEventCommand(item, bob, "use", "1", "1", null, null));
+			assertEquals(i, ItemLogger.getBufferedEvents());
+		}
+		itemLogger.addLogItemEventCommand(new LogSimpleItemEventCommand(item, bob, "use", "1", "1", null, null));
+		assertEquals(0, ItemLogger.getBufferedEvents());
+
+		// not due yet
+		itemLogger.addLogItemEventCommand(new LogSimpleItemEventCommand(item, bob, "use", "1", "1", null, null));
+		ItemLogger.flushIfDue();
+		assertEquals(1, ItemLogger.getBufferedEvents());
+		ItemLogger.flush();
+		assertEquals(0, ItemLogger.getBufferedEvents());
+	}
+}
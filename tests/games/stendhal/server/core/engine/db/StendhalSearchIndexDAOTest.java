@@ -0,0 +1,68 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.rp.searchindex.SearchIndexEntity;
+import games.stendhal.server.core.rp.searchindex.SearchIndexEntry;
+import marauroa.common.Log4J;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DAORegister;
+import marauroa.server.game.db.DatabaseFactory;
+
+/**
+ * Tests for StendhalSearchIndexDAO.
+ */
+public class StendhalSearchIndexDAOTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	/**
+	 * Tests writing and deleting the entries of entities.
+	 */
+	@Test
+	public void testEntities() throws Exception {
+		final StendhalSearchIndexDAO dao = DAORegister.get().get(StendhalSearchIndexDAO.class);
+		final SearchIndexEntity rat = new SearchIndexEntity('C', "testrat");
+		final SearchIndexEntity cheese = new SearchIndexEntity('I', "testcheese");
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			dao.addNewEntries(transaction, new HashSet<SearchIndexEntry>(Arrays.asList(
+					new SearchIndexEntry("testrat", 'C', "testrat", 3070),
+					new SearchIndexEntry("testcheese", 'I', "testcheese", 3080))));
+			dao.addHashes(transaction, Arrays.asList(rat, cheese));
+			assertEquals(rat.getHash(), dao.readHashes(transaction).get(rat.getKey()));
+
+			dao.deleteEntities(transaction, Collections.singletonList(rat.getKey()));
+			assertNull(dao.readHashes(transaction).get(rat.getKey()));
+			assertEquals(cheese.getHash(), dao.readHashes(transaction).get(cheese.getKey()));
+			assertEquals(0, transaction.querySingleCellInt("SELECT count(*) FROM searchindex WHERE entityname='testrat'", null));
+			assertEquals(1, transaction.querySingleCellInt("SELECT count(*) FROM searchindex WHERE entityname='testcheese'", null));
+		} finally {
+			TransactionPool.get().rollback(transaction);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+import java.sql.SQLException;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.events.TurnNotifier;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import marauroa.common.Log4J;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.DBCommandQueue;
+import marauroa.server.db.command.ResultHandle;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for AdminJobRunner.
+ */
+public class AdminJobRunnerTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		// create the queue and its thread before any other code uses it
+		DBCommandQueue.get();
+		new DatabaseFactory().initializeDatabase();
+		MockStendlRPWorld.get();
+		awaitCommandQueue();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendhalRPRuleProcessor.get().clearPlayers();
+		MockStendlRPWorld.reset();
+		// stops the database thread, once it is idle
+		DBCommandQueue.get().finish();
+	}
+
+	/**
+	 * waits until the database thread completed a first command.
+	 * DBCommandQueue.get() is not synchronized, so the thread started by the
+	 * first call may rarely create and wait on a second instance. The tests
+	 * are skipped then.
+	 */
+	private static void awaitCommandQueue() throws Exception {
+		final ResultHandle handle = new ResultHandle();
+		DBCommandQueue.get().enqueueAndAwaitResult(new TestJob(null, false), handle);
+		for (int i = 0; i < 1000; i++) {
+			if (DBCommandQueue.get().getOneResult(TestJob.class, handle) != null) {
+				return;
+			}
+			Thread.sleep(10);
+		}
+		assumeTrue("DBCommandQueue does not process commands", false);
+	}
+
+	/**
+	 * a job which remembers the threads it was executed on
+	 */
+	private static class TestJob extends AbstractAdminJobCommand {
+		private final boolean fail;
+		private Thread executeThread;
+		private Thread finishThread;
+		private Player finishAdmin;
+
+		TestJob(final String adminName, final boolean fail) {
+			super(adminName);
+			this.fail = fail;
+		}
+
+		@Override
+		public void execute(final DBTransaction transaction) throws SQLException {
+			executeThread = Thread.currentThread();
+			reportProgress("working");
+			if (fail) {
+				throw new SQLException("broken");
+			}
+		}
+
+		@Override
+		public void onFinished(final Player admin) {
+			finishThread = Thread.currentThread();
+			finishAdmin = admin;
+		}
+	}
+
+	/**
+	 * runs turns until the job finished or failed
+	 *
+	 * @param job job to wait for
+	 * @param admin admin who started the job
+	 */
+	private void runTurns(final TestJob job, final Player admin) throws InterruptedException {
+		final TurnNotifier turnNotifier = TurnNotifier.get();
+		for (int i = 0; i < 500 && job.finishThread == null && admin.events().size() < 2; i++) {
+			Thread.sleep(10);
+			turnNotifier.logic(turnNotifier.getCurrentTurnForDebugging() + 1);
+		}
+	}
+
+	/**
+	 * Tests that the job runs on the database thread and finishes on the turn thread.
+	 */
+	@Test
+	public void testRun() throws Exception {
+		final Player admin = PlayerTestHelper.createPlayer("jobadmin");
+		MockStendhalRPRuleProcessor.get().addPlayer(admin);
+		try {
+			final TestJob job = new TestJob("jobadmin", false);
+			AdminJobRunner.start(job);
+			runTurns(job, admin);
+
+			assertNotSame(Thread.currentThread(), job.executeThread);
+			assertSame(Thread.currentThread(), job.finishThread);
+			assertSame(admin, job.finishAdmin);
+			assertEquals("working", admin.events().get(0).get("text"));
+		} finally {
+			MockStendhalRPRuleProcessor.get().clearPlayers();
+		}
+	}
+
+	/**
+	 * Tests that errors are reported to the admin.
+	 */
+	@Test
+	public void testFailure() throws Exception {
+		final Player admin = PlayerTestHelper.createPlayer("jobadmin");
+		MockStendhalRPRuleProcessor.get().addPlayer(admin);
+		try {
+			final TestJob job = new TestJob("jobadmin", true);
+			AdminJobRunner.start(job);
+			runTurns(job, admin);
+
+			assertEquals(null, job.finishThread);
+			assertEquals(2, admin.events().size());
+			assertEquals("working", admin.events().get(0).get("text"));
+			assertEquals("java.sql.SQLException: broken", admin.events().get(1).get("text"));
+		} finally {
+			MockStendhalRPRuleProcessor.get().clearPlayers();
+		}
+	}
+}
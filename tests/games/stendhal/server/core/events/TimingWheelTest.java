@@ -0,0 +1,188 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for TimingWheel.
+ */
+public class TimingWheelTest {
+
+	/**
+	 * A listener that does nothing.
+	 */
+	private static class Listener implements TurnListener {
+		private final String name;
+
+		Listener(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void onTurnReached(final int currentTurn) {
+			// do nothing
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * Tests for schedule and advance.
+	 */
+	@Test
+	public void testScheduleAndAdvance() {
+		final TimingWheel wheel = new TimingWheel(0);
+		final TurnListener a = new Listener("a");
+		final TurnListener b = new Listener("b");
+		assertTrue(wheel.schedule(2, a));
+		assertTrue(wheel.schedule(2, b));
+		assertFalse(wheel.schedule(2, a));
+		assertTrue(wheel.schedule(1000, a));
+		assertEquals(3, wheel.size());
+
+		assertEquals(Collections.emptyList(), wheel.advance(0));
+		assertEquals(Collections.emptyList(), wheel.advance(1));
+		assertEquals(Arrays.asList(a, b), wheel.advance(2));
+		assertEquals(1, wheel.size());
+		assertEquals(1000, wheel.getFirstTurn(a));
+		assertEquals(-1, wheel.getFirstTurn(b));
+		for (int turn = 3; turn < 1000; turn++) {
+			assertEquals(Collections.emptyList(), wheel.advance(turn));
+		}
+		assertEquals(Arrays.asList(a), wheel.advance(1000));
+		assertEquals(0, wheel.size());
+	}
+
+	/**
+	 * Tests that entries cascaded down from a higher wheel keep their
+	 * scheduling order.
+	 */
+	@Test
+	public void testOrderAfterCascade() {
+		final TimingWheel wheel = new TimingWheel(0);
+		final TurnListener early = new Listener("early");
+		final TurnListener late = new Listener("late");
+		assertTrue(wheel.schedule(300, early));
+		for (int turn = 0; turn < 100; turn++) {
+			wheel.advance(turn);
+		}
+		assertTrue(wheel.schedule(300, late));
+		for (int turn = 100; turn < 300; turn++) {
+			assertEquals(Collections.emptyList(), wheel.advance(turn));
+		}
+		assertEquals(Arrays.asList(early, late), wheel.advance(300));
+	}
+
+	/**
+	 * Tests for cancel.
+	 */
+	@Test
+	public void testCancel() {
+		final TimingWheel wheel = new TimingWheel(0);
+		final TurnListener a = new Listener("a");
+		wheel.schedule(5, a);
+		wheel.schedule(70000, a);
+		assertEquals(5, wheel.getFirstTurn(a));
+		assertEquals(2, wheel.cancel(a));
+		assertEquals(0, wheel.cancel(a));
+		assertEquals(0, wheel.size());
+		assertEquals(-1, wheel.getFirstTurn(a));
+		for (int turn = 0; turn < 10; turn++) {
+			assertEquals(Collections.emptyList(), wheel.advance(turn));
+		}
+	}
+
+	/**
+	 * Tests jumping to a different turn.
+	 */
+	@Test
+	public void testJump() {
+		final TimingWheel wheel = new TimingWheel(0);
+		final TurnListener a = new Listener("a");
+		final TurnListener b = new Listener("b");
+		wheel.schedule(500, a);
+		wheel.schedule(10, b);
+		assertEquals(Arrays.asList(a), wheel.advance(500));
+		// b was skipped, but is still fired when its turn is reached again
+		assertEquals(Arrays.asList(b), wheel.advance(10));
+		assertEquals(0, wheel.size());
+	}
+
+	/**
+	 * Compare the wheel with a simple list of random entries over a long run
+	 * covering several cascades.
+	 */
+	@Test
+	public void testAgainstList() {
+		final Random random = new Random(4711);
+		final TimingWheel wheel = new TimingWheel(0);
+		final List<Listener> listeners = new ArrayList<Listener>();
+		for (int i = 0; i < 50; i++) {
+			listeners.add(new Listener(Integer.toString(i)));
+		}
+		final List<int[]> expected = new ArrayList<int[]>();
+		final int[] ranges = { 10, 300, 20000, 1200000 };
+
+		for (int turn = 0; turn < 70000; turn++) {
+			if (random.nextInt(4) == 0) {
+				final int listener = random.nextInt(listeners.size());
+				final int due = turn + 1 + random.nextInt(ranges[random.nextInt(ranges.length)]);
+				boolean known = false;
+				for (final int[] entry : expected) {
+					known |= (entry[0] == listener) && (entry[1] == due);
+				}
+				assertEquals(!known, wheel.schedule(due, listeners.get(listener)));
+				if (!known) {
+					expected.add(new int[] { listener, due });
+				}
+			}
+			if (random.nextInt(50) == 0) {
+				final int listener = random.nextInt(listeners.size());
+				int count = 0;
+				for (int i = expected.size() - 1; i >= 0; i--) {
+					if (expected.get(i)[0] == listener) {
+						expected.remove(i);
+						count++;
+					}
+				}
+				assertEquals(count, wheel.cancel(listeners.get(listener)));
+			}
+
+			final List<TurnListener> due = new ArrayList<TurnListener>();
+			for (int i = 0; i < expected.size(); i++) {
+				if (expected.get(i)[1] == turn) {
+					due.add(listeners.get(expected.get(i)[0]));
+					expected.remove(i);
+					i--;
+				}
+			}
+			final List<TurnListener> fired = wheel.advance(turn);
+			assertEquals("turn " + turn, due.size(), fired.size());
+			assertTrue("turn " + turn, fired.containsAll(due));
+			assertEquals(expected.size(), wheel.size());
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for FlowField and FlowFieldCache.
+ */
+public class FlowFieldTest {
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	@After
+	public void tearDown() {
+		MockStendhalRPRuleProcessor.get().setTurn(0);
+	}
+
+	/**
+	 * Compare the distances of the field to Jump Point Search, which finds
+	 * shortest paths, and check that the paths follow the field.
+	 */
+	@Test
+	public void testDistances() {
+		final Random random = new Random(5);
+		final StendhalRPZone zone = new StendhalRPZone("test", 40, 30);
+		for (int i = 0; i < 300; i++) {
+			zone.collisionMap.setCollide(random.nextInt(40), random.nextInt(30));
+		}
+		final FlowField field = new FlowField(zone.collisionMap, 1, 1);
+		final Rectangle goal = new Rectangle(18, 13, 3, 3);
+		field.build(goal, 30);
+
+		for (int x = 0; x < 40; x++) {
+			for (int y = 0; y < 30; y++) {
+				if (zone.collisionMap.collides(x, y)) {
+					assertEquals(-1, field.getDistance(x, y));
+					continue;
+				}
+				final SimplePathfinder finder = new SimplePathfinder(zone.collisionMap, x, y, goal, 30);
+				finder.setJumpPointSearch(true);
+				final int[] expected = finder.getPackedPath();
+				final List<Node> path = field.getPath(x, y);
+				if ((expected.length == 0) || (expected.length > 31)) {
+					assertEquals(-1, field.getDistance(x, y));
+					assertTrue(path.isEmpty());
+					continue;
+				}
+				assertEquals(expected.length - 1, field.getDistance(x, y));
+				assertEquals(expected.length, path.size());
+				assertEquals(new Node(x, y), path.get(0));
+				final Node last = path.get(path.size() - 1);
+				assertTrue(goal.contains(last.getX(), last.getY()));
+				for (int n = 1; n < path.size(); n++) {
+					final Node a = path.get(n - 1);
+					final Node b = path.get(n);
+					assertEquals(1, Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY()));
+					assertFalse(zone.collisionMap.collides(b.getX(), b.getY()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that a field covering everything reachable can tell that a
+	 * position is unreachable.
+	 */
+	@Test
+	public void testComplete() {
+		final StendhalRPZone zone = new StendhalRPZone("test", 20, 20);
+		// wall off the left side
+		for (int y = 0; y < 20; y++) {
+			zone.collisionMap.setCollide(5, y);
+		}
+		final FlowField field = new FlowField(zone.collisionMap, 1, 1);
+		field.build(new Rectangle(1, 1, 1, 1), 100);
+		assertTrue(field.isComplete());
+		assertTrue(field.getPath(10, 10).isEmpty());
+
+		field.build(new Rectangle(1, 1, 1, 1), 3);
+		assertFalse(field.isComplete());
+		assertEquals(4, field.getPath(3, 2).size());
+	}
+
+	/**
+	 * Tests that creatures chasing the same target share one field, which is
+	 * rebuilt only when the target moves.
+	 */
+	@Test
+	public void testSharedField() {
+		MockStendhalRPRuleProcessor.get().setTurn(1);
+		final StendhalRPZone zone = new StendhalRPZone("flowfield_test", 50, 50);
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setPosition(25, 25);
+		zone.add(player);
+		final List<Creature> creatures = new ArrayList<Creature>();
+		for (int i = 0; i < 40; i++) {
+			final Creature rat = SingletonRepository.getEntityManager().getCreature("rat");
+			rat.setPosition(5 + i, (i % 2 == 0) ? 5 : 45);
+			zone.add(rat);
+			creatures.add(rat);
+		}
+
+		final FlowFieldCache cache = zone.getFlowFields();
+		for (final Creature creature : creatures) {
+			final List<Node> path = Path.searchPathAlongFlowField(creature, player, 60);
+			assertFalse(path.isEmpty());
+			// the field finds shortest paths, but ignores other entities
+			assertTrue(path.size() <= Path.searchPath(creature, player, 60).size());
+		}
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getBuilds());
+
+		player.setPosition(26, 25);
+		for (final Creature creature : creatures) {
+			assertFalse(Path.searchPathAlongFlowField(creature, player, 60).isEmpty());
+		}
+		assertEquals(2, cache.getBuilds());
+
+		// too far for the field; the caller has to search a path itself
+		assertNull(cache.getPath(creatures.get(0), player, 5));
+	}
+}
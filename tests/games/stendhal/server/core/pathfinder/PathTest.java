@@ -13,9 +13,16 @@
 package games.stendhal.server.core.pathfinder;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -74,4 +81,148 @@ public class PathTest {
 
 		assertArrayEquals(expected.toArray(), Path.searchPath(zone, 0, 0, 6, 6, 20).toArray());
 	}
+
+	/**
+	 * Compare the length of found paths to a breadth first search in zones
+	 * with random obstacles.
+	 */
+	@Test
+	public void testShortestPathsWithObstacles() {
+		final Random random = new Random(3);
+		for (int round = 0; round < 20; round++) {
+			final StendhalRPZone zone = new StendhalRPZone("test", 30, 20);
+			for (int i = 0; i < 150; i++) {
+				zone.collisionMap.setCollide(random.nextInt(30), random.nextInt(20));
+			}
+			for (int i = 0; i < 10; i++) {
+				final int sx = random.nextInt(30);
+				final int sy = random.nextInt(20);
+				final int ex = random.nextInt(30);
+				final int ey = random.nextInt(20);
+				if (zone.collisionMap.collides(sx, sy) || zone.collisionMap.collides(ex, ey)) {
+					continue;
+				}
+				final int expected = breadthFirstDistance(zone, sx, sy, ex, ey);
+				final List<Node> path = Path.searchPath(zone, sx, sy, ex, ey, 1000);
+				if (expected == -1) {
+					assertTrue(path.isEmpty());
+				} else {
+					assertEquals(expected + 1, path.size());
+					assertEquals(new Node(sx, sy), path.get(0));
+					assertEquals(new Node(ex, ey), path.get(path.size() - 1));
+					for (int n = 1; n < path.size(); n++) {
+						final Node a = path.get(n - 1);
+						final Node b = path.get(n);
+						assertEquals(1, Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY()));
+						assertTrue(!zone.collisionMap.collides(b.getX(), b.getY()));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compare Jump Point Search to a breadth first search with goal areas and
+	 * different obstacle densities.
+	 */
+	@Test
+	public void testJumpPointSearch() {
+		final Random random = new Random(11);
+		for (int round = 0; round < 40; round++) {
+			final StendhalRPZone zone = new StendhalRPZone("test", 40, 30);
+			final int obstacles = random.nextInt(500);
+			for (int i = 0; i < obstacles; i++) {
+				zone.collisionMap.setCollide(random.nextInt(40), random.nextInt(30));
+			}
+			for (int i = 0; i < 10; i++) {
+				final int sx = random.nextInt(40);
+				final int sy = random.nextInt(30);
+				if (zone.collisionMap.collides(sx, sy)) {
+					continue;
+				}
+				final Rectangle goal = new Rectangle(random.nextInt(40), random.nextInt(30),
+						1 + random.nextInt(3), 1 + random.nextInt(3));
+				final int expected = breadthFirstDistance(zone, sx, sy, goal);
+				final SimplePathfinder jps = new SimplePathfinder(zone.collisionMap, sx, sy, goal, 1000);
+				jps.setJumpPointSearch(true);
+				final List<Node> path = jps.getPath();
+
+				if (expected == -1) {
+					assertTrue(path.isEmpty());
+				} else {
+					assertEquals(expected + 1, path.size());
+					assertEquals(new Node(sx, sy), path.get(0));
+					final Node last = path.get(path.size() - 1);
+					assertTrue(goal.contains(last.getX(), last.getY()));
+					for (int n = 1; n < path.size(); n++) {
+						final Node a = path.get(n - 1);
+						final Node b = path.get(n);
+						assertEquals(1, Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY()));
+						assertTrue(!zone.collisionMap.collides(b.getX(), b.getY()));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check that Jump Point Search expands fewer nodes on an open map.
+	 */
+	@Test
+	public void testJumpPointSearchExpandsLess() {
+		final StendhalRPZone zone = new StendhalRPZone("test", 100, 100);
+		for (int y = 10; y < 90; y++) {
+			zone.collisionMap.setCollide(50, y);
+		}
+		final Rectangle goal = new Rectangle(95, 50, 1, 1);
+		final SimplePathfinder aStar = new SimplePathfinder(zone.collisionMap, 5, 50, goal, 1000);
+		aStar.setJumpPointSearch(false);
+		final SimplePathfinder jps = new SimplePathfinder(zone.collisionMap, 5, 50, goal, 1000);
+		assertEquals(aStar.getPath().size(), jps.getPath().size());
+		assertTrue(jps.getExpandedNodes() < aStar.getExpandedNodes());
+	}
+
+	/**
+	 * Find the length of the shortest path with a breadth first search.
+	 *
+	 * @return number of steps, or -1 if there is no path
+	 */
+	private static int breadthFirstDistance(final StendhalRPZone zone, final int sx, final int sy,
+			final int ex, final int ey) {
+		return breadthFirstDistance(zone, sx, sy, new Rectangle(ex, ey, 1, 1));
+	}
+
+	/**
+	 * Find the length of the shortest path to an area with a breadth first
+	 * search.
+	 *
+	 * @return number of steps, or -1 if there is no path
+	 */
+	private static int breadthFirstDistance(final StendhalRPZone zone, final int sx, final int sy,
+			final Rectangle goal) {
+		final int width = zone.getWidth();
+		final int[] distance = new int[width * zone.getHeight()];
+		Arrays.fill(distance, -1);
+		final Deque<Integer> queue = new ArrayDeque<Integer>();
+		distance[sx + sy * width] = 0;
+		queue.add(sx + sy * width);
+		final int[][] moves = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+		while (!queue.isEmpty()) {
+			final int node = queue.poll();
+			final int x = node % width;
+			final int y = node / width;
+			if (goal.contains(x, y)) {
+				return distance[node];
+			}
+			for (final int[] move : moves) {
+				final int nx = x + move[0];
+				final int ny = y + move[1];
+				if (!zone.collisionMap.collides(nx, ny) && (distance[nx + ny * width] == -1)) {
+					distance[nx + ny * width] = distance[node] + 1;
+					queue.add(nx + ny * width);
+				}
+			}
+		}
+		return -1;
+	}
 }
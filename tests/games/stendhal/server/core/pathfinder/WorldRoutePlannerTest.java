@@ -0,0 +1,152 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+/**
+ * Tests for WorldRoutePlanner.
+ */
+public class WorldRoutePlannerTest {
+	private StendhalRPZone west;
+	private StendhalRPZone east;
+	private StendhalRPZone house;
+	private List<StendhalRPZone> zones;
+	private WorldRoutePlanner planner;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	/**
+	 * Two exterior zones next to each other, and a house with a door in the
+	 * eastern zone.
+	 */
+	@Before
+	public void setUp() {
+		west = new StendhalRPZone("route_west", 20, 20);
+		west.setPosition(0, 0, 0);
+		east = new StendhalRPZone("route_east", 20, 20);
+		east.setPosition(0, 20, 0);
+		house = new StendhalRPZone("route_house", 10, 10);
+
+		// a wall between the zones with a gap at y = 15..17
+		for (int y = 0; y < 20; y++) {
+			if ((y < 15) || (y > 17)) {
+				west.collisionMap.setCollide(19, y);
+			}
+		}
+
+		addPortal(east, 10, 2, 1, "route_house", 2);
+		addPortal(house, 5, 9, 2, "route_east", 1);
+
+		zones = new ArrayList<StendhalRPZone>();
+		zones.add(west);
+		zones.add(east);
+		zones.add(house);
+		planner = new WorldRoutePlanner(zones);
+	}
+
+	private void addPortal(final StendhalRPZone zone, final int x, final int y, final int id,
+			final String destZone, final int destId) {
+		final Portal portal = new Portal();
+		portal.setPosition(x, y);
+		portal.setIdentifier(Integer.valueOf(id));
+		portal.setDestination(destZone, Integer.valueOf(destId));
+		zone.add(portal);
+	}
+
+	/**
+	 * Check that a route is continuous within each zone.
+	 */
+	private void checkSegments(final List<RPZonePath> route) {
+		for (final RPZonePath segment : route) {
+			final List<Node> path = segment.getPath();
+			assertTrue(!path.isEmpty());
+			for (int i = 1; i < path.size(); i++) {
+				final Node a = path.get(i - 1);
+				final Node b = path.get(i);
+				assertEquals(1, Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY()));
+				assertTrue(!segment.getZone().collisionMap.collides(b.getX(), b.getY()));
+			}
+		}
+	}
+
+	/**
+	 * Tests a route over a zone border and through a portal.
+	 */
+	@Test
+	public void testRoute() {
+		// two portals, one pair of border doors
+		assertEquals(4, planner.getDoorCount());
+
+		final List<RPZonePath> route = planner.findRoute(west, 2, 2, house, 5, 5);
+		assertEquals(3, route.size());
+		checkSegments(route);
+		assertSame(west, route.get(0).getZone());
+		assertEquals(new Node(2, 2), route.get(0).getPath().get(0));
+		assertEquals(new Node(19, 16), route.get(0).getPath().get(route.get(0).getPath().size() - 1));
+		assertSame(east, route.get(1).getZone());
+		assertEquals(new Node(0, 16), route.get(1).getPath().get(0));
+		assertEquals(new Node(10, 2), route.get(1).getPath().get(route.get(1).getPath().size() - 1));
+		assertSame(house, route.get(2).getZone());
+		assertEquals(new Node(5, 9), route.get(2).getPath().get(0));
+		assertEquals(new Node(5, 5), route.get(2).getPath().get(route.get(2).getPath().size() - 1));
+	}
+
+	/**
+	 * Tests routes within one zone, and to unreachable places.
+	 */
+	@Test
+	public void testSameZoneAndUnreachable() {
+		final List<RPZonePath> route = planner.findRoute(east, 1, 1, east, 5, 1);
+		assertEquals(1, route.size());
+		assertEquals(5, route.get(0).getPath().size());
+
+		final StendhalRPZone island = new StendhalRPZone("route_island", 5, 5);
+		zones.add(island);
+		planner.invalidate();
+		assertTrue(planner.findRoute(west, 2, 2, island, 1, 1).isEmpty());
+	}
+
+	/**
+	 * Tests that removed portals are no longer used after invalidating the
+	 * graph.
+	 */
+	@Test
+	public void testInvalidate() {
+		assertEquals(3, planner.findRoute(west, 2, 2, house, 5, 5).size());
+		east.remove(east.getPortal(10, 2));
+		planner.invalidate();
+		assertTrue(planner.findRoute(west, 2, 2, house, 5, 5).isEmpty());
+		// the destination of the house door is gone too
+		assertTrue(planner.findRoute(house, 5, 5, west, 2, 2).isEmpty());
+
+		addPortal(east, 12, 12, 1, "route_house", 2);
+		planner.invalidate();
+		assertEquals(3, planner.findRoute(house, 5, 5, west, 2, 2).size());
+	}
+}
@@ -0,0 +1,148 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.achievement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.entity.Entity;
+import games.stendhal.server.entity.npc.ChatCondition;
+import games.stendhal.server.entity.npc.condition.AndCondition;
+import games.stendhal.server.entity.npc.condition.LevelGreaterThanCondition;
+import games.stendhal.server.entity.npc.condition.PlayerHasKilledNumberOfCreaturesCondition;
+import games.stendhal.server.entity.npc.condition.QuestCompletedCondition;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.Log4J;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for AchievementNotifier.
+ */
+public class AchievementNotifierTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	/**
+	 * a condition that counts how often it is checked
+	 */
+	private static class CountingCondition implements DependentCondition {
+		private final Collection<String> dependencies;
+		private boolean fulfilled;
+		private int checks;
+
+		CountingCondition(final Collection<String> dependencies) {
+			this.dependencies = dependencies;
+		}
+
+		@Override
+		public boolean fire(final Player player, final Sentence sentence, final Entity npc) {
+			checks++;
+			return fulfilled;
+		}
+
+		@Override
+		public Collection<String> getDependencies() {
+			return dependencies;
+		}
+	}
+
+	/**
+	 * Tests that only achievements depending on a changed counter are checked.
+	 */
+	@Test
+	public void testOnlyDependentAchievementsAreChecked() {
+		final CountingCondition rats = new CountingCondition(Arrays.asList(DependentCondition.KILL + "rat"));
+		final CountingCondition wolves = new CountingCondition(Arrays.asList(DependentCondition.KILL + "wolf"));
+		final CountingCondition unknown = new CountingCondition(null);
+		final AchievementNotifier notifier = new AchievementNotifier();
+		notifier.addAchievements(Arrays.asList(
+				new Achievement("test.rats", "Rats", Category.FIGHTING, "", 1, true, rats),
+				new Achievement("test.wolves", "Wolves", Category.FIGHTING, "", 1, true, wolves),
+				new Achievement("test.unknown", "Unknown", Category.FIGHTING, "", 1, true, unknown)));
+
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.initReachedAchievements();
+
+		notifier.onKill(player, "rat");
+		assertEquals(1, rats.checks);
+		assertEquals(0, wolves.checks);
+		assertEquals(1, unknown.checks);
+
+		// reached achievements are not checked again
+		rats.fulfilled = true;
+		notifier.onKill(player, "rat");
+		assertTrue(player.hasReachedAchievement("test.rats"));
+		notifier.onKill(player, "rat");
+		assertEquals(2, rats.checks);
+		assertEquals(3, unknown.checks);
+
+		// without a creature everything is checked, except reached achievements
+		notifier.onKill(player);
+		assertEquals(2, rats.checks);
+		assertEquals(1, wolves.checks);
+		assertEquals(4, unknown.checks);
+	}
+
+	/**
+	 * Tests that achievements reached in an earlier session are skipped.
+	 */
+	@Test
+	public void testReachedBeforeLogin() {
+		final CountingCondition condition = new CountingCondition(Collections.singleton(DependentCondition.QUEST + "q"));
+		final AchievementNotifier notifier = new AchievementNotifier();
+		notifier.addAchievements(Arrays.asList(new Achievement("test.quest", "Quest", Category.QUEST, "", 1, true, condition)));
+
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.initReachedAchievements();
+		player.addReachedAchievement("test.quest");
+		notifier.onFinishQuest(player, "q");
+		notifier.onLogin(player);
+		assertEquals(0, condition.checks);
+	}
+
+	/**
+	 * Tests the dependencies of combined conditions.
+	 */
+	@Test
+	public void testDependencies() {
+		final ChatCondition known = new AndCondition(new QuestCompletedCondition("q"),
+				new PlayerHasKilledNumberOfCreaturesCondition("rat", 1));
+		final Achievement achievement = new Achievement("a", "A", Category.QUEST, "", 1, true, known);
+		assertEquals(2, achievement.getDependencies().size());
+		assertTrue(achievement.getDependencies().contains("quest:q"));
+		assertTrue(achievement.getDependencies().contains("kill:rat"));
+
+		final ChatCondition unknown = new AndCondition(new QuestCompletedCondition("q"),
+				new LevelGreaterThanCondition(5));
+		assertNull(new Achievement("b", "B", Category.QUEST, "", 1, true, unknown).getDependencies());
+	}
+}
@@ -0,0 +1,81 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.searchindex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests for SearchIndexEntity.
+ */
+public class SearchIndexEntityTest {
+
+	private SearchIndexEntity createRat(String description) {
+		SearchIndexEntity entity = new SearchIndexEntity('C', "big rat");
+		entity.addName(SearchIndexEntryType.CREATURE);
+		entity.addDescription(SearchIndexEntryType.CREATURE, description, 1000);
+		return entity;
+	}
+
+	/**
+	 * Tests the generated entries.
+	 */
+	@Test
+	public void testTokenize() {
+		Set<SearchIndexEntry> index = Sets.newHashSet();
+		createRat("It is a big rat, see: Rodent.").tokenize(index);
+
+		assertEquals(6, index.size());
+		assertTrue(index.contains(new SearchIndexEntry("big rat", 'C', "big rat", 3070)));
+		assertTrue(index.contains(new SearchIndexEntry("big", 'C', "big rat", 2070)));
+		assertTrue(index.contains(new SearchIndexEntry("rat", 'C', "big rat", 2070)));
+		assertTrue(index.contains(new SearchIndexEntry("big", 'C', "big rat", 1070)));
+		assertTrue(index.contains(new SearchIndexEntry("rat", 'C', "big rat", 1070)));
+		assertTrue(index.contains(new SearchIndexEntry("rodent", 'C', "big rat", 1070)));
+	}
+
+	/**
+	 * Tests that the hash depends on the texts only.
+	 */
+	@Test
+	public void testHash() {
+		assertEquals(createRat("A rat.").getHash(), createRat("A rat.").getHash());
+		assertFalse(createRat("A rat.").getHash().equals(createRat("A big rat.").getHash()));
+		assertFalse(createRat("A rat.").getHash().equals(new SearchIndexEntity('C', "big rat").getHash()));
+	}
+
+	/**
+	 * Tests that parallel tokenizing gives the same result.
+	 */
+	@Test
+	public void testParallelTokenize() {
+		List<SearchIndexEntity> entities = new ArrayList<SearchIndexEntity>();
+		Set<SearchIndexEntry> expected = Sets.newHashSet();
+		for (int i = 0; i < 1000; i++) {
+			SearchIndexEntity entity = new SearchIndexEntity('I', "item " + i);
+			entity.addName(SearchIndexEntryType.ITEM);
+			entity.addDescription(SearchIndexEntryType.ITEM, "Item number " + i + " of many.", 1000);
+			entity.tokenize(expected);
+			entities.add(entity);
+		}
+		assertEquals(expected, SearchIndexManager.tokenize(entities));
+	}
+}
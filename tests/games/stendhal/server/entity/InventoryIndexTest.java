@@ -0,0 +1,174 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.entity.item.Container;
+import games.stendhal.server.entity.item.StackableItem;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.Log4J;
+import marauroa.common.game.RPSlot;
+import utilities.PlayerTestHelper;
+import utilities.RPClass.ItemTestHelper;
+
+/**
+ * Tests for the inventory index of RPEntity.
+ */
+public class InventoryIndexTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		MockStendlRPWorld.get();
+		ItemTestHelper.generateRPClasses();
+	}
+
+	/**
+	 * Tests that the index follows added and removed items and changed
+	 * quantities.
+	 */
+	@Test
+	public void testCarriedItems() {
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		assertEquals(0, player.getNumberOfEquipped("money"));
+		assertNotNull("all slots are tracked", getIndex(player));
+
+		assertTrue(PlayerTestHelper.equipWithStackableItem(player, "money", 10));
+		assertTrue(PlayerTestHelper.equipWithItem(player, "dagger"));
+		assertTrue(PlayerTestHelper.equipWithItem(player, "dagger"));
+		assertEquals(10, player.getNumberOfEquipped("money"));
+		assertEquals(2, player.getNumberOfEquipped("dagger"));
+		assertTrue(player.isEquipped("money", 10));
+		assertFalse(player.isEquipped("money", 11));
+
+		assertTrue(player.drop("money", 3));
+		assertEquals(7, player.getNumberOfEquipped("money"));
+		assertTrue(player.drop("dagger"));
+		assertEquals(1, player.getNumberOfEquipped("dagger"));
+
+		final StackableItem money = (StackableItem) player.getFirstEquipped("money");
+		money.setQuantity(20);
+		assertEquals(20, player.getNumberOfEquipped("money"));
+		money.sub(5);
+		assertEquals(15, player.getNumberOfEquipped("money"));
+
+		assertTrue(player.drop(money));
+		assertEquals(0, player.getNumberOfEquipped("money"));
+		assertNull(player.getFirstEquipped("money"));
+		assertTrue(player.getAllEquipped("money").isEmpty());
+		assertFalse(player.isEquipped("money"));
+
+		// the removed stack is no longer counted
+		money.setQuantity(100);
+		assertEquals(0, player.getNumberOfEquipped("money"));
+
+		assertIndexConsistent(player, "money", "dagger");
+	}
+
+	/**
+	 * Tests items in container items and in slots, which are not carried.
+	 */
+	@Test
+	public void testNestedAndBankItems() {
+		final Player player = PlayerTestHelper.createPlayer("alice");
+		assertEquals(0, player.getTotalNumberOf("money"));
+
+		final Container container = new Container("bag", "container", "bag", null);
+		final RPSlot content = container.getSlot("content");
+		content.add(createMoney(4));
+		player.getSlot("bag").add(container);
+		assertEquals(4, player.getNumberOfEquipped("money"));
+		assertNotNull(player.getFirstEquipped("money"));
+		assertTrue("only items directly in the slots are listed", player.getAllEquipped("money").isEmpty());
+
+		content.add(createMoney(3));
+		assertEquals(7, player.getNumberOfEquipped("money"));
+
+		final RPSlot bank = player.getSlot("bank");
+		bank.add(createMoney(50));
+		assertEquals(7, player.getNumberOfEquipped("money"));
+		assertEquals(57, player.getTotalNumberOf("money"));
+
+		player.getSlot("bag").remove(container.getID());
+		assertEquals(0, player.getNumberOfEquipped("money"));
+		assertEquals(50, player.getTotalNumberOf("money"));
+
+		bank.add(container);
+		assertEquals(0, player.getNumberOfEquipped("money"));
+		assertEquals(57, player.getTotalNumberOf("money"));
+
+		bank.clear();
+		assertEquals(0, player.getTotalNumberOf("money"));
+
+		assertIndexConsistent(player, "money");
+	}
+
+	/**
+	 * Tests that slots which are not tracked disable the index.
+	 */
+	@Test
+	public void testUntrackedSlot() {
+		final Player player = PlayerTestHelper.createPlayer("carl");
+		assertEquals(0, player.getNumberOfEquipped("money"));
+		assertNotNull(getIndex(player));
+
+		player.removeSlot("belt");
+		player.addSlot(new RPSlot("belt"));
+		assertNull(getIndex(player));
+		player.getSlot("belt").add(createMoney(5));
+		assertEquals(5, player.getNumberOfEquipped("money"));
+		assertNull(getIndex(player));
+	}
+
+	/**
+	 * Gets the inventory index of an entity without creating it.
+	 *
+	 * @param entity entity
+	 * @return inventory index or <code>null</code>
+	 */
+	private static InventoryIndex getIndex(final RPEntity entity) {
+		return entity.getTrackedInventoryIndex();
+	}
+
+	private static StackableItem createMoney(final int quantity) {
+		final StackableItem money = (StackableItem) SingletonRepository.getEntityManager().getItem("money");
+		money.setQuantity(quantity);
+		return money;
+	}
+
+	/**
+	 * Compares the updated index with a newly created one.
+	 *
+	 * @param entity entity
+	 * @param names item names to compare
+	 */
+	private static void assertIndexConsistent(final RPEntity entity, final String... names) {
+		final InventoryIndex index = entity.getTrackedInventoryIndex();
+		assertNotNull(index);
+		final InventoryIndex created = InventoryIndex.create(entity);
+		for (final String name : names) {
+			assertEquals(created.getCarried(name), index.getCarried(name));
+			assertEquals(created.getTotal(name), index.getTotal(name));
+			assertEquals(created.getCarriedObjects(name), index.getCarriedObjects(name));
+		}
+	}
+}
@@ -54,4 +54,10 @@ public class QuestStateGreaterThanConditionTest {
 		assertTrue(c.fire(player, null, null));
 	}
 
+	@Test
+	public void testMissingSubState() {
+		QuestStateGreaterThanCondition c = new QuestStateGreaterThanCondition("testquest", 2, -1);
+		assertFalse(c.fire(player, null, null));
+	}
+
 }
@@ -16,6 +16,7 @@ import static games.stendhal.server.entity.npc.ConversationStates.ATTENDING;
 import static games.stendhal.server.entity.npc.ConversationStates.IDLE;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static utilities.SpeakerNPCTestHelper.getReply;
@@ -23,6 +24,7 @@ import static utilities.SpeakerNPCTestHelper.getReply;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import games.stendhal.common.parser.ExactExprMatcher;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.npc.ChatAction;
@@ -209,4 +211,68 @@ public class EngineTest {
 		assertEquals(reply, getReply(bob));
 	}
 
+	/**
+	 * Tests that the right transition is found among many, for all match types.
+	 */
+	@Test
+	public void testStepWithManyTransitions() {
+		final SpeakerNPC bob = new SpeakerNPC("bob");
+		final Engine en = new Engine(bob);
+		for (int i = 0; i < 100; i++) {
+			en.add(ATTENDING, "word" + i, null, false, ATTENDING, "reply" + i, null);
+		}
+		en.add(IDLE, "hi", null, false, ATTENDING, "hello", null);
+		en.add(ATTENDING, "banana", null, false, ATTENDING, "yellow", null);
+		en.add(ATTENDING, "cloak", null, false, ATTENDING, "a cloak", null);
+		en.addMatching(ATTENDING, "Exact", new ExactExprMatcher(), null, false, ATTENDING, "exact", null);
+		en.add(ConversationStates.ANY, "help", null, false, ConversationStates.QUESTION_1, "jump", null);
+		final Player pete = PlayerTestHelper.createPlayer("player");
+
+		assertFalse(en.step(pete, "word1"));
+		assertTrue(en.step(pete, "hi"));
+		assertEquals("hello", getReply(bob));
+
+		// exact match
+		assertTrue(en.step(pete, "word42"));
+		assertEquals("reply42", getReply(bob));
+		// normalized match
+		assertTrue(en.step(pete, "cloaks"));
+		assertEquals("a cloak", getReply(bob));
+		// expression matcher
+		assertTrue(en.step(pete, "Exact"));
+		assertEquals("exact", getReply(bob));
+		// similar match
+		assertTrue(en.step(pete, "bananna"));
+		assertEquals("yellow", getReply(bob));
+		// jump from any state
+		assertTrue(en.step(pete, "help"));
+		assertEquals("jump", getReply(bob));
+		assertEquals(ConversationStates.QUESTION_1, en.getCurrentState());
+		assertFalse(en.step(pete, "word42"));
+	}
+
+	/**
+	 * Tests that removed transitions are not found any more.
+	 */
+	@Test
+	public void testRemove() {
+		final SpeakerNPC bob = new SpeakerNPC("bob");
+		final Engine en = new Engine(bob);
+		en.add(IDLE, "hi", null, false, ATTENDING, "hello", null, "greeting");
+		en.add(ATTENDING, "job", null, false, ATTENDING, "no job", null, "job");
+		final Player pete = PlayerTestHelper.createPlayer("player");
+
+		assertTrue(en.remove("greeting"));
+		assertFalse(en.step(pete, "hi"));
+		en.setCurrentState(ATTENDING);
+		assertTrue(en.step(pete, "job"));
+		assertEquals("no job", getReply(bob));
+
+		// a transition added again is found again
+		en.add(IDLE, "hi", null, false, ATTENDING, "hello again", null);
+		en.setCurrentState(IDLE);
+		assertTrue(en.step(pete, "hi"));
+		assertEquals("hello again", getReply(bob));
+	}
+
 }
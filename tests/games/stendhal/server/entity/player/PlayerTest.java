@@ -363,6 +363,42 @@ public class PlayerTest {
 
 	}
 
+	/**
+	 * Tests for the typed accessors of the quest state.
+	 */
+	@Test
+	public void testQuestTypedAccess() {
+		Player player = PlayerTestHelper.createPlayer("questTestPlayer");
+		assertThat(player.getQuestInt("testquest", 0, 7), equalTo(7));
+		assertThat(player.getQuestLong("testquest", -1, 7L), equalTo(7L));
+		assertTrue(player.getQuestItems("testquest").isEmpty());
+
+		player.setQuest("testquest", "done;12;1514764800000;x");
+		assertThat(player.getQuestInt("testquest", 0, -1), equalTo(-1));
+		assertThat(player.getQuestInt("testquest", 1, -1), equalTo(12));
+		assertThat(player.getQuestLong("testquest", 2, -1L), equalTo(1514764800000L));
+		assertThat("too big for an int", player.getQuestInt("testquest", 2, -1), equalTo(-1));
+		assertThat(player.getQuestInt("testquest", 3, -1), equalTo(-1));
+		assertThat(player.getQuestInt("testquest", 4, -1), equalTo(-1));
+		assertThat(player.getQuestInt("testquest", -1, -1), equalTo(-1));
+
+		// the cached state follows changes of the quest slot
+		player.setQuest("testquest", 1, "13");
+		assertThat(player.getQuestInt("testquest", 1, -1), equalTo(13));
+		KeyedSlotUtil.setKeyedSlot(player, "!quests", "testquest", "-5");
+		assertThat(player.getQuestInt("testquest", -1, 0), equalTo(-5));
+		assertThat(player.getQuest("testquest", 1), equalTo(""));
+		player.removeQuest("testquest");
+		assertThat(player.getQuestInt("testquest", -1, 0), equalTo(0));
+
+		player.setQuest("testquest", "apple=3;cherry=2");
+		assertThat(player.getQuestItems("testquest").get("apple"), equalTo(3));
+		player.getQuestItems("testquest").removeItem("apple", 3);
+		assertThat("changing the returned collection must not change the cache",
+				player.getQuestItems("testquest").get("apple"), equalTo(3));
+		assertThat(player.getQuestItems("testquest").toStringForQuestState(), equalTo("apple=3;cherry=2"));
+	}
+
 	/**
 	 * Test that the damage done by a player is of right type.
 	 */
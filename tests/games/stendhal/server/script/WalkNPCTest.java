@@ -0,0 +1,94 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2018 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for WalkNPC.
+ */
+public class WalkNPCTest {
+	private static SpeakerNPC npc;
+
+	/**
+	 * Two exterior zones next to each other with an NPC in the western one.
+	 */
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+		final StendhalRPZone west = new StendhalRPZone("walk_west", 20, 20);
+		west.setPosition(0, 0, 0);
+		final StendhalRPZone east = new StendhalRPZone("walk_east", 20, 20);
+		east.setPosition(0, 20, 0);
+		MockStendlRPWorld.get().addRPZone(west);
+		MockStendlRPWorld.get().addRPZone(east);
+
+		npc = new SpeakerNPC("walktest");
+		npc.setPosition(2, 2);
+		west.add(npc);
+		SingletonRepository.getNPCList().add(npc);
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() {
+		SingletonRepository.getNPCList().remove("walktest");
+		MockStendlRPWorld.reset();
+	}
+
+	@After
+	public void tearDown() {
+		npc.clearPath();
+	}
+
+	/**
+	 * Tests that the NPC gets a path to another zone.
+	 */
+	@Test
+	public void testWalk() {
+		final Player admin = PlayerTestHelper.createPlayer("walkadmin");
+		new WalkNPC().execute(admin, Arrays.asList("walktest", "walk_east", "5", "5"));
+		assertEquals("walktest walks through 2 zones.", PlayerTestHelper.getPrivateReply(admin));
+		assertTrue(npc.hasPath());
+	}
+
+	/**
+	 * Tests the error messages.
+	 */
+	@Test
+	public void testErrors() {
+		final Player admin = PlayerTestHelper.createPlayer("walkadmin");
+		final WalkNPC script = new WalkNPC();
+		script.execute(admin, Arrays.asList("walktest"));
+		assertEquals("/script WalkNPC npc zone x y", PlayerTestHelper.getPrivateReply(admin));
+		script.execute(admin, Arrays.asList("nobody", "walk_east", "5", "5"));
+		assertEquals("NPC nobody does not exist.", PlayerTestHelper.getPrivateReply(admin));
+		script.execute(admin, Arrays.asList("walktest", "nowhere", "5", "5"));
+		assertEquals("Zone nowhere does not exist.", PlayerTestHelper.getPrivateReply(admin));
+		assertFalse(npc.hasPath());
+	}
+}